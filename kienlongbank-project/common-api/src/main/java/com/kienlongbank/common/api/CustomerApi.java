@@ -2,6 +2,7 @@ package com.kienlongbank.common.api;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import com.kienlongbank.common.dto.CustomerDTO;
 
@@ -28,6 +29,23 @@ public interface CustomerApi {
      */
     Optional<CustomerDTO> findCustomerByIdOptional(Long customerId);
     
+    /**
+     * Find several customers by ID in one call (batch lookup for bulk operations)
+     * 
+     * @param customerIds the customer IDs to search for
+     * @return CustomerDTOs of the customers that exist, in no particular order; unknown IDs are omitted
+     */
+    List<CustomerDTO> findCustomersByIds(List<Long> customerIds);
+    
+    /**
+     * Asynchronous variant of findCustomersByIds: Dubbo consumers get a future that completes
+     * when the response arrives instead of blocking the calling thread
+     * 
+     * @param customerIds the customer IDs to search for
+     * @return future of the CustomerDTOs of the customers that exist; unknown IDs are omitted
+     */
+    CompletableFuture<List<CustomerDTO>> findCustomersByIdsAsync(List<Long> customerIds);
+    
     /**
      * Find customer by email
      * 
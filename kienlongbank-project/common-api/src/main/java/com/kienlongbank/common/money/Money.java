@@ -0,0 +1,87 @@
+package com.kienlongbank.common.money;
+
+import java.math.BigDecimal;
+
+/**
+ * Money helpers based on {@code long} minor units.
+ * VND has no minor currency unit, so one minor unit is one dong.
+ *
+ * All arithmetic works on primitives (no allocation) and fails fast on overflow
+ * instead of silently wrapping around.
+ */
+public final class Money {
+
+    public static final String CURRENCY = "VND";
+
+    public static final long ZERO = 0L;
+
+    private Money() {
+        // Utility class - no instantiation
+    }
+
+    public static long add(long amount, long other) {
+        return Math.addExact(amount, other);
+    }
+
+    public static long subtract(long amount, long other) {
+        return Math.subtractExact(amount, other);
+    }
+
+    public static long negate(long amount) {
+        return Math.negateExact(amount);
+    }
+
+    /**
+     * @return true if {@code balance} is enough to pay {@code amount}
+     */
+    public static boolean covers(long balance, long amount) {
+        return balance >= amount;
+    }
+
+    public static boolean isPositive(long amount) {
+        return amount > 0;
+    }
+
+    /**
+     * Convert a decimal amount (legacy {@code Double} values) to minor units
+     *
+     * @throws IllegalArgumentException if the value is not finite or has a fractional part
+     */
+    public static long fromDecimal(double amount) {
+        if (!Double.isFinite(amount) || amount != Math.rint(amount)) {
+            throw new IllegalArgumentException("Invalid " + CURRENCY + " amount: " + amount);
+        }
+        if (amount >= 0x1p63 || amount < -0x1p63) {
+            throw new ArithmeticException(CURRENCY + " amount out of range: " + amount);
+        }
+        return (long) amount;
+    }
+
+    /**
+     * Convert a decimal amount to minor units
+     *
+     * @throws IllegalArgumentException if the value has a fractional part or does not fit in a long
+     */
+    public static long fromDecimal(BigDecimal amount) {
+        try {
+            return amount.longValueExact();
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid " + CURRENCY + " amount: " + amount, e);
+        }
+    }
+
+    public static long parse(String amount) {
+        try {
+            return fromDecimal(new BigDecimal(amount.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + CURRENCY + " amount: " + amount, e);
+        }
+    }
+
+    /**
+     * Decimal representation used on the wire (same as the former {@code Double} fields)
+     */
+    public static double toDecimal(long amount) {
+        return amount;
+    }
+}
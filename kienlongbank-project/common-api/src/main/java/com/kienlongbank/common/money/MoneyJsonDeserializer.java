@@ -0,0 +1,41 @@
+package com.kienlongbank.common.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+
+/**
+ * Reads money from integer, decimal ({@code 100.0}) or string tokens into minor units.
+ * Values with a fractional part are rejected since VND has no minor unit.
+ */
+public class MoneyJsonDeserializer extends StdDeserializer<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    public MoneyJsonDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        JsonToken token = parser.currentToken();
+        try {
+            if (token == JsonToken.VALUE_NUMBER_INT) {
+                return parser.getLongValue();
+            }
+            if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                return Money.fromDecimal(parser.getDecimalValue());
+            }
+            if (token == JsonToken.VALUE_STRING) {
+                return Money.parse(parser.getText());
+            }
+        } catch (IllegalArgumentException e) {
+            throw InvalidFormatException.from(parser, e.getMessage(), parser.getText(), Long.class);
+        }
+        return (Long) context.handleUnexpectedToken(Long.class, parser);
+    }
+}
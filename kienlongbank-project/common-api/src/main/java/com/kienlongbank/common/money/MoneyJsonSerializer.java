@@ -0,0 +1,24 @@
+package com.kienlongbank.common.money;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/**
+ * Writes minor units as a JSON decimal number, keeping the wire format of the former {@code Double} fields
+ */
+public class MoneyJsonSerializer extends StdSerializer<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    public MoneyJsonSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        gen.writeNumber(Money.toDecimal(value));
+    }
+}
@@ -0,0 +1,74 @@
+package com.kienlongbank.common.money;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public static class Payment {
+        @MoneyJson
+        public long amount;
+
+        @MoneyJson
+        public Long fee;
+    }
+
+    @Test
+    public void testArithmetic() {
+        assertEquals(1_500L, Money.add(1_000L, 500L));
+        assertEquals(500L, Money.subtract(1_000L, 500L));
+        assertTrue(Money.covers(1_000L, 1_000L));
+        assertFalse(Money.covers(999L, 1_000L));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void testAddOverflow() {
+        Money.add(Long.MAX_VALUE, 1L);
+    }
+
+    @Test
+    public void testFromDecimal() {
+        assertEquals(10_000_000L, Money.fromDecimal(10000000.0));
+        assertEquals(100L, Money.fromDecimal(new BigDecimal("100.00")));
+        assertEquals(250L, Money.parse(" 250 "));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFromDecimal_FractionRejected() {
+        Money.fromDecimal(999.99);
+    }
+
+    @Test
+    public void testJson_WireFormatUnchanged() throws Exception {
+        Payment payment = new Payment();
+        payment.amount = 100L;
+        payment.fee = 10_000_000L;
+
+        // Giống hệt định dạng của các trường Double trước đây
+        assertEquals("{\"amount\":100.0,\"fee\":1.0E7}", objectMapper.writeValueAsString(payment));
+    }
+
+    @Test
+    public void testJson_ReadsIntegerAndDecimal() throws Exception {
+        Payment payment = objectMapper.readValue("{\"amount\":100.0,\"fee\":\"25\"}", Payment.class);
+        assertEquals(100L, payment.amount);
+        assertEquals(Long.valueOf(25L), payment.fee);
+
+        payment = objectMapper.readValue("{\"amount\":100}", Payment.class);
+        assertEquals(100L, payment.amount);
+    }
+
+    @Test(expected = com.fasterxml.jackson.databind.exc.InvalidFormatException.class)
+    public void testJson_FractionRejected() throws Exception {
+        objectMapper.readValue("{\"amount\":100.5}", Payment.class);
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import org.apache.dubbo.config.annotation.DubboService;
@@ -76,6 +77,30 @@ public class CustomerServiceImpl implements CustomerApi {
         return Optional.empty();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<CustomerDTO> findCustomersByIds(List<Long> customerIds) {
+        if (customerIds == null || customerIds.isEmpty()) {
+            return List.of();
+        }
+
+        // One IN (...) query instead of one findById round-trip per customer
+        List<Customer> customers = customerRepository.findAllById(customerIds);
+        return customers.stream()
+                .map(this::convertToDTO)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CompletableFuture<List<CustomerDTO>> findCustomersByIdsAsync(List<Long> customerIds) {
+        // The lookup is a single indexed query; asynchrony is on the consumer side,
+        // which is released as soon as the request is sent.
+        // The self-invocation below bypasses the proxy, so the read-only transaction
+        // has to be declared here rather than inherited from findCustomersByIds
+        return CompletableFuture.completedFuture(findCustomersByIds(customerIds));
+    }
+
     @Override
     @Transactional(readOnly = true)
     public CustomerDTO findCustomerByEmail(String email) {
@@ -1,5 +1,6 @@
 package com.example.customer_service.service.impl;
 
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -19,6 +20,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.mockito.MockitoAnnotations;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.customer_service.model.Customer;
 import com.example.customer_service.repository.CustomerRepository;
@@ -128,6 +130,41 @@ class CustomerServiceImplTest {
         verify(customerRepository).existsById(999L);
     }
 
+    @Test
+    void testFindCustomersByIds() {
+        // Given
+        when(customerRepository.findAllById(List.of(1L, 999L))).thenReturn(List.of(testCustomer));
+
+        // When
+        List<CustomerDTO> result = customerService.findCustomersByIds(List.of(1L, 999L));
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        assertTrue(customerService.findCustomersByIds(List.of()).isEmpty());
+        verify(customerRepository).findAllById(List.of(1L, 999L));
+    }
+
+    @Test
+    void testFindCustomersByIdsAsync() throws Exception {
+        // Given
+        when(customerRepository.findAllById(List.of(1L))).thenReturn(List.of(testCustomer));
+
+        // When
+        List<CustomerDTO> result = customerService.findCustomersByIdsAsync(List.of(1L)).get();
+
+        // Then
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+        // The inner findCustomersByIds call is a self-invocation, so the async entry point
+        // must carry the read-only transaction itself
+        Transactional transactional = CustomerServiceImpl.class
+                .getMethod("findCustomersByIdsAsync", List.class)
+                .getAnnotation(Transactional.class);
+        assertNotNull(transactional);
+        assertTrue(transactional.readOnly());
+    }
+
     @Test
     void testExistsByEmail() {
         // Given
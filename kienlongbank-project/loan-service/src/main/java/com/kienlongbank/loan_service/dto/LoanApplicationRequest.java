@@ -1,5 +1,7 @@
 package com.kienlongbank.loan_service.dto;
 
+import com.kienlongbank.common.money.MoneyJson;
+
 import jakarta.validation.constraints.DecimalMax;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Max;
@@ -18,9 +20,10 @@ public class LoanApplicationRequest {
     private Long customerId;
     
     @NotNull(message = "Số tiền vay không được để trống")
-    @DecimalMin(value = "1000000.0", message = "Số tiền vay tối thiểu là 1,000,000 VNĐ")
-    @DecimalMax(value = "1000000000.0", message = "Số tiền vay tối đa là 1,000,000,000 VNĐ")
-    private Double amount;
+    @Min(value = 1_000_000L, message = "Số tiền vay tối thiểu là 1,000,000 VNĐ")
+    @Max(value = 1_000_000_000L, message = "Số tiền vay tối đa là 1,000,000,000 VNĐ")
+    @MoneyJson
+    private Long amount;
     
     @NotNull(message = "Lãi suất không được để trống")
     @DecimalMin(value = "0.1", message = "Lãi suất tối thiểu là 0.1%")
@@ -1,5 +1,6 @@
 package com.kienlongbank.loan_service.dto;
 
+import com.kienlongbank.common.money.MoneyJson;
 import com.kienlongbank.loan_service.entity.Loan;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -14,7 +15,8 @@ public class LoanApplicationResponse {
     
     private Long loanId;
     private Long customerId;
-    private Double amount;
+    @MoneyJson
+    private Long amount;
     private Double interestRate;
     private Integer term;
     private Loan.LoanStatus status;
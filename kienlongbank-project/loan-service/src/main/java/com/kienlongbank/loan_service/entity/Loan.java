@@ -2,6 +2,8 @@ package com.kienlongbank.loan_service.entity;
 
 import java.time.LocalDateTime;
 
+import com.kienlongbank.common.money.MoneyJson;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.EnumType;
@@ -29,8 +31,9 @@ public class Loan {
     @Column(nullable = false)
     private Long customerId; // ID của khách hàng vay
 
+    @MoneyJson
     @Column(nullable = false)
-    private Double amount; // Số tiền vay
+    private long amount; // Số tiền vay (VND, cột BIGINT)
     
     @Column(nullable = false)
     private Double interestRate; // Lãi suất
@@ -26,7 +26,7 @@ public interface LoanRepository extends JpaRepository<Loan, Long> {
     
     // Tìm tổng số tiền vay đang chờ phê duyệt của khách hàng
     @Query("SELECT COALESCE(SUM(l.amount), 0) FROM Loan l WHERE l.customerId = :customerId AND l.status = :status")
-    Double getTotalAmountByCustomerIdAndStatus(@Param("customerId") Long customerId, @Param("status") Loan.LoanStatus status);
+    Long getTotalAmountByCustomerIdAndStatus(@Param("customerId") Long customerId, @Param("status") Loan.LoanStatus status);
     
     // Kiểm tra khách hàng có khoản vay đang chờ phê duyệt không
     boolean existsByCustomerIdAndStatus(Long customerId, Loan.LoanStatus status);
@@ -77,7 +77,7 @@ public class LoanService {
         return loan;
     }
     
-    private boolean checkCreditEligibility(Long customerId, Double amount) {
+    private boolean checkCreditEligibility(Long customerId, long amount) {
         try {
             // TODO: Implement Dubbo-based credit eligibility check
             log.info("Checking credit eligibility for customer {} with amount {}", customerId, amount);
@@ -90,7 +90,7 @@ public class LoanService {
         
         // Fallback logic: kiểm tra đơn giản
         // Ví dụ: số tiền vay không quá 100 triệu
-        return amount <= 100_000_000.0;
+        return amount <= 100_000_000L;
     }
     
     public List<Loan> getLoansByCustomerId(Long customerId) {
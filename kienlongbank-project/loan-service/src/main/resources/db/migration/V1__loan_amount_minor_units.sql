@@ -0,0 +1,16 @@
+-- Migration script to store loan amount as BIGINT minor units
+-- Purpose: Loan.amount is now a long value (VND has no decimals)
+-- Date: October 2026
+
+-- Fail fast if any existing amount has a fractional part
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM loans WHERE amount <> TRUNC(amount)) THEN
+        RAISE EXCEPTION 'Fractional VND loan amounts found, reconcile before migrating to BIGINT';
+    END IF;
+END $$;
+
+ALTER TABLE loans
+ALTER COLUMN amount TYPE BIGINT USING amount::BIGINT;
+
+COMMENT ON COLUMN loans.amount IS 'Loan amount in minor units (VND)';
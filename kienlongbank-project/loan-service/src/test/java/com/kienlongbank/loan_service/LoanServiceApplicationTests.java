@@ -47,7 +47,7 @@ class LoanServiceApplicationTests {
 		Loan loan = new Loan();
 		loan.setId(1L);
 		loan.setCustomerId(1L);
-		loan.setAmount(10000000.0);
+		loan.setAmount(10_000_000L);
 		loan.setInterestRate(8.5);
 		loan.setTerm(12);
 		loan.setStatus(Loan.LoanStatus.PENDING);
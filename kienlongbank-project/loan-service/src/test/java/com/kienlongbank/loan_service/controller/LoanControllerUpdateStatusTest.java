@@ -40,7 +40,7 @@ public class LoanControllerUpdateStatusTest {
         Loan mockLoan = new Loan();
         mockLoan.setId(loanId);
         mockLoan.setCustomerId(123L);
-        mockLoan.setAmount(50000000.0);
+        mockLoan.setAmount(50_000_000L);
         mockLoan.setInterestRate(8.5);
         mockLoan.setTerm(24);
         mockLoan.setStatus(Loan.LoanStatus.APPROVED);
@@ -75,7 +75,7 @@ public class LoanControllerUpdateStatusTest {
         Loan mockLoan = new Loan();
         mockLoan.setId(loanId);
         mockLoan.setCustomerId(124L);
-        mockLoan.setAmount(100000000.0);
+        mockLoan.setAmount(100_000_000L);
         mockLoan.setStatus(Loan.LoanStatus.REJECTED);
         mockLoan.setRejectReason(rejectReason);
         mockLoan.setApprovedBy("admin");
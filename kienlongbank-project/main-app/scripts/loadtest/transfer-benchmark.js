@@ -0,0 +1,107 @@
+// Benchmark chuyển khoản đồng thời cho main-app (k6: https://k6.io)
+//
+// So sánh platform threads và virtual threads: chạy cùng một script hai lần với cùng dữ liệu,
+// mỗi lần khởi động main-app ở một chế độ (cần JDK 21 và build với profile java21):
+//
+//   VIRTUAL_THREADS_ENABLED=false java -jar target/klb-account-management-0.0.1-SNAPSHOT.jar
+//   k6 run -e MODE=platform -e TOKEN=$TOKEN scripts/loadtest/transfer-benchmark.js
+//
+//   VIRTUAL_THREADS_ENABLED=true java -jar target/klb-account-management-0.0.1-SNAPSHOT.jar
+//   k6 run -e MODE=virtual -e TOKEN=$TOKEN scripts/loadtest/transfer-benchmark.js
+//
+// Kết quả (throughput, p95/p99) được ghi vào transfer-<MODE>.json (thư mục hiện tại).
+// Tham số:
+//   BASE_URL           mặc định http://localhost:8080
+//   TOKEN              access token Keycloak (bắt buộc)
+//   VUS                số người dùng đồng thời, mặc định 1000
+//   DURATION           thời gian đo, mặc định 60s
+//   ACCOUNT_ID_MIN/MAX khoảng ID tài khoản có sẵn số dư, mặc định 1..100
+//   AMOUNT             số tiền mỗi giao dịch (VND), mặc định 1000
+
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const MODE = __ENV.MODE || 'unknown';
+const VUS = parseInt(__ENV.VUS || '1000');
+const DURATION = __ENV.DURATION || '60s';
+const ACCOUNT_ID_MIN = parseInt(__ENV.ACCOUNT_ID_MIN || '1');
+const ACCOUNT_ID_MAX = parseInt(__ENV.ACCOUNT_ID_MAX || '100');
+const AMOUNT = parseInt(__ENV.AMOUNT || '1000');
+
+const completed = new Counter('transfers_completed');
+const rejected = new Counter('transfers_rejected');
+
+export const options = {
+    scenarios: {
+        concurrent_transfers: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: DURATION,
+            gracefulStop: '30s',
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+    summaryTrendStats: ['avg', 'med', 'p(95)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    if (!TOKEN) {
+        throw new Error('TOKEN is required');
+    }
+    if (ACCOUNT_ID_MAX <= ACCOUNT_ID_MIN) {
+        throw new Error('ACCOUNT_ID_MAX must be greater than ACCOUNT_ID_MIN');
+    }
+}
+
+function randomAccountId() {
+    return ACCOUNT_ID_MIN + Math.floor(Math.random() * (ACCOUNT_ID_MAX - ACCOUNT_ID_MIN + 1));
+}
+
+export default function () {
+    const fromAccountId = randomAccountId();
+    let toAccountId = randomAccountId();
+    while (toAccountId === fromAccountId) {
+        toAccountId = randomAccountId();
+    }
+
+    const res = http.post(`${BASE_URL}/api/transactions/transfer`,
+        JSON.stringify({ fromAccountId, toAccountId, amount: AMOUNT }),
+        {
+            headers: {
+                'Content-Type': 'application/json',
+                'Authorization': `Bearer ${TOKEN}`,
+                'Idempotency-Key': `bench-${MODE}-${__VU}-${__ITER}-${Date.now()}`,
+            },
+            // 400 (ví dụ số dư không đủ) là kết quả nghiệp vụ hợp lệ, không tính là lỗi HTTP
+            responseCallback: http.expectedStatuses(200, 400),
+        });
+
+    if (res.status === 200) {
+        completed.add(1);
+    } else {
+        rejected.add(1);
+    }
+    check(res, { 'transfer handled': (r) => r.status === 200 || r.status === 400 });
+}
+
+export function handleSummary(data) {
+    const summary = {
+        mode: MODE,
+        vus: VUS,
+        duration: DURATION,
+        requestsPerSecond: data.metrics.http_reqs.values.rate,
+        transfersCompleted: data.metrics.transfers_completed ? data.metrics.transfers_completed.values.count : 0,
+        transfersRejected: data.metrics.transfers_rejected ? data.metrics.transfers_rejected.values.count : 0,
+        failedRate: data.metrics.http_req_failed.values.rate,
+        latencyMs: data.metrics.http_req_duration.values,
+    };
+    return {
+        stdout: JSON.stringify(summary, null, 2) + '\n',
+        [`transfer-${MODE}.json`]: JSON.stringify(summary, null, 2),
+    };
+}
@@ -0,0 +1,36 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Base64UrlNamingStrategy;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Kênh broadcast vô hiệu hóa cache tài khoản: mỗi node có một queue riêng (tự xóa khi node dừng)
+ * gắn vào fanout exchange chung
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "accounts.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class AccountCacheBroadcastConfig {
+
+    @Bean
+    public FanoutExchange accountCacheInvalidationExchange(AccountCacheConfig config) {
+        return new FanoutExchange(config.getExchange(), true, false);
+    }
+
+    @Bean
+    public Queue accountCacheInvalidationQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("account-cache-"));
+    }
+
+    @Bean
+    public Binding accountCacheInvalidationBinding(FanoutExchange accountCacheInvalidationExchange,
+                                                   Queue accountCacheInvalidationQueue) {
+        return BindingBuilder.bind(accountCacheInvalidationQueue).to(accountCacheInvalidationExchange);
+    }
+}
@@ -0,0 +1,32 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình cache cục bộ của tài khoản (xem AccountCache)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "accounts.cache")
+@Data
+public class AccountCacheConfig {
+
+    // Tắt để mọi lần đọc đều truy vấn DB
+    private boolean enabled = true;
+
+    // Số tài khoản tối đa được giữ trong cache
+    private long maximumSize = 100_000;
+
+    // Số danh sách tài khoản theo khách hàng tối đa được giữ trong cache
+    private long customerMaximumSize = 20_000;
+
+    // Thời gian sống tối đa của một mục, giới hạn độ trễ nếu một tin vô hiệu hóa từ node khác bị mất
+    private long expireAfterWriteMs = 30_000;
+
+    // Fanout exchange để các node main-app báo cho nhau vô hiệu hóa cache
+    private String exchange = "account.cache.invalidation";
+
+    // Số tin broadcast tối đa chờ gửi; hàng đợi đầy thì tin bị bỏ và node khác chờ mục hết hạn
+    private int broadcastQueueCapacity = 10_000;
+}
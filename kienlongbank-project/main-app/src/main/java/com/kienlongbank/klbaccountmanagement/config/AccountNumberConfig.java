@@ -0,0 +1,18 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình cấp số tài khoản theo khối từ sequence account_number_seq (xem AccountNumberAllocator)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "accounts.number")
+@Data
+public class AccountNumberConfig {
+
+    // Số lượng số tài khoản mỗi node lấy trong một lần gọi nextval.
+    // Chỉ dùng khi tạo sequence; sequence đã có thì INCREMENT BY của nó quyết định kích thước khối
+    private int blockSize = 1000;
+}
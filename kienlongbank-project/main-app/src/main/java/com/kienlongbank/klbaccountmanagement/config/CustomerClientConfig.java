@@ -0,0 +1,35 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình near cache và gom lô của CustomerServiceClient
+ */
+@Configuration
+@ConfigurationProperties(prefix = "customer.client")
+@Data
+public class CustomerClientConfig {
+
+    // Thời gian giữ thông tin khách hàng tìm thấy
+    private long cacheTtlMs = 60_000;
+
+    // Thời gian giữ kết quả "không tồn tại", ngắn để khách hàng vừa tạo sớm được nhìn thấy
+    private long negativeCacheTtlMs = 5_000;
+
+    // Số khách hàng tối đa trong near cache
+    private long cacheMaximumSize = 50_000;
+
+    // Các lần tra cứu trượt cache trong cửa sổ này được gom thành một lần gọi findCustomersByIds
+    private long batchWindowMs = 2;
+
+    // Số ID tối đa trong một lô, đủ lô thì gọi ngay không chờ hết cửa sổ
+    private int maxBatchSize = 200;
+
+    // Số luồng gọi Dubbo cho các lô và existsById
+    private int lookupThreads = 4;
+
+    // Thời gian chờ tối đa một lần tra cứu
+    private long timeoutMs = 5_000;
+}
@@ -0,0 +1,20 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình chia số dư của tài khoản nóng (merchant, thu hộ) thành nhiều slot
+ */
+@Configuration
+@ConfigurationProperties(prefix = "hot-accounts")
+@Data
+public class HotAccountConfig {
+
+    // Bật chế độ slot cho các tài khoản được đánh dấu hot_account (không áp dụng khi ledger.mode=SHARDED)
+    private boolean enabled = false;
+
+    // Số slot K của mỗi tài khoản nóng
+    private int slots = 8;
+}
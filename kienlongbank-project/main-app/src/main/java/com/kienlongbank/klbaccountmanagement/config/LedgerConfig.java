@@ -0,0 +1,38 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình cho ledger engine xử lý chuyển khoản trong bộ nhớ
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ledger")
+@Data
+public class LedgerConfig {
+
+    /**
+     * JPA: chuyển khoản qua AccountRepository như trước (mặc định)
+     * SHARDED: chuyển khoản qua các shard đơn luồng của LedgerEngine; chỉ một node được bật chế độ này
+     * (LedgerNodeLock giữ advisory lock của PostgreSQL, node thứ hai sẽ không khởi động được)
+     */
+    private Mode mode = Mode.JPA;
+
+    // Số shard (mỗi shard là một luồng ghi duy nhất)
+    private int shards = 4;
+
+    // Sức chứa ring buffer của mỗi shard
+    private int ringBufferSize = 4096;
+
+    // Số lệnh tối đa được ghi sổ trong một lần commit
+    private int batchSize = 256;
+
+    // Chu kỳ kiểm tra connection giữ advisory lock single-node (LedgerNodeLock)
+    private long lockCheckIntervalMs = 1000;
+
+    public enum Mode {
+        JPA,
+        SHARDED
+    }
+}
@@ -0,0 +1,42 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình đọc từ replica: transaction read-only (@Transactional(readOnly = true), kể cả các phương thức đọc
+ * mặc định của Spring Data repository) được chuyển sang replica, mọi thứ khác chạy trên primary
+ */
+@Configuration
+@ConfigurationProperties(prefix = "datasource.read-replicas")
+@Data
+public class ReadReplicaConfig {
+
+    // Tắt: chỉ dùng DataSource mặc định của Spring Boot (spring.datasource.*)
+    private boolean enabled = false;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    // Replica trễ hơn maxLagMs so với primary thì tạm thời không nhận truy vấn đọc
+    private long maxLagMs = 5000;
+
+    private long lagCheckIntervalMs = 1000;
+
+    // Độ trễ (ms) của replica so với primary. Replica đã replay hết WAL nhận được thì trễ 0,
+    // tránh báo trễ giả khi primary không có ghi mới
+    private String lagQuery =
+        "SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+        "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0) END";
+
+    @Data
+    public static class Node {
+        private String url;
+        private String username;
+        private String password;
+        private int maximumPoolSize = 10;
+    }
+}
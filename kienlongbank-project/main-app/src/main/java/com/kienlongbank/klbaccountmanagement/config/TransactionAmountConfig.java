@@ -0,0 +1,20 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình các truy vấn theo số tiền (ngưỡng, khoảng, top N giao dịch lớn nhất)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "transactions.amount")
+@Data
+public class TransactionAmountConfig {
+
+    // Số giao dịch trả về khi client không gửi limit
+    private int defaultLimit = 100;
+
+    // limit (và N của top N) lớn hơn giá trị này sẽ bị cắt xuống
+    private int maxLimit = 1000;
+}
@@ -0,0 +1,20 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình phân trang lịch sử giao dịch theo cursor
+ */
+@Configuration
+@ConfigurationProperties(prefix = "transactions.history")
+@Data
+public class TransactionHistoryConfig {
+
+    // Số giao dịch mỗi trang khi client không gửi limit
+    private int defaultLimit = 50;
+
+    // limit lớn hơn giá trị này sẽ bị cắt xuống
+    private int maxLimit = 500;
+}
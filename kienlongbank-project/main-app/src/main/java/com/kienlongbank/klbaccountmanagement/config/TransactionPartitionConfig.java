@@ -0,0 +1,28 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình phân vùng theo tháng của bảng transactions (db/migration/V7__partition_transactions.sql)
+ */
+@Configuration
+@ConfigurationProperties(prefix = "transactions.partitioning")
+@Data
+public class TransactionPartitionConfig {
+
+    // Tạo trước partition của tháng hiện tại và premakeMonths tháng tiếp theo.
+    // Bảng chưa được phân vùng (chưa chạy V7) thì TransactionPartitionManager không làm gì
+    private boolean enabled = true;
+
+    private int premakeMonths = 3;
+
+    // Lưu trữ (VACUUM FREEZE một lần) các partition cũ hơn archiveAfterMonths tháng, partition vẫn gắn vào bảng transactions
+    private boolean archiveEnabled = false;
+
+    private int archiveAfterMonths = 12;
+
+    // Thời gian chờ khóa tối đa khi gắn partition mới, quá thời gian thì bỏ qua và thử lại ở lần chạy sau
+    private long lockTimeoutMs = 2000;
+}
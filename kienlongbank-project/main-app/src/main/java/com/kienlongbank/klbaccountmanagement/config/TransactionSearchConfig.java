@@ -0,0 +1,33 @@
+package com.kienlongbank.klbaccountmanagement.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Cấu hình tìm kiếm giao dịch theo mô tả
+ */
+@Configuration
+@ConfigurationProperties(prefix = "transactions.search")
+@Data
+public class TransactionSearchConfig {
+
+    /**
+     * TRIGRAM: index GIN pg_trgm trên mô tả đã bỏ dấu, không phân biệt hoa thường/dấu, xếp hạng theo độ giống
+     *          cần chạy db/migration/V5__transaction_description_search.sql; thiếu pg_trgm hoặc immutable_unaccent()
+     *          thì khi khởi động sẽ cảnh báo và dùng LIKE (mặc định)
+     * LIKE: LIKE %keyword% như trước, phân biệt dấu, quét toàn bảng
+     */
+    private Mode mode = Mode.TRIGRAM;
+
+    // Số kết quả mỗi trang khi client không gửi size
+    private int defaultSize = 20;
+
+    // size lớn hơn giá trị này sẽ bị cắt xuống
+    private int maxSize = 100;
+
+    public enum Mode {
+        TRIGRAM,
+        LIKE
+    }
+}
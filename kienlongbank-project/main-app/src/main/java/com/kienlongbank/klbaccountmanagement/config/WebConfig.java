@@ -4,8 +4,11 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.kienlongbank.klbaccountmanagement.datasource.ReadYourWrites;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -25,4 +28,10 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedHeaders("*")
                 .allowCredentials(true);
     }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // Read-your-writes chỉ kéo dài trong một request
+        registry.addInterceptor(new ReadYourWrites.Interceptor());
+    }
 }
@@ -1,10 +1,20 @@
 package com.kienlongbank.klbaccountmanagement.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -13,12 +23,28 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.dto.AccountCustomerView;
 import com.kienlongbank.klbaccountmanagement.dto.AccountResponse;
+import com.kienlongbank.klbaccountmanagement.dto.AccountStatementSummary;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+import com.kienlongbank.klbaccountmanagement.dto.BulkAccountItem;
+import com.kienlongbank.klbaccountmanagement.dto.BulkAccountResult;
 import com.kienlongbank.klbaccountmanagement.dto.CreateAccountRequest;
+import com.kienlongbank.klbaccountmanagement.dto.UpdateAccountRequest;
 import com.kienlongbank.klbaccountmanagement.model.Account;
 import com.kienlongbank.klbaccountmanagement.service.AccountService;
+import com.kienlongbank.klbaccountmanagement.service.AccountWithCustomerInfoService;
+import com.kienlongbank.klbaccountmanagement.service.BulkAccountOpeningService;
+import com.kienlongbank.klbaccountmanagement.service.DailyBalanceRollup;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -34,6 +60,21 @@ public class AccountController {
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private DailyBalanceRollup dailyBalanceRollup;
+
+    @Autowired
+    private BulkAccountOpeningService bulkAccountOpeningService;
+
+    @Autowired
+    private AccountWithCustomerInfoService accountWithCustomerInfoService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${accounts.bulk.max-items:10000}")
+    private int bulkMaxItems;
+
     // Helper method để chuyển Account entity thành AccountResponse DTO
     private AccountResponse convertToDTO(Account account) {
         AccountResponse response = new AccountResponse();
@@ -66,7 +107,7 @@ public class AccountController {
             // Chuyển đổi DTO thành Entity
             Account account = new Account();
             account.setAccountType(request.getAccountType());
-            account.setBalance(request.getBalance() != null ? request.getBalance() : 0.0);
+            account.setBalance(request.getBalance() != null ? request.getBalance() : Money.ZERO);
             
             Account createdAccount = accountService.createAccount(customerId, account);
             AccountResponse response = convertToDTO(createdAccount);
@@ -77,6 +118,71 @@ public class AccountController {
         }
     }
 
+    /**
+     * Mở tài khoản hàng loạt (onboarding doanh nghiệp)
+     * POST /api/accounts/bulk
+     * Nhận mảng JSON hoặc NDJSON (mỗi dòng một tài khoản), trả về NDJSON: mỗi dòng là kết quả của một tài khoản,
+     * được gửi theo từng nhóm ngay khi nhóm đó được ghi xong
+     */
+    @PostMapping(value = "/accounts/bulk", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    @Operation(summary = "Open accounts in bulk", description = "Open many accounts in one request, streaming per-account results as NDJSON")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Per-account results streamed as NDJSON"),
+        @ApiResponse(responseCode = "400", description = "Invalid input data"),
+        @ApiResponse(responseCode = "503", description = "Customer service unavailable")
+    })
+    public ResponseEntity<?> openAccountsInBulk(InputStream body) {
+        List<BulkAccountItem> items = new ArrayList<>();
+        try (MappingIterator<BulkAccountItem> iterator = objectMapper.readerFor(BulkAccountItem.class).readValues(body)) {
+            while (iterator.hasNext()) {
+                if (items.size() == bulkMaxItems) {
+                    return ResponseEntity.badRequest()
+                        .body(Map.of("error", "Số tài khoản trong một lô không được vượt quá " + bulkMaxItems));
+                }
+                items.add(iterator.next());
+            }
+        } catch (IOException | RuntimeJsonMappingException e) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Dữ liệu lô mở tài khoản không hợp lệ"));
+        }
+        if (items.isEmpty()) {
+            return ResponseEntity.badRequest()
+                .body(Map.of("error", "Lô mở tài khoản không có tài khoản nào"));
+        }
+
+        // Kiểm tra khách hàng trước khi gửi header để lỗi customer-service vẫn trả được mã lỗi
+        BulkAccountOpeningService.Plan plan;
+        try {
+            plan = bulkAccountOpeningService.plan(items);
+        } catch (RuntimeException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body(Map.of("error", e.getMessage()));
+        }
+
+        StreamingResponseBody responseBody = out -> {
+            JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            try {
+                bulkAccountOpeningService.execute(plan, results -> {
+                    try {
+                        for (BulkAccountResult result : results) {
+                            generator.writeObject(result);
+                            generator.writeRaw('\n');
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(responseBody);
+    }
+
     /**
      * Tạo một tài khoản mới cho một khách hàng cụ thể
      * POST /api/customers/{customerId}/accounts
@@ -95,7 +201,7 @@ public class AccountController {
             // Chuyển đổi DTO thành Entity
             Account account = new Account();
             account.setAccountType(request.getAccountType());
-            account.setBalance(request.getBalance() != null ? request.getBalance() : 0.0);
+            account.setBalance(request.getBalance() != null ? request.getBalance() : Money.ZERO);
             
             Account createdAccount = accountService.createAccount(customerId, account);
             AccountResponse response = convertToDTO(createdAccount);
@@ -119,17 +225,47 @@ public class AccountController {
     public ResponseEntity<?> getAccountsByCustomerId(
             @Parameter(description = "Customer ID") @PathVariable Long customerId) {
         try {
-            List<Account> accounts = accountService.getAccountsByCustomerId(customerId);
-            List<AccountResponse> response = accounts.stream()
-                    .map(this::convertToDTO)
-                    .collect(Collectors.toList());
-            return ResponseEntity.ok(response);
+            List<AccountView> accounts = accountService.getAccountsByCustomerId(customerId);
+            return ResponseEntity.ok(accounts);
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Lỗi: " + e.getMessage());
         }
     }
 
+    /**
+     * Lấy nhiều tài khoản kèm thông tin khách hàng trong một request (màn hình dạng danh sách)
+     * GET /api/accounts/with-customers?ids=1,2,3
+     * Tài khoản được nạp song song, khách hàng được tra cứu bất đồng bộ và mỗi khách hàng chỉ một lần
+     */
+    @GetMapping("/accounts/with-customers")
+    @Operation(summary = "Get accounts with customer info", description = "Fetch several accounts and their distinct customers concurrently in one request")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Accounts found (unknown IDs are omitted)"),
+        @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    public CompletableFuture<ResponseEntity<?>> getAccountsWithCustomerInfo(
+            @Parameter(description = "Account IDs") @RequestParam List<Long> ids) {
+        if (ids.isEmpty()) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", "Thiếu thông tin bắt buộc: ids")));
+        }
+        CompletableFuture<List<AccountCustomerView>> accounts;
+        try {
+            accounts = accountWithCustomerInfoService.getAccountsWithCustomerInfoAsync(ids);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest()
+                .body(Map.of("error", e.getMessage())));
+        }
+        return accounts
+            .<ResponseEntity<?>>thenApply(result -> ResponseEntity.ok(Map.of(
+                "message", "Lấy thông tin tài khoản và khách hàng thành công",
+                "accounts", result
+            )))
+            .exceptionally(e -> ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Có lỗi xảy ra khi lấy thông tin tài khoản và khách hàng")));
+    }
+
     /**
      * Lấy thông tin một tài khoản cụ thể
      * GET /api/accounts/{accountId}
@@ -142,16 +278,71 @@ public class AccountController {
     })
     public ResponseEntity<?> getAccountById(
             @Parameter(description = "Account ID") @PathVariable Long accountId) {
-        Account account = accountService.getAccountById(accountId);
+        AccountView account = accountService.getAccountViewById(accountId);
         if (account != null) {
-            AccountResponse response = convertToDTO(account);
-            return ResponseEntity.ok(response);
+            return ResponseEntity.ok(account);
         } else {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body("Không tìm thấy tài khoản với ID: " + accountId);
         }
     }
 
+    /**
+     * Tra cứu số dư tại một thời điểm (mặc định là hiện tại)
+     * GET /api/accounts/{accountId}/balance?at=2025-08-01T10:00:00
+     */
+    @GetMapping("/accounts/{accountId}/balance")
+    @Operation(summary = "Get balance at a point in time", description = "Derive the balance from the latest snapshot and the posting journal")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Balance found"),
+        @ApiResponse(responseCode = "404", description = "Account not found")
+    })
+    public ResponseEntity<?> getBalanceAt(
+            @Parameter(description = "Account ID") @PathVariable Long accountId,
+            @Parameter(description = "Point in time (ISO-8601)") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LocalDateTime pointInTime = at != null ? at : LocalDateTime.now();
+        Long balance = accountService.getBalanceAt(accountId, pointInTime);
+        if (balance == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body("Không tìm thấy tài khoản với ID: " + accountId);
+        }
+        return ResponseEntity.ok(Map.of(
+            "accountId", accountId,
+            "at", pointInTime,
+            "balance", Money.toDecimal(balance)
+        ));
+    }
+
+    /**
+     * Sao kê tổng hợp theo ngày: số dư đầu/cuối kỳ, tổng ghi nợ/ghi có và từng ngày có phát sinh
+     * GET /api/accounts/{accountId}/daily-summary?from=2025-07-01&to=2025-09-30
+     */
+    @GetMapping("/accounts/{accountId}/daily-summary")
+    @Operation(summary = "Get daily balance summary", description = "Summarize a date range from the per-account daily rollup")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Summary found"),
+        @ApiResponse(responseCode = "400", description = "Invalid date range"),
+        @ApiResponse(responseCode = "404", description = "Account not found")
+    })
+    public ResponseEntity<?> getDailySummary(
+            @Parameter(description = "Account ID") @PathVariable Long accountId,
+            @Parameter(description = "First day (ISO-8601)") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @Parameter(description = "Last day, inclusive (ISO-8601)") @RequestParam
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        try {
+            AccountStatementSummary summary = dailyBalanceRollup.summarize(accountId, from, to);
+            if (summary == null) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body("Không tìm thấy tài khoản với ID: " + accountId);
+            }
+            return ResponseEntity.ok(summary);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     /**
      * Cập nhật thông tin tài khoản
      * PUT /api/accounts/{accountId}
@@ -165,7 +356,7 @@ public class AccountController {
     })
     public ResponseEntity<?> updateAccount(
             @Parameter(description = "Account ID") @PathVariable Long accountId, 
-            @RequestBody Account accountDetails) {
+            @RequestBody UpdateAccountRequest accountDetails) {
         Account updatedAccount = accountService.updateAccount(accountId, accountDetails);
         if (updatedAccount != null) {
             AccountResponse response = convertToDTO(updatedAccount);
@@ -205,10 +396,7 @@ public class AccountController {
     @GetMapping("/accounts")
     @Operation(summary = "Get all accounts", description = "Get all accounts in the system (admin only)")
     @ApiResponse(responseCode = "200", description = "Successfully retrieved all accounts")
-    public List<AccountResponse> getAllAccounts() {
-        List<Account> accounts = accountService.getAllAccounts();
-        return accounts.stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+    public List<AccountView> getAllAccounts() {
+        return accountService.getAllAccounts();
     }
 }
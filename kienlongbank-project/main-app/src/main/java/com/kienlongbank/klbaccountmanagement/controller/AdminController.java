@@ -1,12 +1,22 @@
 package com.kienlongbank.klbaccountmanagement.controller;
 
+import java.time.LocalDate;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.kienlongbank.klbaccountmanagement.service.DailyBalanceRollup;
+
 /**
  * Controller cho các API dành riêng cho Admin
  * Chỉ có user với role ADMIN mới có thể truy cập
@@ -16,6 +26,9 @@ import org.springframework.web.bind.annotation.RestController;
 @CrossOrigin(originPatterns = "*", allowCredentials = "true")
 public class AdminController {
 
+    @Autowired
+    private DailyBalanceRollup dailyBalanceRollup;
+
     /**
      * API kiểm tra quyền admin
      * @return Thông báo chào mừng admin
@@ -73,4 +86,20 @@ public class AdminController {
         
         return info.toString();
     }
+
+    /**
+     * API dựng lại bảng tổng hợp số dư theo ngày từ sổ bút toán, từ ngày from đến hiện tại
+     * Trong lúc dựng lại, các giao dịch ghi sổ phải chờ, nên chỉ nên chạy ngoài giờ cao điểm
+     * @return Số dòng đã ghi
+     */
+    @PostMapping("/daily-balances/rebuild")
+    public ResponseEntity<?> rebuildDailyBalances(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from) {
+        int rows = dailyBalanceRollup.rebuild(from);
+        return ResponseEntity.ok(Map.of(
+            "message", "Đã dựng lại bảng tổng hợp số dư theo ngày",
+            "from", from,
+            "rows", rows
+        ));
+    }
 }
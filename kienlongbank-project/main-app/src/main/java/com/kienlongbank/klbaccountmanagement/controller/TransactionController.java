@@ -1,22 +1,51 @@
 package com.kienlongbank.klbaccountmanagement.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPOutputStream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.common.money.MoneyJson;
+import com.kienlongbank.klbaccountmanagement.dto.BatchTransferLeg;
+import com.kienlongbank.klbaccountmanagement.dto.BatchTransferResult;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionAmountPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionSearchPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionView;
+import com.kienlongbank.klbaccountmanagement.exception.IdempotencyConflictException;
 import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.service.BatchTransferService;
+import com.kienlongbank.klbaccountmanagement.service.IdempotencyStore;
+import com.kienlongbank.klbaccountmanagement.service.TransactionAmountService;
+import com.kienlongbank.klbaccountmanagement.service.TransactionExportService;
+import com.kienlongbank.klbaccountmanagement.service.TransactionSearchService;
 import com.kienlongbank.klbaccountmanagement.service.TransactionService;
 
 @RestController
@@ -26,8 +55,30 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private BatchTransferService batchTransferService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private TransactionExportService transactionExportService;
+
+    @Autowired
+    private TransactionSearchService transactionSearchService;
+
+    @Autowired
+    private TransactionAmountService transactionAmountService;
+
+    // Client nên gửi header Idempotency-Key để có thể thử lại an toàn khi bị timeout:
+    // yêu cầu trùng key trả lại giao dịch ban đầu thay vì chuyển khoản lần nữa
     @PostMapping("/transfer")
-    public ResponseEntity<?> performTransfer(@RequestBody TransferRequest request) {
+    public ResponseEntity<?> performTransfer(
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+            @RequestBody TransferRequest request) {
         try {
             // Validate input
             if (request.getFromAccountId() == null || request.getToAccountId() == null || request.getAmount() == null) {
@@ -45,18 +96,39 @@ public class TransactionController {
                     .body(Map.of("error", "Không thể chuyển tiền cho chính tài khoản của mình"));
             }
 
+            if (idempotencyKey != null && (idempotencyKey.isBlank() || idempotencyKey.length() > 255)) {
+                return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Idempotency-Key không hợp lệ (tối đa 255 ký tự)"));
+            }
+
             // Perform transfer
-            Transaction transaction = transactionService.performTransfer(
-                request.getFromAccountId(),
-                request.getAmount(),
-                request.getToAccountId()
-            );
+            Transaction transaction;
+            if (idempotencyKey == null) {
+                transaction = transactionService.performTransfer(
+                    request.getFromAccountId(),
+                    request.getAmount(),
+                    request.getToAccountId()
+                );
+            } else {
+                String fingerprint = "transfer:" + request.getFromAccountId() + ":" +
+                    request.getToAccountId() + ":" + request.getAmount();
+                transaction = idempotencyStore.execute(idempotencyKey, fingerprint,
+                    () -> transactionService.performTransfer(
+                        request.getFromAccountId(),
+                        request.getAmount(),
+                        request.getToAccountId(),
+                        idempotencyKey
+                    ));
+            }
 
             return ResponseEntity.ok(Map.of(
                 "message", "Chuyển khoản thành công",
                 "transaction", transaction
             ));
 
+        } catch (IdempotencyConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", e.getMessage()));
         } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                 .body(Map.of("error", e.getMessage()));
@@ -66,41 +138,56 @@ public class TransactionController {
         }
     }
 
-    // API để lấy tất cả giao dịch của một tài khoản
-    @GetMapping("/account/{accountId}")
-    public ResponseEntity<?> getTransactionsByAccountId(@PathVariable Long accountId) {
-        try {
-            List<Transaction> transactions = transactionService.getTransactionsByAccountId(accountId);
+    // API chuyển khoản theo lô: nhận mảng JSON hoặc NDJSON (mỗi dòng một chân chuyển khoản)
+    // và trả về kết quả của từng chân, một chân lỗi không làm hỏng cả lô
+    @PostMapping(value = "/transfer/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE })
+    public ResponseEntity<?> performBatchTransfer(InputStream body) {
+        try (MappingIterator<BatchTransferLeg> legs = objectMapper.readerFor(BatchTransferLeg.class).readValues(body)) {
+            List<BatchTransferResult> results = batchTransferService.performBatchTransfer(legs);
+            long completed = results.stream().filter(result -> "COMPLETED".equals(result.getStatus())).count();
+
             return ResponseEntity.ok(Map.of(
-                "message", "Lấy danh sách giao dịch thành công",
-                "transactions", transactions
+                "message", "Xử lý chuyển khoản theo lô hoàn tất",
+                "total", results.size(),
+                "completed", completed,
+                "failed", results.size() - completed,
+                "results", results
             ));
-        } catch (Exception e) {
+        } catch (IOException | RuntimeJsonMappingException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "Dữ liệu lô chuyển khoản không hợp lệ"));
+        } catch (RuntimeException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Có lỗi xảy ra khi lấy danh sách giao dịch"));
+                .body(Map.of("error", "Có lỗi xảy ra trong quá trình chuyển khoản theo lô"));
         }
     }
 
-    // API để lấy giao dịch gần đây của một tài khoản
+    // API để lấy lịch sử giao dịch của một tài khoản, phân trang theo cursor (mới nhất trước)
+    // Trang tiếp theo: gửi lại nextCursor của trang trước qua tham số cursor
+    @GetMapping("/account/{accountId}")
+    public ResponseEntity<?> getTransactionsByAccountId(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return transactionPage(accountId, cursor, limit, "Lấy danh sách giao dịch thành công",
+            "Có lỗi xảy ra khi lấy danh sách giao dịch");
+    }
+
+    // API để lấy giao dịch gần đây của một tài khoản (trang đầu của lịch sử)
     @GetMapping("/account/{accountId}/recent")
-    public ResponseEntity<?> getRecentTransactionsByAccountId(@PathVariable Long accountId) {
-        try {
-            List<Transaction> transactions = transactionService.getRecentTransactionsByAccountId(accountId);
-            return ResponseEntity.ok(Map.of(
-                "message", "Lấy giao dịch gần đây thành công",
-                "transactions", transactions
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Có lỗi xảy ra khi lấy giao dịch gần đây"));
-        }
+    public ResponseEntity<?> getRecentTransactionsByAccountId(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return transactionPage(accountId, cursor, limit, "Lấy giao dịch gần đây thành công",
+            "Có lỗi xảy ra khi lấy giao dịch gần đây");
     }
 
     // API để lấy giao dịch theo trạng thái
     @GetMapping("/status/{status}")
     public ResponseEntity<?> getTransactionsByStatus(@PathVariable String status) {
         try {
-            List<Transaction> transactions = transactionService.getTransactionsByStatus(status);
+            List<TransactionView> transactions = transactionService.getTransactionsByStatus(status);
             return ResponseEntity.ok(Map.of(
                 "message", "Lấy giao dịch theo trạng thái thành công",
                 "transactions", transactions
@@ -121,7 +208,7 @@ public class TransactionController {
             LocalDateTime start = LocalDateTime.parse(startDate + " 00:00:00", formatter);
             LocalDateTime end = LocalDateTime.parse(endDate + " 23:59:59", formatter);
             
-            List<Transaction> transactions = transactionService.getTransactionsByDateRange(start, end);
+            List<TransactionView> transactions = transactionService.getTransactionsByDateRange(start, end);
             return ResponseEntity.ok(Map.of(
                 "message", "Lấy giao dịch theo khoảng thời gian thành công",
                 "transactions", transactions
@@ -143,7 +230,7 @@ public class TransactionController {
             LocalDateTime start = LocalDateTime.parse(startDate + " 00:00:00", formatter);
             LocalDateTime end = LocalDateTime.parse(endDate + " 23:59:59", formatter);
             
-            List<Transaction> transactions = transactionService.getTransactionsByAccountIdAndDateRange(accountId, start, end);
+            List<TransactionView> transactions = transactionService.getTransactionsByAccountIdAndDateRange(accountId, start, end);
             return ResponseEntity.ok(Map.of(
                 "message", "Lấy giao dịch của tài khoản theo thời gian thành công",
                 "transactions", transactions
@@ -154,38 +241,169 @@ public class TransactionController {
         }
     }
 
-    // API để lấy giao dịch theo số tiền lớn hơn
+    // API xuất giao dịch trong khoảng thời gian theo stream (không giới hạn số dòng)
+    // format=ndjson (mặc định) hoặc csv, nén gzip khi client gửi Accept-Encoding: gzip
+    @GetMapping("/date-range/export")
+    public ResponseEntity<?> exportTransactionsByDateRange(
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return export(startDate, endDate, format, acceptEncoding, "transactions",
+            (start, end, exportFormat, out) -> transactionExportService.exportByDateRange(start, end, exportFormat, out));
+    }
+
+    // API xuất giao dịch của tài khoản trong khoảng thời gian theo stream
+    @GetMapping("/account/{accountId}/date-range/export")
+    public ResponseEntity<?> exportTransactionsByAccountIdAndDateRange(
+            @PathVariable Long accountId,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(defaultValue = "ndjson") String format,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+        return export(startDate, endDate, format, acceptEncoding, "transactions-" + accountId,
+            (start, end, exportFormat, out) ->
+                transactionExportService.exportByAccountIdAndDateRange(accountId, start, end, exportFormat, out));
+    }
+
+    private ResponseEntity<?> export(String startDate, String endDate, String format, String acceptEncoding,
+                                     String fileName, ExportAction action) {
+        LocalDateTime start;
+        LocalDateTime end;
+        TransactionExportService.Format exportFormat;
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            start = LocalDateTime.parse(startDate + " 00:00:00", formatter);
+            end = LocalDateTime.parse(endDate + " 23:59:59", formatter);
+            exportFormat = TransactionExportService.Format.valueOf(format.toUpperCase());
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "Định dạng ngày hoặc định dạng xuất (ndjson, csv) không hợp lệ"));
+        }
+
+        boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        MediaType contentType = exportFormat == TransactionExportService.Format.CSV
+            ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+            : MediaType.APPLICATION_NDJSON;
+        String extension = exportFormat == TransactionExportService.Format.CSV ? ".csv" : ".ndjson";
+
+        // Chạy trên luồng async của Spring MVC sau khi header đã được gửi, dữ liệu được ghi dần ra response
+        StreamingResponseBody body = out -> {
+            if (gzip) {
+                try (GZIPOutputStream gzipOut = new GZIPOutputStream(out, 64 * 1024)) {
+                    action.export(start, end, exportFormat, gzipOut);
+                }
+            } else {
+                action.export(start, end, exportFormat, out);
+            }
+        };
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(contentType)
+            .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + extension + "\"")
+            .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(body);
+    }
+
+    @FunctionalInterface
+    private interface ExportAction {
+        long export(LocalDateTime start, LocalDateTime end, TransactionExportService.Format format, OutputStream out)
+            throws IOException;
+    }
+
+    // API để lấy giao dịch theo số tiền lớn hơn, lớn nhất trước, tối đa limit giao dịch
     @GetMapping("/amount-greater-than/{amount}")
-    public ResponseEntity<?> getTransactionsByAmountGreaterThan(@PathVariable Double amount) {
+    public ResponseEntity<?> getTransactionsByAmountGreaterThan(
+            @PathVariable String amount,
+            @RequestParam(required = false) Integer limit) {
         try {
-            List<Transaction> transactions = transactionService.getTransactionsByAmountGreaterThan(amount);
+            // Nhận cả dạng thập phân như trước (500000.0), Money.parse từ chối phần lẻ với IllegalArgumentException
+            TransactionAmountPage page = transactionAmountService.getTransactionsByAmountGreaterThan(
+                Money.parse(amount), limit);
             return ResponseEntity.ok(Map.of(
                 "message", "Lấy giao dịch theo số tiền thành công",
-                "transactions", transactions
+                "transactions", page.getTransactions(),
+                "limit", page.getLimit(),
+                "hasMore", page.isHasMore()
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Có lỗi xảy ra khi lấy giao dịch theo số tiền"));
         }
     }
 
-    // API để lấy giao dịch theo khoảng số tiền
+    // API để lấy giao dịch theo khoảng số tiền, lớn nhất trước, tối đa limit giao dịch
     @GetMapping("/amount-range")
     public ResponseEntity<?> getTransactionsByAmountRange(
-            @RequestParam Double minAmount,
-            @RequestParam Double maxAmount) {
+            @RequestParam String minAmount,
+            @RequestParam String maxAmount,
+            @RequestParam(required = false) Integer limit) {
         try {
-            List<Transaction> transactions = transactionService.getTransactionsByAmountRange(minAmount, maxAmount);
+            TransactionAmountPage page = transactionAmountService.getTransactionsByAmountRange(
+                Money.parse(minAmount), Money.parse(maxAmount), limit);
             return ResponseEntity.ok(Map.of(
                 "message", "Lấy giao dịch theo khoảng số tiền thành công",
-                "transactions", transactions
+                "transactions", page.getTransactions(),
+                "limit", page.getLimit(),
+                "hasMore", page.isHasMore()
             ));
-        } catch (Exception e) {
+        } catch (IllegalArgumentException e) {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Có lỗi xảy ra khi lấy giao dịch theo khoảng số tiền"));
         }
     }
 
+    // API báo cáo n giao dịch lớn nhất trong khoảng thời gian
+    @GetMapping("/top-by-amount")
+    public ResponseEntity<?> getTopTransactionsByAmount(
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(required = false) Integer n) {
+        return topByAmount(startDate, endDate,
+            (start, end) -> transactionAmountService.getTopByAmount(start, end, n));
+    }
+
+    // API báo cáo n giao dịch lớn nhất của một tài khoản trong khoảng thời gian
+    @GetMapping("/account/{accountId}/top-by-amount")
+    public ResponseEntity<?> getTopTransactionsByAmountForAccount(
+            @PathVariable Long accountId,
+            @RequestParam String startDate,
+            @RequestParam String endDate,
+            @RequestParam(required = false) Integer n) {
+        return topByAmount(startDate, endDate,
+            (start, end) -> transactionAmountService.getTopByAmountForAccount(accountId, start, end, n));
+    }
+
+    private ResponseEntity<?> topByAmount(String startDate, String endDate,
+                                          BiFunction<LocalDateTime, LocalDateTime, List<TransactionView>> query) {
+        try {
+            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+            LocalDateTime start = LocalDateTime.parse(startDate + " 00:00:00", formatter);
+            LocalDateTime end = LocalDateTime.parse(endDate + " 23:59:59", formatter);
+
+            List<TransactionView> transactions = query.apply(start, end);
+            return ResponseEntity.ok(Map.of(
+                "message", "Lấy giao dịch lớn nhất thành công",
+                "transactions", transactions
+            ));
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", "Định dạng ngày, khoảng thời gian hoặc n không hợp lệ"));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", "Có lỗi xảy ra khi lấy giao dịch lớn nhất"));
+        }
+    }
+
     // API để đếm số giao dịch theo trạng thái
     @GetMapping("/count/status/{status}")
     public ResponseEntity<?> countTransactionsByStatus(@PathVariable String status) {
@@ -202,34 +420,60 @@ public class TransactionController {
         }
     }
 
-    // API để tìm giao dịch theo từ khóa trong mô tả
+    // API để tìm giao dịch theo từ khóa trong mô tả (không phân biệt dấu), xếp hạng và phân trang (page bắt đầu từ 0)
     @GetMapping("/search")
-    public ResponseEntity<?> searchTransactionsByDescription(@RequestParam String keyword) {
+    public ResponseEntity<?> searchTransactionsByDescription(
+            @RequestParam String keyword,
+            @RequestParam(required = false) Integer page,
+            @RequestParam(required = false) Integer size) {
         try {
-            List<Transaction> transactions = transactionService.searchTransactionsByDescription(keyword);
+            TransactionSearchPage result = transactionSearchService.search(keyword, page, size);
             return ResponseEntity.ok(Map.of(
                 "message", "Tìm kiếm giao dịch thành công",
-                "transactions", transactions,
-                "keyword", keyword
+                "transactions", result.getTransactions(),
+                "keyword", keyword,
+                "page", result.getPage(),
+                "size", result.getSize(),
+                "hasMore", result.isHasMore()
             ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body(Map.of("error", "Có lỗi xảy ra khi tìm kiếm giao dịch"));
         }
     }
 
-    // API để lấy tất cả giao dịch của tài khoản sắp xếp theo ngày
+    // API để lấy tất cả giao dịch của tài khoản sắp xếp theo ngày (mới nhất trước), phân trang theo cursor
     @GetMapping("/account/{accountId}/all-sorted")
-    public ResponseEntity<?> getAllTransactionsByAccountIdOrderByDate(@PathVariable Long accountId) {
+    public ResponseEntity<?> getAllTransactionsByAccountIdOrderByDate(
+            @PathVariable Long accountId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit) {
+        return transactionPage(accountId, cursor, limit, "Lấy tất cả giao dịch sắp xếp thành công",
+            "Có lỗi xảy ra khi lấy danh sách giao dịch");
+    }
+
+    private ResponseEntity<?> transactionPage(Long accountId, String cursor, Integer limit,
+                                              String message, String errorMessage) {
         try {
-            List<Transaction> transactions = transactionService.getAllTransactionsByAccountIdOrderByDate(accountId);
-            return ResponseEntity.ok(Map.of(
-                "message", "Lấy tất cả giao dịch sắp xếp thành công",
-                "transactions", transactions
-            ));
+            TransactionPage page = transactionService.getTransactionPage(accountId, cursor, limit);
+            // nextCursor chỉ có mặt khi còn trang sau
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("message", message);
+            body.put("transactions", page.getTransactions());
+            body.put("hasMore", page.isHasMore());
+            if (page.getNextCursor() != null) {
+                body.put("nextCursor", page.getNextCursor());
+            }
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                .body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body(Map.of("error", "Có lỗi xảy ra khi lấy danh sách giao dịch"));
+                .body(Map.of("error", errorMessage));
         }
     }
 
@@ -237,12 +481,13 @@ public class TransactionController {
     public static class TransferRequest {
         private Long fromAccountId;
         private Long toAccountId;
-        private Double amount;
+        @MoneyJson
+        private Long amount;
 
         // Constructors
         public TransferRequest() {}
 
-        public TransferRequest(Long fromAccountId, Long toAccountId, Double amount) {
+        public TransferRequest(Long fromAccountId, Long toAccountId, Long amount) {
             this.fromAccountId = fromAccountId;
             this.toAccountId = toAccountId;
             this.amount = amount;
@@ -265,11 +510,11 @@ public class TransactionController {
             this.toAccountId = toAccountId;
         }
 
-        public Double getAmount() {
+        public Long getAmount() {
             return amount;
         }
 
-        public void setAmount(Double amount) {
+        public void setAmount(Long amount) {
             this.amount = amount;
         }
     }
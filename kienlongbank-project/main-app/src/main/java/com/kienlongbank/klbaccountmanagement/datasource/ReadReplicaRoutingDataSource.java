@@ -0,0 +1,163 @@
+package com.kienlongbank.klbaccountmanagement.datasource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * DataSource chọn primary hoặc một replica mỗi lần cấp connection:
+ * - transaction read-only → replica khỏe tiếp theo (round-robin), không có replica khỏe thì primary
+ * - transaction ghi → primary, đồng thời bật ReadYourWrites cho luồng hiện tại
+ * - ngoài transaction → primary
+ * Phải được bọc trong LazyConnectionDataSourceProxy: JpaTransactionManager lấy connection trước khi đánh dấu
+ * transaction là read-only, proxy hoãn việc lấy connection thật tới câu lệnh đầu tiên
+ */
+@Slf4j
+public class ReadReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+
+    private final List<Replica> replicas;
+
+    private final long maxLagMs;
+
+    private final String lagQuery;
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public ReadReplicaRoutingDataSource(DataSource primary, List<Replica> replicas, long maxLagMs, String lagQuery) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMs = maxLagMs;
+        this.lagQuery = lagQuery;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route().getConnection(username, password);
+    }
+
+    DataSource route() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                ReadYourWrites.markWritten();
+            }
+            return primary;
+        }
+        if (ReadYourWrites.isActive()) {
+            return primary;
+        }
+        Replica replica = nextHealthyReplica();
+        return replica != null ? replica.dataSource() : primary;
+    }
+
+    private Replica nextHealthyReplica() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            Replica replica = replicas.get((start + i) % size);
+            if (replica.isHealthy()) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Đo độ trễ của từng replica, replica trễ quá maxLagMs hoặc không kết nối được bị loại khỏi vòng đọc
+     * cho tới lần kiểm tra sau
+     */
+    public void checkReplicas() {
+        for (Replica replica : replicas) {
+            boolean healthy;
+            try {
+                replica.lagMs = measureLagMs(replica.dataSource());
+                healthy = replica.lagMs <= maxLagMs;
+            } catch (RuntimeException e) {
+                replica.lagMs = -1L;
+                healthy = false;
+            }
+            if (healthy != replica.healthy) {
+                if (healthy) {
+                    log.info("Replica {} is back in rotation (lag {} ms)", replica.name(), replica.lagMs);
+                } else {
+                    log.warn("Replica {} removed from rotation (lag {} ms, max {} ms)", replica.name(), replica.lagMs, maxLagMs);
+                }
+                replica.healthy = healthy;
+            }
+        }
+    }
+
+    long measureLagMs(DataSource replica) {
+        Long lagMs = new JdbcTemplate(replica).queryForObject(lagQuery, Long.class);
+        return lagMs != null ? lagMs : 0L;
+    }
+
+    public List<Replica> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * Đóng pool của các replica, pool primary do Spring quản lý
+     */
+    public void close() {
+        for (Replica replica : replicas) {
+            if (replica.dataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Could not close replica {}: {}", replica.name(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Một replica và trạng thái lần kiểm tra gần nhất. Replica chỉ nhận truy vấn sau lần kiểm tra đầu tiên
+     */
+    public static class Replica {
+
+        private final String name;
+
+        private final DataSource dataSource;
+
+        private volatile boolean healthy;
+
+        private volatile long lagMs = -1L;
+
+        public Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public DataSource dataSource() {
+            return dataSource;
+        }
+
+        public boolean isHealthy() {
+            return healthy;
+        }
+
+        public long lagMs() {
+            return lagMs;
+        }
+    }
+}
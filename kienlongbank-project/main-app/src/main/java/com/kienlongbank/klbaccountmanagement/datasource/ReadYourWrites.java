@@ -0,0 +1,76 @@
+package com.kienlongbank.klbaccountmanagement.datasource;
+
+import java.util.function.Supplier;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Đọc lại dữ liệu vừa ghi: khi luồng hiện tại đã chạy một transaction ghi, các transaction read-only tiếp theo
+ * của cùng request được đưa về primary thay vì replica (có thể chưa kịp nhận thay đổi)
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Boolean> WROTE = new ThreadLocal<>();
+
+    private static final ThreadLocal<Integer> FORCED = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    // Gọi bởi ReadReplicaRoutingDataSource khi cấp connection cho transaction ghi
+    static void markWritten() {
+        WROTE.set(Boolean.TRUE);
+    }
+
+    /**
+     * Luồng hiện tại phải đọc từ primary
+     */
+    public static boolean isActive() {
+        return WROTE.get() != null || FORCED.get() != null;
+    }
+
+    /**
+     * Chạy action với mọi truy vấn đọc trên primary, dùng cho chỗ cần dữ liệu mới nhất dù không ghi gì trước đó
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        Integer depth = FORCED.get();
+        FORCED.set(depth == null ? 1 : depth + 1);
+        try {
+            return action.get();
+        } finally {
+            if (depth == null) {
+                FORCED.remove();
+            } else {
+                FORCED.set(depth);
+            }
+        }
+    }
+
+    /**
+     * Xóa trạng thái của luồng, gọi khi request kết thúc (luồng Tomcat được dùng lại cho request khác)
+     */
+    public static void clear() {
+        WROTE.remove();
+    }
+
+    /**
+     * Giới hạn read-your-writes trong phạm vi một HTTP request
+     */
+    public static class Interceptor implements HandlerInterceptor {
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            clear();
+            return true;
+        }
+
+        @Override
+        public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                    Exception ex) {
+            clear();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.kienlongbank.klbaccountmanagement.datasource;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Kiểm tra độ trễ của các replica theo chu kỳ, lần đầu chạy ngay khi khởi động
+ */
+@Component
+@ConditionalOnProperty(prefix = "datasource.read-replicas", name = "enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class ReplicaLagMonitor {
+
+    private final ReadReplicaRoutingDataSource readReplicaRoutingDataSource;
+
+    @Scheduled(fixedDelayString = "${datasource.read-replicas.lag-check-interval-ms:1000}")
+    public void check() {
+        readReplicaRoutingDataSource.checkReplicas();
+    }
+}
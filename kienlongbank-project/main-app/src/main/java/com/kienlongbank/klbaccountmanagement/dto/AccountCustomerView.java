@@ -0,0 +1,9 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import com.kienlongbank.common.dto.CustomerDTO;
+
+/**
+ * Tài khoản kèm thông tin khách hàng sở hữu, customer là null nếu customer-service không trả lời được
+ */
+public record AccountCustomerView(AccountView account, CustomerDTO customer) {
+}
@@ -2,6 +2,8 @@ package com.kienlongbank.klbaccountmanagement.dto;
 
 import java.time.LocalDateTime;
 
+import com.kienlongbank.common.money.MoneyJson;
+
 import lombok.Data;
 
 /**
@@ -13,7 +15,8 @@ public class AccountResponse {
     private Long id;
     private String accountNumber;
     private String accountType;
-    private Double balance;
+    @MoneyJson
+    private Long balance;
     private Long customerId; // Chỉ trả về ID của customer thay vì toàn bộ object
     private LocalDateTime createdDate;
     
@@ -27,8 +30,8 @@ public class AccountResponse {
     public String getAccountType() { return accountType; }
     public void setAccountType(String accountType) { this.accountType = accountType; }
     
-    public Double getBalance() { return balance; }
-    public void setBalance(Double balance) { this.balance = balance; }
+    public Long getBalance() { return balance; }
+    public void setBalance(Long balance) { this.balance = balance; }
     
     public Long getCustomerId() { return customerId; }
     public void setCustomerId(Long customerId) { this.customerId = customerId; }
@@ -0,0 +1,36 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import com.kienlongbank.common.money.MoneyJson;
+import com.kienlongbank.klbaccountmanagement.model.AccountDailyBalance;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tổng hợp sao kê của một tài khoản trong khoảng ngày [from, to], tính từ bảng account_daily_balances
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountStatementSummary {
+    private Long accountId;
+    private LocalDate from;
+    private LocalDate to;
+    @MoneyJson
+    private long openingBalance;
+    @MoneyJson
+    private long closingBalance;
+    @MoneyJson
+    private long debitTotal;
+    @MoneyJson
+    private long creditTotal;
+    private long debitCount;
+    private long creditCount;
+    private List<AccountDailyBalance> days; // Chỉ các ngày có bút toán
+}
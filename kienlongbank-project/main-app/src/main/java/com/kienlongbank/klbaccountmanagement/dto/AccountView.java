@@ -0,0 +1,26 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.kienlongbank.common.money.MoneyJson;
+
+/**
+ * Projection chỉ đọc của Account, được tạo thẳng từ câu JPQL "SELECT new ..." nên không nằm trong
+ * persistence context (không snapshot, không dirty checking) và được Jackson ghi ra JSON trực tiếp.
+ * Các trường JSON giống hệt AccountResponse
+ */
+public record AccountView(
+    Long id,
+    String accountNumber,
+    String accountType,
+    @MoneyJson long balance,
+    Long customerId,
+    LocalDateTime createdDate,
+    // Chỉ dùng nội bộ để biết có cần cộng số dư các slot hay không
+    @JsonIgnore boolean hotAccount) {
+
+    public AccountView withBalance(long exactBalance) {
+        return new AccountView(id, accountNumber, accountType, exactBalance, customerId, createdDate, hotAccount);
+    }
+}
@@ -0,0 +1,17 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import com.kienlongbank.common.money.MoneyJson;
+
+import lombok.Data;
+
+/**
+ * Một chân chuyển khoản trong lô (payroll, quyết toán...)
+ */
+@Data
+public class BatchTransferLeg {
+    private Long fromAccountId;
+    private Long toAccountId;
+    @MoneyJson
+    private Long amount;
+    private String description; // Có thể null, mặc định "Chuyển khoản theo lô"
+}
@@ -0,0 +1,22 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import com.kienlongbank.common.money.MoneyJson;
+
+import lombok.Data;
+
+/**
+ * Kết quả xử lý của từng chân chuyển khoản trong lô
+ * Một chân lỗi không làm hỏng cả lô
+ */
+@Data
+public class BatchTransferResult {
+    private int index; // Vị trí của chân trong lô (bắt đầu từ 0)
+    private Long fromAccountId;
+    private Long toAccountId;
+    @MoneyJson
+    private Long amount;
+    private String status; // COMPLETED, REJECTED (không hợp lệ hoặc Core Banking từ chối), FAILED (lỗi khi ghi sổ)
+    // Với chân bị Core Banking từ chối: giao dịch FAILED đã được hoàn tiền
+    private Long transactionId;
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import com.kienlongbank.common.money.MoneyJson;
+
+import lombok.Data;
+
+/**
+ * Một tài khoản cần mở trong lô mở tài khoản hàng loạt (onboarding doanh nghiệp)
+ */
+@Data
+public class BulkAccountItem {
+    private Long customerId;
+    private String accountType; // VD: "SAVINGS", "CHECKING"
+    @MoneyJson
+    private Long balance; // Số dư ban đầu (có thể null, mặc định là 0)
+}
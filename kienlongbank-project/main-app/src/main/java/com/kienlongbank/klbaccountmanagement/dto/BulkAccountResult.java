@@ -0,0 +1,18 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import lombok.Data;
+
+/**
+ * Kết quả mở tài khoản của từng dòng trong lô
+ * Một dòng lỗi không làm hỏng cả lô
+ */
+@Data
+public class BulkAccountResult {
+    private int index; // Vị trí của dòng trong lô (bắt đầu từ 0)
+    private Long customerId;
+    private String accountType;
+    private String status; // CREATED, REJECTED (không hợp lệ), FAILED (lỗi khi ghi DB)
+    private Long accountId;
+    private String accountNumber;
+    private String error;
+}
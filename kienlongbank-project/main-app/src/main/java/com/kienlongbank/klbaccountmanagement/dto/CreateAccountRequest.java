@@ -1,5 +1,7 @@
 package com.kienlongbank.klbaccountmanagement.dto;
 
+import com.kienlongbank.common.money.MoneyJson;
+
 import lombok.Data;
 
 /**
@@ -9,12 +11,13 @@ import lombok.Data;
 @Data
 public class CreateAccountRequest {
     private String accountType; // VD: "SAVINGS", "CHECKING"
-    private Double balance; // Số dư ban đầu (có thể null, mặc định sẽ là 0)
+    @MoneyJson
+    private Long balance; // Số dư ban đầu (có thể null, mặc định sẽ là 0)
     
     // Manual getters and setters for backup (in case Lombok fails)
     public String getAccountType() { return accountType; }
     public void setAccountType(String accountType) { this.accountType = accountType; }
     
-    public Double getBalance() { return balance; }
-    public void setBalance(Double balance) { this.balance = balance; }
+    public Long getBalance() { return balance; }
+    public void setBalance(Long balance) { this.balance = balance; }
 }
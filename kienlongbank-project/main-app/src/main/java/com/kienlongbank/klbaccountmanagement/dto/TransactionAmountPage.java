@@ -0,0 +1,18 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Kết quả truy vấn theo số tiền, lớn nhất trước
+ * hasMore = true khi còn giao dịch thỏa điều kiện nhưng vượt quá limit
+ */
+@Data
+@AllArgsConstructor
+public class TransactionAmountPage {
+    private List<TransactionView> transactions;
+    private int limit;
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import java.util.List;
+
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Một trang lịch sử giao dịch, mới nhất trước
+ * nextCursor là null khi đã hết dữ liệu
+ */
+@Data
+@AllArgsConstructor
+public class TransactionPage {
+    private List<Transaction> transactions;
+    private String nextCursor;
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import java.util.List;
+
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Một trang kết quả tìm kiếm giao dịch, đã xếp hạng (page bắt đầu từ 0)
+ */
+@Data
+@AllArgsConstructor
+public class TransactionSearchPage {
+    private List<Transaction> transactions;
+    private int page;
+    private int size;
+    private boolean hasMore;
+}
@@ -0,0 +1,27 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import java.time.LocalDateTime;
+
+import com.kienlongbank.common.money.MoneyJson;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+
+/**
+ * Projection chỉ đọc của Transaction cho các API danh sách, được tạo thẳng từ câu JPQL "SELECT new ..."
+ * nên không nằm trong persistence context. Các trường JSON giống hệt entity Transaction
+ */
+public record TransactionView(
+    Long id,
+    Long fromAccountId,
+    Long toAccountId,
+    @MoneyJson long amount,
+    LocalDateTime transactionDate,
+    String status,
+    String description) {
+
+    // Dùng cho các truy vấn native (UNION ALL) chỉ trả về được entity, đã nạp ở chế độ read-only
+    public static TransactionView of(Transaction transaction) {
+        return new TransactionView(transaction.getId(), transaction.getFromAccountId(), transaction.getToAccountId(),
+            transaction.getAmount(), transaction.getTransactionDate(), transaction.getStatus(),
+            transaction.getDescription());
+    }
+}
@@ -0,0 +1,17 @@
+package com.kienlongbank.klbaccountmanagement.dto;
+
+import com.kienlongbank.common.money.MoneyJson;
+
+import lombok.Data;
+
+/**
+ * DTO để nhận dữ liệu khi cập nhật tài khoản
+ * Trường nào null thì giữ nguyên giá trị hiện tại
+ */
+@Data
+public class UpdateAccountRequest {
+    private String accountType; // VD: "SAVINGS", "CHECKING"
+    @MoneyJson
+    private Long balance; // Số dư mới (có thể null)
+    private Boolean hotAccount; // Bật/tắt chế độ tài khoản nóng (có thể null)
+}
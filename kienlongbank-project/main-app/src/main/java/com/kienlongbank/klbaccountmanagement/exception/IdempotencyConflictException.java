@@ -0,0 +1,11 @@
+package com.kienlongbank.klbaccountmanagement.exception;
+
+/**
+ * Idempotency-Key đang được xử lý ở nơi khác hoặc đã được dùng cho một yêu cầu có nội dung khác
+ */
+public class IdempotencyConflictException extends RuntimeException {
+
+    public IdempotencyConflictException(String message) {
+        super(message);
+    }
+}
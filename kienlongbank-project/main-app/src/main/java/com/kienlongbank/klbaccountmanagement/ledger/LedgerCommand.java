@@ -0,0 +1,66 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import java.util.concurrent.CompletableFuture;
+
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+
+/**
+ * Một lệnh được đưa vào ring buffer của shard.
+ * Chuyển khoản được tách thành hai chân DEBIT (giữ tiền trên shard nguồn) và CREDIT (ghi có trên shard đích),
+ * REFUND là chân bù trừ khi Core Banking từ chối hoặc chân CREDIT thất bại.
+ */
+final class LedgerCommand {
+
+    enum Type {
+        DEBIT,
+        CREDIT,
+        REFUND,
+        EVICT
+    }
+
+    final Type type;
+    final Long fromAccountId;
+    final Long toAccountId;
+    final long amount;
+    final CompletableFuture<Transaction> result = new CompletableFuture<>();
+
+    // Giao dịch do chân DEBIT tạo ra, được chân CREDIT/REFUND cập nhật trạng thái
+    Transaction transaction;
+
+    // Số tài khoản do shard điền vào khi nạp tài khoản, dùng cho thông báo trong outbox
+    String fromAccountNumber;
+    String toAccountNumber;
+
+    // Idempotency-Key của yêu cầu chuyển khoản, chân DEBIT ghi vào giao dịch được tạo
+    String idempotencyKey;
+
+    private LedgerCommand(Type type, Long fromAccountId, Long toAccountId, long amount, Transaction transaction) {
+        this.type = type;
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.transaction = transaction;
+    }
+
+    static LedgerCommand debit(Long fromAccountId, Long toAccountId, long amount, String idempotencyKey) {
+        LedgerCommand command = new LedgerCommand(Type.DEBIT, fromAccountId, toAccountId, amount, null);
+        command.idempotencyKey = idempotencyKey;
+        return command;
+    }
+
+    static LedgerCommand credit(Transaction pending, String fromAccountNumber) {
+        LedgerCommand command = new LedgerCommand(Type.CREDIT, pending.getFromAccountId(), pending.getToAccountId(),
+                pending.getAmount(), pending);
+        command.fromAccountNumber = fromAccountNumber;
+        return command;
+    }
+
+    static LedgerCommand refund(Transaction pending) {
+        return new LedgerCommand(Type.REFUND, pending.getFromAccountId(), pending.getToAccountId(),
+                pending.getAmount(), pending);
+    }
+
+    static LedgerCommand evict(Long accountId) {
+        return new LedgerCommand(Type.EVICT, accountId, null, 0L, null);
+    }
+}
@@ -0,0 +1,214 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+
+import com.kienlongbank.klbaccountmanagement.config.LedgerConfig;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Ledger engine trong tiến trình: chia tài khoản theo ID cho N shard đơn luồng (kiểu LMAX).
+ * Mỗi shard giữ số dư trong bộ nhớ và ghi sổ theo lô, nên các tài khoản "nóng"
+ * không còn tranh chấp khóa dòng trong DB.
+ *
+ * Chuyển khoản dùng giao thức hai chân, theo cùng thứ tự giữ tiền / xin phép / ghi có như chế độ JPA:
+ * hold ghi DEBIT trên shard nguồn (giữ tiền, giao dịch PENDING), người gọi xin phép Core Banking,
+ * rồi settle ghi CREDIT trên shard đích (COMPLETED) hoặc release ghi REFUND trên shard nguồn (FAILED).
+ * Nếu CREDIT thất bại thì settle tự REFUND.
+ *
+ * Chỉ hoạt động khi ledger.mode=SHARDED và chỉ trên một node (LedgerNodeLock): số dư trong bộ nhớ của shard
+ * là số dư dùng để kiểm tra khi chuyển khoản. Shard ghi xuống DB phần chênh lệch (balance = balance + ?),
+ * nên không ghi đè các thay đổi số dư ngoài engine (AccountService.updateAccount, gộp slot của HotAccountService);
+ * các luồng đó gọi invalidate để shard nạp lại số dư.
+ *
+ * Nếu chân REFUND cũng thất bại, giao dịch còn PENDING với số tiền đã trừ ở tài khoản nguồn: engine thử lại
+ * REFUND_ATTEMPTS lần rồi tăng metric ledger.refund.failures (cần cảnh báo và đối soát thủ công).
+ *
+ * Nếu LedgerNodeLock báo mất advisory lock (mất connection giữ khóa), node khác có thể đã nhận khóa:
+ * engine từ chối mọi lệnh mới và dừng các shard, chỉ khởi động lại mới nhận lại được khóa.
+ */
+@Component
+@Slf4j
+public class LedgerEngine {
+
+    // Số lần thử chân REFUND trước khi báo lỗi để đối soát
+    static final int REFUND_ATTEMPTS = 3;
+
+    private final LedgerConfig ledgerConfig;
+    private final AccountRepository accountRepository;
+    private final LedgerJournal ledgerJournal;
+    private final LedgerNodeLock ledgerNodeLock;
+    private final Counter refundFailures;
+
+    private LedgerShard[] shards = new LedgerShard[0];
+
+    // Đã mất khóa single-node, không nhận lệnh mới
+    private volatile boolean fenced;
+
+    public LedgerEngine(LedgerConfig ledgerConfig, AccountRepository accountRepository, LedgerJournal ledgerJournal,
+                        LedgerNodeLock ledgerNodeLock, MeterRegistry meterRegistry) {
+        this.ledgerConfig = ledgerConfig;
+        this.accountRepository = accountRepository;
+        this.ledgerJournal = ledgerJournal;
+        this.ledgerNodeLock = ledgerNodeLock;
+        this.refundFailures = Counter.builder("ledger.refund.failures")
+            .description("Transfers left PENDING because the refund leg could not be applied")
+            .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!isEnabled()) {
+            return;
+        }
+        // Node thứ hai dừng khởi động tại đây
+        ledgerNodeLock.acquire(this::onNodeLockLost);
+        int count = Math.max(1, ledgerConfig.getShards());
+        shards = new LedgerShard[count];
+        for (int i = 0; i < count; i++) {
+            shards[i] = new LedgerShard(i, ledgerConfig.getRingBufferSize(), ledgerConfig.getBatchSize(),
+                accountRepository, ledgerJournal);
+            shards[i].start();
+        }
+        log.info("Ledger engine started with {} shards", count);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (LedgerShard shard : shards) {
+            shard.stop();
+        }
+        ledgerNodeLock.release();
+    }
+
+    // Gọi từ luồng kiểm tra của LedgerNodeLock
+    private void onNodeLockLost() {
+        log.error("Ledger node lock lost, stopping ledger engine: balances in memory may no longer be authoritative");
+        fenced = true;
+        try {
+            for (LedgerShard shard : shards) {
+                shard.stop();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isEnabled() {
+        return ledgerConfig.getMode() == LedgerConfig.Mode.SHARDED;
+    }
+
+    /**
+     * Giữ tiền ở tài khoản nguồn: trừ số dư trên shard nguồn và ghi giao dịch PENDING
+     * @return LedgerHold phải được settle hoặc release
+     * @throws RuntimeException nếu tài khoản nguồn không tồn tại, không đủ số dư hoặc ghi sổ thất bại
+     */
+    public LedgerHold hold(Long fromAccountId, long amount, Long toAccountId) {
+        return hold(fromAccountId, amount, toAccountId, null);
+    }
+
+    /**
+     * Như hold(Long, long, Long), giao dịch PENDING mang Idempotency-Key của yêu cầu chuyển khoản
+     */
+    public LedgerHold hold(Long fromAccountId, long amount, Long toAccountId, String idempotencyKey) {
+        LedgerCommand debit = shardFor(fromAccountId).submit(
+            LedgerCommand.debit(fromAccountId, toAccountId, amount, idempotencyKey));
+        Transaction pending = await(debit);
+        return new LedgerHold(pending, debit.fromAccountNumber);
+    }
+
+    /**
+     * Ghi có tài khoản đích cho số tiền đã giữ, nếu thất bại thì hoàn tiền cho tài khoản nguồn
+     * @return Transaction đã được ghi sổ (COMPLETED)
+     * @throws RuntimeException nếu tài khoản đích không tồn tại hoặc ghi sổ thất bại
+     */
+    public Transaction settle(LedgerHold hold) {
+        Transaction pending = hold.transaction();
+        try {
+            return await(shardFor(pending.getToAccountId())
+                .submitFollowUp(LedgerCommand.credit(pending, hold.fromAccountNumber())));
+        } catch (RuntimeException e) {
+            log.warn("Credit leg of transaction {} failed, refunding account {}: {}",
+                pending.getId(), pending.getFromAccountId(), e.getMessage());
+            refund(pending);
+            throw e;
+        }
+    }
+
+    /**
+     * Hoàn lại số tiền đã giữ (ví dụ Core Banking từ chối), giao dịch chuyển sang FAILED
+     */
+    public void release(LedgerHold hold) {
+        refund(hold.transaction());
+    }
+
+    // Hoàn tiền cho chân DEBIT. Lỗi ghi sổ làm shard bỏ trạng thái trong bộ nhớ, lần thử sau nạp lại từ DB
+    private void refund(Transaction pending) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                await(shardFor(pending.getFromAccountId()).submitFollowUp(LedgerCommand.refund(pending)));
+                return;
+            } catch (RuntimeException refundError) {
+                if (attempt >= REFUND_ATTEMPTS) {
+                    // Giao dịch vẫn ở trạng thái PENDING và tài khoản nguồn vẫn bị trừ tiền, cần đối soát thủ công
+                    refundFailures.increment();
+                    log.error("Refund of transaction {} failed after {} attempts, account {} needs reconciliation: {}",
+                        pending.getId(), attempt, pending.getFromAccountId(), refundError.getMessage());
+                    return;
+                }
+                log.warn("Refund of transaction {} failed (attempt {}), retrying: {}",
+                    pending.getId(), attempt, refundError.getMessage());
+                // Trả về trạng thái PENDING trước khi thử lại (chân REFUND lỗi không được ghi sổ)
+                pending.setStatus("PENDING");
+                sleep(attempt);
+            }
+        }
+    }
+
+    private static void sleep(int attempt) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(100L * attempt);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Bỏ số dư trong bộ nhớ của tài khoản (ví dụ khi số dư bị sửa ngoài engine)
+     */
+    public void invalidate(Long accountId) {
+        if (isEnabled()) {
+            shardFor(accountId).submitFollowUp(LedgerCommand.evict(accountId));
+        }
+    }
+
+    private LedgerShard shardFor(Long accountId) {
+        if (!isEnabled()) {
+            throw new IllegalStateException("Ledger engine is disabled (ledger.mode=JPA)");
+        }
+        if (fenced) {
+            throw new IllegalStateException("Ledger engine đã dừng vì mất khóa single-node, cần khởi động lại node");
+        }
+        return shards[Math.floorMod(accountId.hashCode(), shards.length)];
+    }
+
+    private static Transaction await(LedgerCommand command) {
+        try {
+            return command.result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
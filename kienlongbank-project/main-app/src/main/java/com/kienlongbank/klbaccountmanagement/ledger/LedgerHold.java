@@ -0,0 +1,11 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+
+/**
+ * Số tiền đã được giữ ở tài khoản nguồn bởi LedgerEngine.hold: giao dịch PENDING chờ settle hoặc release
+ * @param transaction giao dịch PENDING đã được ghi sổ
+ * @param fromAccountNumber số tài khoản nguồn (dùng khi xin phép Core Banking và cho thông báo trong outbox)
+ */
+public record LedgerHold(Transaction transaction, String fromAccountNumber) {
+}
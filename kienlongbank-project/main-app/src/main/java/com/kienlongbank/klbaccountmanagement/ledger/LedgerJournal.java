@@ -0,0 +1,106 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+import com.kienlongbank.klbaccountmanagement.service.AccountCache;
+import com.kienlongbank.klbaccountmanagement.service.OutboxService;
+import com.kienlongbank.klbaccountmanagement.service.PostingJournal;
+import com.kienlongbank.klbaccountmanagement.service.TransactionStatusCounters;
+
+/**
+ * Ghi sổ một lô lệnh của shard: cộng phần chênh lệch số dư bằng JDBC batch, lưu các giao dịch và bút toán,
+ * ghi thông báo của giao dịch hoàn tất vào outbox, tất cả trong cùng một commit
+ */
+@Component
+@RequiredArgsConstructor
+public class LedgerJournal {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final OutboxService outboxService;
+    private final PostingJournal postingJournal;
+    private final TransactionStatusCounters transactionStatusCounters;
+    private final AccountCache accountCache;
+
+    void persist(Collection<LedgerShard.AccountState> accounts, List<LedgerCommand> commands) {
+        List<LedgerShard.AccountState> balances = new ArrayList<>(accounts);
+        List<Transaction> transactions = commands.stream().map(command -> command.transaction).toList();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!balances.isEmpty()) {
+                // Ghi phần chênh lệch, không ghi đè số dư do luồng khác (ngoài engine) vừa sửa
+                jdbcTemplate.batchUpdate("UPDATE accounts SET balance = balance + ? WHERE id = ?",
+                    balances, balances.size(), (ps, account) -> {
+                        ps.setLong(1, account.unflushed);
+                        ps.setLong(2, account.id);
+                    });
+                accountCache.evictAfterCommit(balances.stream().map(account -> account.id).toList(), List.of());
+            }
+            if (!transactions.isEmpty()) {
+                Set<Transaction> created = newTransactions(transactions);
+                transactionRepository.saveAll(transactions);
+                countStatuses(transactions, created);
+            }
+            postingJournal.postAll(postings(commands));
+            for (LedgerCommand command : commands) {
+                if ("COMPLETED".equals(command.transaction.getStatus())) {
+                    outboxService.enqueueTransferCompleted(command.transaction,
+                        command.fromAccountNumber, command.toAccountNumber);
+                }
+            }
+        });
+    }
+
+    // Giao dịch chưa có id (trước khi lưu) được tạo mới với trạng thái cuối
+    private static Set<Transaction> newTransactions(List<Transaction> transactions) {
+        Set<Transaction> created = Collections.newSetFromMap(new IdentityHashMap<>());
+        transactions.stream().filter(transaction -> transaction.getId() == null).forEach(created::add);
+        return created;
+    }
+
+    // Giao dịch đã có id trước khi lưu là chân CREDIT/REFUND của một giao dịch PENDING.
+    // Một giao dịch có thể xuất hiện ở nhiều lệnh trong cùng lô nên chỉ được đếm một lần
+    private void countStatuses(List<Transaction> transactions, Set<Transaction> created) {
+        Set<Transaction> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Transaction transaction : transactions) {
+            if (!seen.add(transaction)) {
+                continue;
+            }
+            if (created.contains(transaction)) {
+                transactionStatusCounters.recordCreated(transaction.getStatus(), transaction.getId());
+            } else {
+                transactionStatusCounters.recordTransition("PENDING", transaction.getStatus(), transaction.getId());
+            }
+        }
+    }
+
+    // Bút toán tương ứng với thay đổi số dư của từng lệnh
+    private static List<AccountPosting> postings(List<LedgerCommand> commands) {
+        List<AccountPosting> postings = new ArrayList<>(commands.size() * 2);
+        for (LedgerCommand command : commands) {
+            Long transactionId = command.transaction.getId();
+            switch (command.type) {
+                case DEBIT -> postings.add(PostingJournal.posting(command.fromAccountId, transactionId, Money.negate(command.amount)));
+                case CREDIT -> postings.add(PostingJournal.posting(command.toAccountId, transactionId, command.amount));
+                case REFUND -> postings.add(PostingJournal.posting(command.fromAccountId, transactionId, command.amount));
+                default -> {
+                }
+            }
+        }
+        return postings;
+    }
+}
@@ -0,0 +1,158 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Đảm bảo chỉ một node chạy ledger engine (ledger.mode=SHARDED)
+ *
+ * Số dư trong bộ nhớ của shard chỉ đúng khi không có node nào khác ghi nợ/ghi có cùng tài khoản,
+ * nên node giữ advisory lock (cấp session) của PostgreSQL suốt thời gian chạy.
+ * Node thứ hai không lấy được lock sẽ dừng khởi động thay vì âm thầm làm sai số dư.
+ *
+ * Lock nằm trên một connection riêng mở thẳng qua JDBC driver, không lấy từ pool: Hikari có thể đóng
+ * hoặc thay connection của pool (max-lifetime, lỗi mạng) và PostgreSQL nhả lock cùng session đó mà không ai biết.
+ * Connection được kiểm tra mỗi ledger.lock-check-interval-ms (còn sống và session vẫn giữ lock);
+ * mất lock thì gọi onLost để engine dừng nhận lệnh.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerNodeLock {
+
+    // Khóa advisory dành riêng cho ledger engine ("KLBL")
+    static final long LOCK_KEY = 0x4B4C424CL;
+
+    // Thời gian chờ tối đa (giây) của truy vấn kiểm tra, connection treo cũng được coi là mất lock
+    private static final int CHECK_TIMEOUT_SECONDS = 5;
+
+    private final DataSourceProperties dataSourceProperties;
+
+    // Bảo vệ connection giữa luồng kiểm tra định kỳ và release khi node dừng
+    private final ReentrantLock connectionLock = new ReentrantLock();
+
+    private Connection connection;
+    private Runnable onLost;
+
+    /**
+     * Giữ advisory lock cho node này
+     * @param onLost được gọi (từ luồng kiểm tra) khi phát hiện đã mất lock
+     * @throws IllegalStateException nếu node khác đang chạy ledger engine hoặc không kết nối được DB
+     */
+    void acquire(Runnable onLost) {
+        try {
+            Connection candidate = openConnection();
+            boolean locked;
+            try (PreparedStatement statement = candidate.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+                statement.setLong(1, LOCK_KEY);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    locked = resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+            if (!locked) {
+                candidate.close();
+                throw new IllegalStateException(
+                    "ledger.mode=SHARDED chỉ được chạy trên một node, đã có node khác giữ ledger engine");
+            }
+            connectionLock.lock();
+            try {
+                connection = candidate;
+                this.onLost = onLost;
+            } finally {
+                connectionLock.unlock();
+            }
+            log.info("Acquired ledger single-node lock");
+        } catch (SQLException e) {
+            throw new IllegalStateException("Không lấy được khóa single-node của ledger engine: " + e.getMessage(), e);
+        }
+    }
+
+    Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(dataSourceProperties.determineUrl(),
+            dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+    }
+
+    /**
+     * Kiểm tra connection giữ lock còn sống và session vẫn giữ advisory lock
+     */
+    @Scheduled(fixedDelayString = "${ledger.lock-check-interval-ms:1000}")
+    public void check() {
+        Runnable lost;
+        connectionLock.lock();
+        try {
+            if (connection == null || holdsLock(connection)) {
+                return;
+            }
+            closeQuietly(connection);
+            connection = null;
+            lost = onLost;
+            onLost = null;
+        } finally {
+            connectionLock.unlock();
+        }
+        log.error("Ledger single-node lock lost, another node may take over the ledger engine");
+        if (lost != null) {
+            lost.run();
+        }
+    }
+
+    private static boolean holdsLock(Connection held) {
+        try {
+            if (!held.isValid(CHECK_TIMEOUT_SECONDS)) {
+                return false;
+            }
+            try (PreparedStatement statement = held.prepareStatement(
+                    "SELECT EXISTS (SELECT 1 FROM pg_locks WHERE locktype = 'advisory' AND pid = pg_backend_pid()"
+                        + " AND objsubid = 1 AND ((classid::bigint << 32) | objid::bigint) = ? AND granted)")) {
+                statement.setQueryTimeout(CHECK_TIMEOUT_SECONDS);
+                statement.setLong(1, LOCK_KEY);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() && resultSet.getBoolean(1);
+                }
+            }
+        } catch (SQLException e) {
+            log.warn("Ledger single-node lock check failed: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    void release() {
+        connectionLock.lock();
+        try {
+            if (connection == null) {
+                return;
+            }
+            // Đóng connection là kết thúc session và nhả lock, nhả tường minh trước cho rõ ràng
+            try (Connection held = connection;
+                 PreparedStatement statement = held.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+                statement.setLong(1, LOCK_KEY);
+                statement.execute();
+            } catch (SQLException e) {
+                log.warn("Could not release ledger single-node lock: {}", e.getMessage());
+            }
+            connection = null;
+            onLost = null;
+        } finally {
+            connectionLock.unlock();
+        }
+    }
+
+    private static void closeQuietly(Connection held) {
+        try {
+            held.close();
+        } catch (SQLException e) {
+            log.debug("Closing lost ledger lock connection failed: {}", e.getMessage());
+        }
+    }
+}
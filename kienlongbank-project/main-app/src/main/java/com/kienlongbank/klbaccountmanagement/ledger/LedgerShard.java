@@ -0,0 +1,229 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.model.Account;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+/**
+ * Shard đơn luồng của ledger: chỉ luồng của shard được đọc/ghi số dư các tài khoản thuộc shard,
+ * nên không cần khóa dòng trong DB. Lệnh được đưa vào qua ring buffer, xử lý theo lô
+ * và ghi sổ (số dư + giao dịch) trong một commit cho cả lô.
+ */
+class LedgerShard implements Runnable {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerShard.class);
+
+    private final int index;
+    private final BlockingQueue<LedgerCommand> ringBuffer;
+    private final int batchSize;
+    private final AccountRepository accountRepository;
+    private final LedgerJournal journal;
+
+    // Số dư trong bộ nhớ, chỉ được truy cập từ luồng của shard
+    private final Map<Long, AccountState> accounts = new HashMap<>();
+
+    private volatile boolean running = true;
+    private Thread thread;
+
+    LedgerShard(int index, int ringBufferSize, int batchSize,
+                AccountRepository accountRepository, LedgerJournal journal) {
+        this.index = index;
+        this.ringBuffer = new ArrayBlockingQueue<>(ringBufferSize);
+        this.batchSize = batchSize;
+        this.accountRepository = accountRepository;
+        this.journal = journal;
+    }
+
+    void start() {
+        thread = new Thread(this, "ledger-shard-" + index);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        }
+    }
+
+    /**
+     * Đưa lệnh đầu tiên của một chuyển khoản vào ring buffer, từ chối ngay nếu shard đang quá tải
+     */
+    LedgerCommand submit(LedgerCommand command) {
+        if (!ringBuffer.offer(command)) {
+            throw new RuntimeException("Hệ thống đang quá tải, vui lòng thử lại sau!");
+        }
+        return command;
+    }
+
+    /**
+     * Đưa lệnh tiếp theo (CREDIT/REFUND) vào ring buffer: không được bỏ, nên chờ đến khi có chỗ
+     */
+    LedgerCommand submitFollowUp(LedgerCommand command) {
+        try {
+            ringBuffer.put(command);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Bị gián đoạn khi gửi lệnh đến ledger shard " + index, e);
+        }
+        return command;
+    }
+
+    @Override
+    public void run() {
+        List<LedgerCommand> batch = new ArrayList<>(batchSize);
+        while (running || !ringBuffer.isEmpty()) {
+            try {
+                LedgerCommand first = ringBuffer.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                ringBuffer.drainTo(batch, batchSize - 1);
+                processBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Ledger shard {} gặp lỗi không mong muốn: {}", index, e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void processBatch(List<LedgerCommand> batch) {
+        Map<Long, AccountState> dirtyAccounts = new LinkedHashMap<>();
+        List<Long> evicted = new ArrayList<>();
+        List<LedgerCommand> applied = new ArrayList<>(batch.size());
+
+        for (LedgerCommand command : batch) {
+            try {
+                apply(command, dirtyAccounts, evicted);
+                applied.add(command);
+            } catch (RuntimeException e) {
+                command.result.completeExceptionally(e);
+            }
+        }
+
+        List<LedgerCommand> withTransaction = new ArrayList<>(applied.size());
+        for (LedgerCommand command : applied) {
+            if (command.transaction != null) {
+                withTransaction.add(command);
+            }
+        }
+
+        if (!dirtyAccounts.isEmpty() || !withTransaction.isEmpty()) {
+            try {
+                journal.persist(dirtyAccounts.values(), withTransaction);
+            } catch (RuntimeException e) {
+                log.error("Ledger shard {} không ghi sổ được lô {} lệnh: {}", index, applied.size(), e.getMessage());
+                // Bỏ trạng thái trong bộ nhớ, lần sau sẽ nạp lại từ DB
+                dirtyAccounts.keySet().forEach(accounts::remove);
+                evicted.forEach(accounts::remove);
+                applied.forEach(command -> command.result.completeExceptionally(e));
+                return;
+            }
+        }
+
+        // Phần chênh lệch đã nằm trong DB, số dư nạp lại sau EVICT đã bao gồm cả lô này
+        dirtyAccounts.values().forEach(account -> account.unflushed = 0);
+        evicted.forEach(accounts::remove);
+        applied.forEach(command -> command.result.complete(command.transaction));
+    }
+
+    private void apply(LedgerCommand command, Map<Long, AccountState> dirtyAccounts, List<Long> evicted) {
+        switch (command.type) {
+            case DEBIT -> {
+                AccountState from = load(command.fromAccountId, "Tài khoản nguồn không tồn tại!");
+                checkBalance(from, command.amount);
+                from.change(Money.negate(command.amount));
+                dirtyAccounts.put(from.id, from);
+                command.fromAccountNumber = from.accountNumber;
+                command.transaction = newTransaction(command, "PENDING");
+            }
+            case CREDIT -> {
+                AccountState to = load(command.toAccountId, "Tài khoản đích không tồn tại!");
+                to.change(command.amount);
+                dirtyAccounts.put(to.id, to);
+                command.toAccountNumber = to.accountNumber;
+                command.transaction.setStatus("COMPLETED");
+            }
+            case REFUND -> {
+                AccountState from = load(command.fromAccountId, "Tài khoản nguồn không tồn tại!");
+                from.change(command.amount);
+                dirtyAccounts.put(from.id, from);
+                command.transaction.setStatus("FAILED");
+            }
+            // Bỏ sau khi ghi sổ lô hiện tại, để không nạp lại số dư thiếu phần chênh lệch chưa ghi
+            case EVICT -> evicted.add(command.fromAccountId);
+        }
+    }
+
+    private AccountState load(Long accountId, String notFoundMessage) {
+        AccountState state = accounts.get(accountId);
+        if (state == null) {
+            Account account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new RuntimeException(notFoundMessage));
+            state = new AccountState(account.getId(), account.getAccountNumber(), account.getBalance());
+            accounts.put(accountId, state);
+        }
+        return state;
+    }
+
+    private static void checkBalance(AccountState account, long amount) {
+        if (!Money.covers(account.balance, amount)) {
+            throw new RuntimeException("Số dư không đủ để thực hiện giao dịch!");
+        }
+    }
+
+    private static Transaction newTransaction(LedgerCommand command, String status) {
+        Transaction transaction = new Transaction();
+        transaction.setFromAccountId(command.fromAccountId);
+        transaction.setToAccountId(command.toAccountId);
+        transaction.setAmount(command.amount);
+        transaction.setTransactionDate(LocalDateTime.now());
+        transaction.setStatus(status);
+        transaction.setDescription("Chuyển khoản nội bộ");
+        transaction.setIdempotencyKey(command.idempotencyKey);
+        return transaction;
+    }
+
+    /**
+     * Số dư của một tài khoản do shard sở hữu
+     */
+    static final class AccountState {
+        final Long id;
+        final String accountNumber;
+        long balance;
+
+        // Thay đổi số dư chưa được ghi sổ, LedgerJournal cộng vào dòng accounts thay vì ghi đè số dư
+        long unflushed;
+
+        AccountState(Long id, String accountNumber, long balance) {
+            this.id = id;
+            this.accountNumber = accountNumber;
+            this.balance = balance;
+        }
+
+        void change(long amount) {
+            balance = Money.add(balance, amount);
+            unflushed = Money.add(unflushed, amount);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.kienlongbank.klbaccountmanagement.model;
 
 import java.time.LocalDateTime;
 
+import com.kienlongbank.common.money.MoneyJson;
+
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
@@ -32,8 +34,14 @@ public class Account {
     @Column(nullable = false)
     private String accountType; // Ví dụ: "SAVINGS", "CHECKING"
 
+    // Số dư tính bằng đơn vị nhỏ nhất (VND: đồng), cột BIGINT
+    @MoneyJson
     @Column(nullable = false)
-    private Double balance;
+    private long balance;
+
+    // Tài khoản nhận nhiều giao dịch đồng thời: số dư được chia thành các slot (xem HotAccountService)
+    @Column(name = "hot_account", nullable = false, columnDefinition = "boolean default false")
+    private boolean hotAccount;
 
     @Column(name = "created_date")
     private LocalDateTime createdDate;
@@ -0,0 +1,68 @@
+package com.kienlongbank.klbaccountmanagement.model;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+import com.kienlongbank.common.money.MoneyJson;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Tổng hợp bút toán của một tài khoản trong một ngày, được ghi bằng JDBC trong DailyBalanceRollup
+ * closing_balance = opening_balance + credit_total - debit_total. Ngày không có bút toán thì không có dòng,
+ * số dư đầu ngày khi đó bằng số dư cuối của dòng gần nhất trước đó
+ */
+@Entity
+@Table(name = "account_daily_balances")
+@IdClass(AccountDailyBalance.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountDailyBalance {
+    @Id
+    @Column(name = "account_id")
+    private Long accountId;
+
+    @Id
+    @Column(name = "balance_date")
+    private LocalDate balanceDate;
+
+    @MoneyJson
+    @Column(name = "opening_balance", nullable = false)
+    private long openingBalance;
+
+    @MoneyJson
+    @Column(name = "closing_balance", nullable = false)
+    private long closingBalance;
+
+    @MoneyJson
+    @Column(name = "debit_total", nullable = false)
+    private long debitTotal; // Tổng ghi nợ, không âm
+
+    @MoneyJson
+    @Column(name = "credit_total", nullable = false)
+    private long creditTotal;
+
+    @Column(name = "debit_count", nullable = false)
+    private long debitCount;
+
+    @Column(name = "credit_count", nullable = false)
+    private long creditCount;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long accountId;
+        private LocalDate balanceDate;
+    }
+}
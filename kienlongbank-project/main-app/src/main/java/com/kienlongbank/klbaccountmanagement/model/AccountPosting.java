@@ -0,0 +1,46 @@
+package com.kienlongbank.klbaccountmanagement.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Một bút toán trên tài khoản (append-only, không bao giờ sửa/xóa)
+ * amount > 0 là ghi có, amount < 0 là ghi nợ. Số dư = snapshot gần nhất + tổng các bút toán sau snapshot
+ */
+@Entity
+@Table(name = "account_postings", indexes = {
+    @Index(name = "idx_account_postings_account_posted_at", columnList = "account_id, posted_at"),
+    @Index(name = "idx_account_postings_posted_at", columnList = "posted_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class AccountPosting {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "transaction_id")
+    private Long transactionId; // null với bút toán mở tài khoản/điều chỉnh số dư
+
+    @Column(nullable = false)
+    private long amount; // Có dấu, đơn vị nhỏ nhất (VND)
+
+    @Column(name = "posted_at", nullable = false)
+    private LocalDateTime postedAt;
+}
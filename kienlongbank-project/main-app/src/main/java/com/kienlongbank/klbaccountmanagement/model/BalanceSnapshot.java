@@ -0,0 +1,45 @@
+package com.kienlongbank.klbaccountmanagement.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số dư của tài khoản tính đến thời điểm asOf: bao gồm mọi bút toán có posted_at < asOf
+ */
+@Entity
+@Table(name = "balance_snapshots", indexes = {
+    @Index(name = "idx_balance_snapshots_account_as_of", columnList = "account_id, as_of"),
+    @Index(name = "idx_balance_snapshots_as_of", columnList = "as_of")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(nullable = false)
+    private long balance;
+
+    @Column(name = "as_of", nullable = false)
+    private LocalDateTime asOf;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,50 @@
+package com.kienlongbank.klbaccountmanagement.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Kết quả của một yêu cầu có Idempotency-Key, dùng chung giữa các instance của main-app
+ */
+@Entity
+@Table(name = "idempotency_keys", indexes = {
+    @Index(name = "idx_idempotency_keys_expires_at", columnList = "expires_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class IdempotencyRecord {
+    @Id
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
+
+    @Column(name = "request_fingerprint", nullable = false)
+    private String requestFingerprint; // Nội dung yêu cầu, để phát hiện key bị dùng lại cho yêu cầu khác
+
+    @Column(nullable = false)
+    private String status; // "PROCESSING", "COMPLETED"
+
+    @Column(name = "transaction_id")
+    private Long transactionId;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    // Hết thời điểm này mà key vẫn PROCESSING thì coi như instance xử lý đã chết, key được xác định lại
+    // từ giao dịch mang key đó (null: dòng cũ trước db/migration/V13, coi như đã hết lease)
+    @Column(name = "processing_expires_at")
+    private LocalDateTime processingExpiresAt;
+}
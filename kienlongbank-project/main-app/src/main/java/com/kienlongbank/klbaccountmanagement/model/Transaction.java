@@ -3,10 +3,14 @@ package com.kienlongbank.klbaccountmanagement.model;
 
 import java.time.LocalDateTime;
 
+import com.kienlongbank.common.money.MoneyJson;
+
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -14,7 +18,13 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    // Lịch sử giao dịch theo tài khoản: mỗi chiều gửi/nhận là một lần quét theo khoảng, id để phân trang keyset
+    @Index(name = "idx_transactions_from_account_date", columnList = "from_account_id, transaction_date, id"),
+    @Index(name = "idx_transactions_to_account_date", columnList = "to_account_id, transaction_date, id"),
+    // Truy vấn theo ngưỡng/khoảng số tiền và top N giao dịch lớn nhất
+    @Index(name = "idx_transactions_amount", columnList = "amount, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -26,8 +36,14 @@ public class Transaction {
 
     private Long fromAccountId;
     private Long toAccountId;
-    private Double amount;
+    @MoneyJson
+    private long amount; // Đơn vị nhỏ nhất (VND: đồng), cột BIGINT
+    // Khóa phân vùng theo tháng của bảng transactions (db/migration/V7)
+    @Column(name = "transaction_date", nullable = false)
     private LocalDateTime transactionDate;
     private String status; // Ví dụ: "COMPLETED", "FAILED"
     private String description;
+    // Idempotency-Key của yêu cầu chuyển khoản (nếu có), để xác định lại key khi lease PROCESSING hết hạn (IdempotencyStore)
+    @Column(name = "idempotency_key")
+    private String idempotencyKey;
 }
\ No newline at end of file
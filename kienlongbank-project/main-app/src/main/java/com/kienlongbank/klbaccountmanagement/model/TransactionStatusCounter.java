@@ -0,0 +1,37 @@
+package com.kienlongbank.klbaccountmanagement.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Số giao dịch theo trạng thái có id nhỏ hơn below_id, được TransactionStatusCounters đếm lại định kỳ từ bảng transactions.
+ * Các giao dịch từ below_id trở đi được đếm qua TransactionStatusCounterDelta
+ */
+@Entity
+@Table(name = "transaction_status_counters")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionStatusCounter {
+    @Id
+    @Column(length = 32)
+    private String status;
+
+    @Column(name = "count", nullable = false)
+    private long count;
+
+    @Column(name = "below_id", nullable = false)
+    private long belowId;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,49 @@
+package com.kienlongbank.klbaccountmanagement.model;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Chênh lệch số giao dịch theo trạng thái của một khối id giao dịch [block_start_id, block_start_id + ID_BLOCK_SIZE),
+ * được các instance cộng dồn bằng JDBC trong TransactionStatusCounters.flush
+ */
+@Entity
+@Table(name = "transaction_status_counter_deltas")
+@IdClass(TransactionStatusCounterDelta.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TransactionStatusCounterDelta {
+    @Id
+    @Column(length = 32)
+    private String status;
+
+    @Id
+    @Column(name = "block_start_id")
+    private Long blockStartId;
+
+    @Column(name = "count", nullable = false)
+    private long count;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String status;
+        private Long blockStartId;
+    }
+}
@@ -0,0 +1,22 @@
+package com.kienlongbank.klbaccountmanagement.repository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import com.kienlongbank.klbaccountmanagement.model.AccountDailyBalance;
+
+@Repository
+public interface AccountDailyBalanceRepository extends JpaRepository<AccountDailyBalance, AccountDailyBalance.Key> {
+
+    // Các ngày có bút toán trong khoảng [from, to], theo thứ tự ngày (đọc theo khóa chính)
+    List<AccountDailyBalance> findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(
+        Long accountId, LocalDate from, LocalDate to);
+
+    // Ngày có bút toán gần nhất trước ngày date: closing_balance là số dư đầu ngày date
+    Optional<AccountDailyBalance> findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(
+        Long accountId, LocalDate date);
+}
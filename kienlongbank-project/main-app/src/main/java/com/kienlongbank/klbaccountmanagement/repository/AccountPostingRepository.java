@@ -0,0 +1,26 @@
+package com.kienlongbank.klbaccountmanagement.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+
+@Repository
+public interface AccountPostingRepository extends JpaRepository<AccountPosting, Long> {
+
+    // Tổng các bút toán của tài khoản trong khoảng [from, to]
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM AccountPosting p " +
+           "WHERE p.accountId = :accountId AND p.postedAt >= :from AND p.postedAt <= :to")
+    long sumBetween(@Param("accountId") Long accountId,
+                    @Param("from") LocalDateTime from,
+                    @Param("to") LocalDateTime to);
+
+    // Tổng các bút toán của tài khoản đến thời điểm to (khi chưa có snapshot)
+    @Query("SELECT COALESCE(SUM(p.amount), 0) FROM AccountPosting p " +
+           "WHERE p.accountId = :accountId AND p.postedAt <= :to")
+    long sumUpTo(@Param("accountId") Long accountId, @Param("to") LocalDateTime to);
+}
@@ -1,15 +1,52 @@
 // Trong file repository/AccountRepository.java
 package com.kienlongbank.klbaccountmanagement.repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
 import com.kienlongbank.klbaccountmanagement.model.Account;
 
+import jakarta.persistence.LockModeType;
+
 @Repository
 public interface AccountRepository extends JpaRepository<Account, Long> {
+    // Projection chỉ đọc cho các API đọc: không nạp entity vào persistence context
+    String ACCOUNT_VIEW_SELECT =
+        "SELECT new com.kienlongbank.klbaccountmanagement.dto.AccountView(" +
+        "a.id, a.accountNumber, a.accountType, a.balance, a.customerId, a.createdDate, a.hotAccount) FROM Account a ";
+
     // Tìm tất cả tài khoản theo ID của khách hàng
-    List<Account> findByCustomerId(Long customerId);
+    @Query(ACCOUNT_VIEW_SELECT + "WHERE a.customerId = :customerId ORDER BY a.id")
+    List<AccountView> findViewsByCustomerId(@Param("customerId") Long customerId);
+
+    @Query(ACCOUNT_VIEW_SELECT + "WHERE a.id = :id")
+    Optional<AccountView> findViewById(@Param("id") Long id);
+
+    @Query(ACCOUNT_VIEW_SELECT + "ORDER BY a.id")
+    List<AccountView> findAllViews();
+
+    @Query(ACCOUNT_VIEW_SELECT + "WHERE a.id IN :ids")
+    List<AccountView> findViewsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Khóa (SELECT ... FOR UPDATE) một tài khoản trước khi đọc-sửa-ghi số dư
+    // Thời gian chờ khóa được giới hạn bởi lock_timeout do LockRetryExecutor đặt cho transaction
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id = :id")
+    Optional<Account> findByIdForUpdate(@Param("id") Long id);
+
+    // Tài khoản có được đánh dấu là tài khoản nóng không (không khóa dòng)
+    boolean existsByIdAndHotAccountTrue(Long id);
+
+    // Khóa (SELECT ... FOR UPDATE) nhiều tài khoản theo thứ tự ID tăng dần để tránh deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> findAllByIdInForUpdate(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
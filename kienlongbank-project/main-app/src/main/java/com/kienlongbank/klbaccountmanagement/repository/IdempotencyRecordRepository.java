@@ -0,0 +1,47 @@
+package com.kienlongbank.klbaccountmanagement.repository;
+
+import java.time.LocalDateTime;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.kienlongbank.klbaccountmanagement.model.IdempotencyRecord;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    // Giành quyền xử lý một key: thêm mới, hoặc chiếm lại key đã hết hạn. Trả về 0 nếu key đang được dùng
+    @Modifying
+    @Query(value = "INSERT INTO idempotency_keys (idempotency_key, request_fingerprint, status, transaction_id, created_at, " +
+                   "expires_at, processing_expires_at) " +
+                   "VALUES (:key, :fingerprint, 'PROCESSING', NULL, :now, :expiresAt, :leaseExpiresAt) " +
+                   "ON CONFLICT (idempotency_key) DO UPDATE SET request_fingerprint = EXCLUDED.request_fingerprint, " +
+                   "status = 'PROCESSING', transaction_id = NULL, created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at, " +
+                   "processing_expires_at = EXCLUDED.processing_expires_at " +
+                   "WHERE idempotency_keys.expires_at < EXCLUDED.created_at",
+           nativeQuery = true)
+    int claim(@Param("key") String key, @Param("fingerprint") String fingerprint, @Param("now") LocalDateTime now,
+              @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt, @Param("expiresAt") LocalDateTime expiresAt);
+
+    // Chiếm lại key PROCESSING đã hết lease (instance giữ key đã chết). Trả về 0 nếu instance khác vừa chiếm hoặc hoàn tất
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.processingExpiresAt = :leaseExpiresAt " +
+           "WHERE r.idempotencyKey = :key AND r.status = 'PROCESSING' " +
+           "AND (r.processingExpiresAt IS NULL OR r.processingExpiresAt < :now)")
+    int reclaim(@Param("key") String key, @Param("now") LocalDateTime now,
+                @Param("leaseExpiresAt") LocalDateTime leaseExpiresAt);
+
+    // Ghi nhận kết quả của key đang xử lý
+    @Modifying
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.transactionId = :transactionId, " +
+           "r.processingExpiresAt = NULL WHERE r.idempotencyKey = :key")
+    int complete(@Param("key") String key, @Param("transactionId") Long transactionId);
+
+    // Xóa các key đã hết hạn
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
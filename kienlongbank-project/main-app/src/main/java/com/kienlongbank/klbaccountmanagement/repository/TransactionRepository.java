@@ -2,20 +2,72 @@ package com.kienlongbank.klbaccountmanagement.repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.kienlongbank.klbaccountmanagement.dto.TransactionView;
 import com.kienlongbank.klbaccountmanagement.model.Transaction;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
-    // Tìm tất cả giao dịch của một tài khoản (cả gửi và nhận)
-    @Query("SELECT t FROM Transaction t WHERE t.fromAccountId = :accountId OR t.toAccountId = :accountId")
-    List<Transaction> findByAccountId(@Param("accountId") Long accountId);
+    // Lịch sử của một tài khoản = giao dịch gửi UNION ALL giao dịch nhận, mỗi nhánh là một lần quét theo khoảng trên
+    // index (from_account_id, transaction_date, id) / (to_account_id, transaction_date, id) thay vì điều kiện OR.
+    // Giao dịch tự chuyển cho chính mình chỉ được lấy ở nhánh gửi.
+    String ACCOUNT_PAGE_SQL =
+        "SELECT * FROM (" +
+        "(SELECT * FROM transactions WHERE from_account_id = :accountId " +
+        "ORDER BY transaction_date DESC, id DESC LIMIT :limit) " +
+        "UNION ALL " +
+        "(SELECT * FROM transactions WHERE to_account_id = :accountId AND from_account_id IS DISTINCT FROM :accountId " +
+        "ORDER BY transaction_date DESC, id DESC LIMIT :limit)" +
+        ") t ORDER BY transaction_date DESC, id DESC LIMIT :limit";
+
+    String ACCOUNT_PAGE_AFTER_SQL =
+        "SELECT * FROM (" +
+        "(SELECT * FROM transactions WHERE from_account_id = :accountId " +
+        "AND (transaction_date, id) < (:transactionDate, :id) " +
+        "ORDER BY transaction_date DESC, id DESC LIMIT :limit) " +
+        "UNION ALL " +
+        "(SELECT * FROM transactions WHERE to_account_id = :accountId AND from_account_id IS DISTINCT FROM :accountId " +
+        "AND (transaction_date, id) < (:transactionDate, :id) " +
+        "ORDER BY transaction_date DESC, id DESC LIMIT :limit)" +
+        ") t ORDER BY transaction_date DESC, id DESC LIMIT :limit";
+
+    String ACCOUNT_DATE_RANGE_SQL =
+        "SELECT * FROM (" +
+        "(SELECT * FROM transactions WHERE from_account_id = :accountId " +
+        "AND transaction_date BETWEEN :startDate AND :endDate) " +
+        "UNION ALL " +
+        "(SELECT * FROM transactions WHERE to_account_id = :accountId AND from_account_id IS DISTINCT FROM :accountId " +
+        "AND transaction_date BETWEEN :startDate AND :endDate)" +
+        ") t ORDER BY transaction_date DESC, id DESC";
+
+    // Trang đầu lịch sử giao dịch của một tài khoản (cả gửi và nhận), mới nhất trước
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = ACCOUNT_PAGE_SQL, nativeQuery = true)
+    List<Transaction> findPageByAccountId(@Param("accountId") Long accountId, @Param("limit") int limit);
+
+    // Trang tiếp theo: tìm thẳng tới sau (transactionDate, id) của dòng cuối trang trước thay vì OFFSET,
+    // nên trang thứ N tốn như trang đầu
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = ACCOUNT_PAGE_AFTER_SQL, nativeQuery = true)
+    List<Transaction> findPageByAccountIdAfter(@Param("accountId") Long accountId,
+                                              @Param("transactionDate") LocalDateTime transactionDate,
+                                              @Param("id") Long id,
+                                              @Param("limit") int limit);
 
     // Tìm giao dịch theo tài khoản gửi
     List<Transaction> findByFromAccountId(Long fromAccountId);
@@ -23,43 +75,99 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     // Tìm giao dịch theo tài khoản nhận
     List<Transaction> findByToAccountId(Long toAccountId);
 
+    // Projection chỉ đọc cho các API danh sách: không nạp entity vào persistence context
+    String TRANSACTION_VIEW_SELECT =
+        "SELECT new com.kienlongbank.klbaccountmanagement.dto.TransactionView(" +
+        "t.id, t.fromAccountId, t.toAccountId, t.amount, t.transactionDate, t.status, t.description) " +
+        "FROM Transaction t ";
+
     // Tìm giao dịch theo trạng thái
-    List<Transaction> findByStatus(String status);
+    @Query(TRANSACTION_VIEW_SELECT + "WHERE t.status = :status")
+    List<TransactionView> findViewsByStatus(@Param("status") String status);
 
     // Tìm giao dịch trong khoảng thời gian
-    @Query("SELECT t FROM Transaction t WHERE t.transactionDate BETWEEN :startDate AND :endDate")
-    List<Transaction> findByDateRange(@Param("startDate") LocalDateTime startDate, 
-                                     @Param("endDate") LocalDateTime endDate);
-
-    // Tìm giao dịch của một tài khoản trong khoảng thời gian
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccountId = :accountId OR t.toAccountId = :accountId) " +
-           "AND t.transactionDate BETWEEN :startDate AND :endDate")
+    @Query(TRANSACTION_VIEW_SELECT + "WHERE t.transactionDate BETWEEN :startDate AND :endDate")
+    List<TransactionView> findViewsByDateRange(@Param("startDate") LocalDateTime startDate,
+                                              @Param("endDate") LocalDateTime endDate);
+
+    // Tìm giao dịch của một tài khoản trong khoảng thời gian, mới nhất trước
+    // Truy vấn native chỉ map được ra entity: nạp ở chế độ read-only để Hibernate không giữ snapshot
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = ACCOUNT_DATE_RANGE_SQL, nativeQuery = true)
     List<Transaction> findByAccountIdAndDateRange(@Param("accountId") Long accountId,
                                                  @Param("startDate") LocalDateTime startDate,
                                                  @Param("endDate") LocalDateTime endDate);
 
-    // Tìm giao dịch theo số tiền lớn hơn một giá trị
-    List<Transaction> findByAmountGreaterThan(Double amount);
+    // Truy vấn theo số tiền đi ngược index idx_transactions_amount (amount, id) và dừng sau pageable.getPageSize()
+    // dòng, không sắp xếp hay nạp toàn bộ các dòng thỏa điều kiện (db/migration/V9__transaction_amount_index.sql)
+
+    // Giao dịch có số tiền lớn hơn một giá trị, lớn nhất trước
+    @Query(TRANSACTION_VIEW_SELECT + "WHERE t.amount > :amount ORDER BY t.amount DESC, t.id DESC")
+    List<TransactionView> findViewsByAmountGreaterThan(@Param("amount") long amount, Pageable pageable);
 
-    // Tìm giao dịch theo số tiền trong khoảng
-    @Query("SELECT t FROM Transaction t WHERE t.amount BETWEEN :minAmount AND :maxAmount")
-    List<Transaction> findByAmountRange(@Param("minAmount") Double minAmount, 
-                                       @Param("maxAmount") Double maxAmount);
+    // Giao dịch có số tiền trong khoảng, lớn nhất trước
+    @Query(TRANSACTION_VIEW_SELECT + "WHERE t.amount BETWEEN :minAmount AND :maxAmount ORDER BY t.amount DESC, t.id DESC")
+    List<TransactionView> findViewsByAmountRange(@Param("minAmount") long minAmount,
+                                                @Param("maxAmount") long maxAmount,
+                                                Pageable pageable);
 
-    // Tìm giao dịch gần đây nhất của một tài khoản
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccountId = :accountId OR t.toAccountId = :accountId) " +
-           "ORDER BY t.transactionDate DESC")
-    List<Transaction> findRecentTransactionsByAccountId(@Param("accountId") Long accountId);
+    // Top N giao dịch lớn nhất trong khoảng thời gian: chỉ quét các partition của khoảng đó,
+    // mỗi partition được đọc ngược theo index amount và gộp lại (Merge Append)
+    @Query(TRANSACTION_VIEW_SELECT + "WHERE t.transactionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.amount DESC, t.id DESC")
+    List<TransactionView> findTopViewsByAmountInDateRange(@Param("startDate") LocalDateTime startDate,
+                                                         @Param("endDate") LocalDateTime endDate,
+                                                         Pageable pageable);
 
     // Đếm số giao dịch theo trạng thái
     Long countByStatus(String status);
 
-    // Tìm giao dịch theo mô tả (tìm kiếm gần đúng)
-    @Query("SELECT t FROM Transaction t WHERE t.description LIKE %:keyword%")
-    List<Transaction> findByDescriptionContaining(@Param("keyword") String keyword);
-
-    // Tìm tất cả giao dịch liên quan đến một tài khoản, sắp xếp theo ngày mới nhất
-    @Query("SELECT t FROM Transaction t WHERE (t.fromAccountId = :accountId OR t.toAccountId = :accountId) " +
-           "ORDER BY t.transactionDate DESC")
-    List<Transaction> findAllTransactionsByAccountIdOrderByDateDesc(@Param("accountId") Long accountId);
+    // Lần thực thi gần nhất của một Idempotency-Key (index idx_transactions_idempotency_key, db/migration/V13)
+    Optional<Transaction> findFirstByIdempotencyKeyOrderByIdDesc(String idempotencyKey);
+
+    // Tìm giao dịch theo mô tả (LIKE, phân biệt dấu), mới nhất trước
+    // Chỉ dùng khi transactions.search.mode=LIKE: không có index nào phục vụ được, quét toàn bảng
+    @Query("SELECT t FROM Transaction t WHERE t.description LIKE %:keyword% ORDER BY t.transactionDate DESC, t.id DESC")
+    // Slice: Spring Data lấy thêm một dòng để biết còn trang sau, không chạy câu COUNT
+    Slice<Transaction> findByDescriptionContaining(@Param("keyword") String keyword, Pageable pageable);
+
+    // Tìm theo mô tả không phân biệt hoa thường và dấu tiếng Việt, dùng index GIN trigram
+    // idx_transactions_description_trgm (db/migration/V5__transaction_description_search.sql).
+    // :pattern là từ khóa đã escape ký tự đặc biệt của LIKE; kết quả xếp theo độ giống của từ khóa với mô tả
+    String DESCRIPTION_SEARCH_SQL =
+        "SELECT * FROM transactions t " +
+        "WHERE lower(immutable_unaccent(t.description)) LIKE '%' || lower(immutable_unaccent(:pattern)) || '%' " +
+        "ORDER BY word_similarity(lower(immutable_unaccent(:keyword)), lower(immutable_unaccent(t.description))) DESC, " +
+        "t.transaction_date DESC, t.id DESC " +
+        "LIMIT :limit OFFSET :offset";
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"))
+    @Query(value = DESCRIPTION_SEARCH_SQL, nativeQuery = true)
+    List<Transaction> searchByDescription(@Param("keyword") String keyword,
+                                          @Param("pattern") String pattern,
+                                          @Param("limit") int limit,
+                                          @Param("offset") long offset);
+
+    // Số dòng JDBC driver lấy mỗi lượt khi xuất dữ liệu theo stream (PostgreSQL chỉ dùng cursor khi ở trong transaction)
+    String EXPORT_FETCH_SIZE = "1000";
+
+    // Xuất giao dịch trong khoảng thời gian theo stream, phải được đọc hết/đóng trong transaction
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT t FROM Transaction t WHERE t.transactionDate BETWEEN :startDate AND :endDate " +
+           "ORDER BY t.transactionDate, t.id")
+    Stream<Transaction> streamByDateRange(@Param("startDate") LocalDateTime startDate,
+                                         @Param("endDate") LocalDateTime endDate);
+
+    // Xuất giao dịch của một tài khoản trong khoảng thời gian theo stream (UNION ALL như ACCOUNT_DATE_RANGE_SQL)
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(value = ACCOUNT_DATE_RANGE_SQL, nativeQuery = true)
+    Stream<Transaction> streamByAccountIdAndDateRange(@Param("accountId") Long accountId,
+                                                     @Param("startDate") LocalDateTime startDate,
+                                                     @Param("endDate") LocalDateTime endDate);
 }
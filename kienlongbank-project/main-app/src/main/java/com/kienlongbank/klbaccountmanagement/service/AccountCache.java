@@ -0,0 +1,214 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kienlongbank.klbaccountmanagement.config.AccountCacheConfig;
+import com.kienlongbank.klbaccountmanagement.datasource.ReadYourWrites;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cache cục bộ (Caffeine) cho các API đọc tài khoản
+ *
+ * - accounts: AccountView theo id, giữ số dư của dòng accounts (số dư tài khoản nóng vẫn được tính lại khi đọc)
+ * - customer-accounts: danh sách id tài khoản của khách hàng, chỉ đổi khi mở hoặc xóa tài khoản,
+ *   nên chuyển khoản chỉ cần vô hiệu hóa tài khoản theo id
+ *
+ * Mỗi key chỉ được nạp một lần dù nhiều request cùng trượt cache, và nạp trên primary để không giữ lại
+ * dữ liệu cũ của replica. Luồng ghi gọi evictAfterCommit trong transaction của mình: cache được vô hiệu hóa
+ * ngay sau khi commit trên luồng commit, còn tin broadcast qua fanout exchange cho các node khác
+ * (xem AccountCacheInvalidationListener) được gửi trên một luồng riêng, để luồng chuyển khoản, lô chuyển khoản
+ * hay shard của ledger không phải chờ RabbitMQ. Tin broadcast bị mất thì mục cũ vẫn hết hạn sau expire-after-write-ms.
+ *
+ * Metrics: cache.gets{result=hit|miss}, cache.size, cache.evictions với tag cache=accounts|customer-accounts
+ */
+@Component
+@Slf4j
+public class AccountCache {
+
+    private final AccountCacheConfig config;
+    private final RabbitTemplate rabbitTemplate;
+    private final ObjectMapper objectMapper;
+
+    // Định danh node để bỏ qua tin broadcast do chính node này gửi
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final Cache<Long, AccountView> accounts;
+    private final Cache<Long, List<Long>> customerAccountIds;
+
+    // Tăng trước mỗi lần vô hiệu hóa, để biết tài khoản đọc kèm danh sách có thể đã cũ hay chưa
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Một luồng gửi broadcast, hàng đợi có giới hạn; hàng đợi đầy thì bỏ tin thay vì gửi trên luồng commit
+    private final ThreadPoolExecutor broadcaster;
+
+    public AccountCache(AccountCacheConfig config, RabbitTemplate rabbitTemplate, ObjectMapper objectMapper,
+                        MeterRegistry meterRegistry) {
+        this.config = config;
+        this.rabbitTemplate = rabbitTemplate;
+        this.objectMapper = objectMapper;
+
+        Duration ttl = Duration.ofMillis(config.getExpireAfterWriteMs());
+        this.accounts = Caffeine.newBuilder()
+            .maximumSize(config.getMaximumSize())
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.customerAccountIds = Caffeine.newBuilder()
+            .maximumSize(config.getCustomerMaximumSize())
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, accounts, "accounts");
+        CaffeineCacheMetrics.monitor(meterRegistry, customerAccountIds, "customer-accounts");
+
+        this.broadcaster = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(config.getBroadcastQueueCapacity()), runnable -> {
+                Thread thread = new Thread(runnable, "account-cache-broadcast");
+                thread.setDaemon(true);
+                return thread;
+            }, (runnable, executor) -> log.warn(
+                "Account cache broadcast queue is full, other nodes will expire the entries after {} ms",
+                config.getExpireAfterWriteMs()));
+    }
+
+    /**
+     * Tài khoản theo id, nạp bằng loader khi chưa có trong cache
+     * @param loader trả về null nếu không tìm thấy (không được cache)
+     */
+    public AccountView getAccount(Long accountId, Function<Long, AccountView> loader) {
+        if (!config.isEnabled()) {
+            return loader.apply(accountId);
+        }
+        return accounts.get(accountId, id -> ReadYourWrites.onPrimary(() -> loader.apply(id)));
+    }
+
+    /**
+     * Danh sách tài khoản của khách hàng
+     * @param loader nạp cả danh sách khi chưa có danh sách id trong cache
+     * @param accountLoader nạp một tài khoản của danh sách đã cache nhưng đã bị vô hiệu hóa
+     */
+    public List<AccountView> getCustomerAccounts(Long customerId, Function<Long, List<AccountView>> loader,
+                                                 Function<Long, AccountView> accountLoader) {
+        if (!config.isEnabled()) {
+            return loader.apply(customerId);
+        }
+
+        long epoch = evictions.get();
+        Map<Long, AccountView> loaded = new HashMap<>();
+        List<Long> ids = customerAccountIds.get(customerId, id -> {
+            List<AccountView> views = ReadYourWrites.onPrimary(() -> loader.apply(id));
+            views.forEach(view -> loaded.put(view.id(), view));
+            return views.stream().map(AccountView::id).toList();
+        });
+
+        List<AccountView> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            AccountView account = accounts.get(id, key -> {
+                // Dùng lại bản vừa đọc cùng danh sách nếu từ lúc đọc chưa có lần vô hiệu hóa nào;
+                // kiểm tra trong lúc giữ khóa của key nên lần vô hiệu hóa đến sau sẽ xóa giá trị này
+                AccountView view = loaded.get(key);
+                if (view != null && evictions.get() == epoch) {
+                    return view;
+                }
+                return ReadYourWrites.onPrimary(() -> accountLoader.apply(key));
+            });
+            // Tài khoản đã bị xóa nhưng danh sách id chưa được vô hiệu hóa
+            if (account != null) {
+                result.add(account);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Vô hiệu hóa tài khoản (số dư hoặc thông tin thay đổi) và danh sách tài khoản của khách hàng (mở/xóa tài khoản)
+     * sau khi transaction hiện tại commit, trên node này và các node khác. Không có transaction thì vô hiệu hóa ngay
+     */
+    public void evictAfterCommit(Collection<Long> accountIds, Collection<Long> customerIds) {
+        if (!config.isEnabled() || (accountIds.isEmpty() && customerIds.isEmpty())) {
+            return;
+        }
+        Invalidation invalidation = new Invalidation(nodeId, List.copyOf(accountIds), List.copyOf(customerIds));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndBroadcast(invalidation);
+                }
+            });
+        } else {
+            evictAndBroadcast(invalidation);
+        }
+    }
+
+    /**
+     * Xử lý tin vô hiệu hóa nhận từ fanout exchange
+     */
+    public void onBroadcast(String message) {
+        Invalidation invalidation;
+        try {
+            invalidation = objectMapper.readValue(message, Invalidation.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring malformed account cache invalidation: {}", e.getMessage());
+            return;
+        }
+        if (!nodeId.equals(invalidation.origin())) {
+            evict(invalidation);
+        }
+    }
+
+    private void evictAndBroadcast(Invalidation invalidation) {
+        evict(invalidation);
+        broadcaster.execute(() -> broadcast(invalidation));
+    }
+
+    private void broadcast(Invalidation invalidation) {
+        try {
+            rabbitTemplate.convertAndSend(config.getExchange(), "", objectMapper.writeValueAsString(invalidation));
+        } catch (JsonProcessingException | AmqpException e) {
+            log.warn("Could not broadcast account cache invalidation, other nodes will expire it after {} ms: {}",
+                config.getExpireAfterWriteMs(), e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        broadcaster.shutdown();
+    }
+
+    void evict(Invalidation invalidation) {
+        evictions.incrementAndGet();
+        invalidation.accountIds().forEach(accounts::invalidate);
+        invalidation.customerIds().forEach(customerAccountIds::invalidate);
+    }
+
+    // Nội dung tin broadcast
+    record Invalidation(String origin, List<Long> accountIds, List<Long> customerIds) {
+    }
+}
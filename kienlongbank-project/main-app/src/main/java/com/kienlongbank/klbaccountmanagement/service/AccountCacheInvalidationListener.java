@@ -0,0 +1,23 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Nhận tin vô hiệu hóa cache tài khoản do các node main-app khác gửi sau khi commit
+ */
+@Component
+@ConditionalOnProperty(prefix = "accounts.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class AccountCacheInvalidationListener {
+
+    private final AccountCache accountCache;
+
+    @RabbitListener(queues = "#{accountCacheInvalidationQueue.name}")
+    public void onInvalidation(String message) {
+        accountCache.onBroadcast(message);
+    }
+}
@@ -0,0 +1,185 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import com.kienlongbank.klbaccountmanagement.config.AccountNumberConfig;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cấp số tài khoản duy nhất trên toàn cluster: "KLB" + 9 chữ số + 1 chữ số kiểm tra Luhn (13 ký tự)
+ *
+ * - Mỗi node thuê một khối số liên tiếp bằng một lần nextval trên sequence account_number_seq
+ *   (INCREMENT BY = kích thước khối), hai node không bao giờ nhận cùng một khối
+ * - Trong khối, số được cấp bằng AtomicLong.getAndIncrement, không khóa; chỉ luồng gặp khối đã hết
+ *   mới giữ refillLock để thuê khối mới
+ * - Số trong khối chưa dùng khi node dừng sẽ bị bỏ qua (dãy số có lỗ, không bao giờ trùng)
+ * - Số tài khoản cũ (KLB + 10 ký tự hex ngẫu nhiên) trùng định dạng mới được nạp một lần và bỏ qua khi cấp
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountNumberAllocator {
+
+    static final String PREFIX = "KLB";
+
+    static final int BODY_DIGITS = 9;
+
+    static final long MAX_BODY = 999_999_999L;
+
+    static final int LENGTH = PREFIX.length() + BODY_DIGITS + 1;
+
+    private static final String SEQUENCE = "account_number_seq";
+
+    private static final Block EXHAUSTED = new Block(0, 0);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountNumberConfig accountNumberConfig;
+
+    private final AtomicReference<Block> current = new AtomicReference<>(EXHAUSTED);
+
+    // Chỉ một luồng thuê khối mới tại một thời điểm
+    private final ReentrantLock refillLock = new ReentrantLock();
+
+    private volatile Set<String> legacyNumbers;
+
+    private long blockSize;
+
+    /**
+     * Số tài khoản tiếp theo
+     * @throws IllegalStateException nếu đã dùng hết dải 9 chữ số
+     */
+    public String next() {
+        while (true) {
+            Block block = current.get();
+            long body = block.next.getAndIncrement();
+            if (body < block.end) {
+                String accountNumber = format(body);
+                if (legacyNumbers.isEmpty() || !legacyNumbers.contains(accountNumber)) {
+                    return accountNumber;
+                }
+                continue;
+            }
+            refill(block);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            // Luồng khác đã thuê khối mới trong lúc chờ
+            if (current.get() != exhausted) {
+                return;
+            }
+            if (legacyNumbers == null) {
+                legacyNumbers = loadLegacyNumbers();
+            }
+            Block block = leaseBlock();
+            log.info("Leased account number block [{}, {})", block.start, block.end);
+            current.set(block);
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    // Gọi trong refill (đang giữ refillLock)
+    Block leaseBlock() {
+        if (blockSize == 0) {
+            jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE +
+                " START WITH 1 INCREMENT BY " + accountNumberConfig.getBlockSize());
+            Long increment = jdbcTemplate.queryForObject(
+                "SELECT increment_by FROM pg_sequences WHERE sequencename = ?", Long.class, SEQUENCE);
+            blockSize = increment != null ? increment : accountNumberConfig.getBlockSize();
+        }
+        Long start = jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class);
+        if (start == null || start > MAX_BODY) {
+            throw new IllegalStateException("Đã hết dải số tài khoản " + PREFIX + " (" + BODY_DIGITS + " chữ số)");
+        }
+        return new Block(start, Math.min(start + blockSize, MAX_BODY + 1));
+    }
+
+    Set<String> loadLegacyNumbers() {
+        List<String> candidates = jdbcTemplate.queryForList(
+            "SELECT account_number FROM accounts WHERE account_number ~ '^" + PREFIX + "[0-9]{" + (BODY_DIGITS + 1) + "}$'",
+            String.class);
+        Set<String> conflicts = new HashSet<>();
+        for (String candidate : candidates) {
+            if (isValid(candidate)) {
+                conflicts.add(candidate);
+            }
+        }
+        if (!conflicts.isEmpty()) {
+            log.info("{} legacy account numbers match the new format and will be skipped", conflicts.size());
+        }
+        return Set.copyOf(conflicts);
+    }
+
+    /**
+     * Định dạng phần thân 9 chữ số (thêm số 0 bên trái) và chữ số kiểm tra, chỉ tạo một char[] và một String
+     */
+    static String format(long body) {
+        char[] chars = new char[LENGTH];
+        chars[0] = 'K';
+        chars[1] = 'L';
+        chars[2] = 'B';
+        int sum = 0;
+        long rest = body;
+        // Luhn: tính từ phải sang trái, chữ số sát chữ số kiểm tra được nhân đôi
+        for (int i = LENGTH - 2; i >= PREFIX.length(); i--) {
+            int digit = (int) (rest % 10);
+            rest /= 10;
+            chars[i] = (char) ('0' + digit);
+            sum += (LENGTH - 2 - i) % 2 == 0 ? doubled(digit) : digit;
+        }
+        chars[LENGTH - 1] = (char) ('0' + (10 - sum % 10) % 10);
+        return new String(chars);
+    }
+
+    /**
+     * Số tài khoản đúng định dạng mới và chữ số kiểm tra Luhn hợp lệ
+     */
+    public static boolean isValid(String accountNumber) {
+        if (accountNumber == null || accountNumber.length() != LENGTH || !accountNumber.startsWith(PREFIX)) {
+            return false;
+        }
+        int sum = 0;
+        for (int i = LENGTH - 1; i >= PREFIX.length(); i--) {
+            char c = accountNumber.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+            int digit = c - '0';
+            sum += (LENGTH - 1 - i) % 2 == 1 ? doubled(digit) : digit;
+        }
+        return sum % 10 == 0;
+    }
+
+    private static int doubled(int digit) {
+        int value = digit * 2;
+        return value > 9 ? value - 9 : value;
+    }
+
+    /**
+     * Khối số [start, end) đã thuê, next là số tiếp theo sẽ cấp
+     */
+    static final class Block {
+        final long start;
+        final long end;
+        final AtomicLong next;
+
+        Block(long start, long end) {
+            this.start = start;
+            this.end = end;
+            this.next = new AtomicLong(start);
+        }
+    }
+}
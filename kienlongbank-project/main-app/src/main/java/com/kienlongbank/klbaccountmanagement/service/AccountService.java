@@ -1,11 +1,17 @@
 package com.kienlongbank.klbaccountmanagement.service;
 
+import java.time.LocalDateTime;
 import java.util.List;
-import java.util.UUID;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+import com.kienlongbank.klbaccountmanagement.dto.UpdateAccountRequest;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
 import com.kienlongbank.klbaccountmanagement.model.Account;
 import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -20,6 +26,24 @@ public class AccountService {
     @Autowired
     private CustomerServiceClient customerServiceClient; // Sử dụng RestTemplate-based client
 
+    @Autowired
+    private LedgerEngine ledgerEngine;
+
+    @Autowired
+    private PostingJournal postingJournal;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private HotAccountService hotAccountService;
+
+    @Autowired
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Autowired
+    private AccountCache accountCache;
+
     /**
      * Tạo tài khoản mới cho một khách hàng
      * @param customerId ID của khách hàng  
@@ -47,19 +71,22 @@ public class AccountService {
             throw e;
         }
 
-        // Tự động tạo số tài khoản duy nhất
-        String accountNumber = generateAccountNumber();
+        // Số tài khoản duy nhất trên toàn cluster, cấp từ khối đã thuê của sequence (không cần thử lại khi lưu)
+        String accountNumber = accountNumberAllocator.next();
         
         // Thiết lập thông tin cho tài khoản mới
         account.setAccountNumber(accountNumber);
         account.setCustomerId(customerId); // Sử dụng customerId thay vì Customer object
-        
-        // Nếu balance không được thiết lập, mặc định là 0
-        if (account.getBalance() == null) {
-            account.setBalance(0.0);
-        }
 
-        Account savedAccount = accountRepository.save(account);
+        // Số dư ban đầu được ghi thành bút toán mở tài khoản
+        Account savedAccount = transactionTemplate.execute(status -> {
+            Account created = accountRepository.save(account);
+            if (created.getBalance() != 0) {
+                postingJournal.post(created.getId(), null, created.getBalance());
+            }
+            accountCache.evictAfterCommit(List.of(), List.of(customerId));
+            return created;
+        });
         log.info("Successfully created account {} for customer {}", savedAccount.getAccountNumber(), customerId);
         return savedAccount;
     }
@@ -67,66 +94,132 @@ public class AccountService {
     /**
      * Cập nhật thông tin tài khoản
      * @param accountId ID của tài khoản cần cập nhật
-     * @param accountDetails Thông tin tài khoản mới
+     * @param accountDetails Thông tin tài khoản mới, trường null được giữ nguyên
      * @return Account đã được cập nhật hoặc null nếu không tìm thấy
      */
-    public Account updateAccount(Long accountId, Account accountDetails) {
-        Account existingAccount = accountRepository.findById(accountId).orElse(null);
-        if (existingAccount != null) {
+    public Account updateAccount(Long accountId, UpdateAccountRequest accountDetails) {
+        Account savedAccount = transactionTemplate.execute(status -> {
+            // Gộp các slot (nếu có) về dòng chính trước khi đọc để số dư là số dư thực
+            hotAccountService.merge(accountId);
+            Account existingAccount = accountRepository.findByIdForUpdate(accountId).orElse(null);
+            if (existingAccount == null) {
+                return null;
+            }
             // Cập nhật các trường có thể thay đổi
             if (accountDetails.getAccountType() != null) {
                 existingAccount.setAccountType(accountDetails.getAccountType());
             }
+            if (accountDetails.getHotAccount() != null) {
+                existingAccount.setHotAccount(accountDetails.getHotAccount());
+            }
             if (accountDetails.getBalance() != null) {
+                // Phần chênh lệch được ghi thành bút toán điều chỉnh
+                long adjustment = Money.subtract(accountDetails.getBalance(), existingAccount.getBalance());
                 existingAccount.setBalance(accountDetails.getBalance());
+                if (adjustment != 0) {
+                    postingJournal.post(accountId, null, adjustment);
+                }
             }
+            accountCache.evictAfterCommit(List.of(accountId), List.of());
             return accountRepository.save(existingAccount);
+        });
+        if (savedAccount != null && accountDetails.getBalance() != null) {
+            // Số dư bị sửa ngoài ledger engine, buộc shard nạp lại từ DB
+            ledgerEngine.invalidate(accountId);
         }
-        return null;
+        return savedAccount;
     }
 
     /**
-     * Lấy danh sách tất cả tài khoản của một khách hàng
+     * Lấy danh sách tất cả tài khoản của một khách hàng, đọc qua AccountCache
+     * (không mở transaction để lần đọc trúng cache không phải lấy connection)
      * @param customerId ID của khách hàng
-     * @return List<Account> danh sách tài khoản
+     * @return List<AccountView> danh sách tài khoản (projection chỉ đọc)
      */
-    public List<Account> getAccountsByCustomerId(Long customerId) {
-        return accountRepository.findByCustomerId(customerId);
+    public List<AccountView> getAccountsByCustomerId(Long customerId) {
+        return accountCache.getCustomerAccounts(customerId, accountRepository::findViewsByCustomerId,
+                this::loadAccountView).stream()
+            .map(this::withExactBalance)
+            .toList();
     }
 
     /**
-     * Lấy thông tin một tài khoản theo ID
+     * Lấy thông tin một tài khoản theo ID để trả về cho API đọc, đọc qua AccountCache
+     * @param accountId ID của tài khoản
+     * @return AccountView hoặc null nếu không tìm thấy
+     */
+    public AccountView getAccountViewById(Long accountId) {
+        AccountView account = accountCache.getAccount(accountId, this::loadAccountView);
+        return account != null ? withExactBalance(account) : null;
+    }
+
+    /**
+     * Lấy thông tin một tài khoản theo ID (bản sao không được JPA quản lý, dựng từ AccountView trong cache)
      * @param accountId ID của tài khoản
      * @return Account hoặc null nếu không tìm thấy
      */
     public Account getAccountById(Long accountId) {
-        return accountRepository.findById(accountId).orElse(null);
+        AccountView account = getAccountViewById(accountId);
+        if (account == null) {
+            return null;
+        }
+        return Account.builder()
+            .id(account.id())
+            .accountNumber(account.accountNumber())
+            .accountType(account.accountType())
+            .balance(account.balance())
+            .hotAccount(account.hotAccount())
+            .createdDate(account.createdDate())
+            .customerId(account.customerId())
+            .build();
+    }
+
+    private AccountView loadAccountView(Long accountId) {
+        return accountRepository.findViewById(accountId).orElse(null);
+    }
+
+    // Projection của tài khoản nóng: số dư = dòng chính + các slot
+    private AccountView withExactBalance(AccountView account) {
+        if (!account.hotAccount() || !hotAccountService.isEnabled()) {
+            return account;
+        }
+        return account.withBalance(hotAccountService.totalBalance(account.id()));
     }
 
     /**
-     * Xóa tài khoản
-     * @param accountId ID của tài khoản cần xóa
+     * Số dư của tài khoản tại một thời điểm, tính từ sổ bút toán
+     * @param accountId ID của tài khoản
+     * @param at thời điểm cần tra cứu
+     * @return số dư hoặc null nếu không tìm thấy tài khoản
      */
-    public void deleteAccount(Long accountId) {
-        accountRepository.deleteById(accountId);
+    @Transactional(readOnly = true)
+    public Long getBalanceAt(Long accountId, LocalDateTime at) {
+        if (!accountRepository.existsById(accountId)) {
+            return null;
+        }
+        return postingJournal.balanceAt(accountId, at);
     }
 
     /**
-     * Lấy tất cả tài khoản trong hệ thống
-     * @return List<Account> danh sách tất cả tài khoản
+     * Xóa tài khoản
+     * @param accountId ID của tài khoản cần xóa
      */
-    public List<Account> getAllAccounts() {
-        return accountRepository.findAll();
+    public void deleteAccount(Long accountId) {
+        transactionTemplate.executeWithoutResult(status ->
+            accountRepository.findById(accountId).ifPresent(account -> {
+                accountRepository.delete(account);
+                accountCache.evictAfterCommit(List.of(accountId), List.of(account.getCustomerId()));
+            }));
     }
 
     /**
-     * Tạo số tài khoản duy nhất
-     * @return String số tài khoản
+     * Lấy tất cả tài khoản trong hệ thống
+     * @return List<AccountView> danh sách tất cả tài khoản (projection chỉ đọc)
      */
-    private String generateAccountNumber() {
-        // Sử dụng UUID để tạo số tài khoản duy nhất
-        // Có thể tùy chỉnh format theo yêu cầu ngân hàng
-        String uuid = UUID.randomUUID().toString().replace("-", "").toUpperCase();
-        return "KLB" + uuid.substring(0, 10); // KLB + 10 ký tự đầu của UUID
+    @Transactional(readOnly = true)
+    public List<AccountView> getAllAccounts() {
+        return accountRepository.findAllViews().stream()
+            .map(this::withExactBalance)
+            .toList();
     }
 }
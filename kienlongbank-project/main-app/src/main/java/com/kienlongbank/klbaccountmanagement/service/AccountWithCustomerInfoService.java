@@ -1,9 +1,23 @@
 package com.kienlongbank.klbaccountmanagement.service;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import com.kienlongbank.common.dto.CustomerDTO;
+import com.kienlongbank.klbaccountmanagement.dto.AccountCustomerView;
 import com.kienlongbank.klbaccountmanagement.model.Account;
-import lombok.RequiredArgsConstructor;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 /**
@@ -11,12 +25,31 @@ import org.springframework.stereotype.Service;
  * Ví dụ về cách gọi customer service với RestTemplate
  */
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class AccountWithCustomerInfoService {
 
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
     private final AccountService accountService;
     private final CustomerServiceClient customerServiceClient;
+    private final ThreadPoolExecutor executor;
+    private final int maxAccounts;
+
+    public AccountWithCustomerInfoService(AccountService accountService, CustomerServiceClient customerServiceClient,
+                                          @Value("${accounts.with-customer.threads:8}") int threads,
+                                          @Value("${accounts.with-customer.queue-capacity:1000}") int queueCapacity,
+                                          @Value("${accounts.with-customer.max-accounts:200}") int maxAccounts) {
+        this.accountService = accountService;
+        this.customerServiceClient = customerServiceClient;
+        this.maxAccounts = maxAccounts;
+        // Số luồng và hàng đợi có giới hạn; hàng đợi đầy thì luồng gọi tự nạp tài khoản thay vì tạo thêm luồng
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                Thread thread = new Thread(runnable, "account-info-" + THREADS.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
 
     /**
      * Tạo tài khoản với thông tin chi tiết khách hàng
@@ -63,6 +96,61 @@ public class AccountWithCustomerInfoService {
         return result;
     }
 
+    /**
+     * Phiên bản bất đồng bộ của getAccountWithCustomerInfo: tài khoản được nạp trên executor có giới hạn,
+     * khách hàng được tra cứu qua Dubbo CompletableFuture (gom lô với các lần tra cứu đồng thời khác)
+     * @return future của tài khoản kèm khách hàng, hoàn tất với null nếu không tìm thấy tài khoản
+     */
+    public CompletableFuture<AccountCustomerView> getAccountWithCustomerInfoAsync(Long accountId) {
+        return CompletableFuture.supplyAsync(() -> accountService.getAccountViewById(accountId), executor)
+            .thenCompose(account -> account == null
+                ? CompletableFuture.completedFuture(null)
+                : customerServiceClient.getCustomerByIdAsync(account.customerId())
+                    .thenApply(customer -> new AccountCustomerView(account, customer)));
+    }
+
+    /**
+     * Lấy nhiều tài khoản kèm thông tin khách hàng trong một lần gọi (cho các màn hình dạng danh sách)
+     *
+     * Các tài khoản được nạp song song; ngay khi một tài khoản có kết quả, khách hàng của nó được tra cứu
+     * mà không chờ các tài khoản còn lại. Mỗi khách hàng chỉ được tra cứu một lần dù sở hữu nhiều tài khoản,
+     * và các lần tra cứu gần nhau được CustomerServiceClient gom thành một lần gọi findCustomersByIds
+     * @param accountIds các ID tài khoản, ID trùng chỉ được trả về một lần
+     * @return future của danh sách theo thứ tự accountIds, bỏ qua tài khoản không tồn tại
+     * @throws IllegalArgumentException nếu số tài khoản vượt quá accounts.with-customer.max-accounts
+     */
+    public CompletableFuture<List<AccountCustomerView>> getAccountsWithCustomerInfoAsync(List<Long> accountIds) {
+        List<Long> ids = new ArrayList<>(new LinkedHashSet<>(accountIds));
+        if (ids.size() > maxAccounts) {
+            throw new IllegalArgumentException("Số tài khoản trong một yêu cầu không được vượt quá " + maxAccounts);
+        }
+
+        Map<Long, CompletableFuture<CustomerDTO>> customers = new ConcurrentHashMap<>();
+        List<CompletableFuture<AccountCustomerView>> views = new ArrayList<>(ids.size());
+        for (Long accountId : ids) {
+            views.add(CompletableFuture.supplyAsync(() -> accountService.getAccountViewById(accountId), executor)
+                .thenCompose(account -> account == null
+                    ? CompletableFuture.completedFuture(null)
+                    : customers.computeIfAbsent(account.customerId(), customerServiceClient::getCustomerByIdAsync)
+                        .thenApply(customer -> new AccountCustomerView(account, customer))));
+        }
+
+        return CompletableFuture.allOf(views.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> {
+                List<AccountCustomerView> result = views.stream()
+                    .map(CompletableFuture::join)
+                    .filter(Objects::nonNull)
+                    .toList();
+                log.debug("Fetched {} accounts with {} distinct customers", result.size(), customers.size());
+                return result;
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
     /**
      * Inner class để chứa thông tin tài khoản và khách hàng
      */
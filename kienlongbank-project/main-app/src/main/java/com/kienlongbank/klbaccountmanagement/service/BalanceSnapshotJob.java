@@ -0,0 +1,64 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tạo snapshot số dư định kỳ cho các tài khoản có bút toán mới
+ *
+ * Mỗi lần chạy chỉ đọc các bút toán trong [mốc của lần trước, mốc mới) qua index posted_at, nên chi phí
+ * tỷ lệ với số bút toán mới chứ không với toàn bộ sổ. Mốc của lần trước là max(as_of) trong balance_snapshots
+ * (lần đầu tiên đọc toàn bộ sổ). Tài khoản không có bút toán mới giữ snapshot cũ, vẫn đúng vì giữa hai mốc
+ * tài khoản đó không có bút toán nào.
+ *
+ * Snapshot chỉ gộp các bút toán cũ hơn safety-lag: bút toán được ghi trong transaction ngắn, nên bút toán
+ * có posted_at trước mốc thường đã commit. Giới hạn: bút toán commit sau khi mốc đã qua (transaction giữ lâu hơn
+ * safety-lag) có posted_at nằm trong khoảng đã snapshot, nên không bao giờ được cộng vào snapshot nào và
+ * balanceAt tại thời điểm sau mốc đó sẽ thiếu bút toán này. safety-lag phải lớn hơn thời gian tối đa
+ * của transaction ghi bút toán (chuyển khoản giữ tiền/ghi có đều là transaction ngắn, Core Banking gọi ngoài
+ * transaction); số dư hiện tại trong accounts không bị ảnh hưởng.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceSnapshotJob {
+
+    // Snapshot mới = snapshot gần nhất của tài khoản + tổng các bút toán trong [mốc trước, mốc mới)
+    private static final String SNAPSHOT_SQL =
+        "WITH tail AS (" +
+        "    SELECT p.account_id, SUM(p.amount) AS amount FROM account_postings p " +
+        "    WHERE p.posted_at >= COALESCE((SELECT max(as_of) FROM balance_snapshots), '-infinity'::timestamp) " +
+        "      AND p.posted_at < ? " +
+        "    GROUP BY p.account_id) " +
+        "INSERT INTO balance_snapshots (account_id, balance, as_of, created_at) " +
+        "SELECT t.account_id, COALESCE(s.balance, 0) + t.amount, ?, now() " +
+        "FROM tail t " +
+        "LEFT JOIN LATERAL (SELECT bs.balance FROM balance_snapshots bs " +
+        "                   WHERE bs.account_id = t.account_id ORDER BY bs.as_of DESC LIMIT 1) s ON TRUE";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${journal.snapshot.safety-lag-seconds:60}")
+    private long safetyLagSeconds;
+
+    @Scheduled(fixedDelayString = "${journal.snapshot.interval-ms:300000}")
+    public void snapshot() {
+        Timestamp asOf = Timestamp.valueOf(LocalDateTime.now().minusSeconds(safetyLagSeconds));
+        try {
+            Integer accounts = transactionTemplate.execute(status -> jdbcTemplate.update(SNAPSHOT_SQL, asOf, asOf));
+            log.info("Created {} balance snapshots as of {}", accounts, asOf);
+        } catch (RuntimeException e) {
+            log.error("Balance snapshot failed: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+import com.kienlongbank.klbaccountmanagement.dto.BatchTransferLeg;
+import com.kienlongbank.klbaccountmanagement.dto.BatchTransferResult;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerHold;
+import com.kienlongbank.klbaccountmanagement.model.Account;
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chuyển khoản theo lô (payroll, quyết toán)
+ *
+ * 1. Kiểm tra toàn bộ các chân trong một lượt duyệt và đọc các tài khoản liên quan bằng một truy vấn projection
+ *    (không nạp entity: entity đã nạp sẽ được SELECT ... FOR UPDATE trả lại mà không đọc lại số dư)
+ * 2. Với từng nhóm lớn, giống performTransfer của TransactionService:
+ *    - Giữ tiền: khóa tài khoản nguồn theo thứ tự ID tăng dần, kiểm tra số dư, trừ tiền và ghi giao dịch PENDING
+ *    - Xin phép Core Banking cho từng chân đã giữ tiền (ngoài transaction DB), nên chân không đủ số dư
+ *      không bao giờ được Core Banking chấp thuận
+ *    - Ghi có tài khoản đích của các chân được chấp thuận (COMPLETED, thông báo vào outbox) và hoàn tiền
+ *      các chân bị từ chối (FAILED), một commit cho mỗi nhóm
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BatchTransferService {
+
+    private static final String DEFAULT_DESCRIPTION = "Chuyển khoản theo lô";
+    private static final String INSERT_TRANSACTION_SQL =
+        "INSERT INTO transactions (from_account_id, to_account_id, amount, transaction_date, status, description) " +
+        "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_STATUS_SQL = "UPDATE transactions SET status = ? WHERE id = ?";
+
+    private final AccountRepository accountRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final LockRetryExecutor lockRetryExecutor;
+    private final CoreBankingClient coreBankingClient;
+    private final OutboxService outboxService;
+    private final LedgerEngine ledgerEngine;
+    private final PostingJournal postingJournal;
+    private final TransactionStatusCounters transactionStatusCounters;
+    private final AccountCache accountCache;
+
+    @Value("${transactions.batch.chunk-size:1000}")
+    private int chunkSize;
+
+    public List<BatchTransferResult> performBatchTransfer(Iterator<BatchTransferLeg> legs) {
+        // 1. Kiểm tra dữ liệu của tất cả các chân trong một lượt
+        List<BatchTransferResult> results = new ArrayList<>();
+        List<BatchTransferLeg> acceptedLegs = new ArrayList<>();
+        List<BatchTransferResult> accepted = new ArrayList<>();
+        Set<Long> accountIds = new HashSet<>();
+
+        int index = 0;
+        while (legs.hasNext()) {
+            BatchTransferLeg leg = legs.next();
+            BatchTransferResult result = new BatchTransferResult();
+            result.setIndex(index++);
+            result.setFromAccountId(leg.getFromAccountId());
+            result.setToAccountId(leg.getToAccountId());
+            result.setAmount(leg.getAmount());
+            results.add(result);
+
+            String error = validate(leg);
+            if (error != null) {
+                reject(result, error);
+                continue;
+            }
+            accepted.add(result);
+            acceptedLegs.add(leg);
+            accountIds.add(leg.getFromAccountId());
+            accountIds.add(leg.getToAccountId());
+        }
+
+        Map<Long, AccountView> accounts = new HashMap<>();
+        if (!accountIds.isEmpty()) {
+            accountRepository.findViewsByIdIn(accountIds).forEach(account -> accounts.put(account.id(), account));
+        }
+
+        // 2. Kiểm tra tài khoản tồn tại
+        List<BatchTransferResult> existing = new ArrayList<>();
+        List<String> descriptions = new ArrayList<>();
+        for (int i = 0; i < accepted.size(); i++) {
+            BatchTransferResult result = accepted.get(i);
+            if (!accounts.containsKey(result.getFromAccountId())) {
+                reject(result, "Tài khoản nguồn không tồn tại!");
+            } else if (!accounts.containsKey(result.getToAccountId())) {
+                reject(result, "Tài khoản đích không tồn tại!");
+            } else {
+                existing.add(result);
+                String description = acceptedLegs.get(i).getDescription();
+                descriptions.add(description != null ? description : DEFAULT_DESCRIPTION);
+            }
+        }
+
+        // 3. Giữ tiền, xin phép Core Banking và ghi sổ theo nhóm
+        for (int from = 0; from < existing.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, existing.size());
+            List<BatchTransferResult> chunk = existing.subList(from, to);
+
+            if (ledgerEngine.isEnabled()) {
+                applyWithLedger(chunk, accounts);
+            } else {
+                applyChunk(chunk, descriptions.subList(from, to), accounts);
+            }
+        }
+
+        log.info("Batch transfer finished: {} legs, {} completed", results.size(),
+            results.stream().filter(r -> "COMPLETED".equals(r.getStatus())).count());
+        return results;
+    }
+
+    private String validate(BatchTransferLeg leg) {
+        if (leg.getFromAccountId() == null || leg.getToAccountId() == null || leg.getAmount() == null) {
+            return "Thiếu thông tin bắt buộc: fromAccountId, toAccountId, amount";
+        }
+        if (!Money.isPositive(leg.getAmount())) {
+            return "Số tiền phải lớn hơn 0";
+        }
+        if (leg.getFromAccountId().equals(leg.getToAccountId())) {
+            return "Không thể chuyển tiền cho chính tài khoản của mình";
+        }
+        return null;
+    }
+
+    private void applyChunk(List<BatchTransferResult> chunk, List<String> descriptions, Map<Long, AccountView> accounts) {
+        // Giữ tiền, xung đột khóa với giao dịch khác thì chạy lại và tính lại kết quả từng chân
+        Reservation reservation;
+        try {
+            reservation = lockRetryExecutor.execute(status -> reserve(chunk, descriptions));
+        } catch (RuntimeException e) {
+            log.error("Batch transfer chunk of {} legs rolled back: {}", chunk.size(), e.getMessage());
+            chunk.forEach(result -> fail(result, "Có lỗi xảy ra khi ghi sổ nhóm giao dịch"));
+            return;
+        }
+        reservation.insufficient().forEach(result -> fail(result, "Số dư không đủ để thực hiện giao dịch!"));
+
+        // Xin phép Core Banking cho các chân đã giữ tiền, ngoài mọi transaction DB
+        List<BatchTransferResult> approved = new ArrayList<>();
+        List<BatchTransferResult> declined = new ArrayList<>();
+        List<String> declineReasons = new ArrayList<>();
+        for (BatchTransferResult result : reservation.reserved()) {
+            try {
+                if (coreBankingClient.authorize(accounts.get(result.getFromAccountId()).accountNumber(),
+                        accounts.get(result.getToAccountId()).accountNumber(), result.getAmount())) {
+                    approved.add(result);
+                    continue;
+                }
+                declineReasons.add("Giao dịch bị Core Banking từ chối.");
+            } catch (RuntimeException e) {
+                log.error("Core banking call failed for transaction {}: {}", result.getTransactionId(), e.getMessage());
+                declineReasons.add("Không thể kết nối đến Core Banking, giao dịch đã bị hủy.");
+            }
+            declined.add(result);
+        }
+
+        // Ghi có các chân được chấp thuận, hoàn tiền các chân bị từ chối
+        try {
+            lockRetryExecutor.executeWithoutResult(status -> settle(approved, declined, accounts));
+        } catch (RuntimeException e) {
+            // Core Banking đã chấp thuận nhưng không ghi sổ được, hoàn tiền cả nhóm và cần đối soát với Core Banking
+            log.error("Settling batch transfer chunk of {} legs failed, refunding: {}",
+                reservation.reserved().size(), e.getMessage());
+            refund(reservation.reserved(), accounts);
+            return;
+        }
+        approved.forEach(result -> {
+            result.setStatus("COMPLETED");
+            result.setError(null);
+        });
+        for (int i = 0; i < declined.size(); i++) {
+            // transactionId giữ lại, trỏ tới giao dịch FAILED đã hoàn tiền
+            reject(declined.get(i), declineReasons.get(i));
+        }
+    }
+
+    // Khóa các tài khoản nguồn, trừ tiền và ghi giao dịch PENDING cho các chân đủ số dư
+    private Reservation reserve(List<BatchTransferResult> chunk, List<String> descriptions) {
+        Set<Long> ids = new TreeSet<>();
+        chunk.forEach(result -> ids.add(result.getFromAccountId()));
+
+        Map<Long, Account> locked = new HashMap<>();
+        accountRepository.findAllByIdInForUpdate(ids).forEach(account -> locked.put(account.getId(), account));
+
+        List<BatchTransferResult> reserved = new ArrayList<>(chunk.size());
+        List<String> reservedDescriptions = new ArrayList<>(chunk.size());
+        List<BatchTransferResult> insufficient = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            BatchTransferResult result = chunk.get(i);
+            Account fromAccount = locked.get(result.getFromAccountId());
+            if (fromAccount == null || !Money.covers(fromAccount.getBalance(), result.getAmount())) {
+                insufficient.add(result);
+                continue;
+            }
+            // Số dư được Hibernate flush bằng JDBC batch khi commit
+            fromAccount.setBalance(Money.subtract(fromAccount.getBalance(), result.getAmount()));
+            reserved.add(result);
+            reservedDescriptions.add(descriptions.get(i));
+        }
+
+        insertTransactions(reserved, reservedDescriptions);
+        accountCache.evictAfterCommit(ids, List.of());
+
+        List<AccountPosting> postings = new ArrayList<>(reserved.size());
+        for (BatchTransferResult result : reserved) {
+            postings.add(PostingJournal.posting(result.getFromAccountId(), result.getTransactionId(),
+                Money.negate(result.getAmount())));
+        }
+        postingJournal.postAll(postings);
+        return new Reservation(reserved, insufficient);
+    }
+
+    // Ghi có tài khoản đích (COMPLETED) và hoàn tiền tài khoản nguồn (FAILED) trong cùng một commit
+    private void settle(List<BatchTransferResult> approved, List<BatchTransferResult> declined,
+                        Map<Long, AccountView> accounts) {
+        if (approved.isEmpty() && declined.isEmpty()) {
+            return;
+        }
+        Set<Long> ids = new TreeSet<>();
+        approved.forEach(result -> ids.add(result.getToAccountId()));
+        declined.forEach(result -> ids.add(result.getFromAccountId()));
+
+        Map<Long, Account> locked = new HashMap<>();
+        accountRepository.findAllByIdInForUpdate(ids).forEach(account -> locked.put(account.getId(), account));
+
+        List<AccountPosting> postings = new ArrayList<>(approved.size() + declined.size());
+        for (BatchTransferResult result : approved) {
+            Account toAccount = locked.get(result.getToAccountId());
+            if (toAccount == null) {
+                throw new RuntimeException("Tài khoản đích không tồn tại!");
+            }
+            toAccount.setBalance(Money.add(toAccount.getBalance(), result.getAmount()));
+            postings.add(PostingJournal.posting(result.getToAccountId(), result.getTransactionId(), result.getAmount()));
+        }
+        for (BatchTransferResult result : declined) {
+            Account fromAccount = locked.get(result.getFromAccountId());
+            if (fromAccount == null) {
+                throw new RuntimeException("Tài khoản nguồn không tồn tại!");
+            }
+            fromAccount.setBalance(Money.add(fromAccount.getBalance(), result.getAmount()));
+            postings.add(PostingJournal.posting(result.getFromAccountId(), result.getTransactionId(), result.getAmount()));
+        }
+
+        updateStatuses(approved, "COMPLETED");
+        updateStatuses(declined, "FAILED");
+        accountCache.evictAfterCommit(ids, List.of());
+        postingJournal.postAll(postings);
+
+        // Thông báo được ghi vào outbox trong cùng commit với các giao dịch
+        for (BatchTransferResult result : approved) {
+            Transaction transaction = new Transaction();
+            transaction.setId(result.getTransactionId());
+            transaction.setAmount(result.getAmount());
+            outboxService.enqueueTransferCompleted(transaction,
+                accounts.get(result.getFromAccountId()).accountNumber(),
+                accounts.get(result.getToAccountId()).accountNumber());
+        }
+    }
+
+    // Hoàn tiền cả nhóm sau khi không ghi sổ được; nếu cả bước này lỗi, giao dịch còn PENDING để đối soát
+    private void refund(List<BatchTransferResult> reserved, Map<Long, AccountView> accounts) {
+        try {
+            lockRetryExecutor.executeWithoutResult(status -> settle(List.of(), reserved, accounts));
+            reserved.forEach(result -> fail(result, "Có lỗi xảy ra khi ghi sổ nhóm giao dịch"));
+        } catch (RuntimeException e) {
+            log.error("Refunding batch transfer chunk of {} legs failed, transactions {} stay PENDING: {}",
+                reserved.size(), reserved.stream().map(BatchTransferResult::getTransactionId).toList(), e.getMessage());
+            reserved.forEach(result -> {
+                result.setStatus("FAILED");
+                result.setError("Có lỗi xảy ra khi ghi sổ nhóm giao dịch, giao dịch đang chờ đối soát");
+            });
+        }
+    }
+
+    private void insertTransactions(List<BatchTransferResult> reserved, List<String> descriptions) {
+        if (reserved.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_TRANSACTION_SQL, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    BatchTransferResult result = reserved.get(i);
+                    ps.setLong(1, result.getFromAccountId());
+                    ps.setLong(2, result.getToAccountId());
+                    ps.setLong(3, result.getAmount());
+                    ps.setObject(4, now);
+                    ps.setString(5, "PENDING");
+                    ps.setString(6, descriptions.get(i));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return reserved.size();
+                }
+            },
+            keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        for (int i = 0; i < reserved.size(); i++) {
+            long transactionId = ((Number) keys.get(i).get("id")).longValue();
+            reserved.get(i).setTransactionId(transactionId);
+            transactionStatusCounters.recordCreated("PENDING", transactionId);
+        }
+    }
+
+    private void updateStatuses(List<BatchTransferResult> results, String status) {
+        if (results.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_STATUS_SQL, results, results.size(), (ps, result) -> {
+            ps.setString(1, status);
+            ps.setLong(2, result.getTransactionId());
+        });
+        results.forEach(result -> transactionStatusCounters.recordTransition("PENDING", status, result.getTransactionId()));
+    }
+
+    private void applyWithLedger(List<BatchTransferResult> chunk, Map<Long, AccountView> accounts) {
+        // Chế độ SHARDED: ledger engine tự gom lô và ghi sổ theo shard; mỗi chân giữ tiền trên shard nguồn,
+        // xin phép Core Banking rồi mới ghi có (hoặc hoàn tiền), cùng thứ tự với applyChunk
+        for (BatchTransferResult result : chunk) {
+            LedgerHold hold;
+            try {
+                hold = ledgerEngine.hold(result.getFromAccountId(), result.getAmount(), result.getToAccountId());
+            } catch (RuntimeException e) {
+                fail(result, e.getMessage());
+                continue;
+            }
+            result.setTransactionId(hold.transaction().getId());
+
+            String declineReason = null;
+            try {
+                if (!coreBankingClient.authorize(hold.fromAccountNumber(),
+                        accounts.get(result.getToAccountId()).accountNumber(), result.getAmount())) {
+                    declineReason = "Giao dịch bị Core Banking từ chối.";
+                }
+            } catch (RuntimeException e) {
+                log.error("Core banking call failed for transaction {}: {}", result.getTransactionId(), e.getMessage());
+                declineReason = "Không thể kết nối đến Core Banking, giao dịch đã bị hủy.";
+            }
+            if (declineReason != null) {
+                // transactionId giữ lại, trỏ tới giao dịch FAILED đã hoàn tiền
+                ledgerEngine.release(hold);
+                reject(result, declineReason);
+                continue;
+            }
+
+            try {
+                ledgerEngine.settle(hold);
+                result.setStatus("COMPLETED");
+            } catch (RuntimeException e) {
+                fail(result, e.getMessage());
+            }
+        }
+    }
+
+    private static void reject(BatchTransferResult result, String error) {
+        result.setStatus("REJECTED");
+        result.setError(error);
+    }
+
+    private static void fail(BatchTransferResult result, String error) {
+        result.setStatus("FAILED");
+        result.setTransactionId(null);
+        result.setError(error);
+    }
+
+    // Kết quả của giai đoạn giữ tiền
+    private record Reservation(List<BatchTransferResult> reserved, List<BatchTransferResult> insufficient) {
+    }
+}
@@ -0,0 +1,220 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.dto.BulkAccountItem;
+import com.kienlongbank.klbaccountmanagement.dto.BulkAccountResult;
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Mở tài khoản hàng loạt (onboarding doanh nghiệp)
+ *
+ * 1. plan: kiểm tra dữ liệu của tất cả các dòng và kiểm tra mọi khách hàng được tham chiếu bằng một lần
+ *    gọi customer-service theo lô (thay vì một lần findCustomerById cho mỗi tài khoản)
+ * 2. execute: ghi theo từng nhóm, mỗi nhóm một commit: số tài khoản lấy từ khối đã thuê của AccountNumberAllocator,
+ *    tài khoản và bút toán mở tài khoản được ghi bằng JDBC batch; kết quả của nhóm được trả ra ngay sau commit
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BulkAccountOpeningService {
+
+    private static final String INSERT_ACCOUNT_SQL =
+        "INSERT INTO accounts (account_number, account_type, balance, hot_account, created_date, customer_id) " +
+        "VALUES (?, ?, ?, false, ?, ?)";
+
+    private final CustomerServiceClient customerServiceClient;
+    private final AccountNumberAllocator accountNumberAllocator;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PostingJournal postingJournal;
+    private final AccountCache accountCache;
+
+    @Value("${accounts.bulk.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Các dòng của lô và kết quả tương ứng; kết quả có status null là dòng hợp lệ, chờ ghi
+     */
+    public record Plan(List<BulkAccountItem> items, List<BulkAccountResult> results) {
+    }
+
+    /**
+     * Kiểm tra dữ liệu và khách hàng, chưa ghi gì vào DB
+     * @throws RuntimeException nếu không gọi được customer-service
+     */
+    public Plan plan(List<BulkAccountItem> items) {
+        List<BulkAccountResult> results = new ArrayList<>(items.size());
+        Set<Long> customerIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            BulkAccountItem item = items.get(i);
+            BulkAccountResult result = new BulkAccountResult();
+            result.setIndex(i);
+            result.setCustomerId(item.getCustomerId());
+            result.setAccountType(item.getAccountType());
+            results.add(result);
+
+            String error = validate(item);
+            if (error != null) {
+                reject(result, error);
+            } else {
+                customerIds.add(item.getCustomerId());
+            }
+        }
+
+        Set<Long> existing;
+        try {
+            existing = customerIds.isEmpty() ? Set.of() : customerServiceClient.findExistingCustomerIds(customerIds);
+        } catch (RuntimeException e) {
+            log.error("Failed to verify {} customers for bulk account opening: {}", customerIds.size(), e.getMessage());
+            throw new RuntimeException("Không kiểm tra được thông tin khách hàng, vui lòng thử lại sau", e);
+        }
+        for (BulkAccountResult result : results) {
+            if (result.getStatus() == null && !existing.contains(result.getCustomerId())) {
+                reject(result, "Không tìm thấy khách hàng với ID: " + result.getCustomerId());
+            }
+        }
+        return new Plan(items, results);
+    }
+
+    /**
+     * Ghi các dòng hợp lệ theo nhóm, gọi sink với kết quả của từng nhóm (theo thứ tự index) sau khi nhóm kết thúc
+     * @return số tài khoản đã mở
+     */
+    public long execute(Plan plan, Consumer<List<BulkAccountResult>> sink) {
+        List<BulkAccountResult> results = plan.results();
+        long created = 0;
+        for (int from = 0; from < results.size(); from += chunkSize) {
+            int to = Math.min(from + chunkSize, results.size());
+            List<BulkAccountResult> chunk = results.subList(from, to);
+            List<BulkAccountResult> pending = new ArrayList<>(chunk.size());
+            List<BulkAccountItem> pendingItems = new ArrayList<>(chunk.size());
+            for (int i = from; i < to; i++) {
+                if (results.get(i).getStatus() == null) {
+                    pending.add(results.get(i));
+                    pendingItems.add(plan.items().get(i));
+                }
+            }
+            if (!pending.isEmpty()) {
+                created += insertChunk(pending, pendingItems);
+            }
+            sink.accept(chunk);
+        }
+        log.info("Bulk account opening finished: {} rows, {} accounts created", results.size(), created);
+        return created;
+    }
+
+    private int insertChunk(List<BulkAccountResult> pending, List<BulkAccountItem> items) {
+        for (BulkAccountResult result : pending) {
+            result.setAccountNumber(accountNumberAllocator.next());
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                List<Long> ids = insertAccounts(pending, items);
+
+                // Số dư ban đầu được ghi thành bút toán mở tài khoản (như AccountService.createAccount)
+                List<AccountPosting> postings = new ArrayList<>();
+                for (int i = 0; i < pending.size(); i++) {
+                    long balance = openingBalance(items.get(i));
+                    if (balance != 0) {
+                        postings.add(PostingJournal.posting(ids.get(i), null, balance));
+                    }
+                }
+                postingJournal.postAll(postings);
+                accountCache.evictAfterCommit(List.of(),
+                    items.stream().map(BulkAccountItem::getCustomerId).distinct().toList());
+
+                for (int i = 0; i < pending.size(); i++) {
+                    pending.get(i).setAccountId(ids.get(i));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("Bulk account chunk of {} rows rolled back: {}", pending.size(), e.getMessage());
+            // Số tài khoản đã cấp cho nhóm bị bỏ qua (dãy số có lỗ, không trùng)
+            pending.forEach(result -> fail(result, "Có lỗi xảy ra khi ghi nhóm tài khoản"));
+            return 0;
+        }
+        pending.forEach(result -> result.setStatus("CREATED"));
+        return pending.size();
+    }
+
+    private List<Long> insertAccounts(List<BulkAccountResult> pending, List<BulkAccountItem> items) {
+        LocalDateTime now = LocalDateTime.now();
+        KeyHolder keyHolder = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(
+            connection -> connection.prepareStatement(INSERT_ACCOUNT_SQL, new String[] {"id"}),
+            new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    BulkAccountItem item = items.get(i);
+                    ps.setString(1, pending.get(i).getAccountNumber());
+                    ps.setString(2, item.getAccountType());
+                    ps.setLong(3, openingBalance(item));
+                    ps.setObject(4, now);
+                    ps.setLong(5, item.getCustomerId());
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return pending.size();
+                }
+            },
+            keyHolder);
+
+        List<Map<String, Object>> keys = keyHolder.getKeyList();
+        List<Long> ids = new ArrayList<>(keys.size());
+        for (Map<String, Object> key : keys) {
+            ids.add(((Number) key.get("id")).longValue());
+        }
+        return ids;
+    }
+
+    private static long openingBalance(BulkAccountItem item) {
+        return item.getBalance() != null ? item.getBalance() : Money.ZERO;
+    }
+
+    private static String validate(BulkAccountItem item) {
+        if (item.getCustomerId() == null || item.getCustomerId() <= 0) {
+            return "Customer ID không hợp lệ: " + item.getCustomerId();
+        }
+        if (item.getAccountType() == null || item.getAccountType().isBlank()) {
+            return "Thiếu thông tin bắt buộc: accountType";
+        }
+        if (item.getBalance() != null && item.getBalance() < 0) {
+            return "Số dư ban đầu không được âm";
+        }
+        return null;
+    }
+
+    private static void reject(BulkAccountResult result, String error) {
+        result.setStatus("REJECTED");
+        result.setError(error);
+    }
+
+    private static void fail(BulkAccountResult result, String error) {
+        result.setStatus("FAILED");
+        result.setAccountNumber(null);
+        result.setAccountId(null);
+        result.setError(error);
+    }
+}
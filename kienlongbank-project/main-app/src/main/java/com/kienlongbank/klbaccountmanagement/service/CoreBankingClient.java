@@ -0,0 +1,51 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.util.Map;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.config.CoreBankingConfig;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Client gọi Core Banking (WireMock giả lập) để xin phép thực hiện giao dịch
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class CoreBankingClient {
+
+    private final RestTemplate restTemplate;
+    private final CoreBankingConfig coreBankingConfig;
+
+    /**
+     * Xin Core Banking chấp thuận một giao dịch
+     * @return true nếu Core Banking chấp thuận, false nếu từ chối
+     */
+    public boolean authorize(String fromAccountNumber, String toAccountNumber, long amount) {
+        Map<String, Object> requestBody = Map.of(
+            "fromAccount", fromAccountNumber,
+            "toAccount", toAccountNumber,
+            "amount", Money.toDecimal(amount)
+        );
+
+        try {
+            ResponseEntity<String> coreResponse = restTemplate.postForEntity(
+                coreBankingConfig.getUrl() + "/core/transactions",
+                requestBody,
+                String.class
+            );
+            return coreResponse.getStatusCode() == HttpStatus.OK;
+        } catch (RestClientResponseException e) {
+            log.warn("Core banking rejected transfer {} -> {}: {}", fromAccountNumber, toAccountNumber, e.getStatusCode());
+            return false;
+        }
+    }
+}
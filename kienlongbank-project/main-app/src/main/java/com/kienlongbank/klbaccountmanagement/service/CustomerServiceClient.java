@@ -1,64 +1,333 @@
 package com.kienlongbank.klbaccountmanagement.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
 import org.apache.dubbo.config.annotation.DubboReference;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.kienlongbank.common.api.CustomerApi;
 import com.kienlongbank.common.dto.CustomerDTO;
+import com.kienlongbank.klbaccountmanagement.config.CustomerClientConfig;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
 
 /**
  * Service để gọi customer-service thông qua Dubbo RPC
+ *
+ * - Near cache: khách hàng tìm thấy được giữ cache-ttl-ms, kết quả không tồn tại được giữ negative-cache-ttl-ms;
+ *   lỗi khi gọi không được cache
+ * - Các lần getCustomerById trượt cache trong cùng cửa sổ batch-window-ms được gom thành một lần gọi
+ *   findCustomersByIds; nhiều request cùng hỏi một ID chỉ tạo một lần tra cứu
+ * - customerExists dùng existsById (không tải cả CustomerDTO) khi near cache chưa biết khách hàng
+ *
+ * Metrics: customer.client.rpc.calls{method} (số lần gọi Dubbo), cache.gets/cache.size với tag
+ * cache=customers|customer-existence
  */
 @Service
 public class CustomerServiceClient {
-    
+
     private static final Logger log = LoggerFactory.getLogger(CustomerServiceClient.class);
 
+    // Số ID tối đa trong một lần gọi findCustomersByIds (giữ payload Dubbo nhỏ)
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private static final AtomicInteger THREADS = new AtomicInteger();
+
     @DubboReference
     private CustomerApi customerApi;
 
+    private final CustomerClientConfig config;
+    private final ScheduledExecutorService executor;
+    private final AsyncCache<Long, Optional<CustomerDTO>> customers;
+    private final AsyncCache<Long, Boolean> existence;
+    private final Counter batchCalls;
+    private final Counter existsCalls;
+
+    // Các ID đang chờ trong cửa sổ gom lô hiện tại
+    private final ReentrantLock batchLock = new ReentrantLock();
+    private Map<Long, CompletableFuture<Optional<CustomerDTO>>> pending = new HashMap<>();
+
+    public CustomerServiceClient(CustomerClientConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.executor = Executors.newScheduledThreadPool(config.getLookupThreads(), runnable -> {
+            Thread thread = new Thread(runnable, "customer-lookup-" + THREADS.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.customers = Caffeine.newBuilder()
+            .maximumSize(config.getCacheMaximumSize())
+            .expireAfter(expiry(Optional<CustomerDTO>::isPresent))
+            .recordStats()
+            .buildAsync();
+        this.existence = Caffeine.newBuilder()
+            .maximumSize(config.getCacheMaximumSize())
+            .expireAfter(expiry(Boolean::booleanValue))
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, customers, "customers");
+        CaffeineCacheMetrics.monitor(meterRegistry, existence, "customer-existence");
+        this.batchCalls = Counter.builder("customer.client.rpc.calls")
+            .tag("method", "findCustomersByIds")
+            .description("Number of Dubbo calls made to customer-service")
+            .register(meterRegistry);
+        this.existsCalls = Counter.builder("customer.client.rpc.calls")
+            .tag("method", "existsById")
+            .description("Number of Dubbo calls made to customer-service")
+            .register(meterRegistry);
+    }
+
     /**
      * Kiểm tra xem customer có tồn tại không
      * @param customerId ID của customer
      * @return true nếu customer tồn tại, false nếu không
      */
     public boolean customerExists(Long customerId) {
+        if (customerId == null) {
+            return false;
+        }
+
+        // Near cache đã có thông tin khách hàng (hoặc đã biết không tồn tại) thì không cần gọi Dubbo
+        CompletableFuture<Optional<CustomerDTO>> known = customers.getIfPresent(customerId);
+        if (known != null && known.isDone() && !known.isCompletedExceptionally()) {
+            return known.join().isPresent();
+        }
+
+        CompletableFuture<Boolean> exists = existence.get(customerId, (id, ignored) -> CompletableFuture.supplyAsync(() -> {
+            existsCalls.increment();
+            return customerApi.existsById(id);
+        }, executor));
         try {
-            CustomerDTO customer = getCustomerById(customerId);
-            return customer != null;
+            return await(exists);
         } catch (Exception e) {
+            // Không giữ lại kết quả lỗi (hoặc quá hạn) để lần gọi sau thử lại
+            existence.asMap().remove(customerId, exists);
             log.error("Error checking customer existence for ID {}: {}", customerId, e.getMessage());
             return false;
         }
     }
 
     /**
-     * Lấy thông tin customer theo ID thông qua Dubbo RPC
+     * Lấy thông tin customer theo ID thông qua Dubbo RPC (qua near cache, gom lô với các lần tra cứu đồng thời)
      * @param customerId ID của customer
      * @return CustomerDTO hoặc null nếu không tìm thấy
      */
     public CustomerDTO getCustomerById(Long customerId) {
+        if (customerId == null) {
+            log.warn("Customer ID is null");
+            return null;
+        }
+
+        CompletableFuture<Optional<CustomerDTO>> lookup = customers.get(customerId, (id, ignored) -> enqueue(id));
         try {
-            if (customerId == null) {
-                log.warn("Customer ID is null");
-                return null;
-            }
-            
-            log.debug("Calling customer-service via Dubbo for customer ID: {}", customerId);
-            CustomerDTO customer = customerApi.findCustomerById(customerId);
-            
+            CustomerDTO customer = await(lookup).orElse(null);
+
             if (customer != null) {
                 log.debug("Found customer with ID {}: {}", customerId, customer.getFullName());
             } else {
                 log.debug("Customer not found with ID: {}", customerId);
             }
-            
+
             return customer;
         } catch (Exception e) {
+            customers.asMap().remove(customerId, lookup);
             log.error("Error fetching customer with ID {}: {}", customerId, e.getMessage());
             return null;
         }
     }
+
+    /**
+     * Như getCustomerById nhưng không chặn luồng gọi
+     * @param customerId ID của customer
+     * @return future của CustomerDTO, hoàn tất với null nếu không tìm thấy hoặc gọi customer-service lỗi
+     */
+    public CompletableFuture<CustomerDTO> getCustomerByIdAsync(Long customerId) {
+        if (customerId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        CompletableFuture<Optional<CustomerDTO>> lookup = customers.get(customerId, (id, ignored) -> enqueue(id));
+        // Hết thời gian chờ chỉ áp dụng cho bản sao, không làm hỏng lần tra cứu mà request khác đang dùng chung
+        return lookup.copy()
+            .orTimeout(config.getTimeoutMs(), TimeUnit.MILLISECONDS)
+            .handle((customer, error) -> {
+                if (error != null) {
+                    customers.asMap().remove(customerId, lookup);
+                    log.error("Error fetching customer with ID {}: {}", customerId, error.getMessage());
+                    return null;
+                }
+                return customer.orElse(null);
+            });
+    }
+
+    /**
+     * Kiểm tra nhiều customer bằng một lần gọi Dubbo cho mỗi LOOKUP_BATCH_SIZE ID chưa có trong near cache
+     * Khác với customerExists, lỗi khi gọi customer-service được ném ra ngoài thay vì coi như không tồn tại
+     * @param customerIds các ID cần kiểm tra
+     * @return các ID có tồn tại
+     */
+    public Set<Long> findExistingCustomerIds(Collection<Long> customerIds) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> ids = new ArrayList<>();
+        for (Long customerId : new LinkedHashSet<>(customerIds)) {
+            CompletableFuture<Optional<CustomerDTO>> known = customers.getIfPresent(customerId);
+            if (known != null && known.isDone() && !known.isCompletedExceptionally()) {
+                if (known.join().isPresent()) {
+                    existing.add(customerId);
+                }
+            } else {
+                ids.add(customerId);
+            }
+        }
+
+        for (int from = 0; from < ids.size(); from += LOOKUP_BATCH_SIZE) {
+            List<Long> batch = ids.subList(from, Math.min(from + LOOKUP_BATCH_SIZE, ids.size()));
+            log.debug("Calling customer-service via Dubbo for {} customer IDs", batch.size());
+            batchCalls.increment();
+            Map<Long, CustomerDTO> found = new HashMap<>();
+            for (CustomerDTO customer : customerApi.findCustomersByIds(new ArrayList<>(batch))) {
+                found.put(customer.getId(), customer);
+                existing.add(customer.getId());
+            }
+            for (Long customerId : batch) {
+                customers.put(customerId, CompletableFuture.completedFuture(Optional.ofNullable(found.get(customerId))));
+            }
+        }
+        return existing;
+    }
+
+    // Thêm ID vào lô đang chờ; lô đầy được gọi ngay, còn lại được gọi khi hết cửa sổ
+    private CompletableFuture<Optional<CustomerDTO>> enqueue(Long customerId) {
+        CompletableFuture<Optional<CustomerDTO>> future = new CompletableFuture<>();
+        Map<Long, CompletableFuture<Optional<CustomerDTO>>> full = null;
+        batchLock.lock();
+        try {
+            CompletableFuture<Optional<CustomerDTO>> existing = pending.putIfAbsent(customerId, future);
+            if (existing != null) {
+                return existing;
+            }
+            if (pending.size() == 1) {
+                executor.schedule(this::flush, config.getBatchWindowMs(), TimeUnit.MILLISECONDS);
+            }
+            if (pending.size() >= config.getMaxBatchSize()) {
+                full = pending;
+                pending = new HashMap<>();
+            }
+        } finally {
+            batchLock.unlock();
+        }
+        if (full != null) {
+            Map<Long, CompletableFuture<Optional<CustomerDTO>>> batch = full;
+            executor.execute(() -> lookup(batch));
+        }
+        return future;
+    }
+
+    private void flush() {
+        Map<Long, CompletableFuture<Optional<CustomerDTO>>> batch;
+        batchLock.lock();
+        try {
+            if (pending.isEmpty()) {
+                return;
+            }
+            batch = pending;
+            pending = new HashMap<>();
+        } finally {
+            batchLock.unlock();
+        }
+        lookup(batch);
+    }
+
+    private void lookup(Map<Long, CompletableFuture<Optional<CustomerDTO>>> batch) {
+        log.debug("Calling customer-service via Dubbo for {} customer IDs", batch.size());
+        batchCalls.increment();
+        CompletableFuture<List<CustomerDTO>> response;
+        try {
+            response = customerApi.findCustomersByIdsAsync(new ArrayList<>(batch.keySet()));
+        } catch (RuntimeException e) {
+            response = CompletableFuture.failedFuture(e);
+        }
+
+        // Gọi bất đồng bộ: không giữ luồng trong lúc chờ customer-service trả lời
+        response.whenComplete((customers, error) -> {
+            if (error != null) {
+                // Cả lô thất bại, các request đang chờ nhận lỗi và bỏ kết quả khỏi near cache
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                batch.values().forEach(future -> future.completeExceptionally(cause));
+                return;
+            }
+            Map<Long, CustomerDTO> found = new HashMap<>();
+            for (CustomerDTO customer : customers) {
+                found.put(customer.getId(), customer);
+            }
+            batch.forEach((customerId, future) -> future.complete(Optional.ofNullable(found.get(customerId))));
+        });
+    }
+
+    private <T> T await(CompletableFuture<T> future) throws InterruptedException, ExecutionException, TimeoutException {
+        try {
+            return future.get(config.getTimeoutMs(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw e;
+        } catch (ExecutionException e) {
+            // Giữ message của lỗi gốc cho log
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Kết quả tìm thấy và không tìm thấy có thời gian sống khác nhau
+    private <V> Expiry<Long, V> expiry(Predicate<V> found) {
+        return new Expiry<>() {
+            @Override
+            public long expireAfterCreate(Long key, V value, long currentTime) {
+                return TimeUnit.MILLISECONDS.toNanos(found.test(value)
+                    ? config.getCacheTtlMs() : config.getNegativeCacheTtlMs());
+            }
+
+            @Override
+            public long expireAfterUpdate(Long key, V value, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, value, currentTime);
+            }
+
+            @Override
+            public long expireAfterRead(Long key, V value, long currentTime, long currentDuration) {
+                return currentDuration;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
 }
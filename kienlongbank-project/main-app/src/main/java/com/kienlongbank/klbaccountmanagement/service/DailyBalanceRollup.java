@@ -0,0 +1,248 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.dto.AccountStatementSummary;
+import com.kienlongbank.klbaccountmanagement.model.AccountDailyBalance;
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+import com.kienlongbank.klbaccountmanagement.repository.AccountDailyBalanceRepository;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bảng tổng hợp theo (tài khoản, ngày) cho sao kê và truy vấn theo khoảng thời gian
+ *
+ * - PostingJournal gọi apply() trong cùng transaction với các bút toán, nên dòng tổng hợp commit cùng lúc với thay đổi số dư
+ * - Tài khoản nóng (khi dùng slot) không được cập nhật trực tiếp để dòng của ngày không trở thành điểm nghẽn mới,
+ *   DailyBalanceRollupJob dựng lại các dòng của chúng từ sổ bút toán theo chu kỳ
+ * - rebuild() dựng lại các dòng từ một ngày trở đi từ account_postings (nguồn chuẩn), mỗi tài khoản một transaction ngắn.
+ *   Không khóa bảng: apply() giữ advisory lock dùng chung (shared) của từng tài khoản đến khi commit, rebuild giữ
+ *   advisory lock độc quyền của đúng một tài khoản, nên chỉ các chuyển khoản của tài khoản đang dựng lại phải chờ
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DailyBalanceRollup {
+
+    // Dòng mới của ngày: số dư đầu ngày = số dư cuối của ngày gần nhất trước đó.
+    // Dòng đã có: cộng thêm phần phát sinh (EXCLUDED.closing_balance - EXCLUDED.opening_balance = net)
+    private static final String UPSERT_SQL =
+        "INSERT INTO account_daily_balances (account_id, balance_date, opening_balance, closing_balance, " +
+        "debit_total, credit_total, debit_count, credit_count) " +
+        "SELECT a.id, :balanceDate, COALESCE(prev.closing_balance, 0), COALESCE(prev.closing_balance, 0) + :net, " +
+        ":debitTotal, :creditTotal, :debitCount, :creditCount " +
+        "FROM accounts a " +
+        "LEFT JOIN LATERAL (SELECT d.closing_balance FROM account_daily_balances d " +
+        "                   WHERE d.account_id = a.id AND d.balance_date < :balanceDate " +
+        "                   ORDER BY d.balance_date DESC LIMIT 1) prev ON TRUE " +
+        "WHERE a.id = :accountId AND NOT (a.hot_account AND :skipHotAccounts) " +
+        "ON CONFLICT (account_id, balance_date) DO UPDATE SET " +
+        "closing_balance = account_daily_balances.closing_balance + EXCLUDED.closing_balance - EXCLUDED.opening_balance, " +
+        "debit_total = account_daily_balances.debit_total + EXCLUDED.debit_total, " +
+        "credit_total = account_daily_balances.credit_total + EXCLUDED.credit_total, " +
+        "debit_count = account_daily_balances.debit_count + EXCLUDED.debit_count, " +
+        "credit_count = account_daily_balances.credit_count + EXCLUDED.credit_count";
+
+    // Không gian khóa advisory của bảng tổng hợp ("KLBR"), khóa thứ hai là hash của account_id (trùng hash chỉ làm chờ thêm)
+    static final int LOCK_CLASS = 0x4B4C4252;
+
+    // apply(): các apply() đồng thời không chặn nhau, chỉ chặn rebuild của cùng tài khoản đến khi commit
+    private static final String APPLY_LOCK_SQL =
+        "SELECT pg_advisory_xact_lock_shared(:lockClass, hashint8(id)) FROM unnest(ARRAY[:accountIds]::bigint[]) AS id";
+
+    // rebuild: transaction đã apply() xong phải commit trước thì mới lấy được khóa, nên bút toán của nó nằm trong
+    // lần dựng lại; transaction chưa apply() sẽ chờ và cộng phần của mình vào sau khi dựng lại xong
+    private static final String REBUILD_LOCK_SQL = "SELECT pg_advisory_xact_lock(:lockClass, hashint8(:accountId))";
+
+    // Tài khoản có bút toán hoặc dòng tổng hợp từ ngày from
+    private static final String ACCOUNTS_SQL =
+        "SELECT account_id FROM account_postings WHERE posted_at >= :fromTime " +
+        "UNION SELECT account_id FROM account_daily_balances WHERE balance_date >= :from";
+
+    private static final String DELETE_SQL =
+        "DELETE FROM account_daily_balances WHERE balance_date >= :from AND account_id = :accountId";
+
+    // Số dư đầu kỳ lấy từ dòng gần nhất trước from, nếu chưa có thì cộng toàn bộ bút toán trước from
+    private static final String REBUILD_SQL =
+        "INSERT INTO account_daily_balances (account_id, balance_date, opening_balance, closing_balance, " +
+        "debit_total, credit_total, debit_count, credit_count) " +
+        "SELECT d.account_id, d.balance_date, o.opening + SUM(d.net) OVER w - d.net, o.opening + SUM(d.net) OVER w, " +
+        "d.debit_total, d.credit_total, d.debit_count, d.credit_count " +
+        "FROM (SELECT p.account_id, CAST(p.posted_at AS date) AS balance_date, " +
+        "             SUM(CASE WHEN p.amount < 0 THEN -p.amount ELSE 0 END) AS debit_total, " +
+        "             SUM(CASE WHEN p.amount > 0 THEN p.amount ELSE 0 END) AS credit_total, " +
+        "             COUNT(*) FILTER (WHERE p.amount < 0) AS debit_count, " +
+        "             COUNT(*) FILTER (WHERE p.amount > 0) AS credit_count, " +
+        "             SUM(p.amount) AS net " +
+        "      FROM account_postings p WHERE p.posted_at >= :fromTime AND p.account_id = :accountId " +
+        "      GROUP BY p.account_id, CAST(p.posted_at AS date)) d " +
+        "CROSS JOIN LATERAL (SELECT COALESCE(" +
+        "    (SELECT b.closing_balance FROM account_daily_balances b " +
+        "     WHERE b.account_id = d.account_id AND b.balance_date < :from ORDER BY b.balance_date DESC LIMIT 1), " +
+        "    (SELECT SUM(p2.amount) FROM account_postings p2 WHERE p2.account_id = d.account_id AND p2.posted_at < :fromTime), " +
+        "    0) AS opening) o " +
+        "WINDOW w AS (PARTITION BY d.account_id ORDER BY d.balance_date)";
+
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final AccountDailyBalanceRepository accountDailyBalanceRepository;
+    private final AccountRepository accountRepository;
+    private final HotAccountService hotAccountService;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Cộng các bút toán vào dòng tổng hợp của ngày tương ứng, bắt buộc chạy trong transaction ghi các bút toán đó
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(List<AccountPosting> postings) {
+        // Gộp theo (tài khoản, ngày) và cập nhật theo thứ tự khóa để các transaction khóa dòng cùng một thứ tự
+        Map<DayKey, Totals> totals = new TreeMap<>();
+        for (AccountPosting posting : postings) {
+            totals.computeIfAbsent(new DayKey(posting.getAccountId(), posting.getPostedAt().toLocalDate()),
+                key -> new Totals()).add(posting.getAmount());
+        }
+
+        namedParameterJdbcTemplate.query(APPLY_LOCK_SQL, new MapSqlParameterSource()
+                .addValue("lockClass", LOCK_CLASS)
+                .addValue("accountIds", totals.keySet().stream().map(DayKey::accountId).distinct().toList()),
+            (RowCallbackHandler) rs -> { });
+
+        boolean skipHotAccounts = hotAccountService.isEnabled();
+        MapSqlParameterSource[] batch = new MapSqlParameterSource[totals.size()];
+        int i = 0;
+        for (Map.Entry<DayKey, Totals> entry : totals.entrySet()) {
+            Totals day = entry.getValue();
+            batch[i++] = new MapSqlParameterSource()
+                .addValue("accountId", entry.getKey().accountId())
+                .addValue("balanceDate", entry.getKey().balanceDate())
+                .addValue("net", Money.subtract(day.creditTotal, day.debitTotal))
+                .addValue("debitTotal", day.debitTotal)
+                .addValue("creditTotal", day.creditTotal)
+                .addValue("debitCount", day.debitCount)
+                .addValue("creditCount", day.creditCount)
+                .addValue("skipHotAccounts", skipHotAccounts);
+        }
+        namedParameterJdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+    }
+
+    /**
+     * Dựng lại các dòng tổng hợp từ ngày from đến hiện tại cho mọi tài khoản, mỗi tài khoản một transaction
+     * @return số dòng đã ghi
+     */
+    public int rebuild(LocalDate from) {
+        List<Long> accountIds = namedParameterJdbcTemplate.queryForList(ACCOUNTS_SQL, rebuildParams(from), Long.class);
+        int rows = rebuild(from, accountIds);
+        log.info("Rebuilt {} daily balance rows of {} accounts from {}", rows, accountIds.size(), from);
+        return rows;
+    }
+
+    /**
+     * Dựng lại các dòng tổng hợp từ ngày from cho một số tài khoản, mỗi tài khoản một transaction
+     * @return số dòng đã ghi
+     */
+    public int rebuild(LocalDate from, Collection<Long> accountIds) {
+        int rows = 0;
+        for (Long accountId : accountIds) {
+            MapSqlParameterSource params = rebuildParams(from)
+                .addValue("lockClass", LOCK_CLASS)
+                .addValue("accountId", accountId);
+            Integer written = transactionTemplate.execute(status -> {
+                namedParameterJdbcTemplate.query(REBUILD_LOCK_SQL, params, (RowCallbackHandler) rs -> { });
+                namedParameterJdbcTemplate.update(DELETE_SQL, params);
+                return namedParameterJdbcTemplate.update(REBUILD_SQL, params);
+            });
+            rows += written != null ? written : 0;
+        }
+        return rows;
+    }
+
+    /**
+     * Sao kê tổng hợp trong khoảng ngày [from, to], đọc khoảng 30 dòng mỗi tháng thay vì quét các giao dịch
+     * @return null nếu không tìm thấy tài khoản
+     * @throws IllegalArgumentException nếu from sau to
+     */
+    @Transactional(readOnly = true)
+    public AccountStatementSummary summarize(Long accountId, LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("Ngày bắt đầu phải trước hoặc bằng ngày kết thúc");
+        }
+        if (!accountRepository.existsById(accountId)) {
+            return null;
+        }
+
+        List<AccountDailyBalance> days =
+            accountDailyBalanceRepository.findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(accountId, from, to);
+        long opening = days.isEmpty()
+            ? openingBalance(accountId, from)
+            : days.get(0).getOpeningBalance();
+
+        AccountStatementSummary summary = AccountStatementSummary.builder()
+            .accountId(accountId)
+            .from(from)
+            .to(to)
+            .openingBalance(opening)
+            .closingBalance(days.isEmpty() ? opening : days.get(days.size() - 1).getClosingBalance())
+            .days(new ArrayList<>(days))
+            .build();
+        for (AccountDailyBalance day : days) {
+            summary.setDebitTotal(Money.add(summary.getDebitTotal(), day.getDebitTotal()));
+            summary.setCreditTotal(Money.add(summary.getCreditTotal(), day.getCreditTotal()));
+            summary.setDebitCount(summary.getDebitCount() + day.getDebitCount());
+            summary.setCreditCount(summary.getCreditCount() + day.getCreditCount());
+        }
+        return summary;
+    }
+
+    private long openingBalance(Long accountId, LocalDate date) {
+        Optional<AccountDailyBalance> previous =
+            accountDailyBalanceRepository.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(accountId, date);
+        return previous.map(AccountDailyBalance::getClosingBalance).orElse(0L);
+    }
+
+    private static MapSqlParameterSource rebuildParams(LocalDate from) {
+        return new MapSqlParameterSource()
+            .addValue("from", from)
+            .addValue("fromTime", from.atStartOfDay());
+    }
+
+    private record DayKey(Long accountId, LocalDate balanceDate) implements Comparable<DayKey> {
+        @Override
+        public int compareTo(DayKey other) {
+            int byAccount = accountId.compareTo(other.accountId);
+            return byAccount != 0 ? byAccount : balanceDate.compareTo(other.balanceDate);
+        }
+    }
+
+    private static final class Totals {
+        private long debitTotal;
+        private long creditTotal;
+        private long debitCount;
+        private long creditCount;
+
+        void add(long amount) {
+            if (amount < 0) {
+                debitTotal = Money.subtract(debitTotal, amount);
+                debitCount++;
+            } else if (amount > 0) {
+                creditTotal = Money.add(creditTotal, amount);
+                creditCount++;
+            }
+        }
+    }
+}
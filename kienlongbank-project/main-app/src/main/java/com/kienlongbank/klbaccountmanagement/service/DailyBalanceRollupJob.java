@@ -0,0 +1,51 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Dựng lại bảng tổng hợp theo ngày từ sổ bút toán
+ *
+ * - Hằng đêm: dựng lại từ hôm qua cho mọi tài khoản. Bút toán tạo trước nửa đêm nhưng commit sau khi
+ *   dòng của ngày mới đã được tạo làm lệch số dư đầu ngày mới, lần dựng lại này sửa các trường hợp đó
+ * - Theo chu kỳ ngắn: dựng lại từ hôm qua cho các tài khoản nóng, vốn không được cập nhật trực tiếp khi ghi sổ
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class DailyBalanceRollupJob {
+
+    private final DailyBalanceRollup dailyBalanceRollup;
+    private final HotAccountService hotAccountService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Scheduled(cron = "${rollup.rebuild.cron:0 30 0 * * *}")
+    public void rebuildRecentDays() {
+        try {
+            dailyBalanceRollup.rebuild(LocalDate.now().minusDays(1));
+        } catch (RuntimeException e) {
+            log.error("Daily balance rebuild failed: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${rollup.hot-accounts.interval-ms:60000}")
+    public void refreshHotAccounts() {
+        if (!hotAccountService.isEnabled()) {
+            return;
+        }
+        try {
+            List<Long> accountIds = jdbcTemplate.queryForList("SELECT id FROM accounts WHERE hot_account", Long.class);
+            int rows = dailyBalanceRollup.rebuild(LocalDate.now().minusDays(1), accountIds);
+            log.debug("Refreshed {} daily balance rows of {} hot accounts", rows, accountIds.size());
+        } catch (RuntimeException e) {
+            log.error("Hot account daily balance refresh failed: {}", e.getMessage(), e);
+        }
+    }
+}
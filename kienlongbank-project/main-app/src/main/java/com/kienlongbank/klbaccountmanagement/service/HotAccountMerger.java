@@ -0,0 +1,37 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Định kỳ gộp các slot của tài khoản nóng về dòng accounts, mỗi tài khoản một transaction ngắn
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class HotAccountMerger {
+
+    private final HotAccountService hotAccountService;
+    private final LedgerEngine ledgerEngine;
+
+    @Scheduled(fixedDelayString = "${hot-accounts.merge-interval-ms:1000}")
+    public void mergeAll() {
+        for (Long accountId : hotAccountService.accountsWithPendingSlots()) {
+            try {
+                long merged = hotAccountService.merge(accountId);
+                log.debug("Merged {} from slots into hot account {}", merged, accountId);
+                if (merged != 0) {
+                    // Số dư dòng chính thay đổi ngoài ledger engine, buộc shard nạp lại từ DB
+                    ledgerEngine.invalidate(accountId);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Could not merge slots of hot account {}: {}", accountId, e.getMessage());
+            }
+        }
+    }
+}
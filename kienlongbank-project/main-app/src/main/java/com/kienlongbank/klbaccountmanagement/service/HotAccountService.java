@@ -0,0 +1,142 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.config.HotAccountConfig;
+import com.kienlongbank.klbaccountmanagement.config.LedgerConfig;
+import com.kienlongbank.klbaccountmanagement.model.Account;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Số dư của tài khoản nóng = accounts.balance + tổng K slot trong account_balance_slots
+ *
+ * - Ghi có vào một slot ngẫu nhiên, không khóa dòng accounts nên các giao dịch ghi có không phải xếp hàng
+ * - Ghi nợ thử trừ có điều kiện ở dòng chính, rồi lần lượt ở từng slot; nếu không slot nào đủ
+ *   thì gộp các slot về dòng chính và thử lại
+ * - HotAccountMerger định kỳ gộp các slot về dòng chính
+ */
+@Service
+@RequiredArgsConstructor
+public class HotAccountService {
+
+    private static final String CREDIT_SLOT_SQL =
+        "INSERT INTO account_balance_slots (account_id, slot, balance) VALUES (?, ?, ?) " +
+        "ON CONFLICT (account_id, slot) DO UPDATE SET balance = account_balance_slots.balance + EXCLUDED.balance";
+    private static final String DEBIT_MAIN_SQL =
+        "UPDATE accounts SET balance = balance - ? WHERE id = ? AND balance >= ?";
+    private static final String DEBIT_SLOT_SQL =
+        "UPDATE account_balance_slots SET balance = balance - ? WHERE account_id = ? AND slot = ? AND balance >= ?";
+    private static final String LOCK_ACCOUNT_SQL =
+        "SELECT id FROM accounts WHERE id = ? FOR UPDATE";
+    private static final String LOCK_SLOTS_SQL =
+        "SELECT balance FROM account_balance_slots WHERE account_id = ? ORDER BY slot FOR UPDATE";
+    private static final String TOTAL_BALANCE_SQL =
+        "SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.id), 0) " +
+        "FROM accounts a WHERE a.id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final HotAccountConfig hotAccountConfig;
+    private final LedgerConfig ledgerConfig;
+    private final AccountRepository accountRepository;
+
+    /**
+     * Tài khoản có đi qua các slot hay không. Ledger engine đã là luồng ghi duy nhất của mỗi tài khoản
+     * và ghi số dư tuyệt đối, nên chế độ slot bị tắt khi ledger.mode=SHARDED
+     */
+    public boolean isHot(Account account) {
+        return isEnabled() && account.isHotAccount();
+    }
+
+    /**
+     * Như isHot(Account) nhưng không cần nạp (và khóa) dòng tài khoản, chỉ truy vấn khi chế độ slot đang bật
+     */
+    public boolean isHot(Long accountId) {
+        return isEnabled() && accountRepository.existsByIdAndHotAccountTrue(accountId);
+    }
+
+    /**
+     * Cơ chế slot đang được dùng (bật trong cấu hình và ledger không ở chế độ SHARDED)
+     */
+    public boolean isEnabled() {
+        return hotAccountConfig.isEnabled() && ledgerConfig.getMode() != LedgerConfig.Mode.SHARDED;
+    }
+
+    /**
+     * Ghi có vào một slot ngẫu nhiên
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void credit(Long accountId, long amount) {
+        int slot = ThreadLocalRandom.current().nextInt(hotAccountConfig.getSlots());
+        jdbcTemplate.update(CREDIT_SLOT_SQL, accountId, slot, amount);
+    }
+
+    /**
+     * Ghi nợ có điều kiện, không bao giờ làm số dư tổng âm
+     * @return false nếu tổng số dư không đủ
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean debit(Long accountId, long amount) {
+        if (jdbcTemplate.update(DEBIT_MAIN_SQL, amount, accountId, amount) == 1) {
+            return true;
+        }
+
+        int slots = hotAccountConfig.getSlots();
+        int start = ThreadLocalRandom.current().nextInt(slots);
+        for (int i = 0; i < slots; i++) {
+            int slot = (start + i) % slots;
+            if (jdbcTemplate.update(DEBIT_SLOT_SQL, amount, accountId, slot, amount) == 1) {
+                return true;
+            }
+        }
+
+        // Số dư bị phân tán trên nhiều slot: gộp lại rồi thử lần cuối ở dòng chính
+        merge(accountId);
+        return jdbcTemplate.update(DEBIT_MAIN_SQL, amount, accountId, amount) == 1;
+    }
+
+    /**
+     * Gộp toàn bộ các slot của tài khoản về dòng chính
+     * @return số tiền đã chuyển về dòng chính
+     */
+    @Transactional
+    public long merge(Long accountId) {
+        // Khóa dòng accounts trước rồi mới đến các slot, cùng thứ tự với debit để tránh deadlock
+        jdbcTemplate.queryForList(LOCK_ACCOUNT_SQL, Long.class, accountId);
+        List<Long> balances = jdbcTemplate.queryForList(LOCK_SLOTS_SQL, Long.class, accountId);
+        long total = Money.ZERO;
+        for (Long balance : balances) {
+            total = Money.add(total, balance);
+        }
+        if (total != 0) {
+            jdbcTemplate.update("UPDATE accounts SET balance = balance + ? WHERE id = ?", total, accountId);
+            jdbcTemplate.update("UPDATE account_balance_slots SET balance = 0 WHERE account_id = ?", accountId);
+        }
+        return total;
+    }
+
+    /**
+     * Số dư thực của tài khoản, dòng chính và các slot được đọc trong cùng một câu lệnh
+     * để không bị lệch khi HotAccountMerger đang gộp
+     */
+    public long totalBalance(Long accountId) {
+        Long total = jdbcTemplate.queryForObject(TOTAL_BALANCE_SQL, Long.class, accountId);
+        return total != null ? total : Money.ZERO;
+    }
+
+    /**
+     * Các tài khoản đang có tiền trong slot, cần được gộp
+     */
+    public List<Long> accountsWithPendingSlots() {
+        return jdbcTemplate.queryForList(
+            "SELECT DISTINCT account_id FROM account_balance_slots WHERE balance <> 0", Long.class);
+    }
+}
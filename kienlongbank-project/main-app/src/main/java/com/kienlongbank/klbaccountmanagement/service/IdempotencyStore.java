@@ -0,0 +1,262 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.exception.IdempotencyConflictException;
+import com.kienlongbank.klbaccountmanagement.model.IdempotencyRecord;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.IdempotencyRecordRepository;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Lưu kết quả của các yêu cầu chuyển khoản theo Idempotency-Key
+ *
+ * - Kết quả gần đây nằm trong LRU có TTL trong bộ nhớ, bảng idempotency_keys là nguồn dùng chung giữa các instance
+ * - Key trùng trả lại Transaction ban đầu, không đọc/ghi dòng tài khoản nào
+ * - Các yêu cầu trùng đến cùng lúc chờ chung một lần thực thi thay vì mỗi yêu cầu chạy lại giao dịch
+ * - Yêu cầu thất bại không được lưu lại, client có thể thử lại với cùng key
+ * - Key PROCESSING chỉ được giữ trong thời gian lease (processing-lease-seconds), ngắn hơn nhiều so với TTL.
+ *   Hết lease mà key vẫn PROCESSING (instance xử lý đã chết hoặc không ghi được kết quả) thì key được xác định lại
+ *   từ giao dịch mang key đó: COMPLETED thì trả lại giao dịch, FAILED hoặc chưa có giao dịch thì thực thi lại,
+ *   PENDING thì chuyển khoản còn đang dở nên vẫn từ chối. Lease phải dài hơn thời gian tối đa của một chuyển khoản
+ */
+@Service
+@Slf4j
+public class IdempotencyStore {
+
+    private static final String COMPLETED = "COMPLETED";
+    private static final String FAILED = "FAILED";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Duration ttl;
+    private final Duration processingLease;
+
+    // LRU theo thứ tự truy cập, giới hạn số phần tử, được bảo vệ bằng completedLock
+    private final Map<String, CompletedEntry> completed;
+    private final ReentrantLock completedLock = new ReentrantLock();
+
+    // Các key đang được thực thi trên instance này
+    private final Map<String, InFlight> inFlight = new ConcurrentHashMap<>();
+
+    public IdempotencyStore(IdempotencyRecordRepository idempotencyRecordRepository,
+                            TransactionRepository transactionRepository,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${idempotency.ttl-minutes:1440}") long ttlMinutes,
+                            @Value("${idempotency.max-entries:100000}") int maxEntries,
+                            @Value("${idempotency.processing-lease-seconds:60}") long processingLeaseSeconds) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.transactionRepository = transactionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.processingLease = Duration.ofSeconds(processingLeaseSeconds);
+        this.completed = new LinkedHashMap<>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompletedEntry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Thực thi action đúng một lần cho mỗi key
+     * @param key Idempotency-Key do client gửi
+     * @param fingerprint nội dung yêu cầu, key dùng lại với nội dung khác sẽ bị từ chối
+     * @return Transaction của lần thực thi đầu tiên
+     * @throws IdempotencyConflictException nếu key đang được xử lý ở instance khác hoặc nội dung không khớp
+     */
+    public Transaction execute(String key, String fingerprint, Supplier<Transaction> action) {
+        Transaction cached = findCached(key, fingerprint);
+        if (cached != null) {
+            return cached;
+        }
+
+        InFlight execution = new InFlight(fingerprint, new CompletableFuture<>());
+        InFlight running = inFlight.putIfAbsent(key, execution);
+        if (running != null) {
+            // Gộp vào lần thực thi đang chạy
+            checkFingerprint(running.fingerprint(), fingerprint);
+            return await(running.result());
+        }
+
+        try {
+            // Lần thực thi trước có thể vừa kết thúc giữa lúc kiểm tra cache và lúc đăng ký
+            Transaction result = findCached(key, fingerprint);
+            if (result == null) {
+                result = executeClaimed(key, fingerprint, action);
+            }
+            execution.result().complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            execution.result().completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, execution);
+        }
+    }
+
+    private Transaction findCached(String key, String fingerprint) {
+        CompletedEntry entry;
+        completedLock.lock();
+        try {
+            entry = completed.get(key);
+            if (entry != null && entry.expiresAt().isBefore(LocalDateTime.now())) {
+                completed.remove(key);
+                entry = null;
+            }
+        } finally {
+            completedLock.unlock();
+        }
+        if (entry == null) {
+            return null;
+        }
+        checkFingerprint(entry.fingerprint(), fingerprint);
+        return entry.transaction();
+    }
+
+    private Transaction executeClaimed(String key, String fingerprint, Supplier<Transaction> action) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plus(ttl);
+
+        Integer claimed = transactionTemplate.execute(status ->
+            idempotencyRecordRepository.claim(key, fingerprint, now, now.plus(processingLease), expiresAt));
+        if (claimed == null || claimed == 0) {
+            return replay(key, fingerprint, action);
+        }
+        return run(key, fingerprint, action, expiresAt);
+    }
+
+    // Đang giữ key (PROCESSING, trong lease): thực thi và ghi nhận kết quả
+    private Transaction run(String key, String fingerprint, Supplier<Transaction> action, LocalDateTime expiresAt) {
+        Transaction result;
+        try {
+            result = action.get();
+        } catch (RuntimeException e) {
+            // Giải phóng key để client có thể thử lại
+            release(key);
+            throw e;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                idempotencyRecordRepository.complete(key, result.getId()));
+        } catch (RuntimeException e) {
+            // Giao dịch đã thực hiện: key giữ trạng thái PROCESSING đến khi hết lease,
+            // sau đó được xác định lại từ giao dịch mang key này (không bị chạy lại)
+            log.error("Could not record result of idempotency key {}: {}", key, e.getMessage());
+        }
+        remember(key, new CompletedEntry(fingerprint, result, expiresAt));
+        return result;
+    }
+
+    // Key đã có trong DB: trả lại kết quả đã lưu, hoặc xác định lại key PROCESSING đã hết lease
+    private Transaction replay(String key, String fingerprint, Supplier<Transaction> action) {
+        IdempotencyRecord record = idempotencyRecordRepository.findById(key).orElseThrow(IdempotencyStore::processing);
+        checkFingerprint(record.getRequestFingerprint(), fingerprint);
+        if (COMPLETED.equals(record.getStatus())) {
+            Transaction transaction = transactionRepository.findById(record.getTransactionId())
+                .orElseThrow(() -> new RuntimeException("Không tìm thấy giao dịch của Idempotency-Key: " + key));
+            remember(key, new CompletedEntry(fingerprint, transaction, record.getExpiresAt()));
+            return transaction;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        if (record.getProcessingExpiresAt() != null && !record.getProcessingExpiresAt().isBefore(now)) {
+            throw processing();
+        }
+        return resolveExpiredLease(record, action, now);
+    }
+
+    // Instance giữ key không hoàn tất trong thời gian lease: kết quả thật nằm ở giao dịch mang key này (nếu có)
+    private Transaction resolveExpiredLease(IdempotencyRecord record, Supplier<Transaction> action, LocalDateTime now) {
+        String key = record.getIdempotencyKey();
+        Transaction attempt = transactionRepository.findFirstByIdempotencyKeyOrderByIdDesc(key).orElse(null);
+        if (attempt != null && COMPLETED.equals(attempt.getStatus())) {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.complete(key, attempt.getId()));
+            log.info("Resolved idempotency key {} from completed transaction {} after its lease expired", key, attempt.getId());
+            remember(key, new CompletedEntry(record.getRequestFingerprint(), attempt, record.getExpiresAt()));
+            return attempt;
+        }
+        if (attempt != null && !FAILED.equals(attempt.getStatus())) {
+            // PENDING: tiền đang được giữ hoặc hoàn lại, chưa biết kết quả
+            throw processing();
+        }
+
+        // Chưa có giao dịch nào hoàn tất với key này: chiếm lại key và thực thi lại
+        Integer reclaimed = transactionTemplate.execute(status ->
+            idempotencyRecordRepository.reclaim(key, now, now.plus(processingLease)));
+        if (reclaimed == null || reclaimed == 0) {
+            throw processing();
+        }
+        log.warn("Idempotency key {} lease expired without a completed transaction, executing again", key);
+        return run(key, record.getRequestFingerprint(), action, record.getExpiresAt());
+    }
+
+    private static IdempotencyConflictException processing() {
+        return new IdempotencyConflictException("Yêu cầu với Idempotency-Key này đang được xử lý, vui lòng thử lại sau");
+    }
+
+    private void remember(String key, CompletedEntry entry) {
+        completedLock.lock();
+        try {
+            completed.put(key, entry);
+        } finally {
+            completedLock.unlock();
+        }
+    }
+
+    private void release(String key) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> idempotencyRecordRepository.deleteById(key));
+        } catch (RuntimeException e) {
+            log.warn("Could not release idempotency key {}: {}", key, e.getMessage());
+        }
+    }
+
+    private static void checkFingerprint(String stored, String fingerprint) {
+        if (!stored.equals(fingerprint)) {
+            throw new IdempotencyConflictException("Idempotency-Key đã được sử dụng cho một yêu cầu khác");
+        }
+    }
+
+    private static Transaction await(CompletableFuture<Transaction> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    // Dọn các key đã hết hạn trong DB
+    @Scheduled(cron = "${idempotency.cleanup.cron:0 */15 * * * *}")
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+            idempotencyRecordRepository.deleteExpired(LocalDateTime.now()));
+        log.info("Deleted {} expired idempotency keys", deleted);
+    }
+
+    private record CompletedEntry(String fingerprint, Transaction transaction, LocalDateTime expiresAt) {
+    }
+
+    private record InFlight(String fingerprint, CompletableFuture<Transaction> result) {
+    }
+}
@@ -0,0 +1,112 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.sql.SQLException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.PessimisticLockException;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Chạy các transaction khóa dòng tài khoản (SELECT ... FOR UPDATE)
+ *
+ * - Mỗi transaction đặt lock_timeout để không chờ khóa vô hạn khi có tài khoản bị tranh chấp
+ * - Hết thời gian chờ khóa, deadlock hoặc serialization failure: transaction được chạy lại toàn bộ
+ *   sau một khoảng backoff tăng dần có jitter, tối đa max-attempts lần
+ * - Các lỗi khác (số dư không đủ, tài khoản không tồn tại...) được ném ra ngay
+ */
+@Service
+@Slf4j
+public class LockRetryExecutor {
+
+    // 40001 serialization_failure, 40P01 deadlock_detected, 55P03 lock_not_available
+    private static final Set<String> RETRYABLE_SQL_STATES = Set.of("40001", "40P01", "55P03");
+    private static final long MAX_BACKOFF_MS = 1000;
+
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final long lockTimeoutMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+
+    public LockRetryExecutor(TransactionTemplate transactionTemplate,
+                             JdbcTemplate jdbcTemplate,
+                             @Value("${transactions.lock.timeout-ms:2000}") long lockTimeoutMs,
+                             @Value("${transactions.lock.max-attempts:5}") int maxAttempts,
+                             @Value("${transactions.lock.backoff-ms:20}") long backoffMs) {
+        this.transactionTemplate = transactionTemplate;
+        this.jdbcTemplate = jdbcTemplate;
+        this.lockTimeoutMs = lockTimeoutMs;
+        this.maxAttempts = maxAttempts;
+        this.backoffMs = backoffMs;
+    }
+
+    public <T> T execute(TransactionCallback<T> action) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> {
+                    // SET LOCAL chỉ có hiệu lực đến hết transaction hiện tại
+                    jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'");
+                    return action.doInTransaction(status);
+                });
+            } catch (RuntimeException e) {
+                if (!isRetryable(e)) {
+                    throw e;
+                }
+                if (attempt >= maxAttempts) {
+                    log.warn("Giving up after {} attempts on lock contention: {}", attempt, e.getMessage());
+                    throw new RuntimeException("Tài khoản đang được xử lý bởi giao dịch khác, vui lòng thử lại sau.", e);
+                }
+                log.debug("Lock contention on attempt {}, retrying: {}", attempt, e.getMessage());
+                backoff(attempt);
+            }
+        }
+    }
+
+    public void executeWithoutResult(Consumer<TransactionStatus> action) {
+        execute(status -> {
+            action.accept(status);
+            return null;
+        });
+    }
+
+    static boolean isRetryable(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof LockTimeoutException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException
+                    && RETRYABLE_SQL_STATES.contains(sqlException.getSQLState())) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // Full jitter: ngẫu nhiên trong [0, backoff * 2^(attempt-1)], để các transaction đụng nhau không thử lại cùng lúc
+    private void backoff(int attempt) {
+        long ceiling = Math.min(MAX_BACKOFF_MS, backoffMs << Math.min(attempt - 1, 10));
+        long sleep = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Giao dịch bị gián đoạn khi chờ thử lại.", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.model.OutboxEvent;
+import com.kienlongbank.klbaccountmanagement.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Relay chạy nền: lấy tin nhắn chưa gửi từ outbox theo lô, gửi lên RabbitMQ và chờ publisher confirm
+ * cho cả lô, sau đó đánh dấu đã gửi. Lô nào không được broker xác nhận sẽ được gửi lại ở lần chạy sau
+ * (at-least-once).
+ *
+ * Metrics: outbox.pending.events (số tin chờ gửi), outbox.lag.seconds (tuổi của tin chờ lâu nhất),
+ * outbox.published.events (tổng số tin đã gửi)
+ */
+@Component
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final RabbitTemplate rabbitTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final Counter publishedEvents;
+
+    @Value("${outbox.relay.batch-size:500}")
+    private int batchSize;
+
+    @Value("${outbox.relay.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${outbox.relay.confirm-timeout-ms:5000}")
+    private long confirmTimeoutMs;
+
+    @Value("${outbox.retention-hours:24}")
+    private long retentionHours;
+
+    public OutboxRelay(OutboxEventRepository outboxEventRepository, RabbitTemplate rabbitTemplate,
+                       TransactionTemplate transactionTemplate, MeterRegistry meterRegistry) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.rabbitTemplate = rabbitTemplate;
+        this.transactionTemplate = transactionTemplate;
+
+        Gauge.builder("outbox.pending.events", pendingEvents, AtomicLong::get)
+            .description("Number of outbox events waiting to be published")
+            .register(meterRegistry);
+        Gauge.builder("outbox.lag.seconds", lagMillis, lag -> lag.get() / 1000.0)
+            .description("Age of the oldest unpublished outbox event")
+            .register(meterRegistry);
+        this.publishedEvents = Counter.builder("outbox.published.events")
+            .description("Number of outbox events confirmed by the broker")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+    public void relay() {
+        try {
+            int batches = 0;
+            Integer published;
+            do {
+                published = transactionTemplate.execute(status -> publishNextBatch());
+                batches++;
+            } while (published != null && published == batchSize && batches < maxBatchesPerRun);
+        } catch (AmqpException e) {
+            log.warn("Outbox relay could not publish, will retry: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Outbox relay failed: {}", e.getMessage(), e);
+        } finally {
+            refreshLagMetrics();
+        }
+    }
+
+    private int publishNextBatch() {
+        List<OutboxEvent> events = outboxEventRepository.lockNextBatch(batchSize);
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // Gửi cả lô trên một channel rồi chờ broker xác nhận một lần
+        rabbitTemplate.invoke(operations -> {
+            for (OutboxEvent event : events) {
+                operations.convertAndSend(event.getDestination(), event.getPayload());
+            }
+            operations.waitForConfirmsOrDie(confirmTimeoutMs);
+            return null;
+        });
+
+        outboxEventRepository.markPublished(events.stream().map(OutboxEvent::getId).toList(), LocalDateTime.now());
+        publishedEvents.increment(events.size());
+        return events.size();
+    }
+
+    private void refreshLagMetrics() {
+        try {
+            pendingEvents.set(outboxEventRepository.countByPublishedAtIsNull());
+            lagMillis.set(outboxEventRepository.findFirstByPublishedAtIsNullOrderByIdAsc()
+                .map(event -> Duration.between(event.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L));
+        } catch (RuntimeException e) {
+            log.debug("Could not refresh outbox lag metrics: {}", e.getMessage());
+        }
+    }
+
+    // Dọn các tin nhắn đã gửi quá thời gian lưu giữ
+    @Scheduled(cron = "${outbox.cleanup.cron:0 0 * * * *}")
+    public void cleanup() {
+        Integer deleted = transactionTemplate.execute(status ->
+            outboxEventRepository.deletePublishedBefore(LocalDateTime.now().minusHours(retentionHours)));
+        log.info("Deleted {} published outbox events", deleted);
+    }
+}
@@ -0,0 +1,51 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.model.OutboxEvent;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.OutboxEventRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Ghi tin nhắn vào outbox trong transaction hiện tại.
+ * Tin nhắn chỉ được gửi đi (bởi OutboxRelay) nếu transaction commit thành công.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    public static final String NOTIFICATION_QUEUE = "notificationQueue";
+
+    private final OutboxEventRepository outboxEventRepository;
+
+    /**
+     * Thêm một tin nhắn vào outbox, bắt buộc phải chạy trong một transaction đang mở
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueue(String destination, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setDestination(destination);
+        event.setPayload(payload);
+        return outboxEventRepository.save(event);
+    }
+
+    /**
+     * Thêm thông báo giao dịch thành công cho notification-service
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public OutboxEvent enqueueTransferCompleted(Transaction transaction, String fromAccountNumber, String toAccountNumber) {
+        return enqueue(NOTIFICATION_QUEUE, transferCompletedMessage(transaction, fromAccountNumber, toAccountNumber));
+    }
+
+    static String transferCompletedMessage(Transaction transaction, String fromAccountNumber, String toAccountNumber) {
+        return "Giao dịch thành công với ID: " + transaction.getId() +
+               ", Số tiền: " + Money.toDecimal(transaction.getAmount()) +
+               ", Từ tài khoản: " + fromAccountNumber +
+               " đến tài khoản: " + toAccountNumber;
+    }
+}
@@ -0,0 +1,88 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+import com.kienlongbank.klbaccountmanagement.model.BalanceSnapshot;
+import com.kienlongbank.klbaccountmanagement.repository.AccountPostingRepository;
+import com.kienlongbank.klbaccountmanagement.repository.BalanceSnapshotRepository;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sổ bút toán append-only theo tài khoản
+ *
+ * Mỗi thay đổi số dư được ghi thành một bút toán có dấu trong cùng transaction với thay đổi đó.
+ * Số dư tại một thời điểm = snapshot gần nhất trước thời điểm đó + tổng các bút toán sau snapshot
+ * (BalanceSnapshotJob tạo snapshot định kỳ). Bảng tổng hợp theo ngày (DailyBalanceRollup) được cập nhật cùng lúc.
+ */
+@Service
+@RequiredArgsConstructor
+public class PostingJournal {
+
+    private static final String INSERT_POSTING_SQL =
+        "INSERT INTO account_postings (account_id, transaction_id, amount, posted_at) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AccountPostingRepository accountPostingRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final DailyBalanceRollup dailyBalanceRollup;
+
+    /**
+     * Ghi một bút toán, bắt buộc phải chạy trong transaction đang thay đổi số dư
+     * @param amount số tiền có dấu: dương là ghi có, âm là ghi nợ
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void post(Long accountId, Long transactionId, long amount) {
+        postAll(List.of(posting(accountId, transactionId, amount)));
+    }
+
+    /**
+     * Ghi nhiều bút toán bằng một JDBC batch và cộng vào bảng tổng hợp theo ngày trong cùng transaction
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void postAll(List<AccountPosting> postings) {
+        if (postings.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_POSTING_SQL, postings, postings.size(), (ps, posting) -> {
+            ps.setLong(1, posting.getAccountId());
+            ps.setObject(2, posting.getTransactionId());
+            ps.setLong(3, posting.getAmount());
+            ps.setTimestamp(4, Timestamp.valueOf(posting.getPostedAt()));
+        });
+        dailyBalanceRollup.apply(postings);
+    }
+
+    public static AccountPosting posting(Long accountId, Long transactionId, long amount) {
+        return AccountPosting.builder()
+                .accountId(accountId)
+                .transactionId(transactionId)
+                .amount(amount)
+                .postedAt(LocalDateTime.now())
+                .build();
+    }
+
+    /**
+     * Số dư của tài khoản tại thời điểm at, tính từ snapshot và phần đuôi của sổ bút toán
+     */
+    @Transactional(readOnly = true)
+    public long balanceAt(Long accountId, LocalDateTime at) {
+        Optional<BalanceSnapshot> snapshot =
+            balanceSnapshotRepository.findFirstByAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(accountId, at);
+        if (snapshot.isEmpty()) {
+            return accountPostingRepository.sumUpTo(accountId, at);
+        }
+        return Money.add(snapshot.get().getBalance(),
+            accountPostingRepository.sumBetween(accountId, snapshot.get().getAsOf(), at));
+    }
+}
@@ -0,0 +1,137 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionAmountConfig;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionAmountPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionView;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Truy vấn giao dịch theo số tiền, luôn có giới hạn số dòng phía server và xếp lớn nhất trước
+ *
+ * - Ngưỡng, khoảng số tiền và top N toàn hệ thống: LIMIT trên index (amount, id), DB dừng sau limit + 1 dòng
+ * - Top N của một tài khoản: index của tài khoản là (account, transaction_date, id) nên không đọc theo thứ tự
+ *   số tiền được. Các dòng trong khoảng thời gian được đọc theo stream và chỉ giữ N dòng lớn nhất trong một
+ *   min-heap, bộ nhớ O(N) dù khoảng thời gian có bao nhiêu giao dịch
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionAmountService {
+
+    // Lớn nhất trước; cùng số tiền thì id lớn hơn trước (giống ORDER BY amount DESC, id DESC)
+    static final Comparator<TransactionView> LARGEST_FIRST =
+        Comparator.comparingLong(TransactionView::amount).thenComparing(TransactionView::id).reversed();
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionAmountConfig transactionAmountConfig;
+    private final EntityManager entityManager;
+
+    /**
+     * @param limit số giao dịch tối đa (null = giá trị mặc định)
+     * @throws IllegalArgumentException nếu limit không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public TransactionAmountPage getTransactionsByAmountGreaterThan(long amount, Integer limit) {
+        int size = resolveLimit(limit);
+        // Lấy thêm một dòng để biết còn giao dịch vượt quá limit hay không
+        return page(transactionRepository.findViewsByAmountGreaterThan(amount, PageRequest.of(0, size + 1)), size);
+    }
+
+    /**
+     * @throws IllegalArgumentException nếu minAmount > maxAmount hoặc limit không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public TransactionAmountPage getTransactionsByAmountRange(long minAmount, long maxAmount, Integer limit) {
+        if (minAmount > maxAmount) {
+            throw new IllegalArgumentException("minAmount không được lớn hơn maxAmount");
+        }
+        int size = resolveLimit(limit);
+        return page(transactionRepository.findViewsByAmountRange(minAmount, maxAmount, PageRequest.of(0, size + 1)), size);
+    }
+
+    /**
+     * N giao dịch lớn nhất trong khoảng thời gian
+     * @throws IllegalArgumentException nếu khoảng thời gian hoặc n không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTopByAmount(LocalDateTime startDate, LocalDateTime endDate, Integer n) {
+        checkDateRange(startDate, endDate);
+        return transactionRepository.findTopViewsByAmountInDateRange(startDate, endDate, PageRequest.of(0, resolveLimit(n)));
+    }
+
+    /**
+     * N giao dịch lớn nhất (gửi hoặc nhận) của một tài khoản trong khoảng thời gian
+     * @throws IllegalArgumentException nếu khoảng thời gian hoặc n không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTopByAmountForAccount(Long accountId, LocalDateTime startDate,
+                                                          LocalDateTime endDate, Integer n) {
+        checkDateRange(startDate, endDate);
+        int size = resolveLimit(n);
+        try (Stream<Transaction> transactions =
+                 transactionRepository.streamByAccountIdAndDateRange(accountId, startDate, endDate)) {
+            // Detach từng entity ngay sau khi đọc để persistence context không phình theo số dòng
+            return topN(transactions.iterator(), size, entityManager::detach);
+        }
+    }
+
+    /**
+     * Giữ size giao dịch lớn nhất của iterator trong một min-heap: phần tử nhỏ nhất ở đỉnh bị thay khi gặp
+     * giao dịch lớn hơn
+     */
+    static List<TransactionView> topN(Iterator<Transaction> transactions, int size, Consumer<Transaction> release) {
+        PriorityQueue<TransactionView> heap = new PriorityQueue<>(size + 1, LARGEST_FIRST.reversed());
+        while (transactions.hasNext()) {
+            Transaction transaction = transactions.next();
+            TransactionView view = TransactionView.of(transaction);
+            release.accept(transaction);
+            if (heap.size() < size) {
+                heap.add(view);
+            } else if (LARGEST_FIRST.compare(view, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(view);
+            }
+        }
+        List<TransactionView> result = new ArrayList<>(heap);
+        result.sort(LARGEST_FIRST);
+        return result;
+    }
+
+    private static TransactionAmountPage page(List<TransactionView> rows, int size) {
+        boolean hasMore = rows.size() > size;
+        List<TransactionView> transactions = hasMore ? new ArrayList<>(rows.subList(0, size)) : rows;
+        return new TransactionAmountPage(transactions, size, hasMore);
+    }
+
+    private static void checkDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate.isAfter(endDate)) {
+            throw new IllegalArgumentException("startDate không được sau endDate");
+        }
+    }
+
+    private int resolveLimit(Integer limit) {
+        if (limit == null) {
+            return transactionAmountConfig.getDefaultLimit();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit phải lớn hơn 0");
+        }
+        return Math.min(limit, transactionAmountConfig.getMaxLimit());
+    }
+}
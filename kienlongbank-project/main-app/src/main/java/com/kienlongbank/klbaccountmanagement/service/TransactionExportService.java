@@ -0,0 +1,149 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Xuất giao dịch theo stream (NDJSON hoặc CSV), bộ nhớ không phụ thuộc số dòng
+ *
+ * - Dữ liệu được đọc qua JPA Stream với fetch size (cursor phía DB) và ghi ra từng dòng
+ * - Mỗi entity được detach ngay sau khi ghi để persistence context không phình ra
+ * - Client ngắt kết nối: lần ghi tiếp theo ném IOException, stream bị đóng và transaction kết thúc,
+ *   cursor phía DB được giải phóng
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionExportService {
+
+    private static final int FLUSH_EVERY_ROWS = 500;
+    private static final String CSV_HEADER = "id,fromAccountId,toAccountId,amount,transactionDate,status,description";
+
+    private final TransactionRepository transactionRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    public enum Format {
+        NDJSON,
+        CSV
+    }
+
+    /**
+     * @return số dòng đã ghi
+     */
+    @Transactional(readOnly = true)
+    public long exportByDateRange(LocalDateTime startDate, LocalDateTime endDate, Format format, OutputStream out)
+            throws IOException {
+        try (Stream<Transaction> transactions = transactionRepository.streamByDateRange(startDate, endDate)) {
+            return write(transactions, format, out);
+        }
+    }
+
+    /**
+     * @return số dòng đã ghi
+     */
+    @Transactional(readOnly = true)
+    public long exportByAccountIdAndDateRange(Long accountId, LocalDateTime startDate, LocalDateTime endDate,
+                                              Format format, OutputStream out) throws IOException {
+        try (Stream<Transaction> transactions =
+                 transactionRepository.streamByAccountIdAndDateRange(accountId, startDate, endDate)) {
+            return write(transactions, format, out);
+        }
+    }
+
+    private long write(Stream<Transaction> transactions, Format format, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        // Không để Jackson đóng hay flush writer (writer tự flush theo lô), mỗi giao dịch là một dòng JSON
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(writer)
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+            .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+
+        if (format == Format.CSV) {
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        long rows = 0;
+        try {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                if (format == Format.NDJSON) {
+                    generator.writeObject(transaction);
+                    generator.flush();
+                    writer.write('\n');
+                } else {
+                    writeCsvRow(writer, transaction);
+                }
+                entityManager.detach(transaction);
+
+                if (++rows % FLUSH_EVERY_ROWS == 0) {
+                    writer.flush();
+                }
+            }
+            writer.flush();
+        } catch (IOException | UncheckedIOException e) {
+            log.info("Transaction export aborted after {} rows: {}", rows, e.getMessage());
+            throw e;
+        }
+        return rows;
+    }
+
+    private static void writeCsvRow(Writer writer, Transaction transaction) throws IOException {
+        writer.write(String.valueOf(transaction.getId()));
+        writer.write(',');
+        writer.write(nullToEmpty(transaction.getFromAccountId()));
+        writer.write(',');
+        writer.write(nullToEmpty(transaction.getToAccountId()));
+        writer.write(',');
+        // Đơn vị nhỏ nhất (VND: đồng), không làm tròn
+        writer.write(Long.toString(transaction.getAmount()));
+        writer.write(',');
+        writer.write(nullToEmpty(transaction.getTransactionDate()));
+        writer.write(',');
+        writer.write(csvField(transaction.getStatus()));
+        writer.write(',');
+        writer.write(csvField(transaction.getDescription()));
+        writer.write('\n');
+    }
+
+    private static String nullToEmpty(Object value) {
+        return value == null ? "" : value.toString();
+    }
+
+    // Bao trong dấu nháy khi cần, và chặn công thức (=, +, -, @) khi file được mở bằng Excel
+    static String csvField(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String field = value;
+        char first = field.charAt(0);
+        if (first == '=' || first == '+' || first == '-' || first == '@') {
+            field = "'" + field;
+        }
+        if (field.indexOf(',') >= 0 || field.indexOf('"') >= 0 || field.indexOf('\n') >= 0 || field.indexOf('\r') >= 0) {
+            field = '"' + field.replace("\"", "\"\"") + '"';
+        }
+        return field;
+    }
+}
@@ -0,0 +1,208 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionPartitionConfig;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Quản lý partition theo tháng của bảng transactions
+ *
+ * transactions
+ * ├── transactions_archive (FROM MINVALUE TO <tháng đầu tiên khi chạy V7>), các tháng cũ do migration V7 chuyển vào
+ * ├── transactions_p2025_01 (đã lưu trữ: COMMENT 'archived')
+ * └── ... (đến tháng hiện tại + premake-months)
+ *
+ * - Partition của các tháng sắp tới được tạo trước: tạo bảng rỗng có CHECK theo khoảng ngày rồi ATTACH,
+ *   chỉ cần khóa SHARE UPDATE EXCLUSIVE trên bảng cha nên không chặn giao dịch
+ * - Lưu trữ: partition cũ được VACUUM FREEZE một lần rồi đánh dấu, các lần vacuum sau bỏ qua các trang đã đóng băng.
+ *   Partition không bị chuyển sang transactions_archive: DETACH (kể cả CONCURRENTLY) làm tháng đó biến mất khỏi
+ *   transactions đến khi gắn lại, còn nới cận trên của transactions_archive cần tách cả archive ra. Truy vấn có giới hạn
+ *   ngày chỉ chạm các partition của khoảng đó (partition pruning) nên số partition gắn trực tiếp không ảnh hưởng
+ * - Mọi node đều chạy cron và hook khởi động: maintain() giữ advisory lock, node không lấy được thì bỏ qua lần chạy
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionPartitionManager {
+
+    static final String PARENT = "transactions";
+    private static final String PARTITION_PREFIX = "transactions_p";
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final String ARCHIVED_COMMENT = "archived";
+
+    // Khóa advisory của việc bảo trì partition ("KLBP")
+    static final long LOCK_KEY = 0x4B4C4250L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionPartitionConfig config;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${transactions.partitioning.cron:0 15 1 * * *}")
+    public void maintain() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            // Advisory lock cấp session giữ trên connection này suốt lần bảo trì, các lệnh DDL chạy trên connection khác
+            jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                if (!tryLock(connection)) {
+                    log.info("Transaction partition maintenance is running on another node, skipping");
+                    return null;
+                }
+                try {
+                    maintainPartitions();
+                } finally {
+                    unlock(connection);
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            log.error("Transaction partition maintenance failed: {}", e.getMessage(), e);
+        }
+    }
+
+    private void maintainPartitions() {
+        if (!isPartitioned()) {
+            log.info("Table {} is not partitioned, skipping partition maintenance", PARENT);
+            return;
+        }
+        YearMonth current = YearMonth.now();
+        ensurePartitions(current);
+        if (config.isArchiveEnabled()) {
+            archiveBefore(current.minusMonths(config.getArchiveAfterMonths()));
+        }
+    }
+
+    private static boolean tryLock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() && resultSet.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection connection) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            statement.setLong(1, LOCK_KEY);
+            statement.execute();
+        }
+    }
+
+    /**
+     * Tạo các partition còn thiếu từ tháng current đến current + premake-months
+     */
+    public void ensurePartitions(YearMonth current) {
+        for (YearMonth month : monthsToCreate(current, config.getPremakeMonths())) {
+            String name = partitionName(month);
+            if (exists(name)) {
+                continue;
+            }
+            transactionTemplate.executeWithoutResult(status -> {
+                setLockTimeout();
+                jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + PARENT + " INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+                jdbcTemplate.execute("ALTER TABLE " + name + " ADD CONSTRAINT " + checkName(name) + " CHECK " + range(month));
+                jdbcTemplate.execute("ALTER TABLE " + PARENT + " ATTACH PARTITION " + name + " " + bounds(month));
+            });
+            log.info("Created transaction partition {}", name);
+        }
+    }
+
+    /**
+     * Lưu trữ các partition chưa lưu trữ của các tháng trước boundary, cũ nhất trước:
+     * VACUUM FREEZE (chỉ khóa SHARE UPDATE EXCLUSIVE trên partition, không chặn đọc/ghi) rồi đánh dấu đã lưu trữ.
+     * Không có DDL nào trên bảng transactions
+     * @return số partition đã lưu trữ
+     */
+    public int archiveBefore(YearMonth boundary) {
+        int archived = 0;
+        for (String name : unarchivedPartitions()) {
+            YearMonth month = monthOf(name);
+            if (!month.isBefore(boundary)) {
+                break;
+            }
+            // Dữ liệu cũ không còn thay đổi: đóng băng một lần để các lần vacuum sau bỏ qua
+            jdbcTemplate.execute("VACUUM (FREEZE, ANALYZE) " + name);
+            jdbcTemplate.execute("COMMENT ON TABLE " + name + " IS '" + ARCHIVED_COMMENT + "'");
+            log.info("Archived transaction partition {}", name);
+            archived++;
+        }
+        return archived;
+    }
+
+    private boolean isPartitioned() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+            "SELECT EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass(?))",
+            Boolean.class, PARENT));
+    }
+
+    private boolean exists(String name) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name));
+    }
+
+    // Các partition tháng gắn trực tiếp vào transactions chưa được lưu trữ, theo thứ tự thời gian (tên sắp xếp được)
+    private List<String> unarchivedPartitions() {
+        return jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = to_regclass(?) AND c.relname LIKE 'transactions\\_p%' " +
+            "AND obj_description(c.oid, 'pg_class') IS DISTINCT FROM ? ORDER BY c.relname",
+            String.class, PARENT, ARCHIVED_COMMENT);
+    }
+
+    private void setLockTimeout() {
+        jdbcTemplate.execute("SET LOCAL lock_timeout = " + config.getLockTimeoutMs());
+    }
+
+    static List<YearMonth> monthsToCreate(YearMonth current, int premakeMonths) {
+        List<YearMonth> months = new ArrayList<>(premakeMonths + 1);
+        for (int i = 0; i <= premakeMonths; i++) {
+            months.add(current.plusMonths(i));
+        }
+        return months;
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARTITION_PREFIX + month.format(SUFFIX);
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        return YearMonth.parse(partitionName.substring(PARTITION_PREFIX.length()), SUFFIX);
+    }
+
+    static String bounds(YearMonth month) {
+        return "FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+    }
+
+    private static String range(YearMonth month) {
+        LocalDate from = month.atDay(1);
+        return "(transaction_date >= '" + from + "' AND transaction_date < '" + from.plusMonths(1) + "')";
+    }
+
+    private static String checkName(String partitionName) {
+        return partitionName + "_date_check";
+    }
+}
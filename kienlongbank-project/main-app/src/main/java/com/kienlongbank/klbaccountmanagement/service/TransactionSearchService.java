@@ -0,0 +1,118 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionSearchConfig;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionSearchPage;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Tìm kiếm giao dịch theo mô tả
+ *
+ * Chế độ TRIGRAM: mô tả và từ khóa đều được bỏ dấu (unaccent) và đưa về chữ thường, nên "chuyen khoan luong"
+ * tìm được "Chuyển khoản lương". Điều kiện LIKE được phục vụ bởi index GIN pg_trgm, kết quả xếp theo
+ * word_similarity rồi mới nhất trước. Chế độ này cần script db/migration/V5 (chạy tay), nên khi khởi động
+ * service kiểm tra pg_trgm và immutable_unaccent(); thiếu thì cảnh báo và dùng LIKE. Chế độ thực tế được giữ
+ * trong service, không sửa bean TransactionSearchConfig dùng chung.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionSearchService {
+
+    private static final String TRIGRAM_SUPPORT_SQL =
+        "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm') " +
+        "AND to_regprocedure('immutable_unaccent(text)') IS NOT NULL";
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionSearchConfig transactionSearchConfig;
+    private final JdbcTemplate jdbcTemplate;
+
+    // DB thiếu pg_trgm/immutable_unaccent(): chế độ TRIGRAM trong cấu hình được phục vụ bằng LIKE
+    private volatile boolean trigramUnavailable;
+
+    @PostConstruct
+    public void checkTrigramSupport() {
+        if (transactionSearchConfig.getMode() != TransactionSearchConfig.Mode.TRIGRAM) {
+            return;
+        }
+        boolean supported;
+        try {
+            supported = Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRIGRAM_SUPPORT_SQL, Boolean.class));
+        } catch (DataAccessException e) {
+            log.warn("Could not check trigram search support: {}", e.getMessage());
+            supported = false;
+        }
+        if (!supported) {
+            log.warn("transactions.search.mode=TRIGRAM needs pg_trgm and immutable_unaccent() " +
+                "from db/migration/V5__transaction_description_search.sql, falling back to LIKE");
+        }
+        trigramUnavailable = !supported;
+    }
+
+    /**
+     * Chế độ tìm kiếm đang dùng: mode trong cấu hình, trừ khi TRIGRAM không được DB hỗ trợ
+     */
+    public TransactionSearchConfig.Mode effectiveMode() {
+        return trigramUnavailable ? TransactionSearchConfig.Mode.LIKE : transactionSearchConfig.getMode();
+    }
+
+    /**
+     * @param page trang cần lấy, bắt đầu từ 0 (null = 0)
+     * @param size số kết quả mỗi trang (null = giá trị mặc định)
+     * @throws IllegalArgumentException nếu từ khóa rỗng hoặc page/size không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public TransactionSearchPage search(String keyword, Integer page, Integer size) {
+        if (keyword == null || keyword.isBlank()) {
+            throw new IllegalArgumentException("Từ khóa tìm kiếm không được để trống");
+        }
+        int pageNumber = page == null ? 0 : page;
+        if (pageNumber < 0) {
+            throw new IllegalArgumentException("page không được âm");
+        }
+        int pageSize = resolvePageSize(size);
+        String trimmed = keyword.trim();
+
+        if (effectiveMode() == TransactionSearchConfig.Mode.LIKE) {
+            Slice<Transaction> slice = transactionRepository.findByDescriptionContaining(trimmed,
+                PageRequest.of(pageNumber, pageSize));
+            return new TransactionSearchPage(slice.getContent(), pageNumber, pageSize, slice.hasNext());
+        }
+
+        // Lấy thêm một dòng để biết còn trang sau hay không
+        List<Transaction> rows = transactionRepository.searchByDescription(trimmed, escapeLike(trimmed),
+            pageSize + 1, (long) pageNumber * pageSize);
+        boolean hasMore = rows.size() > pageSize;
+        List<Transaction> transactions = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        return new TransactionSearchPage(transactions, pageNumber, pageSize, hasMore);
+    }
+
+    private int resolvePageSize(Integer size) {
+        if (size == null) {
+            return transactionSearchConfig.getDefaultSize();
+        }
+        if (size < 1) {
+            throw new IllegalArgumentException("size phải lớn hơn 0");
+        }
+        return Math.min(size, transactionSearchConfig.getMaxSize());
+    }
+
+    // Ký tự đặc biệt của LIKE trong từ khóa được tìm như ký tự thường (ký tự escape mặc định của PostgreSQL là dấu \)
+    static String escapeLike(String keyword) {
+        return keyword.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
@@ -2,18 +2,22 @@
 package com.kienlongbank.klbaccountmanagement.service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import lombok.RequiredArgsConstructor;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;    
-import org.springframework.web.client.RestTemplate;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.config.TransactionHistoryConfig;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionCursor;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionView;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerHold;
 import com.kienlongbank.klbaccountmanagement.model.Account;
 import com.kienlongbank.klbaccountmanagement.model.Transaction;
 import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
@@ -21,124 +25,251 @@ import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
 
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class TransactionService {
 
     private final AccountRepository accountRepository;
     private final TransactionRepository transactionRepository;
-    private final RestTemplate restTemplate;
-    private final RabbitTemplate rabbitTemplate;
+    private final CoreBankingClient coreBankingClient;
+    private final OutboxService outboxService;
+    private final LedgerEngine ledgerEngine;
+    private final LockRetryExecutor lockRetryExecutor;
+    private final PostingJournal postingJournal;
+    private final HotAccountService hotAccountService;
+    private final TransactionHistoryConfig transactionHistoryConfig;
+    private final TransactionStatusCounters transactionStatusCounters;
+    private final AccountCache accountCache;
 
-    @Value("${core.banking.api.url}")
-    private String coreBankingApiUrl;
+    /**
+     * Chuyển khoản giữa hai tài khoản, chia thành các giai đoạn để không giữ connection
+     * và khóa dòng trong suốt thời gian gọi Core Banking:
+     * 1. Kiểm tra và giữ tiền ở tài khoản nguồn, ghi giao dịch PENDING (transaction ngắn)
+     * 2. Xin phép Core Banking (ngoài mọi transaction DB)
+     * 3. Ghi có tài khoản đích, chuyển giao dịch sang COMPLETED và ghi thông báo vào outbox (transaction ngắn)
+     * Nếu Core Banking từ chối hoặc giai đoạn 3 thất bại, tiền được hoàn lại và giao dịch chuyển sang FAILED.
+     * Mỗi lần số dư thay đổi đều có một bút toán tương ứng trong PostingJournal (cùng transaction).
+     * Tài khoản nóng được ghi nợ/ghi có qua các slot của HotAccountService thay vì dòng accounts.
+     * Mỗi transaction khóa (SELECT ... FOR UPDATE) đúng một dòng tài khoản trước khi sửa số dư, nên không mất
+     * cập nhật và không thể deadlock; chờ khóa quá lâu hoặc xung đột thì LockRetryExecutor chạy lại giai đoạn đó.
+     */
+    public Transaction performTransfer(Long fromAccountId, long amount, Long toAccountId) {
+        return performTransfer(fromAccountId, amount, toAccountId, null);
+    }
 
-    @Transactional // <-- Chú thích quan trọng!
-    public Transaction performTransfer(Long fromAccountId, Double amount, Long toAccountId) {
-        // 1. Lấy thông tin tài khoản nguồn và đích
-        Account fromAccount = accountRepository.findById(fromAccountId)
-            .orElseThrow(() -> new RuntimeException("Tài khoản nguồn không tồn tại!"));
-        Account toAccount = accountRepository.findById(toAccountId)
-            .orElseThrow(() -> new RuntimeException("Tài khoản đích không tồn tại!"));
+    /**
+     * Như performTransfer(Long, long, Long), giao dịch được ghi kèm Idempotency-Key của yêu cầu
+     * để IdempotencyStore xác định được kết quả khi lease PROCESSING của key hết hạn
+     */
+    public Transaction performTransfer(Long fromAccountId, long amount, Long toAccountId, String idempotencyKey) {
+        if (ledgerEngine.isEnabled()) {
+            return performLedgerTransfer(fromAccountId, amount, toAccountId, idempotencyKey);
+        }
+
+        // 1. Kiểm tra và giữ tiền
+        Reservation reservation = lockRetryExecutor.execute(status ->
+            reserve(fromAccountId, amount, toAccountId, idempotencyKey));
 
-        // 2. Kiểm tra số dư tài khoản nguồn
-        if (fromAccount.getBalance() < amount) {
-            throw new RuntimeException("Số dư không đủ để thực hiện giao dịch!");
+        // 2. Gọi đến Core Banking giả lập để "xin phép"
+        boolean approved;
+        try {
+            approved = coreBankingClient.authorize(
+                reservation.fromAccountNumber(), reservation.toAccountNumber(), amount);
+        } catch (RuntimeException e) {
+            log.error("Core banking call failed for transaction {}: {}", reservation.transaction().getId(), e.getMessage());
+            compensate(reservation.transaction());
+            throw new RuntimeException("Không thể kết nối đến Core Banking, giao dịch đã bị hủy.");
         }
+        if (!approved) {
+            compensate(reservation.transaction());
+            throw new RuntimeException("Giao dịch bị Core Banking từ chối.");
+        }
+
+        // 3. Ghi có tài khoản đích và hoàn tất giao dịch
+        Transaction savedTransaction;
+        try {
+            savedTransaction = lockRetryExecutor.execute(status -> complete(reservation));
+        } catch (RuntimeException e) {
+            // Core Banking đã chấp thuận nhưng không ghi sổ được, cần đối soát với Core Banking
+            log.error("Completing approved transaction {} failed: {}", reservation.transaction().getId(), e.getMessage());
+            compensate(reservation.transaction());
+            throw e;
+        }
+
+        return savedTransaction;
+    }
+
+    // Chế độ SHARDED: ledger engine giữ tiền / ghi có trong bộ nhớ và ghi sổ theo lô, cùng các giai đoạn như trên
+    private Transaction performLedgerTransfer(Long fromAccountId, long amount, Long toAccountId, String idempotencyKey) {
+        AccountView toAccount = accountRepository.findViewById(toAccountId)
+            .orElseThrow(() -> new RuntimeException("Tài khoản đích không tồn tại!"));
+
+        // 1. Giữ tiền trên shard của tài khoản nguồn (số dư trong bộ nhớ là số dư thật)
+        LedgerHold hold = ledgerEngine.hold(fromAccountId, amount, toAccountId, idempotencyKey);
 
-        // BƯỚC MỚI: Gọi đến Core Banking giả lập để "xin phép"
-        Map<String, Object> requestBody = Map.of(
-            "fromAccount", fromAccount.getAccountNumber(),
-            "toAccount", toAccount.getAccountNumber(),
-            "amount", amount
-        );
-
-        // Gọi API của WireMock
-        ResponseEntity<String> coreResponse = restTemplate.postForEntity(
-            coreBankingApiUrl + "/core/transactions",
-            requestBody,
-            String.class
-        );
-
-        // Kiểm tra phản hồi từ WireMock
-        if (coreResponse.getStatusCode() != HttpStatus.OK) {
-            // Nếu Core Banking từ chối, văng lỗi để rollback transaction
+        // 2. Xin phép Core Banking
+        boolean approved;
+        try {
+            approved = coreBankingClient.authorize(hold.fromAccountNumber(), toAccount.accountNumber(), amount);
+        } catch (RuntimeException e) {
+            log.error("Core banking call failed for transaction {}: {}", hold.transaction().getId(), e.getMessage());
+            ledgerEngine.release(hold);
+            throw new RuntimeException("Không thể kết nối đến Core Banking, giao dịch đã bị hủy.");
+        }
+        if (!approved) {
+            ledgerEngine.release(hold);
             throw new RuntimeException("Giao dịch bị Core Banking từ chối.");
         }
 
-        // 3. Thực hiện chuyển tiền
-        fromAccount.setBalance(fromAccount.getBalance() - amount);
-        toAccount.setBalance(toAccount.getBalance() + amount);
+        // 3. Ghi có tài khoản đích; ledger engine tự ghi thông báo vào outbox cùng lô ghi sổ
+        return ledgerEngine.settle(hold);
+    }
+
+    private Reservation reserve(Long fromAccountId, long amount, Long toAccountId, String idempotencyKey) {
+        // Khóa tài khoản nguồn, tài khoản đích chỉ cần đọc số tài khoản. Đọc bằng projection để entity
+        // tài khoản đích không nằm sẵn trong persistence context: findByIdForUpdate ở bước ghi có sẽ trả lại
+        // đúng instance đó (khóa dòng nhưng không đọc lại số dư) và ghi đè các lần ghi có đồng thời
+        Account fromAccount = accountRepository.findByIdForUpdate(fromAccountId)
+            .orElseThrow(() -> new RuntimeException("Tài khoản nguồn không tồn tại!"));
+        AccountView toAccount = accountRepository.findViewById(toAccountId)
+            .orElseThrow(() -> new RuntimeException("Tài khoản đích không tồn tại!"));
 
-        accountRepository.save(fromAccount);
-        accountRepository.save(toAccount);
+        if (hotAccountService.isHot(fromAccount)) {
+            // Tài khoản nóng: trừ có điều kiện trên dòng chính hoặc một slot
+            if (!hotAccountService.debit(fromAccountId, amount)) {
+                throw new RuntimeException("Số dư không đủ để thực hiện giao dịch!");
+            }
+        } else {
+            // Kiểm tra số dư tài khoản nguồn
+            if (!Money.covers(fromAccount.getBalance(), amount)) {
+                throw new RuntimeException("Số dư không đủ để thực hiện giao dịch!");
+            }
+
+            // Giữ tiền: trừ ngay ở tài khoản nguồn, sẽ hoàn lại nếu giao dịch thất bại
+            fromAccount.setBalance(Money.subtract(fromAccount.getBalance(), amount));
+            accountRepository.save(fromAccount);
+        }
+        accountCache.evictAfterCommit(List.of(fromAccountId), List.of());
 
-        // 4. Ghi lại lịch sử giao dịch
         Transaction transaction = new Transaction();
         transaction.setFromAccountId(fromAccountId);
         transaction.setToAccountId(toAccountId);
         transaction.setAmount(amount);
         transaction.setTransactionDate(LocalDateTime.now());
-        transaction.setStatus("COMPLETED");
+        transaction.setStatus("PENDING");
         transaction.setDescription("Chuyển khoản nội bộ");
+        transaction.setIdempotencyKey(idempotencyKey);
 
-        Transaction savedTransaction = transactionRepository.save(transaction);
+        Transaction pending = transactionRepository.save(transaction);
+        postingJournal.post(fromAccountId, pending.getId(), Money.negate(amount));
+        transactionStatusCounters.recordCreated("PENDING", pending.getId());
+        return new Reservation(pending, fromAccount.getAccountNumber(), toAccount.accountNumber());
+    }
 
-        // BƯỚC MỚI: Gửi tin nhắn đến RabbitMQ sau khi giao dịch thành công
-        String message = "Giao dịch thành công với ID: " + savedTransaction.getId() + 
-                        ", Số tiền: " + amount + 
-                        ", Từ tài khoản: " + fromAccount.getAccountNumber() + 
-                        " đến tài khoản: " + toAccount.getAccountNumber();
-        rabbitTemplate.convertAndSend("notificationQueue", message);
+    private Transaction complete(Reservation reservation) {
+        Transaction pending = reservation.transaction();
+        credit(pending.getToAccountId(), pending.getAmount(), "Tài khoản đích không tồn tại!");
 
+        pending.setStatus("COMPLETED");
+        Transaction savedTransaction = transactionRepository.save(pending);
+        postingJournal.post(pending.getToAccountId(), savedTransaction.getId(), savedTransaction.getAmount());
+        transactionStatusCounters.recordTransition("PENDING", "COMPLETED", pending.getId());
+
+        // Thông báo được ghi vào outbox trong cùng transaction, OutboxRelay sẽ gửi sau khi commit
+        outboxService.enqueueTransferCompleted(savedTransaction,
+            reservation.fromAccountNumber(), reservation.toAccountNumber());
         return savedTransaction;
     }
 
-    // Lấy tất cả giao dịch của một tài khoản
-    public List<Transaction> getTransactionsByAccountId(Long accountId) {
-        return transactionRepository.findByAccountId(accountId);
-    }
+    // Hoàn lại số tiền đã giữ và đánh dấu giao dịch thất bại
+    private void compensate(Transaction pending) {
+        lockRetryExecutor.executeWithoutResult(status -> {
+            credit(pending.getFromAccountId(), pending.getAmount(), "Tài khoản nguồn không tồn tại!");
 
-    // Lấy giao dịch gần đây của một tài khoản
-    public List<Transaction> getRecentTransactionsByAccountId(Long accountId) {
-        return transactionRepository.findRecentTransactionsByAccountId(accountId);
+            pending.setStatus("FAILED");
+            transactionRepository.save(pending);
+            postingJournal.post(pending.getFromAccountId(), pending.getId(), pending.getAmount());
+            transactionStatusCounters.recordTransition("PENDING", "FAILED", pending.getId());
+        });
     }
 
-    // Lấy giao dịch theo trạng thái
-    public List<Transaction> getTransactionsByStatus(String status) {
-        return transactionRepository.findByStatus(status);
+    private void credit(Long accountId, long amount, String notFoundMessage) {
+        accountCache.evictAfterCommit(List.of(accountId), List.of());
+        if (hotAccountService.isHot(accountId)) {
+            // Ghi có vào một slot ngẫu nhiên, không khóa dòng accounts
+            hotAccountService.credit(accountId, amount);
+            return;
+        }
+        Account account = accountRepository.findByIdForUpdate(accountId)
+            .orElseThrow(() -> new RuntimeException(notFoundMessage));
+        account.setBalance(Money.add(account.getBalance(), amount));
+        accountRepository.save(account);
     }
 
-    // Lấy giao dịch trong khoảng thời gian
-    public List<Transaction> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findByDateRange(startDate, endDate);
+    // Kết quả của giai đoạn giữ tiền
+    private record Reservation(Transaction transaction, String fromAccountNumber, String toAccountNumber) {
     }
 
-    // Lấy giao dịch của tài khoản trong khoảng thời gian
-    public List<Transaction> getTransactionsByAccountIdAndDateRange(Long accountId, LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionRepository.findByAccountIdAndDateRange(accountId, startDate, endDate);
+    /**
+     * Lấy một trang lịch sử giao dịch của tài khoản, mới nhất trước (keyset theo transactionDate, id)
+     * @param cursor nextCursor của trang trước, null để lấy trang đầu
+     * @param limit số giao dịch mỗi trang, null để dùng giá trị mặc định
+     * @throws IllegalArgumentException nếu cursor hoặc limit không hợp lệ
+     */
+    @Transactional(readOnly = true)
+    public TransactionPage getTransactionPage(Long accountId, String cursor, Integer limit) {
+        int pageSize = resolvePageSize(limit);
+        // Lấy thêm một dòng để biết còn trang sau hay không
+        int fetch = pageSize + 1;
+        List<Transaction> rows;
+        if (cursor == null || cursor.isEmpty()) {
+            rows = transactionRepository.findPageByAccountId(accountId, fetch);
+        } else {
+            TransactionCursor after = TransactionCursor.decode(cursor);
+            rows = transactionRepository.findPageByAccountIdAfter(accountId, after.transactionDate(), after.id(), fetch);
+        }
+
+        boolean hasMore = rows.size() > pageSize;
+        List<Transaction> page = hasMore ? new ArrayList<>(rows.subList(0, pageSize)) : rows;
+        String nextCursor = hasMore ? TransactionCursor.of(page.get(page.size() - 1)).encode() : null;
+        return new TransactionPage(page, nextCursor, hasMore);
     }
 
-    // Lấy giao dịch theo số tiền lớn hơn
-    public List<Transaction> getTransactionsByAmountGreaterThan(Double amount) {
-        return transactionRepository.findByAmountGreaterThan(amount);
+    private int resolvePageSize(Integer limit) {
+        if (limit == null) {
+            return transactionHistoryConfig.getDefaultLimit();
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit phải lớn hơn 0");
+        }
+        return Math.min(limit, transactionHistoryConfig.getMaxLimit());
     }
 
-    // Lấy giao dịch theo khoảng số tiền
-    public List<Transaction> getTransactionsByAmountRange(Double minAmount, Double maxAmount) {
-        return transactionRepository.findByAmountRange(minAmount, maxAmount);
+    // Các API danh sách đọc projection TransactionView thay vì entity: không snapshot, không dirty checking,
+    // persistence context không phình theo số dòng
+
+    // Lấy giao dịch theo trạng thái
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionsByStatus(String status) {
+        return transactionRepository.findViewsByStatus(status);
     }
 
-    // Đếm số giao dịch theo trạng thái
-    public Long countTransactionsByStatus(String status) {
-        return transactionRepository.countByStatus(status);
+    // Lấy giao dịch trong khoảng thời gian
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return transactionRepository.findViewsByDateRange(startDate, endDate);
     }
 
-    // Tìm giao dịch theo từ khóa trong mô tả
-    public List<Transaction> searchTransactionsByDescription(String keyword) {
-        return transactionRepository.findByDescriptionContaining(keyword);
+    // Lấy giao dịch của tài khoản trong khoảng thời gian
+    // Truy vấn UNION ALL là native nên vẫn nạp entity (read-only), rồi chuyển sang projection
+    @Transactional(readOnly = true)
+    public List<TransactionView> getTransactionsByAccountIdAndDateRange(Long accountId, LocalDateTime startDate, LocalDateTime endDate) {
+        return transactionRepository.findByAccountIdAndDateRange(accountId, startDate, endDate).stream()
+            .map(TransactionView::of)
+            .toList();
     }
 
-    // Lấy tất cả giao dịch của tài khoản sắp xếp theo ngày
-    public List<Transaction> getAllTransactionsByAccountIdOrderByDate(Long accountId) {
-        return transactionRepository.findAllTransactionsByAccountIdOrderByDateDesc(accountId);
+    // Đếm số giao dịch theo trạng thái, đọc từ bộ đếm trong bộ nhớ thay vì COUNT(*) trên bảng
+    public Long countTransactionsByStatus(String status) {
+        return transactionStatusCounters.count(status);
     }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bộ đếm số giao dịch theo trạng thái, thay cho COUNT(*) trên toàn bảng transactions
+ *
+ * - Mỗi thay đổi trạng thái được cộng vào một LongAdder (phân mảnh, không tranh chấp) sau khi transaction commit,
+ *   theo trạng thái và khối ID_BLOCK_SIZE id giao dịch chứa giao dịch đó
+ * - flush() cộng phần chênh lệch vào bảng transaction_status_counter_deltas (dùng chung giữa các instance)
+ *   và đọc lại giá trị chung; count() = giá trị chung + phần chưa flush của instance này, không truy vấn DB
+ * - Giá trị chung = transaction_status_counters.count (số đếm thật của các giao dịch có id < below_id)
+ *   + chênh lệch của các khối từ below_id trở đi
+ * - reconcile() định kỳ đếm lại phần đã ổn định (id < watermark, giao dịch cũ hơn SETTLE_SECONDS) và nâng below_id,
+ *   sửa sai lệch do instance dừng đột ngột trước khi flush. Chênh lệch chưa flush của các instance và commit xen giữa
+ *   chỉ thuộc về các khối sau watermark nên không bị tính hai lần. Giao dịch cũ đổi trạng thái sau khi đã ổn định
+ *   (chênh lệch rơi vào khối trước below_id) được sửa ở lần đối soát sau
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionStatusCounters {
+
+    // Số id giao dịch trong một khối chênh lệch
+    static final long ID_BLOCK_SIZE = 10_000;
+
+    // Giao dịch cũ hơn khoảng này được coi là đã ổn định: đã commit, đổi trạng thái xong và đã được flush
+    static final long SETTLE_SECONDS = 300;
+
+    private static final String UPSERT_DELTA_SQL =
+        "INSERT INTO transaction_status_counter_deltas (status, block_start_id, count, updated_at) VALUES (?, ?, ?, now()) " +
+        "ON CONFLICT (status, block_start_id) DO UPDATE SET " +
+        "count = transaction_status_counter_deltas.count + EXCLUDED.count, updated_at = now()";
+    private static final String SELECT_SQL =
+        "SELECT status, SUM(count) FROM (" +
+        "  SELECT status, count FROM transaction_status_counters " +
+        "  UNION ALL " +
+        "  SELECT d.status, d.count FROM transaction_status_counter_deltas d " +
+        "  LEFT JOIN transaction_status_counters c ON c.status = d.status " +
+        "  WHERE d.block_start_id >= COALESCE(c.below_id, 0)" +
+        ") t GROUP BY status";
+    private static final String WATERMARK_SQL =
+        "SELECT COALESCE(MAX(id), 0) FROM transactions WHERE transaction_date < now() - make_interval(secs => ?)";
+    private static final String BELOW_ID_SQL = "SELECT COALESCE(MIN(below_id), 0) FROM transaction_status_counters";
+    private static final String INSERT_BASE_SQL =
+        "INSERT INTO transaction_status_counters (status, count, below_id, updated_at) VALUES (?, ?, ?, now())";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    // Phần thay đổi chưa flush của instance này
+    private final Map<BlockKey, LongAdder> pending = new ConcurrentHashMap<>();
+
+    // Giá trị chung tại lần đọc gần nhất
+    private volatile Map<String, Long> persisted = Map.of();
+
+    // below_id tại lần đọc gần nhất
+    private volatile long persistedBelowId;
+
+    /**
+     * Ghi nhận một giao dịch mới có trạng thái status (sau khi transaction hiện tại commit)
+     */
+    public void recordCreated(String status, long transactionId) {
+        afterCommit(() -> adder(status, transactionId).increment());
+    }
+
+    /**
+     * Ghi nhận một giao dịch chuyển từ trạng thái from sang to (sau khi transaction hiện tại commit)
+     */
+    public void recordTransition(String from, String to, long transactionId) {
+        afterCommit(() -> {
+            adder(from, transactionId).decrement();
+            adder(to, transactionId).increment();
+        });
+    }
+
+    /**
+     * Số giao dịch có trạng thái status, đọc từ bộ nhớ
+     */
+    public long count(String status) {
+        long local = 0;
+        for (Map.Entry<BlockKey, LongAdder> entry : pending.entrySet()) {
+            if (entry.getKey().status().equals(status)) {
+                local += entry.getValue().sum();
+            }
+        }
+        return persisted.getOrDefault(status, 0L) + local;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            refresh();
+            if (persisted.isEmpty()) {
+                reconcile();
+            }
+        } catch (RuntimeException e) {
+            log.error("Could not load transaction status counters: {}", e.getMessage(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${counters.flush-interval-ms:1000}")
+    @PreDestroy
+    public void flush() {
+        try {
+            Map<BlockKey, Long> deltas = snapshot();
+            if (!deltas.isEmpty()) {
+                List<Object[]> rows = deltas.entrySet().stream()
+                    .map(entry -> new Object[] {entry.getKey().status(), entry.getKey().blockStartId(), entry.getValue()})
+                    .toList();
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT_DELTA_SQL, rows));
+                // Chỉ trừ đúng phần đã ghi, các lần cộng xen giữa được giữ lại cho lần flush sau
+                deltas.forEach((key, delta) -> pending.get(key).add(-delta));
+            }
+            refresh();
+            // Khối trước watermark không còn được tính, bỏ bộ đếm rỗng để pending không lớn dần
+            pending.entrySet().removeIf(entry ->
+                entry.getKey().blockStartId() < persistedBelowId && entry.getValue().sum() == 0);
+        } catch (RuntimeException e) {
+            log.error("Could not flush transaction status counters: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Đếm lại các giao dịch đã ổn định từ bảng transactions và nâng watermark below_id
+     */
+    @Scheduled(fixedDelayString = "${counters.reconcile-interval-ms:3600000}",
+               initialDelayString = "${counters.reconcile-interval-ms:3600000}")
+    public void reconcile() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Chỉ một instance đối soát tại một thời điểm; flush ghi vào bảng chênh lệch nên không bị chặn
+                jdbcTemplate.execute("LOCK TABLE transaction_status_counters IN EXCLUSIVE MODE");
+                Long settledId = jdbcTemplate.queryForObject(WATERMARK_SQL, Long.class, SETTLE_SECONDS);
+                long current = belowId();
+                // Ranh giới khối: mọi id nhỏ hơn đều đã ổn định; không lùi watermark
+                long belowId = Math.max(current, blockStart((settledId != null ? settledId : 0) + 1));
+
+                Map<String, Long> actual = new HashMap<>();
+                jdbcTemplate.query("SELECT status, count(*) FROM transactions WHERE id < ? AND status IS NOT NULL GROUP BY status",
+                    rs -> {
+                        actual.put(rs.getString(1), rs.getLong(2));
+                    }, belowId);
+                // Trạng thái chỉ có trong bảng chênh lệch cũng cần dòng gốc mang below_id
+                jdbcTemplate.queryForList("SELECT DISTINCT status FROM transaction_status_counter_deltas", String.class)
+                    .forEach(key -> actual.putIfAbsent(key, 0L));
+
+                Map<String, Long> stored = read();
+                jdbcTemplate.update("DELETE FROM transaction_status_counters");
+                jdbcTemplate.batchUpdate(INSERT_BASE_SQL, actual.entrySet().stream()
+                    .map(entry -> new Object[] {entry.getKey(), entry.getValue(), belowId})
+                    .toList());
+                jdbcTemplate.update("DELETE FROM transaction_status_counter_deltas WHERE block_start_id < ?", belowId);
+
+                Map<String, Long> corrected = read();
+                corrected.forEach((key, value) -> {
+                    long drift = value - stored.getOrDefault(key, 0L);
+                    if (drift != 0) {
+                        log.warn("Transaction counter {} drifted by {}, corrected", key, drift);
+                    }
+                });
+                log.info("Reconciled transaction status counters below id {}", belowId);
+            });
+            refresh();
+        } catch (RuntimeException e) {
+            log.error("Could not reconcile transaction status counters: {}", e.getMessage(), e);
+        }
+    }
+
+    private Map<BlockKey, Long> snapshot() {
+        Map<BlockKey, Long> deltas = new HashMap<>();
+        pending.forEach((key, adder) -> {
+            long delta = adder.sum();
+            if (delta != 0) {
+                deltas.put(key, delta);
+            }
+        });
+        return deltas;
+    }
+
+    private void refresh() {
+        persisted = Map.copyOf(read());
+        persistedBelowId = belowId();
+    }
+
+    private long belowId() {
+        Long belowId = jdbcTemplate.queryForObject(BELOW_ID_SQL, Long.class);
+        return belowId != null ? belowId : 0L;
+    }
+
+    private Map<String, Long> read() {
+        Map<String, Long> values = new HashMap<>();
+        jdbcTemplate.query(SELECT_SQL, rs -> {
+            values.put(rs.getString(1), rs.getLong(2));
+        });
+        return values;
+    }
+
+    private LongAdder adder(String status, long transactionId) {
+        return pending.computeIfAbsent(new BlockKey(status, blockStart(transactionId)), key -> new LongAdder());
+    }
+
+    static long blockStart(long transactionId) {
+        return transactionId - Math.floorMod(transactionId, ID_BLOCK_SIZE);
+    }
+
+    // Giao dịch bị rollback không được đếm; ngoài transaction thì ghi nhận ngay
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record BlockKey(String status, long blockStartId) {
+    }
+}
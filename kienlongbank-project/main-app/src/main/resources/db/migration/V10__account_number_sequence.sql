@@ -0,0 +1,16 @@
+-- Migration script for block-leased account numbers
+-- Purpose: AccountNumberAllocator leases blocks of account numbers with one nextval per block.
+--          INCREMENT BY is the block size: nextval returns the first number of a block nobody else holds.
+--          New numbers are "KLB" + 9 digits + a Luhn check digit; legacy numbers (KLB + 10 random hex chars)
+--          that happen to match this format are skipped by the allocator.
+-- Date: October 2026
+
+-- The allocator also creates the sequence on first use (accounts.number.block-size), this keeps environments in sync
+CREATE SEQUENCE IF NOT EXISTS account_number_seq START WITH 1 INCREMENT BY 1000;
+
+-- Example usage: lease the next block of 1000 numbers
+-- SELECT nextval('account_number_seq');
+--
+-- Example usage: how much of the 9-digit range is used
+-- SELECT last_value, increment_by, 999999999 - last_value AS remaining FROM pg_sequences
+-- WHERE sequencename = 'account_number_seq';
@@ -0,0 +1,12 @@
+-- Migration script for incremental balance snapshots
+-- Purpose: BalanceSnapshotJob used to scan the whole account_postings history on every run to find the postings
+--          after each account's latest snapshot. It now reads only postings since the previous run's watermark
+--          (max(as_of) over all snapshots), which needs an index on as_of alone.
+-- Date: October 2026
+
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_as_of ON balance_snapshots(as_of);
+
+-- Example usage: postings taken by the next snapshot run (range scan on idx_account_postings_posted_at)
+-- SELECT p.account_id, SUM(p.amount) FROM account_postings p
+-- WHERE p.posted_at >= (SELECT max(as_of) FROM balance_snapshots) AND p.posted_at < now() - interval '60 seconds'
+-- GROUP BY p.account_id;
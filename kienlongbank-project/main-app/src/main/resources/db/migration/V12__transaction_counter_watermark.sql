@@ -0,0 +1,27 @@
+-- Migration script to reconcile transaction status counters against an id watermark
+-- Purpose: TransactionStatusCounters.reconcile used to overwrite the counters with COUNT(*) over all transactions,
+--          double counting the deltas other instances had not flushed yet and the commits landing during the count.
+--          Flushed deltas now go to transaction_status_counter_deltas, bucketed by blocks of transaction ids.
+--          transaction_status_counters.count holds the real count of transactions with id < below_id, and reconcile
+--          only recounts ids below a watermark of settled transactions, then drops the deltas of the blocks below it.
+-- Date: October 2026
+
+-- Existing counts already include every delta flushed so far: below_id = 0 keeps all new deltas on top of them
+ALTER TABLE transaction_status_counters ADD COLUMN IF NOT EXISTS below_id BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS transaction_status_counter_deltas (
+    status         VARCHAR(32) NOT NULL,
+    block_start_id BIGINT      NOT NULL,
+    count          BIGINT      NOT NULL,
+    updated_at     TIMESTAMP   NOT NULL,
+    PRIMARY KEY (status, block_start_id)
+);
+
+-- Example usage: counter values as read by the application
+-- SELECT status, SUM(count) FROM (
+--     SELECT status, count FROM transaction_status_counters
+--     UNION ALL
+--     SELECT d.status, d.count FROM transaction_status_counter_deltas d
+--     LEFT JOIN transaction_status_counters c ON c.status = d.status
+--     WHERE d.block_start_id >= COALESCE(c.below_id, 0)
+-- ) t GROUP BY status;
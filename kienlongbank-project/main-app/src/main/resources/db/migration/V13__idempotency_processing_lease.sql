@@ -0,0 +1,25 @@
+-- Migration script to give PROCESSING idempotency keys a short lease
+-- Purpose: a key whose instance died (or failed to record the result) stayed PROCESSING for the whole TTL
+--          (idempotency.ttl-minutes, 24 h), so every retry with that key got 409 for a day.
+--          The claim now also sets processing_expires_at (idempotency.processing-lease-seconds). Once the lease
+--          has expired, IdempotencyStore resolves the key from the transaction that carries it: a COMPLETED
+--          transaction completes the key, no transaction (or a FAILED one) lets the retry run again.
+-- Date: October 2026
+
+-- NULL on rows written before this migration: treated as an expired lease
+ALTER TABLE idempotency_keys ADD COLUMN IF NOT EXISTS processing_expires_at TIMESTAMP;
+
+ALTER TABLE transactions ADD COLUMN IF NOT EXISTS idempotency_key VARCHAR(255);
+
+-- Created on the partitioned parent, so every monthly partition gets its own index (see V9).
+-- Partial: only transfers made with an Idempotency-Key carry one
+CREATE INDEX IF NOT EXISTS idx_transactions_idempotency_key ON transactions (idempotency_key)
+    WHERE idempotency_key IS NOT NULL;
+
+-- Example usage: resolve a key whose lease has expired
+-- SELECT k.idempotency_key, t.id, t.status
+-- FROM idempotency_keys k
+-- LEFT JOIN LATERAL (
+--     SELECT id, status FROM transactions WHERE idempotency_key = k.idempotency_key ORDER BY id DESC LIMIT 1
+-- ) t ON true
+-- WHERE k.status = 'PROCESSING' AND (k.processing_expires_at IS NULL OR k.processing_expires_at < now());
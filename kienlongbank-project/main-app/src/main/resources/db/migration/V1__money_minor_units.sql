@@ -0,0 +1,24 @@
+-- Migration script to store money as BIGINT minor units
+-- Purpose: Account.balance and Transaction.amount are now long values (VND has no decimals)
+-- Date: October 2026
+
+-- Fail fast if any existing value has a fractional part, those rows must be reconciled first
+DO $$
+BEGIN
+    IF EXISTS (SELECT 1 FROM accounts WHERE balance <> TRUNC(balance))
+       OR EXISTS (SELECT 1 FROM transactions WHERE amount <> TRUNC(amount)) THEN
+        RAISE EXCEPTION 'Fractional VND amounts found, reconcile before migrating to BIGINT';
+    END IF;
+END $$;
+
+ALTER TABLE accounts
+ALTER COLUMN balance TYPE BIGINT USING balance::BIGINT;
+
+ALTER TABLE transactions
+ALTER COLUMN amount TYPE BIGINT USING amount::BIGINT;
+
+ALTER TABLE transactions
+ALTER COLUMN amount SET NOT NULL;
+
+COMMENT ON COLUMN accounts.balance IS 'Balance in minor units (VND)';
+COMMENT ON COLUMN transactions.amount IS 'Amount in minor units (VND)';
@@ -0,0 +1,40 @@
+-- Migration script to add the append-only posting journal and balance snapshots
+-- Purpose: every balance change is recorded as a signed posting, balances can be derived
+--          as latest snapshot + postings after it (also for a point in time)
+-- Date: October 2026
+
+CREATE TABLE IF NOT EXISTS account_postings (
+    id             BIGSERIAL PRIMARY KEY,
+    account_id     BIGINT    NOT NULL,
+    transaction_id BIGINT,
+    amount         BIGINT    NOT NULL,
+    posted_at      TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_account_postings_account_posted_at ON account_postings(account_id, posted_at);
+CREATE INDEX IF NOT EXISTS idx_account_postings_posted_at ON account_postings(posted_at);
+
+CREATE TABLE IF NOT EXISTS balance_snapshots (
+    id         BIGSERIAL PRIMARY KEY,
+    account_id BIGINT    NOT NULL,
+    balance    BIGINT    NOT NULL,
+    as_of      TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_balance_snapshots_account_as_of ON balance_snapshots(account_id, as_of);
+
+-- Opening postings: the current balance of existing accounts becomes the first entry of their journal
+INSERT INTO account_postings (account_id, transaction_id, amount, posted_at)
+SELECT a.id, NULL, a.balance, now()
+FROM accounts a
+WHERE a.balance <> 0
+  AND NOT EXISTS (SELECT 1 FROM account_postings p WHERE p.account_id = a.id);
+
+COMMENT ON TABLE account_postings IS 'Append-only signed postings per account (never updated or deleted)';
+COMMENT ON TABLE balance_snapshots IS 'Balance including every posting with posted_at < as_of';
+
+-- Example usage: balance of account 1 at a point in time
+-- SELECT COALESCE((SELECT balance FROM balance_snapshots WHERE account_id = 1 AND as_of <= :at ORDER BY as_of DESC LIMIT 1), 0)
+--      + (SELECT COALESCE(SUM(amount), 0) FROM account_postings WHERE account_id = 1 AND posted_at <= :at
+--           AND posted_at >= COALESCE((SELECT MAX(as_of) FROM balance_snapshots WHERE account_id = 1 AND as_of <= :at), '-infinity'));
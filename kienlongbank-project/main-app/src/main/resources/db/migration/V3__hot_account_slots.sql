@@ -0,0 +1,24 @@
+-- Migration script to add sub-balance slots for hot accounts
+-- Purpose: credits to a hot account (merchant, collection account) go to one of K slot rows
+--          instead of the single accounts row, so concurrent transfers do not queue on one row lock.
+--          Real balance = accounts.balance + SUM(account_balance_slots.balance)
+-- Date: October 2026
+
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS hot_account BOOLEAN NOT NULL DEFAULT FALSE;
+
+CREATE TABLE IF NOT EXISTS account_balance_slots (
+    account_id BIGINT  NOT NULL,
+    slot       INTEGER NOT NULL,
+    balance    BIGINT  NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, slot)
+);
+
+COMMENT ON COLUMN accounts.hot_account IS 'Balance is split across account_balance_slots (hot-accounts.enabled=true)';
+COMMENT ON TABLE account_balance_slots IS 'Sub-balances of hot accounts, folded into accounts.balance by HotAccountMerger';
+
+-- Example usage: flag an account as hot
+-- UPDATE accounts SET hot_account = TRUE WHERE account_number = 'KLB0000000001';
+
+-- Example usage: real balance of account 1
+-- SELECT a.balance + COALESCE((SELECT SUM(s.balance) FROM account_balance_slots s WHERE s.account_id = a.id), 0)
+-- FROM accounts a WHERE a.id = 1;
@@ -0,0 +1,22 @@
+-- Migration script to index per-account transaction history
+-- Purpose: account history is read as two index range scans (sent UNION ALL received)
+--          instead of one scan filtered by from_account_id = ? OR to_account_id = ?.
+--          The trailing id column serves the (transaction_date, id) keyset cursor.
+-- Date: October 2026
+
+-- CONCURRENTLY: build without blocking writes on a live table (cannot run inside a transaction block)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_from_account_date
+    ON transactions (from_account_id, transaction_date, id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_to_account_date
+    ON transactions (to_account_id, transaction_date, id);
+
+ANALYZE transactions;
+
+-- Example usage: first page of account 1, newest first
+-- EXPLAIN
+-- SELECT * FROM (
+--     (SELECT * FROM transactions WHERE from_account_id = 1 ORDER BY transaction_date DESC, id DESC LIMIT 51)
+--     UNION ALL
+--     (SELECT * FROM transactions WHERE to_account_id = 1 AND from_account_id IS DISTINCT FROM 1
+--      ORDER BY transaction_date DESC, id DESC LIMIT 51)
+-- ) t ORDER BY transaction_date DESC, id DESC LIMIT 51;
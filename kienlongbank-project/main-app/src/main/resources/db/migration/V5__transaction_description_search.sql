@@ -0,0 +1,33 @@
+-- Migration script for transaction description search
+-- Purpose: GET /api/transactions/search used LIKE '%keyword%' on the raw description, which cannot use a
+--          B-tree index (full table scan) and misses Vietnamese text typed without diacritics.
+--          Descriptions are now matched after unaccent + lower through a GIN trigram index,
+--          and results are ranked by word_similarity (transactions.search.mode=TRIGRAM).
+-- Date: October 2026
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() is only STABLE (it depends on search_path), so it cannot be used in an index expression.
+-- The wrapper pins the dictionary schema-qualified and is therefore safe to declare IMMUTABLE.
+CREATE OR REPLACE FUNCTION immutable_unaccent(text)
+    RETURNS text
+    LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT
+AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$;
+
+-- CONCURRENTLY: build without blocking writes on a live table (cannot run inside a transaction block)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_transactions_description_trgm
+    ON transactions USING gin (lower(immutable_unaccent(description)) gin_trgm_ops);
+
+ANALYZE transactions;
+
+-- Example usage: "chuyen khoan luong" matches "Chuyển khoản lương tháng 10"
+-- EXPLAIN
+-- SELECT * FROM transactions t
+-- WHERE lower(immutable_unaccent(t.description)) LIKE '%' || lower(immutable_unaccent('chuyen khoan luong')) || '%'
+-- ORDER BY word_similarity(lower(immutable_unaccent('chuyen khoan luong')), lower(immutable_unaccent(t.description))) DESC,
+--          t.transaction_date DESC, t.id DESC
+-- LIMIT 21 OFFSET 0;
+--
+-- Keywords shorter than 3 characters produce no trigrams and fall back to a scan of the index;
+-- the index only pays off from 3 characters up.
@@ -0,0 +1,42 @@
+-- Migration script to add the per-account daily rollup
+-- Purpose: statement and date-range summaries read one row per (account, day) instead of
+--          aggregating raw transactions/postings. Rows are upserted in the same transaction as the
+--          postings (PostingJournal -> DailyBalanceRollup) and can be rebuilt from account_postings.
+-- Date: October 2026
+
+CREATE TABLE IF NOT EXISTS account_daily_balances (
+    account_id      BIGINT NOT NULL,
+    balance_date    DATE   NOT NULL,
+    opening_balance BIGINT NOT NULL,
+    closing_balance BIGINT NOT NULL,
+    debit_total     BIGINT NOT NULL DEFAULT 0,
+    credit_total    BIGINT NOT NULL DEFAULT 0,
+    debit_count     BIGINT NOT NULL DEFAULT 0,
+    credit_count    BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (account_id, balance_date)
+);
+
+COMMENT ON TABLE account_daily_balances IS 'Postings per account and day; closing_balance = opening_balance + credit_total - debit_total';
+
+-- Backfill from the whole posting journal (same query as DailyBalanceRollup.rebuild from the first day)
+INSERT INTO account_daily_balances (account_id, balance_date, opening_balance, closing_balance,
+                                    debit_total, credit_total, debit_count, credit_count)
+SELECT d.account_id, d.balance_date, SUM(d.net) OVER w - d.net, SUM(d.net) OVER w,
+       d.debit_total, d.credit_total, d.debit_count, d.credit_count
+FROM (SELECT p.account_id, CAST(p.posted_at AS date) AS balance_date,
+             SUM(CASE WHEN p.amount < 0 THEN -p.amount ELSE 0 END) AS debit_total,
+             SUM(CASE WHEN p.amount > 0 THEN p.amount ELSE 0 END) AS credit_total,
+             COUNT(*) FILTER (WHERE p.amount < 0) AS debit_count,
+             COUNT(*) FILTER (WHERE p.amount > 0) AS credit_count,
+             SUM(p.amount) AS net
+      FROM account_postings p
+      GROUP BY p.account_id, CAST(p.posted_at AS date)) d
+WINDOW w AS (PARTITION BY d.account_id ORDER BY d.balance_date)
+ON CONFLICT (account_id, balance_date) DO NOTHING;
+
+-- Example usage: summary of account 1 for the third quarter (about 30 rows per month)
+-- SELECT MIN(opening_balance) FILTER (WHERE balance_date = (SELECT MIN(balance_date) FROM account_daily_balances
+--                                                          WHERE account_id = 1 AND balance_date >= '2025-07-01')),
+--        SUM(debit_total), SUM(credit_total), SUM(debit_count), SUM(credit_count)
+-- FROM account_daily_balances
+-- WHERE account_id = 1 AND balance_date BETWEEN '2025-07-01' AND '2025-09-30';
@@ -0,0 +1,93 @@
+-- Migration script to partition transactions by month on transaction_date
+-- Purpose: queries bounded by date only touch the partitions of that range (partition pruning),
+--          vacuum and index maintenance work per month instead of on one ever-growing heap,
+--          and old months can be moved into transactions_archive (TransactionPartitionManager)
+--          while staying readable through the transactions table.
+-- Date: October 2026
+--
+-- Run in a maintenance window: the existing rows are copied into the new partitioned table
+-- inside one transaction (transfers are blocked until it commits).
+--
+-- Notes:
+--   - The primary key becomes (id, transaction_date): a unique constraint on a partitioned table must
+--     include the partition key. id stays unique through its sequence.
+--   - id uses a sequence default instead of an identity column (identity columns on partitioned
+--     tables need PostgreSQL 17); Hibernate's IDENTITY strategy works with either.
+--   - transaction_date becomes NOT NULL; legacy rows without a date are placed at the earliest date.
+--   - There is no default partition: TransactionPartitionManager creates future months ahead of time.
+
+DO $$
+DECLARE
+    first_month DATE;
+    last_month  DATE;
+    m           DATE;
+    max_id      BIGINT;
+BEGIN
+    IF EXISTS (SELECT 1 FROM pg_partitioned_table WHERE partrelid = to_regclass('transactions')) THEN
+        RAISE NOTICE 'transactions is already partitioned';
+        RETURN;
+    END IF;
+
+    ALTER TABLE transactions RENAME TO transactions_legacy;
+
+    UPDATE transactions_legacy
+    SET transaction_date = COALESCE((SELECT MIN(transaction_date) FROM transactions_legacy), now())
+    WHERE transaction_date IS NULL;
+
+    SELECT date_trunc('month', COALESCE(MIN(transaction_date), now()))::date, MAX(id)
+    INTO first_month, max_id
+    FROM transactions_legacy;
+    last_month := (date_trunc('month', now()) + interval '3 months')::date;
+
+    CREATE TABLE transactions (
+        id               BIGINT       NOT NULL,
+        from_account_id  BIGINT,
+        to_account_id    BIGINT,
+        amount           BIGINT       NOT NULL,
+        transaction_date TIMESTAMP    NOT NULL,
+        status           VARCHAR(255),
+        description      VARCHAR(255)
+    ) PARTITION BY RANGE (transaction_date);
+
+    -- Archive: months moved out of the hot set, still a (sub-partitioned) partition of transactions
+    EXECUTE format('CREATE TABLE transactions_archive PARTITION OF transactions '
+                   'FOR VALUES FROM (MINVALUE) TO (%L) PARTITION BY RANGE (transaction_date)', first_month);
+
+    m := first_month;
+    WHILE m <= last_month LOOP
+        EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                       'transactions_p' || to_char(m, 'YYYY_MM'), m, (m + interval '1 month')::date);
+        m := (m + interval '1 month')::date;
+    END LOOP;
+
+    INSERT INTO transactions (id, from_account_id, to_account_id, amount, transaction_date, status, description)
+    SELECT id, from_account_id, to_account_id, amount, transaction_date, status, description
+    FROM transactions_legacy;
+
+    -- Also drops the legacy id sequence (serial or identity) and the legacy indexes
+    DROP TABLE transactions_legacy;
+
+    CREATE SEQUENCE transactions_id_seq OWNED BY transactions.id;
+    PERFORM setval('transactions_id_seq', COALESCE(max_id, 0) + 1, false);
+    ALTER TABLE transactions ALTER COLUMN id SET DEFAULT nextval('transactions_id_seq');
+
+    -- Indexes on the parent are created on every partition (CONCURRENTLY is not supported here)
+    ALTER TABLE transactions ADD PRIMARY KEY (id, transaction_date);
+    CREATE INDEX idx_transactions_from_account_date ON transactions (from_account_id, transaction_date, id);
+    CREATE INDEX idx_transactions_to_account_date ON transactions (to_account_id, transaction_date, id);
+    IF to_regproc('immutable_unaccent') IS NOT NULL THEN
+        CREATE INDEX idx_transactions_description_trgm
+            ON transactions USING gin (lower(immutable_unaccent(description)) gin_trgm_ops);
+    END IF;
+END $$;
+
+ANALYZE transactions;
+
+-- Example usage: list the partitions and their bounds
+-- SELECT c.relname, pg_get_expr(c.relpartbound, c.oid)
+-- FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+-- WHERE i.inhparent IN ('transactions'::regclass, 'transactions_archive'::regclass)
+-- ORDER BY c.relname;
+--
+-- Example usage: a date-bounded query only scans the matching month
+-- EXPLAIN SELECT * FROM transactions WHERE transaction_date BETWEEN '2026-10-01' AND '2026-10-15';
@@ -0,0 +1,24 @@
+-- Migration script to add incrementally maintained transaction counters by status
+-- Purpose: GET /api/transactions/count/status/{status} no longer runs COUNT(*) over transactions.
+--          Each instance accumulates status changes in memory and adds them to this table
+--          (TransactionStatusCounters.flush), a periodic reconcile overwrites it with the real counts.
+-- Date: October 2026
+
+CREATE TABLE IF NOT EXISTS transaction_status_counters (
+    status     VARCHAR(32) PRIMARY KEY,
+    count      BIGINT      NOT NULL,
+    updated_at TIMESTAMP   NOT NULL
+);
+
+-- Initial values (the application also reconciles on startup when the table is empty)
+INSERT INTO transaction_status_counters (status, count, updated_at)
+SELECT status, count(*), now()
+FROM transactions
+WHERE status IS NOT NULL
+GROUP BY status
+ON CONFLICT (status) DO NOTHING;
+
+-- Example usage: compare with the real counts
+-- SELECT c.status, c.count, t.actual
+-- FROM transaction_status_counters c
+-- LEFT JOIN (SELECT status, count(*) AS actual FROM transactions GROUP BY status) t ON t.status = c.status;
@@ -0,0 +1,22 @@
+-- Migration script to index transactions by amount
+-- Purpose: threshold, range and top-N-by-amount queries (TransactionAmountService) walk this index backwards
+--          and stop after LIMIT rows instead of scanning and sorting every matching row.
+--          The trailing id column keeps the ORDER BY amount DESC, id DESC tie-break inside the index.
+-- Date: October 2026
+
+-- Created on the partitioned parent, so every monthly partition (and transactions_archive) gets its own index.
+-- CONCURRENTLY is not supported on a partitioned table; on a busy table create the index with
+-- CREATE INDEX ... ON ONLY transactions, build each partition's index CONCURRENTLY and ATTACH it instead.
+CREATE INDEX IF NOT EXISTS idx_transactions_amount ON transactions (amount, id);
+
+ANALYZE transactions;
+
+-- Example usage: 100 largest transactions above a threshold (Index Scan Backward + Limit, no Sort node)
+-- EXPLAIN
+-- SELECT * FROM transactions WHERE amount > 1000000 ORDER BY amount DESC, id DESC LIMIT 101;
+--
+-- Example usage: top 10 of one month (partition pruning + Merge Append of per-partition backward index scans)
+-- EXPLAIN
+-- SELECT * FROM transactions
+-- WHERE transaction_date BETWEEN '2026-10-01' AND '2026-10-31 23:59:59'
+-- ORDER BY amount DESC, id DESC LIMIT 10;
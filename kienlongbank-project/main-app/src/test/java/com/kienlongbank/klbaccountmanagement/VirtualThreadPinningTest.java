@@ -0,0 +1,46 @@
+package com.kienlongbank.klbaccountmanagement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Chặn việc dùng khóa monitor (synchronized) trong main-app
+ * Trên Java 21, virtual thread chặn I/O bên trong khối synchronized sẽ ghim carrier thread,
+ * hãy dùng java.util.concurrent.locks.ReentrantLock hoặc cấu trúc lock-free thay thế
+ */
+class VirtualThreadPinningTest {
+
+    private static final Pattern MONITOR_LOCK = Pattern.compile(
+        "\\bsynchronized\\s*\\(|\\bsynchronized\\s+(public|protected|private|static|final|void|[A-Z]\\w*\\s)"
+        + "|Collections\\.synchronized|\\.wait\\(\\)|\\.notify(All)?\\(\\)");
+
+    @Test
+    void testMainSourcesDoNotUseMonitorLocks() throws IOException {
+        List<String> violations = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(Paths.get("src/main/java"))) {
+            for (Path file : files.filter(f -> f.toString().endsWith(".java")).toList()) {
+                List<String> lines = Files.readAllLines(file);
+                for (int i = 0; i < lines.size(); i++) {
+                    String line = lines.get(i).trim();
+                    if (line.startsWith("//") || line.startsWith("*") || line.startsWith("/*")) {
+                        continue;
+                    }
+                    if (MONITOR_LOCK.matcher(line).find()) {
+                        violations.add(file + ":" + (i + 1) + ": " + line);
+                    }
+                }
+            }
+        }
+        assertTrue(violations.isEmpty(), "Khóa monitor sẽ ghim virtual thread:\n" + String.join("\n", violations));
+    }
+}
@@ -0,0 +1,118 @@
+package com.kienlongbank.klbaccountmanagement.datasource;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Unit Test cho ReadReplicaRoutingDataSource: chọn primary/replica theo transaction, độ trễ và read-your-writes
+ */
+class ReadReplicaRoutingDataSourceTest {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource replicaA = mock(DataSource.class);
+    private final DataSource replicaB = mock(DataSource.class);
+
+    // Độ trễ giả của từng replica, thay cho câu truy vấn lag trên PostgreSQL
+    private final Map<DataSource, Long> lags = new HashMap<>();
+
+    private ReadReplicaRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() {
+        lags.put(replicaA, 0L);
+        lags.put(replicaB, 0L);
+        routing = new ReadReplicaRoutingDataSource(primary, List.of(
+                new ReadReplicaRoutingDataSource.Replica("replica-0", replicaA),
+                new ReadReplicaRoutingDataSource.Replica("replica-1", replicaB)),
+            1000L, "SELECT 0") {
+            @Override
+            long measureLagMs(DataSource replica) {
+                Long lag = lags.get(replica);
+                if (lag == null) {
+                    throw new IllegalStateException("replica down");
+                }
+                return lag;
+            }
+        };
+        routing.checkReplicas();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        ReadYourWrites.clear();
+    }
+
+    private static void beginTransaction(boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    @Test
+    void testOutsideTransaction_UsesPrimary() throws SQLException {
+        routing.getConnection();
+
+        verify(primary).getConnection();
+        assertFalse(ReadYourWrites.isActive());
+    }
+
+    @Test
+    void testReadOnlyTransaction_RoundRobinsReplicas() {
+        beginTransaction(true);
+
+        assertSame(replicaA, routing.route());
+        assertSame(replicaB, routing.route());
+        assertSame(replicaA, routing.route());
+    }
+
+    @Test
+    void testLaggingOrDownReplica_IsSkipped() {
+        lags.put(replicaA, 5000L);
+        lags.remove(replicaB);
+        routing.checkReplicas();
+        beginTransaction(true);
+
+        assertSame(primary, routing.route());
+
+        lags.put(replicaB, 10L);
+        routing.checkReplicas();
+        assertSame(replicaB, routing.route());
+        assertSame(replicaB, routing.route());
+    }
+
+    @Test
+    void testReadAfterWrite_StaysOnPrimary() {
+        beginTransaction(false);
+        assertSame(primary, routing.route());
+
+        beginTransaction(true);
+        assertSame(primary, routing.route());
+
+        // Request kết thúc, luồng được dùng lại cho request khác
+        ReadYourWrites.clear();
+        assertSame(replicaA, routing.route());
+    }
+
+    @Test
+    void testOnPrimary_ForcesPrimaryForReads() {
+        beginTransaction(true);
+
+        DataSource chosen = ReadYourWrites.onPrimary(() -> routing.route());
+
+        assertSame(primary, chosen);
+        assertFalse(ReadYourWrites.isActive());
+    }
+}
@@ -0,0 +1,189 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import com.kienlongbank.klbaccountmanagement.config.LedgerConfig;
+import com.kienlongbank.klbaccountmanagement.model.Account;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit Test cho LedgerEngine
+ * Tài khoản 1 và 3 thuộc shard 1, tài khoản 2 thuộc shard 0 (2 shard)
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class LedgerEngineTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private LedgerJournal ledgerJournal;
+
+    @Mock
+    private LedgerNodeLock ledgerNodeLock;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LedgerEngine ledgerEngine;
+
+    @BeforeEach
+    void setUp() {
+        LedgerConfig config = new LedgerConfig();
+        config.setMode(LedgerConfig.Mode.SHARDED);
+        config.setShards(2);
+        config.setRingBufferSize(16);
+        config.setBatchSize(8);
+
+        when(accountRepository.findById(1L)).thenReturn(Optional.of(account(1L, 1000L)));
+        when(accountRepository.findById(2L)).thenReturn(Optional.of(account(2L, 500L)));
+        when(accountRepository.findById(3L)).thenReturn(Optional.of(account(3L, 0L)));
+        when(accountRepository.findById(99L)).thenReturn(Optional.empty());
+
+        meterRegistry = new SimpleMeterRegistry();
+        ledgerEngine = new LedgerEngine(config, accountRepository, ledgerJournal, ledgerNodeLock, meterRegistry);
+        ledgerEngine.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        ledgerEngine.stop();
+    }
+
+    @Test
+    void testTransfer_CrossShard() {
+        Transaction result = transfer(1L, 100L, 2L);
+
+        assertEquals("COMPLETED", result.getStatus());
+        assertEquals(1L, result.getFromAccountId());
+        assertEquals(2L, result.getToAccountId());
+        assertEquals(100L, result.getAmount());
+        // Một lần ghi sổ cho chân DEBIT, một lần cho chân CREDIT
+        verify(ledgerJournal, times(2)).persist(anyCollection(), anyList());
+    }
+
+    @Test
+    void testTransfer_SameShard() {
+        Transaction result = transfer(1L, 100L, 3L);
+
+        assertEquals("COMPLETED", result.getStatus());
+        // Cùng shard vẫn là hai chân: giữ tiền rồi ghi có sau khi Core Banking chấp thuận
+        verify(ledgerJournal, times(2)).persist(anyCollection(), anyList());
+    }
+
+    @Test
+    void testTransfer_InsufficientBalance() {
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> transfer(1L, 1500L, 2L));
+
+        assertEquals("Số dư không đủ để thực hiện giao dịch!", exception.getMessage());
+        verify(ledgerJournal, never()).persist(anyCollection(), anyList());
+    }
+
+    @Test
+    void testTransfer_CreditFailsIsRefunded() {
+        // Tài khoản 99 thuộc shard 1, còn tài khoản 2 thuộc shard 0 => chân CREDIT thất bại
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> transfer(2L, 500L, 99L));
+        assertEquals("Tài khoản đích không tồn tại!", exception.getMessage());
+
+        // Số dư đã được hoàn lại nên vẫn chuyển được toàn bộ 500
+        Transaction result = transfer(2L, 500L, 1L);
+        assertEquals("COMPLETED", result.getStatus());
+    }
+
+    @Test
+    void testHold_KeepsTransactionPendingUntilSettled() {
+        LedgerHold hold = ledgerEngine.hold(1L, 1000L, 2L);
+
+        assertEquals("PENDING", hold.transaction().getStatus());
+        assertEquals("ACC001", hold.fromAccountNumber());
+        // Số tiền đã giữ không được dùng cho chuyển khoản khác
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> ledgerEngine.hold(1L, 1L, 3L));
+        assertEquals("Số dư không đủ để thực hiện giao dịch!", exception.getMessage());
+
+        assertEquals("COMPLETED", ledgerEngine.settle(hold).getStatus());
+    }
+
+    @Test
+    void testRelease_RefundsHeldAmount() {
+        LedgerHold hold = ledgerEngine.hold(1L, 1000L, 2L);
+
+        ledgerEngine.release(hold);
+
+        assertEquals("FAILED", hold.transaction().getStatus());
+        assertEquals("COMPLETED", transfer(1L, 1000L, 3L).getStatus());
+    }
+
+    @Test
+    void testNodeLockLost_StopsAcceptingCommands() {
+        ArgumentCaptor<Runnable> onLost = ArgumentCaptor.forClass(Runnable.class);
+        verify(ledgerNodeLock).acquire(onLost.capture());
+
+        onLost.getValue().run();
+
+        assertThrows(IllegalStateException.class, () -> ledgerEngine.hold(1L, 100L, 2L));
+        verify(ledgerJournal, never()).persist(anyCollection(), anyList());
+    }
+
+    @Test
+    void testStart_AcquiresSingleNodeLock() throws InterruptedException {
+        verify(ledgerNodeLock).acquire(any(Runnable.class));
+
+        ledgerEngine.stop();
+        verify(ledgerNodeLock).release();
+    }
+
+    @Test
+    void testTransfer_RefundFailureIsCounted() {
+        // Chân CREDIT thất bại vì tài khoản đích không tồn tại, mọi lần ghi sổ REFUND cũng thất bại
+        doNothing().doThrow(new RuntimeException("connection reset"))
+            .when(ledgerJournal).persist(anyCollection(), anyList());
+
+        assertThrows(RuntimeException.class, () -> transfer(2L, 100L, 99L));
+
+        assertEquals(1.0, meterRegistry.counter("ledger.refund.failures").count());
+        verify(ledgerJournal, times(1 + LedgerEngine.REFUND_ATTEMPTS)).persist(anyCollection(), anyList());
+    }
+
+    @Test
+    void testTransfer_BalancesAreKeptInMemory() {
+        transfer(1L, 600L, 2L);
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> transfer(1L, 600L, 3L));
+        assertEquals("Số dư không đủ để thực hiện giao dịch!", exception.getMessage());
+        verify(accountRepository, times(1)).findById(1L);
+    }
+
+    private Transaction transfer(Long fromAccountId, long amount, Long toAccountId) {
+        return ledgerEngine.settle(ledgerEngine.hold(fromAccountId, amount, toAccountId));
+    }
+
+    private static Account account(Long id, long balance) {
+        return Account.builder()
+                .id(id)
+                .accountNumber("ACC00" + id)
+                .accountType("SAVINGS")
+                .balance(balance)
+                .customerId(1L)
+                .build();
+    }
+}
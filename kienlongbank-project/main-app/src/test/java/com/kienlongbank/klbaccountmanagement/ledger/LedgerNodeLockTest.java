@@ -0,0 +1,86 @@
+package com.kienlongbank.klbaccountmanagement.ledger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+
+/**
+ * Unit Test cho LedgerNodeLock: connection giữ advisory lock là connection riêng (giả lập bằng mock)
+ */
+class LedgerNodeLockTest {
+
+    private Connection connection;
+    private ResultSet resultSet;
+    private LedgerNodeLock ledgerNodeLock;
+    private final AtomicInteger lost = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(true);
+        when(connection.isValid(anyInt())).thenReturn(true);
+
+        ledgerNodeLock = new LedgerNodeLock(new DataSourceProperties()) {
+            @Override
+            Connection openConnection() {
+                return connection;
+            }
+        };
+    }
+
+    @Test
+    void testAcquire_FailsWhenAnotherNodeHoldsLock() throws SQLException {
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        assertThrows(IllegalStateException.class, () -> ledgerNodeLock.acquire(lost::incrementAndGet));
+        verify(connection).close();
+    }
+
+    @Test
+    void testCheck_KeepsLockWhileSessionHoldsIt() throws SQLException {
+        ledgerNodeLock.acquire(lost::incrementAndGet);
+
+        ledgerNodeLock.check();
+
+        assertEquals(0, lost.get());
+        verify(connection, never()).close();
+    }
+
+    @Test
+    void testCheck_DeadConnectionReportsLockLostOnce() throws SQLException {
+        ledgerNodeLock.acquire(lost::incrementAndGet);
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        ledgerNodeLock.check();
+        ledgerNodeLock.check();
+
+        assertEquals(1, lost.get());
+        verify(connection).close();
+    }
+
+    @Test
+    void testCheck_SessionNoLongerHoldingLockReportsLost() throws SQLException {
+        ledgerNodeLock.acquire(lost::incrementAndGet);
+        // pg_locks không còn advisory lock của session
+        when(resultSet.getBoolean(1)).thenReturn(false);
+
+        ledgerNodeLock.check();
+
+        assertEquals(1, lost.get());
+    }
+}
@@ -0,0 +1,163 @@
+package com.kienlongbank.klbaccountmanagement.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.MethodOrderer;
+import org.junit.jupiter.api.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestMethodOrder;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionPartitionConfig;
+import com.kienlongbank.klbaccountmanagement.service.TransactionPartitionManager;
+
+/**
+ * Kiểm thử migration V7 và TransactionPartitionManager trên PostgreSQL thật:
+ * bảng cũ được chuyển sang phân vùng theo tháng, truy vấn theo ngày chỉ quét partition của khoảng đó,
+ * partition cũ được lưu trữ tại chỗ (VACUUM FREEZE, đánh dấu) mà vẫn đọc được qua các truy vấn của TransactionRepository
+ *
+ * Chỉ chạy khi có biến môi trường KLB_TEST_POSTGRES_URL (xem AccountLockContentionTest),
+ * dữ liệu được tạo trong schema riêng partition_test và bị xóa sau khi chạy.
+ */
+@EnabledIfEnvironmentVariable(named = "KLB_TEST_POSTGRES_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class TransactionPartitioningTest {
+
+    private static final long ACCOUNT = 7;
+    // 15 tháng lịch sử tính đến tháng hiện tại
+    private static final YearMonth FIRST_MONTH = YearMonth.now().minusMonths(14);
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+    private TransactionPartitionConfig config;
+    private TransactionPartitionManager manager;
+    private long rows;
+
+    @BeforeAll
+    void migrate() throws IOException {
+        dataSource = new SingleConnectionDataSource(
+            System.getenv("KLB_TEST_POSTGRES_URL"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_USER", "kienlong"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_PASSWORD", ""),
+            true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS partition_test CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA partition_test");
+        jdbcTemplate.execute("SET search_path TO partition_test");
+        // Bảng trước V7, như Hibernate tạo ra
+        jdbcTemplate.execute("CREATE TABLE transactions (" +
+            "id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, from_account_id BIGINT, to_account_id BIGINT, " +
+            "amount BIGINT NOT NULL, transaction_date TIMESTAMP, status VARCHAR(255), description VARCHAR(255))");
+        jdbcTemplate.update("INSERT INTO transactions (from_account_id, to_account_id, amount, transaction_date, status, description) " +
+            "SELECT CASE WHEN g % 2 = 0 THEN ? ELSE 1 + g % 1000 END, CASE WHEN g % 2 = 0 THEN 1 + g % 1000 ELSE ? END, " +
+            "1000, ? + (g % (450 * 24)) * interval '1 hour', 'COMPLETED', 'seed' FROM generate_series(1, 200000) g",
+            ACCOUNT, ACCOUNT, FIRST_MONTH.atDay(1).atStartOfDay());
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_from_account_date ON transactions (from_account_id, transaction_date, id)");
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_to_account_date ON transactions (to_account_id, transaction_date, id)");
+        rows = jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class);
+
+        String migration = new ClassPathResource("db/migration/V7__partition_transactions.sql")
+            .getContentAsString(StandardCharsets.UTF_8);
+        jdbcTemplate.execute(migration);
+
+        config = new TransactionPartitionConfig();
+        manager = new TransactionPartitionManager(jdbcTemplate,
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)), config);
+    }
+
+    @AfterAll
+    void drop() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS partition_test CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    @Order(1)
+    void testMigrationKeepsRowsAndIdSequence() {
+        assertEquals(rows, jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class));
+        Long maxId = jdbcTemplate.queryForObject("SELECT max(id) FROM transactions", Long.class);
+        Long newId = jdbcTemplate.queryForObject("INSERT INTO transactions (amount, transaction_date, status) " +
+            "VALUES (1, now(), 'COMPLETED') RETURNING id", Long.class);
+        assertTrue(newId > maxId);
+        jdbcTemplate.update("DELETE FROM transactions WHERE id = ?", newId);
+    }
+
+    @Test
+    @Order(2)
+    void testDateRangeIsPruned() {
+        LocalDateTime from = YearMonth.now().minusMonths(2).atDay(3).atStartOfDay();
+        String plan = explain(TransactionRepository.ACCOUNT_DATE_RANGE_SQL,
+            Map.of("accountId", ACCOUNT, "startDate", from, "endDate", from.plusDays(5)));
+        assertTrue(plan.contains(partition(YearMonth.now().minusMonths(2))), plan);
+        assertFalse(plan.contains(partition(YearMonth.now().minusMonths(3))), "Partition ngoài khoảng bị quét:\n" + plan);
+        assertFalse(plan.contains("\"Seq Scan\""), plan);
+    }
+
+    @Test
+    @Order(3)
+    void testPremakeIsIdempotent() {
+        manager.ensurePartitions(YearMonth.now());
+        manager.ensurePartitions(YearMonth.now());
+        assertNotNull(jdbcTemplate.queryForObject("SELECT to_regclass(?)", String.class,
+            partition(YearMonth.now().plusMonths(config.getPremakeMonths()))));
+    }
+
+    @Test
+    @Order(4)
+    void testArchivedMonthsStayReadable() {
+        YearMonth boundary = YearMonth.now().minusMonths(6);
+        LocalDateTime from = FIRST_MONTH.atDay(1).atStartOfDay();
+        LocalDateTime to = YearMonth.now().atDay(1).atStartOfDay();
+        Map<String, Object> params = Map.of("accountId", ACCOUNT, "startDate", from, "endDate", to);
+        List<Long> before = namedJdbcTemplate.queryForList(
+            "SELECT id FROM (" + TransactionRepository.ACCOUNT_DATE_RANGE_SQL + ") r ORDER BY id", params, Long.class);
+
+        assertEquals(8, manager.archiveBefore(boundary));
+
+        // Partition đã lưu trữ vẫn gắn trực tiếp vào transactions
+        List<String> archived = jdbcTemplate.queryForList("SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass('transactions') " +
+            "AND obj_description(c.oid, 'pg_class') = 'archived' ORDER BY 1",
+            String.class);
+        assertEquals(partition(FIRST_MONTH), archived.get(0));
+        assertEquals(partition(boundary.minusMonths(1)), archived.get(archived.size() - 1));
+
+        List<Long> after = namedJdbcTemplate.queryForList(
+            "SELECT id FROM (" + TransactionRepository.ACCOUNT_DATE_RANGE_SQL + ") r ORDER BY id", params, Long.class);
+        assertEquals(before, after);
+        assertEquals(rows, jdbcTemplate.queryForObject("SELECT count(*) FROM transactions", Long.class));
+
+        // Lần chạy lại không còn gì để lưu trữ
+        assertEquals(0, manager.archiveBefore(boundary));
+    }
+
+    private String explain(String sql, Map<String, Object> params) {
+        return String.join("\n", namedJdbcTemplate.queryForList("EXPLAIN (FORMAT JSON) " + sql, params, String.class));
+    }
+
+    private static String partition(YearMonth month) {
+        return "transactions_p" + month.toString().replace('-', '_');
+    }
+}
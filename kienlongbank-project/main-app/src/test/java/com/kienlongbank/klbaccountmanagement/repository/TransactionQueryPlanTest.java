@@ -0,0 +1,119 @@
+package com.kienlongbank.klbaccountmanagement.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+/**
+ * Kiểm thử hồi quy kế hoạch truy vấn lịch sử giao dịch trên PostgreSQL thật với vài triệu dòng:
+ * mỗi nhánh UNION ALL phải là index scan trên (from|to_account_id, transaction_date, id), không Seq Scan,
+ * và kết quả phải trùng với cách viết OR cũ
+ *
+ * Chỉ chạy khi có biến môi trường KLB_TEST_POSTGRES_URL (xem AccountLockContentionTest),
+ * dữ liệu được tạo trong schema riêng plan_test và bị xóa sau khi chạy.
+ * KLB_TEST_PLAN_ROWS: số giao dịch sinh ngẫu nhiên, mặc định 2.000.000
+ */
+@EnabledIfEnvironmentVariable(named = "KLB_TEST_POSTGRES_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TransactionQueryPlanTest {
+
+    private static final long ACCOUNTS = 100_000;
+    // Tài khoản lâu năm với rất nhiều giao dịch
+    private static final long BUSY_ACCOUNT = 7;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        dataSource = new SingleConnectionDataSource(
+            System.getenv("KLB_TEST_POSTGRES_URL"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_USER", "kienlong"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_PASSWORD", ""),
+            true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        long rows = Long.parseLong(System.getenv().getOrDefault("KLB_TEST_PLAN_ROWS", "2000000"));
+
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS plan_test CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA plan_test");
+        jdbcTemplate.execute("SET search_path TO plan_test");
+        jdbcTemplate.execute("CREATE TABLE transactions (" +
+            "id BIGSERIAL PRIMARY KEY, from_account_id BIGINT, to_account_id BIGINT, amount BIGINT NOT NULL, " +
+            "transaction_date TIMESTAMP, status VARCHAR(255), description VARCHAR(255))");
+
+        jdbcTemplate.update("INSERT INTO transactions (from_account_id, to_account_id, amount, transaction_date, status, description) " +
+            "SELECT 1 + (random() * ?)::bigint, 1 + (random() * ?)::bigint, 1000, ? + g * interval '1 second', " +
+            "'COMPLETED', 'seed' FROM generate_series(1, ?) g", ACCOUNTS, ACCOUNTS, START, rows);
+        jdbcTemplate.update("INSERT INTO transactions (from_account_id, to_account_id, amount, transaction_date, status, description) " +
+            "SELECT CASE WHEN g % 2 = 0 THEN ? ELSE 1 + (random() * ?)::bigint END, " +
+            "CASE WHEN g % 2 = 0 THEN 1 + (random() * ?)::bigint ELSE ? END, 1000, ? + g * interval '1 second', " +
+            "'COMPLETED', 'seed' FROM generate_series(1, ?) g",
+            BUSY_ACCOUNT, ACCOUNTS, ACCOUNTS, BUSY_ACCOUNT, START, rows / 10);
+
+        // Cùng index với db/migration/V4__transaction_account_indexes.sql
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_from_account_date ON transactions (from_account_id, transaction_date, id)");
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_to_account_date ON transactions (to_account_id, transaction_date, id)");
+        jdbcTemplate.execute("ANALYZE transactions");
+    }
+
+    @AfterAll
+    void drop() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS plan_test CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void testFirstPageUsesBothIndexes() {
+        assertIndexRangeScans(TransactionRepository.ACCOUNT_PAGE_SQL,
+            Map.of("accountId", BUSY_ACCOUNT, "limit", 51));
+    }
+
+    @Test
+    void testNextPageUsesBothIndexes() {
+        assertIndexRangeScans(TransactionRepository.ACCOUNT_PAGE_AFTER_SQL,
+            Map.of("accountId", BUSY_ACCOUNT, "transactionDate", START.plusDays(3), "id", Long.MAX_VALUE, "limit", 51));
+    }
+
+    @Test
+    void testDateRangeUsesBothIndexes() {
+        assertIndexRangeScans(TransactionRepository.ACCOUNT_DATE_RANGE_SQL,
+            Map.of("accountId", BUSY_ACCOUNT, "startDate", START.plusDays(1), "endDate", START.plusDays(2)));
+    }
+
+    @Test
+    void testUnionAllMatchesOrQuery() {
+        for (long accountId : new long[] {BUSY_ACCOUNT, 42, 99_999}) {
+            List<Long> expected = namedJdbcTemplate.queryForList(
+                "SELECT id FROM transactions WHERE from_account_id = :accountId OR to_account_id = :accountId " +
+                "ORDER BY transaction_date DESC, id DESC LIMIT :limit",
+                Map.of("accountId", accountId, "limit", 200), Long.class);
+            List<Long> actual = namedJdbcTemplate.queryForList(
+                "SELECT id FROM (" + TransactionRepository.ACCOUNT_PAGE_SQL + ") page ORDER BY transaction_date DESC, id DESC",
+                Map.of("accountId", accountId, "limit", 200), Long.class);
+            assertEquals(expected, actual, "Tài khoản " + accountId);
+        }
+    }
+
+    private void assertIndexRangeScans(String sql, Map<String, Object> params) {
+        String plan = String.join("\n", namedJdbcTemplate.queryForList("EXPLAIN (FORMAT JSON) " + sql, params, String.class));
+        assertFalse(plan.contains("\"Seq Scan\""), "Không được quét toàn bảng:\n" + plan);
+        assertTrue(plan.contains("idx_transactions_from_account_date"), "Nhánh gửi phải dùng index:\n" + plan);
+        assertTrue(plan.contains("idx_transactions_to_account_date"), "Nhánh nhận phải dùng index:\n" + plan);
+    }
+}
@@ -0,0 +1,144 @@
+package com.kienlongbank.klbaccountmanagement.repository;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * So sánh tìm kiếm theo mô tả: LIKE '%keyword%' (cách cũ) với đường trigram + unaccent
+ * (db/migration/V5__transaction_description_search.sql) trên PostgreSQL thật với vài triệu dòng mô tả tiếng Việt
+ *
+ * - Đường trigram phải dùng idx_transactions_description_trgm, không Seq Scan
+ * - Từ khóa không dấu phải tìm được mô tả có dấu
+ * - Ghi log thời gian trung bình của hai cách; trigram phải nhanh hơn LIKE với từ khóa hiếm
+ *
+ * Chỉ chạy khi có biến môi trường KLB_TEST_POSTGRES_URL (xem AccountLockContentionTest), cần quyền tạo
+ * extension pg_trgm và unaccent. Dữ liệu được tạo trong schema riêng search_test và bị xóa sau khi chạy.
+ * KLB_TEST_SEARCH_ROWS: số giao dịch sinh ngẫu nhiên, mặc định 2.000.000
+ */
+@EnabledIfEnvironmentVariable(named = "KLB_TEST_POSTGRES_URL", matches = ".+")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Slf4j
+class TransactionSearchBenchmarkTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+    private static final int RUNS = 20;
+    private static final String LIKE_SQL =
+        "SELECT * FROM transactions t WHERE t.description LIKE '%' || :keyword || '%' " +
+        "ORDER BY t.transaction_date DESC, t.id DESC LIMIT :limit OFFSET :offset";
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @BeforeAll
+    void seed() {
+        dataSource = new SingleConnectionDataSource(
+            System.getenv("KLB_TEST_POSTGRES_URL"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_USER", "kienlong"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_PASSWORD", ""),
+            true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        long rows = Long.parseLong(System.getenv().getOrDefault("KLB_TEST_SEARCH_ROWS", "2000000"));
+
+        // Extension nằm ở schema public, immutable_unaccent gọi public.unaccent như trong V5
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm SCHEMA public");
+        jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS unaccent SCHEMA public");
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS search_test CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA search_test");
+        jdbcTemplate.execute("SET search_path TO search_test, public");
+        jdbcTemplate.execute("CREATE FUNCTION immutable_unaccent(text) RETURNS text " +
+            "LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT " +
+            "AS $$ SELECT public.unaccent('public.unaccent'::regdictionary, $1) $$");
+        jdbcTemplate.execute("CREATE TABLE transactions (" +
+            "id BIGSERIAL PRIMARY KEY, from_account_id BIGINT, to_account_id BIGINT, amount BIGINT NOT NULL, " +
+            "transaction_date TIMESTAMP, status VARCHAR(255), description VARCHAR(255))");
+
+        // Mô tả phổ biến lặp lại, cộng thêm một mã hóa đơn gần như duy nhất cho mỗi dòng
+        jdbcTemplate.update("INSERT INTO transactions (from_account_id, to_account_id, amount, transaction_date, status, description) " +
+            "SELECT 1 + (random() * 100000)::bigint, 1 + (random() * 100000)::bigint, 1000, ? + g * interval '1 second', " +
+            "'COMPLETED', (ARRAY['Chuyển khoản nội bộ', 'Thanh toán hóa đơn điện', 'Chuyển khoản lương tháng', " +
+            "'Nạp tiền điện thoại', 'Trả góp khoản vay', 'Hoàn tiền giao dịch'])[1 + g % 6] || ' HD' || g " +
+            "FROM generate_series(1, ?) g", START, rows);
+        // Một ít mô tả hiếm có dấu, chỉ tìm được bằng từ khóa không dấu qua unaccent
+        jdbcTemplate.update("INSERT INTO transactions (from_account_id, to_account_id, amount, transaction_date, status, description) " +
+            "SELECT 1, 2, 1000, ? + g * interval '1 minute', 'COMPLETED', 'Quyết toán phí bảo hiểm Phường Đông Hòa' " +
+            "FROM generate_series(1, 25) g", START);
+
+        jdbcTemplate.execute("CREATE INDEX idx_transactions_description_trgm ON transactions " +
+            "USING gin (lower(immutable_unaccent(description)) gin_trgm_ops)");
+        jdbcTemplate.execute("ANALYZE transactions");
+    }
+
+    @AfterAll
+    void drop() {
+        if (jdbcTemplate != null) {
+            jdbcTemplate.execute("DROP SCHEMA IF EXISTS search_test CASCADE");
+            dataSource.destroy();
+        }
+    }
+
+    @Test
+    void testTrigramSearchUsesIndex() {
+        String plan = String.join("\n", namedJdbcTemplate.queryForList(
+            "EXPLAIN (FORMAT JSON) " + TransactionRepository.DESCRIPTION_SEARCH_SQL,
+            trigramParams("phuong dong hoa"), String.class));
+        assertFalse(plan.contains("\"Seq Scan\""), "Không được quét toàn bảng:\n" + plan);
+        assertTrue(plan.contains("idx_transactions_description_trgm"), "Phải dùng index trigram:\n" + plan);
+    }
+
+    @Test
+    void testTrigramSearchIgnoresDiacriticsAndCase() {
+        List<String> descriptions = namedJdbcTemplate.queryForList(
+            "SELECT description FROM (" + TransactionRepository.DESCRIPTION_SEARCH_SQL + ") r",
+            trigramParams("PHUONG dong hoa"), String.class);
+        assertEquals(21, descriptions.size());
+        descriptions.forEach(d -> assertEquals("Quyết toán phí bảo hiểm Phường Đông Hòa", d));
+
+        // LIKE cũ phân biệt dấu: từ khóa không dấu không tìm được gì
+        assertTrue(namedJdbcTemplate.queryForList("SELECT id FROM (" + LIKE_SQL + ") r",
+            Map.of("keyword", "phuong dong hoa", "limit", 21, "offset", 0), Long.class).isEmpty());
+    }
+
+    @Test
+    void testTrigramFasterThanLikeForSelectiveKeyword() {
+        Map<String, Object> likeParams = Map.of("keyword", "Phường Đông Hòa", "limit", 21, "offset", 0);
+        Map<String, Object> trigramParams = trigramParams("phuong dong hoa");
+
+        // Làm nóng cache trước khi đo
+        namedJdbcTemplate.queryForList(LIKE_SQL, likeParams);
+        namedJdbcTemplate.queryForList(TransactionRepository.DESCRIPTION_SEARCH_SQL, trigramParams);
+
+        double likeMs = averageMillis(LIKE_SQL, likeParams);
+        double trigramMs = averageMillis(TransactionRepository.DESCRIPTION_SEARCH_SQL, trigramParams);
+        log.info("Description search over {} runs: LIKE {} ms, trigram {} ms", RUNS,
+            String.format("%.2f", likeMs), String.format("%.2f", trigramMs));
+        assertTrue(trigramMs < likeMs, "Trigram " + trigramMs + " ms, LIKE " + likeMs + " ms");
+    }
+
+    private double averageMillis(String sql, Map<String, Object> params) {
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            namedJdbcTemplate.queryForList(sql, params);
+        }
+        return (System.nanoTime() - start) / 1_000_000.0 / RUNS;
+    }
+
+    private static Map<String, Object> trigramParams(String keyword) {
+        return Map.of("keyword", keyword, "pattern", keyword, "limit", 21, "offset", 0L);
+    }
+}
@@ -0,0 +1,199 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kienlongbank.klbaccountmanagement.config.AccountCacheConfig;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit Test cho AccountCache: nạp một lần cho mỗi key, vô hiệu hóa sau commit và qua broadcast
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountCacheTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private AccountCache accountCache;
+
+    @BeforeEach
+    void setUp() {
+        accountCache = new AccountCache(new AccountCacheConfig(), rabbitTemplate, objectMapper, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountCache.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testGetAccount_LoadsOnceAndRecordsHitsAndMisses() {
+        AtomicInteger loads = new AtomicInteger();
+
+        accountCache.getAccount(1L, id -> { loads.incrementAndGet(); return view(id, 1L, 100L); });
+        AccountView cached = accountCache.getAccount(1L, id -> { loads.incrementAndGet(); return view(id, 1L, 999L); });
+
+        assertEquals(1, loads.get());
+        assertEquals(100L, cached.balance());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "hit")
+            .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "accounts").tag("result", "miss")
+            .functionCounter().count());
+    }
+
+    @Test
+    void testGetAccount_ConcurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<AccountView>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> accountCache.getAccount(1L, id -> {
+                    loads.incrementAndGet();
+                    try {
+                        release.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return view(id, 1L, 100L);
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<AccountView> future : futures) {
+                assertEquals(100L, future.get(5, TimeUnit.SECONDS).balance());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void testEvictAfterCommit_EvictsOnlyAfterCommitAndBroadcasts() {
+        accountCache.getAccount(1L, id -> view(id, 1L, 100L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.evictAfterCommit(List.of(1L), List.of());
+        // Chưa commit: vẫn đọc bản trong cache
+        assertEquals(100L, accountCache.getAccount(1L, id -> view(id, 1L, 50L)).balance());
+        verifyNoInteractions(rabbitTemplate);
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        assertEquals(50L, accountCache.getAccount(1L, id -> view(id, 1L, 50L)).balance());
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("account.cache.invalidation"), eq(""), anyString());
+    }
+
+    @Test
+    void testEvictAfterCommit_BroadcastDoesNotBlockCommittingThread() throws Exception {
+        CountDownLatch brokerDown = new CountDownLatch(1);
+        doAnswer(invocation -> brokerDown.await(5, TimeUnit.SECONDS))
+            .when(rabbitTemplate).convertAndSend(anyString(), anyString(), anyString());
+        accountCache.getAccount(1L, id -> view(id, 1L, 100L));
+
+        TransactionSynchronizationManager.initSynchronization();
+        accountCache.evictAfterCommit(List.of(1L), List.of());
+        long started = System.nanoTime();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+        // RabbitMQ treo nhưng afterCommit trả về ngay và cache cục bộ đã được vô hiệu hóa
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 1000);
+        assertEquals(50L, accountCache.getAccount(1L, id -> view(id, 1L, 50L)).balance());
+        verify(rabbitTemplate, timeout(1000)).convertAndSend(eq("account.cache.invalidation"), eq(""), anyString());
+        brokerDown.countDown();
+    }
+
+    @Test
+    void testOnBroadcast_EvictsAndIgnoresMalformedMessages() throws Exception {
+        accountCache.getAccount(1L, id -> view(id, 1L, 100L));
+
+        accountCache.onBroadcast(objectMapper.writeValueAsString(
+            new AccountCache.Invalidation("other-node", List.of(1L), List.of())));
+
+        assertEquals(50L, accountCache.getAccount(1L, id -> view(id, 1L, 50L)).balance());
+        // Tin không đọc được bị bỏ qua
+        accountCache.onBroadcast("not json");
+        assertEquals(50L, accountCache.getAccount(1L, id -> view(id, 1L, 10L)).balance());
+    }
+
+    @Test
+    void testCustomerAccounts_TransferReloadsOnlyTheChangedAccount() {
+        AtomicInteger listLoads = new AtomicInteger();
+        AtomicLong balance = new AtomicLong(100L);
+
+        List<AccountView> first = accountCache.getCustomerAccounts(7L,
+            id -> { listLoads.incrementAndGet(); return List.of(view(1L, id, 100L), view(2L, id, 200L)); },
+            id -> view(id, 7L, balance.get()));
+        assertEquals(List.of(100L, 200L), first.stream().map(AccountView::balance).toList());
+
+        balance.set(40L);
+        accountCache.evictAfterCommit(List.of(1L), List.of());
+        List<AccountView> second = accountCache.getCustomerAccounts(7L,
+            id -> { listLoads.incrementAndGet(); return List.of(); },
+            id -> view(id, 7L, balance.get()));
+
+        assertEquals(1, listLoads.get());
+        assertEquals(List.of(40L, 200L), second.stream().map(AccountView::balance).toList());
+
+        // Mở tài khoản mới: danh sách của khách hàng được nạp lại
+        accountCache.evictAfterCommit(List.of(), List.of(7L));
+        accountCache.getCustomerAccounts(7L,
+            id -> { listLoads.incrementAndGet(); return List.of(view(1L, id, 40L), view(2L, id, 200L), view(3L, id, 0L)); },
+            id -> view(id, 7L, 0L));
+        assertEquals(2, listLoads.get());
+    }
+
+    @Test
+    void testDisabled_AlwaysLoads() {
+        AccountCacheConfig config = new AccountCacheConfig();
+        config.setEnabled(false);
+        AccountCache disabled = new AccountCache(config, rabbitTemplate, objectMapper, new SimpleMeterRegistry());
+        AtomicInteger loads = new AtomicInteger();
+
+        disabled.getAccount(1L, id -> { loads.incrementAndGet(); return view(id, 1L, 100L); });
+        disabled.getAccount(1L, id -> { loads.incrementAndGet(); return view(id, 1L, 100L); });
+        disabled.evictAfterCommit(List.of(1L), List.of());
+
+        assertEquals(2, loads.get());
+        verifyNoInteractions(rabbitTemplate);
+    }
+
+    private static AccountView view(Long id, Long customerId, long balance) {
+        return new AccountView(id, "KLB" + id, "SAVINGS", balance, customerId, LocalDateTime.of(2026, 10, 1, 0, 0), false);
+    }
+}
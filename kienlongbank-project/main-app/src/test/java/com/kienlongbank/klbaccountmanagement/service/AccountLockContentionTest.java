@@ -0,0 +1,131 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Kiểm thử tranh chấp khóa trên PostgreSQL thật: khóa theo thứ tự ID tăng dần + lock_timeout + retry
+ * không mất cập nhật, không có giao dịch thất bại vì deadlock, và throughput không sụp đổ khi
+ * số tài khoản giảm dần (tệ nhất là chạy tuần tự, không có bão retry)
+ *
+ * Chỉ chạy khi có biến môi trường KLB_TEST_POSTGRES_URL, ví dụ:
+ * KLB_TEST_POSTGRES_URL=jdbc:postgresql://localhost:5432/account_management
+ * KLB_TEST_POSTGRES_USER=kienlong KLB_TEST_POSTGRES_PASSWORD=notStrongPassword mvn test -Dtest=AccountLockContentionTest
+ */
+@EnabledIfEnvironmentVariable(named = "KLB_TEST_POSTGRES_URL", matches = ".+")
+class AccountLockContentionTest {
+
+    private static final String TABLE = "lock_contention_accounts";
+    private static final long INITIAL_BALANCE = 1_000_000L;
+    private static final int THREADS = 32;
+    private static final int TRANSFERS_PER_THREAD = 200;
+
+    private JdbcTemplate jdbcTemplate;
+    private LockRetryExecutor lockRetryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+            System.getenv("KLB_TEST_POSTGRES_URL"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_USER", "kienlong"),
+            System.getenv().getOrDefault("KLB_TEST_POSTGRES_PASSWORD", ""));
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        lockRetryExecutor = new LockRetryExecutor(
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource)), jdbcTemplate, 2000, 10, 5);
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (id BIGINT PRIMARY KEY, balance BIGINT NOT NULL)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + TABLE);
+    }
+
+    @Test
+    void testThroughputAsAccountPoolShrinks() throws Exception {
+        Map<Integer, Double> throughput = new LinkedHashMap<>();
+        for (int poolSize : new int[] {1000, 100, 10, 2}) {
+            throughput.put(poolSize, run(poolSize));
+        }
+        throughput.forEach((poolSize, tps) ->
+            System.out.printf("accounts=%d transfers/s=%.0f%n", poolSize, tps));
+
+        // Khóa có thứ tự: khi mọi giao dịch đụng cùng hai dòng, hệ thống chạy tuần tự chứ không rơi vào deadlock/retry
+        double widest = throughput.get(1000);
+        double narrowest = throughput.get(2);
+        assertTrue(narrowest >= widest / THREADS,
+            "Throughput sụp đổ khi tranh chấp: " + narrowest + " so với " + widest);
+    }
+
+    private double run(int poolSize) throws Exception {
+        jdbcTemplate.update("DELETE FROM " + TABLE);
+        jdbcTemplate.update("INSERT INTO " + TABLE + " (id, balance) SELECT g, ? FROM generate_series(1, ?) g",
+            INITIAL_BALANCE, poolSize);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        long started = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        transfer(poolSize);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                // Mọi chuyển khoản phải thành công: lỗi khóa được retry, không lọt ra ngoài
+                future.get(5, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - started) / 1_000_000_000.0;
+
+        // Không mất cập nhật: tổng số dư được bảo toàn
+        Long total = jdbcTemplate.queryForObject("SELECT SUM(balance) FROM " + TABLE, Long.class);
+        assertEquals(INITIAL_BALANCE * poolSize, total);
+        return THREADS * TRANSFERS_PER_THREAD / seconds;
+    }
+
+    // Cùng mẫu với AccountRepository.findAllByIdInForUpdate: SELECT ... ORDER BY id FOR UPDATE rồi đọc-sửa-ghi
+    private void transfer(int poolSize) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long from = 1 + random.nextInt(poolSize);
+        long to = 1 + random.nextInt(poolSize - 1);
+        if (to >= from) {
+            to++;
+        }
+        long fromId = from;
+        long toId = to;
+        long amount = 1 + random.nextInt(100);
+
+        lockRetryExecutor.executeWithoutResult(status -> {
+            Map<Long, Long> balances = new LinkedHashMap<>();
+            jdbcTemplate.query("SELECT id, balance FROM " + TABLE + " WHERE id IN (?, ?) ORDER BY id FOR UPDATE",
+                rs -> {
+                    balances.put(rs.getLong("id"), rs.getLong("balance"));
+                }, fromId, toId);
+            jdbcTemplate.update("UPDATE " + TABLE + " SET balance = ? WHERE id = ?", balances.get(fromId) - amount, fromId);
+            jdbcTemplate.update("UPDATE " + TABLE + " SET balance = ? WHERE id = ?", balances.get(toId) + amount, toId);
+        });
+    }
+}
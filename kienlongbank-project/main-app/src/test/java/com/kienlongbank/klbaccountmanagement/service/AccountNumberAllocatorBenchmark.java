@@ -0,0 +1,75 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH: so sánh AccountNumberAllocator với cách tạo số tài khoản cũ (UUID ngẫu nhiên, KLB + 10 ký tự hex)
+ *
+ * Sequence được giả lập trong bộ nhớ, nên số đo chỉ gồm phần cấp số trong khối và định dạng; một lần nextval thật
+ * được chia đều cho block-size số. Chạy (sau mvn test-compile):
+ *   java -cp target/test-classes:target/classes:$(mvn -q dependency:build-classpath -Dmdep.outputFile=/dev/stdout) \
+ *     com.kienlongbank.klbaccountmanagement.service.AccountNumberAllocatorBenchmark
+ * Đo thêm gc.alloc.rate.norm (byte mỗi số tài khoản): thêm tham số -prof gc khi chạy qua org.openjdk.jmh.Main
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountNumberAllocatorBenchmark {
+
+    private AccountNumberAllocator allocator;
+
+    @Setup
+    public void setUp() {
+        allocator = new AccountNumberAllocatorTest.InMemoryAllocator(1000, Set.of());
+    }
+
+    // Cách cũ: AccountService.generateAccountNumber trước khi dùng allocator
+    @Benchmark
+    public String uuidGenerator() {
+        String uuid = UUID.randomUUID().toString().replace("-", "").toUpperCase();
+        return "KLB" + uuid.substring(0, 10);
+    }
+
+    @Benchmark
+    public String blockAllocator() {
+        return allocator.next();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String uuidGeneratorContended() {
+        return uuidGenerator();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String blockAllocatorContended() {
+        return allocator.next();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+            .include(AccountNumberAllocatorBenchmark.class.getSimpleName())
+            .build()).run();
+    }
+}
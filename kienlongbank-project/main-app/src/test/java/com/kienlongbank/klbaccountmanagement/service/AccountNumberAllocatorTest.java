@@ -0,0 +1,129 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.kienlongbank.klbaccountmanagement.config.AccountNumberConfig;
+
+/**
+ * Unit Test cho AccountNumberAllocator: định dạng và chữ số kiểm tra, cấp số theo khối, không trùng khi chạy song song
+ */
+class AccountNumberAllocatorTest {
+
+    /**
+     * Allocator với sequence giả trong bộ nhớ (nextval tăng blockSize mỗi lần)
+     */
+    static class InMemoryAllocator extends AccountNumberAllocator {
+        private final AtomicLong sequence = new AtomicLong(1);
+        private final long blockSize;
+        private final Set<String> legacy;
+        final AtomicInteger leases = new AtomicInteger();
+
+        InMemoryAllocator(long blockSize, Set<String> legacy) {
+            super(mock(JdbcTemplate.class), new AccountNumberConfig());
+            this.blockSize = blockSize;
+            this.legacy = legacy;
+        }
+
+        @Override
+        Block leaseBlock() {
+            leases.incrementAndGet();
+            long start = sequence.getAndAdd(blockSize);
+            return new Block(start, start + blockSize);
+        }
+
+        @Override
+        Set<String> loadLegacyNumbers() {
+            return legacy;
+        }
+    }
+
+    @Test
+    void testFormat_LuhnCheckDigit() {
+        assertEquals("KLB1234567897", AccountNumberAllocator.format(123_456_789L));
+        assertEquals("KLB0000000018", AccountNumberAllocator.format(1L));
+        assertTrue(AccountNumberAllocator.isValid("KLB7992739875"));
+        assertFalse(AccountNumberAllocator.isValid("KLB7992739876")); // Sai chữ số kiểm tra
+        assertFalse(AccountNumberAllocator.isValid("KLB3F9A0C21B7")); // Số cũ dạng hex
+        assertFalse(AccountNumberAllocator.isValid("KLB123"));
+    }
+
+    @Test
+    void testNext_ConsecutiveWithinBlockThenLeasesNextBlock() {
+        InMemoryAllocator allocator = new InMemoryAllocator(3, Set.of());
+
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            numbers.add(allocator.next());
+        }
+
+        assertEquals(List.of(AccountNumberAllocator.format(1), AccountNumberAllocator.format(2),
+            AccountNumberAllocator.format(3), AccountNumberAllocator.format(4)), numbers);
+        assertEquals(2, allocator.leases.get());
+    }
+
+    @Test
+    void testNext_SkipsLegacyNumbersInNewFormat() {
+        InMemoryAllocator allocator = new InMemoryAllocator(10, Set.of(AccountNumberAllocator.format(1)));
+
+        assertEquals(AccountNumberAllocator.format(2), allocator.next());
+    }
+
+    @Test
+    void testNext_ConcurrentCallersNeverGetDuplicates() throws Exception {
+        InMemoryAllocator allocator = new InMemoryAllocator(100, Set.of());
+        int threads = 8;
+        int perThread = 5_000;
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        assertTrue(seen.add(allocator.next()));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(threads * perThread, seen.size());
+        // Không thuê thừa khối: mỗi khối được dùng hết trước khi thuê khối mới
+        assertEquals(threads * perThread / 100, allocator.leases.get());
+    }
+
+    @Test
+    void testLeaseBlock_UsesSequenceIncrementAsBlockSize() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT increment_by"), eq(Long.class), eq("account_number_seq")))
+            .thenReturn(500L);
+        when(jdbcTemplate.queryForObject("SELECT nextval('account_number_seq')", Long.class)).thenReturn(1001L);
+        AccountNumberAllocator allocator = new AccountNumberAllocator(jdbcTemplate, new AccountNumberConfig());
+
+        AccountNumberAllocator.Block block = allocator.leaseBlock();
+
+        assertEquals(1001L, block.start);
+        assertEquals(1501L, block.end);
+        verify(jdbcTemplate).execute(contains("CREATE SEQUENCE IF NOT EXISTS account_number_seq"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.kienlongbank.common.dto.CustomerDTO;
+import com.kienlongbank.klbaccountmanagement.dto.AccountCustomerView;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+
+/**
+ * Unit Test cho AccountWithCustomerInfoService: nạp tài khoản song song, mỗi khách hàng chỉ tra cứu một lần
+ */
+@ExtendWith(MockitoExtension.class)
+class AccountWithCustomerInfoServiceTest {
+
+    @Mock
+    private AccountService accountService;
+
+    @Mock
+    private CustomerServiceClient customerServiceClient;
+
+    private AccountWithCustomerInfoService accountWithCustomerInfoService;
+
+    @BeforeEach
+    void setUp() {
+        accountWithCustomerInfoService = new AccountWithCustomerInfoService(accountService, customerServiceClient, 4, 16, 3);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accountWithCustomerInfoService.shutdown();
+    }
+
+    @Test
+    void testGetAccountsWithCustomerInfo_DeduplicatesCustomersAndKeepsOrder() throws Exception {
+        when(accountService.getAccountViewById(3L)).thenReturn(view(3L, 20L));
+        when(accountService.getAccountViewById(1L)).thenReturn(view(1L, 10L));
+        when(accountService.getAccountViewById(2L)).thenReturn(view(2L, 10L));
+        when(customerServiceClient.getCustomerByIdAsync(10L))
+            .thenReturn(CompletableFuture.completedFuture(new CustomerDTO(10L, "Nguyễn Văn A", "a@example.com")));
+        // customer-service lỗi: tài khoản vẫn được trả về, customer là null
+        when(customerServiceClient.getCustomerByIdAsync(20L)).thenReturn(CompletableFuture.completedFuture(null));
+
+        List<AccountCustomerView> result = accountWithCustomerInfoService
+            .getAccountsWithCustomerInfoAsync(List.of(3L, 1L, 2L, 1L))
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of(3L, 1L, 2L), result.stream().map(view -> view.account().id()).toList());
+        assertNull(result.get(0).customer());
+        assertEquals("Nguyễn Văn A", result.get(1).customer().getFullName());
+        assertSame(result.get(1).customer(), result.get(2).customer());
+        verify(customerServiceClient, times(1)).getCustomerByIdAsync(10L);
+        verify(customerServiceClient, times(1)).getCustomerByIdAsync(20L);
+        verify(accountService, times(1)).getAccountViewById(1L);
+    }
+
+    @Test
+    void testGetAccountsWithCustomerInfo_SkipsUnknownAccounts() throws Exception {
+        when(accountService.getAccountViewById(1L)).thenReturn(view(1L, 10L));
+        when(accountService.getAccountViewById(99L)).thenReturn(null);
+        when(customerServiceClient.getCustomerByIdAsync(10L)).thenReturn(CompletableFuture.completedFuture(null));
+
+        List<AccountCustomerView> result = accountWithCustomerInfoService
+            .getAccountsWithCustomerInfoAsync(List.of(99L, 1L))
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).account().id());
+    }
+
+    @Test
+    void testGetAccountsWithCustomerInfo_RejectsTooManyAccounts() {
+        assertThrows(IllegalArgumentException.class,
+            () -> accountWithCustomerInfoService.getAccountsWithCustomerInfoAsync(List.of(1L, 2L, 3L, 4L)));
+        verifyNoInteractions(accountService, customerServiceClient);
+    }
+
+    @Test
+    void testGetAccountWithCustomerInfoAsync() throws Exception {
+        when(accountService.getAccountViewById(1L)).thenReturn(view(1L, 10L));
+        when(customerServiceClient.getCustomerByIdAsync(10L))
+            .thenReturn(CompletableFuture.completedFuture(new CustomerDTO(10L, "Nguyễn Văn A", "a@example.com")));
+
+        AccountCustomerView result = accountWithCustomerInfoService.getAccountWithCustomerInfoAsync(1L)
+            .get(5, TimeUnit.SECONDS);
+
+        assertEquals(10L, result.customer().getId());
+        assertNull(accountWithCustomerInfoService.getAccountWithCustomerInfoAsync(2L).get(5, TimeUnit.SECONDS));
+    }
+
+    private static AccountView view(Long id, Long customerId) {
+        return new AccountView(id, "KLB" + id, "SAVINGS", 1_000L, customerId, LocalDateTime.of(2026, 10, 1, 0, 0), false);
+    }
+}
@@ -0,0 +1,196 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+import com.kienlongbank.klbaccountmanagement.dto.BatchTransferLeg;
+import com.kienlongbank.klbaccountmanagement.dto.BatchTransferResult;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
+import com.kienlongbank.klbaccountmanagement.model.Account;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+/**
+ * Unit Test cho BatchTransferService: giữ tiền trước khi xin phép Core Banking, hoàn tiền chân bị từ chối
+ */
+@ExtendWith(MockitoExtension.class)
+class BatchTransferServiceTest {
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CoreBankingClient coreBankingClient;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private PostingJournal postingJournal;
+
+    @Mock
+    private TransactionStatusCounters transactionStatusCounters;
+
+    @Mock
+    private AccountCache accountCache;
+
+    private BatchTransferService batchTransferService;
+
+    // Các dòng accounts giả
+    private Map<Long, Account> rows;
+
+    @BeforeEach
+    void setUp() {
+        // LockRetryExecutor thật với transaction manager giả: callback được chạy trực tiếp
+        LockRetryExecutor lockRetryExecutor = new LockRetryExecutor(
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(JdbcTemplate.class), 2000, 3, 1);
+        batchTransferService = new BatchTransferService(accountRepository, jdbcTemplate, lockRetryExecutor,
+            coreBankingClient, outboxService, ledgerEngine, postingJournal, transactionStatusCounters, accountCache);
+        ReflectionTestUtils.setField(batchTransferService, "chunkSize", 1000);
+
+        rows = Map.of(1L, account(1L, 150L), 2L, account(2L, 0L), 3L, account(3L, 0L));
+    }
+
+    @Test
+    void testPerformBatchTransfer_InsufficientLegIsNeverAuthorized() {
+        stubAccounts();
+        stubTransactionWrites();
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
+
+        // Tài khoản 1 chỉ đủ cho chân đầu tiên
+        List<BatchTransferResult> results = batchTransferService.performBatchTransfer(
+            List.of(leg(1L, 2L, 100L), leg(1L, 3L, 100L)).iterator());
+
+        assertEquals("COMPLETED", results.get(0).getStatus());
+        assertEquals(101L, results.get(0).getTransactionId());
+        assertEquals("FAILED", results.get(1).getStatus());
+        assertEquals("Số dư không đủ để thực hiện giao dịch!", results.get(1).getError());
+        assertEquals(50L, rows.get(1L).getBalance());
+        assertEquals(100L, rows.get(2L).getBalance());
+        assertEquals(0L, rows.get(3L).getBalance());
+
+        // Chỉ chân đã giữ được tiền mới được gửi sang Core Banking
+        verify(coreBankingClient, times(1)).authorize(anyString(), anyString(), anyLong());
+        verify(coreBankingClient, never()).authorize(anyString(), eq("ACC3"), anyLong());
+        verify(transactionStatusCounters).recordCreated("PENDING", 101L);
+        verify(transactionStatusCounters).recordTransition("PENDING", "COMPLETED", 101L);
+        verify(outboxService).enqueueTransferCompleted(argThat(transaction -> transaction.getId() == 101L),
+            eq("ACC1"), eq("ACC2"));
+        // Không nạp entity trước khi khóa
+        verify(accountRepository, never()).findAllById(anyIterable());
+    }
+
+    @Test
+    void testPerformBatchTransfer_DeclinedLegIsRefunded() {
+        stubAccounts();
+        stubTransactionWrites();
+        when(coreBankingClient.authorize("ACC1", "ACC2", 100L)).thenReturn(false);
+        when(coreBankingClient.authorize("ACC1", "ACC3", 50L)).thenThrow(new RuntimeException("timeout"));
+
+        List<BatchTransferResult> results = batchTransferService.performBatchTransfer(
+            List.of(leg(1L, 2L, 100L), leg(1L, 3L, 50L)).iterator());
+
+        // Tiền đã giữ được hoàn lại, giao dịch PENDING chuyển sang FAILED
+        assertEquals("REJECTED", results.get(0).getStatus());
+        assertEquals("Giao dịch bị Core Banking từ chối.", results.get(0).getError());
+        assertEquals(101L, results.get(0).getTransactionId());
+        assertEquals("REJECTED", results.get(1).getStatus());
+        assertEquals(150L, rows.get(1L).getBalance());
+        assertEquals(0L, rows.get(2L).getBalance());
+        verify(transactionStatusCounters, times(2)).recordTransition(eq("PENDING"), eq("FAILED"), anyLong());
+        verify(postingJournal).postAll(argThat(postings -> postings.size() == 2
+            && postings.stream().allMatch(posting -> posting.getAccountId() == 1L && posting.getAmount() > 0)));
+        verify(outboxService, never()).enqueueTransferCompleted(any(), anyString(), anyString());
+    }
+
+    @Test
+    void testPerformBatchTransfer_FailedReservationSkipsCoreBanking() {
+        when(accountRepository.findViewsByIdIn(anyCollection()))
+            .thenReturn(List.of(view(rows.get(1L)), view(rows.get(2L))));
+        when(accountRepository.findAllByIdInForUpdate(anyCollection())).thenThrow(new RuntimeException("connection reset"));
+
+        List<BatchTransferResult> results = batchTransferService.performBatchTransfer(
+            List.of(leg(1L, 2L, 100L), leg(9L, 2L, 100L)).iterator());
+
+        assertEquals("FAILED", results.get(0).getStatus());
+        assertEquals("REJECTED", results.get(1).getStatus());
+        assertEquals("Tài khoản nguồn không tồn tại!", results.get(1).getError());
+        verifyNoInteractions(coreBankingClient);
+        assertEquals(150L, rows.get(1L).getBalance());
+    }
+
+    // findViewsByIdIn đọc projection, findAllByIdInForUpdate trả về entity đang được "khóa"
+    private void stubAccounts() {
+        when(accountRepository.findViewsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(rows::get).filter(Objects::nonNull).map(BatchTransferServiceTest::view).toList();
+        });
+        when(accountRepository.findAllByIdInForUpdate(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().map(rows::get).toList();
+        });
+    }
+
+    // INSERT giao dịch PENDING trả về id tăng dần từ 101, UPDATE trạng thái không cần kết quả
+    @SuppressWarnings("unchecked")
+    private void stubTransactionWrites() {
+        AtomicLong transactionIds = new AtomicLong(100);
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class))).thenAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keyHolder = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                keyHolder.getKeyList().add(Map.of("id", transactionIds.incrementAndGet()));
+            }
+            return new int[setter.getBatchSize()];
+        });
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+            .thenReturn(new int[0][0]);
+    }
+
+    private static BatchTransferLeg leg(Long fromAccountId, Long toAccountId, long amount) {
+        BatchTransferLeg leg = new BatchTransferLeg();
+        leg.setFromAccountId(fromAccountId);
+        leg.setToAccountId(toAccountId);
+        leg.setAmount(amount);
+        return leg;
+    }
+
+    private static Account account(Long id, long balance) {
+        return Account.builder().id(id).accountNumber("ACC" + id).accountType("CHECKING").balance(balance)
+            .customerId(id).createdDate(LocalDateTime.of(2026, 10, 1, 0, 0)).build();
+    }
+
+    private static AccountView view(Account account) {
+        return new AccountView(account.getId(), account.getAccountNumber(), account.getAccountType(),
+            account.getBalance(), account.getCustomerId(), account.getCreatedDate(), false);
+    }
+}
@@ -0,0 +1,158 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kienlongbank.klbaccountmanagement.dto.BulkAccountItem;
+import com.kienlongbank.klbaccountmanagement.dto.BulkAccountResult;
+
+/**
+ * Unit Test cho BulkAccountOpeningService: một lần kiểm tra khách hàng cho cả lô, ghi theo nhóm bằng JDBC batch
+ */
+@ExtendWith(MockitoExtension.class)
+class BulkAccountOpeningServiceTest {
+
+    @Mock
+    private CustomerServiceClient customerServiceClient;
+
+    @Mock
+    private AccountNumberAllocator accountNumberAllocator;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private PostingJournal postingJournal;
+
+    @Mock
+    private AccountCache accountCache;
+
+    private BulkAccountOpeningService bulkAccountOpeningService;
+
+    @BeforeEach
+    void setUp() {
+        bulkAccountOpeningService = new BulkAccountOpeningService(customerServiceClient, accountNumberAllocator,
+            jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)), postingJournal, accountCache);
+        ReflectionTestUtils.setField(bulkAccountOpeningService, "chunkSize", 2);
+    }
+
+    @Test
+    void testPlan_RejectsInvalidRowsAndUnknownCustomersWithOneLookup() {
+        when(customerServiceClient.findExistingCustomerIds(Set.of(1L, 2L))).thenReturn(Set.of(1L));
+
+        BulkAccountOpeningService.Plan plan = bulkAccountOpeningService.plan(List.of(
+            item(1L, "SAVINGS", 100L),
+            item(2L, "SAVINGS", 0L),
+            item(null, "SAVINGS", 0L),
+            item(1L, " ", 0L),
+            item(1L, "CHECKING", -1L)));
+
+        List<BulkAccountResult> results = plan.results();
+        assertNull(results.get(0).getStatus());
+        assertEquals("REJECTED", results.get(1).getStatus());
+        assertEquals("Không tìm thấy khách hàng với ID: 2", results.get(1).getError());
+        assertEquals("REJECTED", results.get(2).getStatus());
+        assertEquals("REJECTED", results.get(3).getStatus());
+        assertEquals("REJECTED", results.get(4).getStatus());
+        verify(customerServiceClient, times(1)).findExistingCustomerIds(anyCollection());
+    }
+
+    @Test
+    void testPlan_CustomerServiceDown_Throws() {
+        when(customerServiceClient.findExistingCustomerIds(anyCollection()))
+            .thenThrow(new RuntimeException("timeout"));
+
+        assertThrows(RuntimeException.class,
+            () -> bulkAccountOpeningService.plan(List.of(item(1L, "SAVINGS", 0L))));
+    }
+
+    @Test
+    void testExecute_InsertsInChunksAndEmitsEveryRow() {
+        when(customerServiceClient.findExistingCustomerIds(anyCollection())).thenReturn(Set.of(1L));
+        AtomicLong numbers = new AtomicLong();
+        when(accountNumberAllocator.next()).thenAnswer(invocation -> "KLB" + numbers.incrementAndGet());
+        AtomicLong ids = new AtomicLong(100);
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class))).thenAnswer(invocation -> {
+            BatchPreparedStatementSetter setter = invocation.getArgument(1);
+            KeyHolder keyHolder = invocation.getArgument(2);
+            for (int i = 0; i < setter.getBatchSize(); i++) {
+                keyHolder.getKeyList().add(Map.of("id", ids.incrementAndGet()));
+            }
+            return new int[setter.getBatchSize()];
+        });
+
+        BulkAccountOpeningService.Plan plan = bulkAccountOpeningService.plan(List.of(
+            item(1L, "SAVINGS", 500L),
+            item(9L, "SAVINGS", 0L),
+            item(1L, "CHECKING", 0L)));
+        List<List<BulkAccountResult>> emitted = new ArrayList<>();
+        long created = bulkAccountOpeningService.execute(plan, emitted::add);
+
+        assertEquals(2, created);
+        assertEquals(2, emitted.size());
+        assertEquals(List.of("CREATED", "REJECTED"), emitted.get(0).stream().map(BulkAccountResult::getStatus).toList());
+        assertEquals(101L, emitted.get(0).get(0).getAccountId());
+        assertEquals("KLB1", emitted.get(0).get(0).getAccountNumber());
+        assertEquals(102L, emitted.get(1).get(0).getAccountId());
+        // Mỗi nhóm một lần batch insert, chỉ số dư khác 0 mới có bút toán mở tài khoản
+        verify(jdbcTemplate, times(2)).batchUpdate(any(PreparedStatementCreator.class),
+            any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+        verify(postingJournal).postAll(argThat(postings -> postings.size() == 1));
+        verify(postingJournal).postAll(argThat(List::isEmpty));
+    }
+
+    @Test
+    void testExecute_FailedChunkMarksItsRowsFailed() {
+        when(customerServiceClient.findExistingCustomerIds(anyCollection())).thenReturn(Set.of(1L));
+        when(accountNumberAllocator.next()).thenReturn("KLB1", "KLB2", "KLB3");
+        when(jdbcTemplate.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class),
+                any(KeyHolder.class)))
+            .thenThrow(new RuntimeException("duplicate key"))
+            .thenAnswer(invocation -> {
+                KeyHolder keyHolder = invocation.getArgument(2);
+                keyHolder.getKeyList().add(Map.of("id", 7L));
+                return new int[] {1};
+            });
+
+        BulkAccountOpeningService.Plan plan = bulkAccountOpeningService.plan(List.of(
+            item(1L, "SAVINGS", 0L),
+            item(1L, "SAVINGS", 0L),
+            item(1L, "SAVINGS", 0L)));
+        List<BulkAccountResult> emitted = new ArrayList<>();
+        long created = bulkAccountOpeningService.execute(plan, emitted::addAll);
+
+        assertEquals(1, created);
+        assertEquals(List.of("FAILED", "FAILED", "CREATED"), emitted.stream().map(BulkAccountResult::getStatus).toList());
+        assertNull(emitted.get(0).getAccountNumber());
+        assertEquals(7L, emitted.get(2).getAccountId());
+    }
+
+    private static BulkAccountItem item(Long customerId, String accountType, Long balance) {
+        BulkAccountItem item = new BulkAccountItem();
+        item.setCustomerId(customerId);
+        item.setAccountType(accountType);
+        item.setBalance(balance);
+        return item;
+    }
+}
@@ -0,0 +1,178 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.kienlongbank.common.api.CustomerApi;
+import com.kienlongbank.common.dto.CustomerDTO;
+import com.kienlongbank.klbaccountmanagement.config.CustomerClientConfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit Test cho CustomerServiceClient: near cache (kể cả kết quả không tồn tại) và gom lô các lần tra cứu
+ */
+@ExtendWith(MockitoExtension.class)
+class CustomerServiceClientTest {
+
+    @Mock
+    private CustomerApi customerApi;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private CustomerServiceClient customerServiceClient;
+
+    @BeforeEach
+    void setUp() {
+        CustomerClientConfig config = new CustomerClientConfig();
+        config.setBatchWindowMs(50);
+        config.setMaxBatchSize(100);
+        customerServiceClient = new CustomerServiceClient(config, meterRegistry);
+        ReflectionTestUtils.setField(customerServiceClient, "customerApi", customerApi);
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerServiceClient.shutdown();
+    }
+
+    @Test
+    void testGetCustomerById_ConcurrentLookupsShareOneBatchCall() throws Exception {
+        // Cửa sổ rất dài và lô 4 ID: lô chỉ được gọi khi đủ 4 khách hàng khác nhau, nên kết quả không phụ thuộc thời gian
+        CustomerClientConfig config = new CustomerClientConfig();
+        config.setBatchWindowMs(10_000);
+        config.setMaxBatchSize(4);
+        CustomerServiceClient client = new CustomerServiceClient(config, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(client, "customerApi", customerApi);
+
+        List<List<Long>> batches = new CopyOnWriteArrayList<>();
+        when(customerApi.findCustomersByIdsAsync(anyList())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            batches.add(List.copyOf(ids));
+            // Khách hàng 3 không tồn tại
+            return CompletableFuture.completedFuture(
+                ids.stream().filter(id -> id != 3L).map(CustomerServiceClientTest::customer).toList());
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<CustomerDTO>> futures = new ArrayList<>();
+            for (long i = 0; i < 16; i++) {
+                long customerId = i % 4 + 1;
+                futures.add(executor.submit(() -> client.getCustomerById(customerId)));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                CustomerDTO customer = futures.get(i).get(5, TimeUnit.SECONDS);
+                if (i % 4 + 1 == 3) {
+                    assertNull(customer);
+                } else {
+                    assertEquals(i % 4 + 1L, customer.getId());
+                }
+            }
+
+            // 16 lần tra cứu đồng thời, một lần gọi Dubbo cho cả 4 khách hàng
+            assertEquals(1, batches.size());
+            assertEquals(Set.of(1L, 2L, 3L, 4L), Set.copyOf(batches.get(0)));
+            assertEquals(4, batches.get(0).size());
+
+            // Lần sau được trả từ near cache, kể cả khách hàng không tồn tại
+            assertEquals(2L, client.getCustomerById(2L).getId());
+            assertNull(client.getCustomerById(3L));
+            verify(customerApi, times(1)).findCustomersByIdsAsync(anyList());
+            verifyNoMoreInteractions(customerApi);
+        } finally {
+            executor.shutdownNow();
+            client.shutdown();
+        }
+    }
+
+    @Test
+    void testCustomerExists_UsesExistsByIdAndCachesResult() {
+        when(customerApi.existsById(5L)).thenReturn(true);
+        when(customerApi.existsById(6L)).thenReturn(false);
+
+        assertTrue(customerServiceClient.customerExists(5L));
+        assertTrue(customerServiceClient.customerExists(5L));
+        assertFalse(customerServiceClient.customerExists(6L));
+        assertFalse(customerServiceClient.customerExists(6L));
+
+        verify(customerApi, times(1)).existsById(5L);
+        verify(customerApi, times(1)).existsById(6L);
+        verify(customerApi, never()).findCustomerById(anyLong());
+        assertEquals(2.0, meterRegistry.get("customer.client.rpc.calls").tag("method", "existsById").counter().count());
+    }
+
+    @Test
+    void testCustomerExists_AnsweredFromCustomerCache() {
+        when(customerApi.findCustomersByIdsAsync(List.of(7L)))
+            .thenReturn(CompletableFuture.completedFuture(List.of(customer(7L))));
+
+        assertNotNull(customerServiceClient.getCustomerById(7L));
+        assertTrue(customerServiceClient.customerExists(7L));
+
+        verify(customerApi, never()).existsById(anyLong());
+    }
+
+    @Test
+    void testErrors_AreNotCached() {
+        when(customerApi.existsById(8L)).thenThrow(new RuntimeException("timeout")).thenReturn(true);
+        when(customerApi.findCustomersByIdsAsync(List.of(8L)))
+            .thenReturn(CompletableFuture.failedFuture(new RuntimeException("timeout")))
+            .thenReturn(CompletableFuture.completedFuture(List.of(customer(8L))));
+
+        assertFalse(customerServiceClient.customerExists(8L));
+        assertTrue(customerServiceClient.customerExists(8L));
+        assertNull(customerServiceClient.getCustomerById(8L));
+        assertNotNull(customerServiceClient.getCustomerById(8L));
+    }
+
+    @Test
+    void testFindExistingCustomerIds_SkipsCachedIdsAndFillsCache() {
+        when(customerApi.findCustomersByIdsAsync(List.of(1L)))
+            .thenReturn(CompletableFuture.completedFuture(List.of(customer(1L))));
+        when(customerApi.findCustomersByIds(List.of(2L, 9L))).thenReturn(List.of(customer(2L)));
+
+        assertNotNull(customerServiceClient.getCustomerById(1L));
+        assertEquals(Set.of(1L, 2L), customerServiceClient.findExistingCustomerIds(List.of(1L, 2L, 9L, 2L)));
+
+        // 2 và 9 đã được đưa vào near cache
+        assertFalse(customerServiceClient.customerExists(9L));
+        assertEquals(2L, customerServiceClient.getCustomerById(2L).getId());
+        verify(customerApi, never()).existsById(anyLong());
+    }
+
+    @Test
+    void testGetCustomerByIdAsync_DoesNotBlockAndReturnsNullOnError() throws Exception {
+        CompletableFuture<List<CustomerDTO>> response = new CompletableFuture<>();
+        when(customerApi.findCustomersByIdsAsync(List.of(10L))).thenReturn(response);
+
+        CompletableFuture<CustomerDTO> customer = customerServiceClient.getCustomerByIdAsync(10L);
+        assertFalse(customer.isDone());
+
+        response.completeExceptionally(new RuntimeException("timeout"));
+        assertNull(customer.get(5, TimeUnit.SECONDS));
+    }
+
+    private static CustomerDTO customer(Long id) {
+        return new CustomerDTO(id, "Khách hàng " + id, "customer" + id + "@example.com");
+    }
+}
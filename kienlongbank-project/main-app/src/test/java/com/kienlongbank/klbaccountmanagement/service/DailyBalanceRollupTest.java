@@ -0,0 +1,176 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.dto.AccountStatementSummary;
+import com.kienlongbank.klbaccountmanagement.model.AccountDailyBalance;
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+import com.kienlongbank.klbaccountmanagement.repository.AccountDailyBalanceRepository;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+/**
+ * Unit Test cho DailyBalanceRollup: gộp bút toán theo (tài khoản, ngày) và tổng hợp sao kê
+ */
+@ExtendWith(MockitoExtension.class)
+class DailyBalanceRollupTest {
+
+    private static final LocalDate DAY = LocalDate.of(2025, 8, 1);
+
+    @Mock
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @Mock
+    private AccountDailyBalanceRepository accountDailyBalanceRepository;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    @Mock
+    private HotAccountService hotAccountService;
+
+    // Transaction manager giả: callback được chạy trực tiếp
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private DailyBalanceRollup dailyBalanceRollup;
+
+    @Test
+    void testApply_GroupsByAccountAndDayInKeyOrder() {
+        when(hotAccountService.isEnabled()).thenReturn(true);
+        List<AccountPosting> postings = List.of(
+            posting(2L, 300L, DAY.atTime(9, 0)),
+            posting(1L, -500L, DAY.atTime(10, 0)),
+            posting(1L, 200L, DAY.atTime(11, 0)),
+            posting(1L, -100L, DAY.minusDays(1).atTime(23, 59)));
+
+        dailyBalanceRollup.apply(postings);
+
+        // Khóa advisory dùng chung của các tài khoản trước khi cộng vào dòng tổng hợp
+        ArgumentCaptor<MapSqlParameterSource> lock = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(namedParameterJdbcTemplate).query(contains("pg_advisory_xact_lock_shared"), lock.capture(),
+            any(RowCallbackHandler.class));
+        assertEquals(List.of(1L, 2L), lock.getValue().getValue("accountIds"));
+
+        ArgumentCaptor<MapSqlParameterSource[]> batch = ArgumentCaptor.forClass(MapSqlParameterSource[].class);
+        verify(namedParameterJdbcTemplate).batchUpdate(anyString(), batch.capture());
+        MapSqlParameterSource[] rows = batch.getValue();
+        assertEquals(3, rows.length);
+
+        // Tài khoản 1 hôm trước, tài khoản 1 trong ngày, rồi tài khoản 2
+        assertEquals(1L, rows[0].getValue("accountId"));
+        assertEquals(DAY.minusDays(1), rows[0].getValue("balanceDate"));
+        assertEquals(-100L, rows[0].getValue("net"));
+
+        assertEquals(1L, rows[1].getValue("accountId"));
+        assertEquals(DAY, rows[1].getValue("balanceDate"));
+        assertEquals(-300L, rows[1].getValue("net"));
+        assertEquals(500L, rows[1].getValue("debitTotal"));
+        assertEquals(200L, rows[1].getValue("creditTotal"));
+        assertEquals(1L, rows[1].getValue("debitCount"));
+        assertEquals(1L, rows[1].getValue("creditCount"));
+        assertEquals(true, rows[1].getValue("skipHotAccounts"));
+
+        assertEquals(2L, rows[2].getValue("accountId"));
+        assertEquals(300L, rows[2].getValue("creditTotal"));
+    }
+
+    @Test
+    void testRebuild_OneTransactionPerAccountWithoutTableLock() {
+        when(namedParameterJdbcTemplate.queryForList(anyString(), any(MapSqlParameterSource.class), eq(Long.class)))
+            .thenReturn(List.of(1L, 2L));
+        // DELETE trả về 1 dòng, INSERT ghi 3 dòng cho tài khoản 1 và 2 dòng cho tài khoản 2
+        when(namedParameterJdbcTemplate.update(anyString(), any(MapSqlParameterSource.class)))
+            .thenReturn(1, 3, 1, 2);
+
+        int rows = dailyBalanceRollup.rebuild(DAY);
+
+        assertEquals(5, rows);
+        verify(transactionTemplate, times(2)).execute(any());
+        ArgumentCaptor<MapSqlParameterSource> locks = ArgumentCaptor.forClass(MapSqlParameterSource.class);
+        verify(namedParameterJdbcTemplate, times(2)).query(contains("pg_advisory_xact_lock("), locks.capture(),
+            any(RowCallbackHandler.class));
+        assertEquals(1L, locks.getAllValues().get(0).getValue("accountId"));
+        assertEquals(2L, locks.getAllValues().get(1).getValue("accountId"));
+        verify(namedParameterJdbcTemplate, times(2)).update(startsWith("DELETE"), any(MapSqlParameterSource.class));
+        verify(namedParameterJdbcTemplate, never()).getJdbcOperations();
+    }
+
+    @Test
+    void testSummarize_AggregatesDays() {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        when(accountDailyBalanceRepository.findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(1L, DAY, DAY.plusDays(30)))
+            .thenReturn(List.of(
+                day(DAY.plusDays(2), 1_000L, 700L, 500L, 200L),
+                day(DAY.plusDays(9), 700L, 1_700L, 0L, 1_000L)));
+
+        AccountStatementSummary summary = dailyBalanceRollup.summarize(1L, DAY, DAY.plusDays(30));
+
+        assertEquals(1_000L, summary.getOpeningBalance());
+        assertEquals(1_700L, summary.getClosingBalance());
+        assertEquals(500L, summary.getDebitTotal());
+        assertEquals(1_200L, summary.getCreditTotal());
+        assertEquals(1L, summary.getDebitCount());
+        assertEquals(2L, summary.getCreditCount());
+        assertEquals(2, summary.getDays().size());
+        verify(accountDailyBalanceRepository, never())
+            .findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(any(), any());
+    }
+
+    @Test
+    void testSummarize_NoActivityCarriesPreviousClosingBalance() {
+        when(accountRepository.existsById(1L)).thenReturn(true);
+        when(accountDailyBalanceRepository.findByAccountIdAndBalanceDateBetweenOrderByBalanceDate(1L, DAY, DAY))
+            .thenReturn(List.of());
+        when(accountDailyBalanceRepository.findFirstByAccountIdAndBalanceDateLessThanOrderByBalanceDateDesc(1L, DAY))
+            .thenReturn(Optional.of(day(DAY.minusDays(5), 0L, 4_000L, 0L, 4_000L)));
+
+        AccountStatementSummary summary = dailyBalanceRollup.summarize(1L, DAY, DAY);
+
+        assertEquals(4_000L, summary.getOpeningBalance());
+        assertEquals(4_000L, summary.getClosingBalance());
+        assertEquals(0L, summary.getDebitTotal());
+        assertTrue(summary.getDays().isEmpty());
+    }
+
+    @Test
+    void testSummarize_UnknownAccountAndInvalidRange() {
+        when(accountRepository.existsById(9L)).thenReturn(false);
+
+        assertNull(dailyBalanceRollup.summarize(9L, DAY, DAY));
+        assertThrows(IllegalArgumentException.class, () -> dailyBalanceRollup.summarize(1L, DAY, DAY.minusDays(1)));
+    }
+
+    private static AccountPosting posting(Long accountId, long amount, LocalDateTime postedAt) {
+        return AccountPosting.builder().accountId(accountId).amount(amount).postedAt(postedAt).build();
+    }
+
+    private static AccountDailyBalance day(LocalDate date, long opening, long closing, long debit, long credit) {
+        return AccountDailyBalance.builder()
+            .accountId(1L).balanceDate(date)
+            .openingBalance(opening).closingBalance(closing)
+            .debitTotal(debit).creditTotal(credit)
+            .debitCount(debit > 0 ? 1 : 0).creditCount(credit > 0 ? 1 : 0)
+            .build();
+    }
+}
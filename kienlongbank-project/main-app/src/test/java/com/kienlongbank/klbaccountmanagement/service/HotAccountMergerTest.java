@@ -0,0 +1,67 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.mockito.Mockito.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
+
+/**
+ * Unit Test cho HotAccountMerger: gộp slot của từng tài khoản, chạy lại không thay đổi gì thêm
+ */
+@ExtendWith(MockitoExtension.class)
+class HotAccountMergerTest {
+
+    @Mock
+    private HotAccountService hotAccountService;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @InjectMocks
+    private HotAccountMerger hotAccountMerger;
+
+    @Test
+    void testMergeAll_MergesEachPendingAccountAndInvalidatesLedger() {
+        when(hotAccountService.accountsWithPendingSlots()).thenReturn(List.of(1L, 2L));
+        when(hotAccountService.merge(1L)).thenReturn(300L);
+        when(hotAccountService.merge(2L)).thenReturn(0L);
+
+        hotAccountMerger.mergeAll();
+
+        verify(ledgerEngine).invalidate(1L);
+        // Không có tiền được chuyển về dòng chính thì shard không cần nạp lại
+        verify(ledgerEngine, never()).invalidate(2L);
+    }
+
+    @Test
+    void testMergeAll_IsIdempotent() {
+        when(hotAccountService.accountsWithPendingSlots()).thenReturn(List.of(1L), List.of());
+        when(hotAccountService.merge(1L)).thenReturn(300L);
+
+        hotAccountMerger.mergeAll();
+        hotAccountMerger.mergeAll();
+
+        // Lần chạy thứ hai không còn tài khoản có tiền trong slot
+        verify(hotAccountService, times(1)).merge(1L);
+        verify(ledgerEngine, times(1)).invalidate(1L);
+    }
+
+    @Test
+    void testMergeAll_ContinuesAfterAFailedAccount() {
+        when(hotAccountService.accountsWithPendingSlots()).thenReturn(List.of(1L, 2L));
+        when(hotAccountService.merge(1L)).thenThrow(new RuntimeException("lock timeout"));
+        when(hotAccountService.merge(2L)).thenReturn(50L);
+
+        hotAccountMerger.mergeAll();
+
+        verify(ledgerEngine, never()).invalidate(1L);
+        verify(ledgerEngine).invalidate(2L);
+    }
+}
@@ -0,0 +1,188 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.kienlongbank.klbaccountmanagement.config.HotAccountConfig;
+import com.kienlongbank.klbaccountmanagement.config.LedgerConfig;
+import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
+
+/**
+ * Unit Test cho HotAccountService: ghi có vào slot ngẫu nhiên, ghi nợ từ dòng chính rồi đến các slot,
+ * gộp slot khi số dư bị phân tán. JdbcTemplate được giả lập bằng số dư trong bộ nhớ (dòng chính + K slot)
+ */
+@ExtendWith(MockitoExtension.class)
+class HotAccountServiceTest {
+
+    private static final Long ACCOUNT_ID = 1L;
+    private static final int SLOTS = 4;
+
+    @Mock
+    private AccountRepository accountRepository;
+
+    private HotAccountService hotAccountService;
+
+    // Số dư giả lập của dòng accounts và các slot
+    private long main;
+    private final long[] slots = new long[SLOTS];
+
+    // Các câu lệnh đã chạy qua JdbcTemplate, theo thứ tự
+    private final List<String> statements = new ArrayList<>();
+    private final Set<Integer> creditedSlots = new HashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        HotAccountConfig config = new HotAccountConfig();
+        config.setEnabled(true);
+        config.setSlots(SLOTS);
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class, this::execute);
+        hotAccountService = new HotAccountService(jdbcTemplate, config, new LedgerConfig(), accountRepository);
+    }
+
+    @Test
+    void testCredit_GoesToRandomSlotWithoutTouchingMainRow() {
+        for (int i = 0; i < 200; i++) {
+            hotAccountService.credit(ACCOUNT_ID, 10);
+        }
+
+        assertEquals(0, main);
+        assertEquals(2000, total());
+        // Các slot được chọn nằm trong [0, K) và tải được rải ra nhiều slot
+        assertTrue(creditedSlots.stream().allMatch(slot -> slot >= 0 && slot < SLOTS), creditedSlots.toString());
+        assertTrue(creditedSlots.size() > 1, creditedSlots.toString());
+        assertEquals(0, count("UPDATE accounts"));
+    }
+
+    @Test
+    void testDebit_TakesFromMainRowFirst() {
+        givenBalances(500, 100, 100, 100, 100);
+
+        assertTrue(hotAccountService.debit(ACCOUNT_ID, 300));
+
+        assertEquals(200, main);
+        assertArrayEquals(new long[] {100, 100, 100, 100}, slots);
+        assertEquals(0, count("UPDATE account_balance_slots"));
+    }
+
+    @Test
+    void testDebit_FallsBackToASlotThatCoversTheAmount() {
+        givenBalances(50, 0, 0, 500, 0);
+
+        assertTrue(hotAccountService.debit(ACCOUNT_ID, 300));
+
+        assertEquals(50, main);
+        assertArrayEquals(new long[] {0, 0, 200, 0}, slots);
+        // Một slot đủ tiền: không cần gộp
+        assertEquals(0, count("SELECT"));
+    }
+
+    @Test
+    void testDebit_MergesWhenBalanceIsSpreadAcrossSlots() {
+        givenBalances(100, 100, 100, 100, 0);
+
+        assertTrue(hotAccountService.debit(ACCOUNT_ID, 350));
+
+        assertEquals(50, main);
+        assertArrayEquals(new long[SLOTS], slots);
+        assertEquals(SLOTS, count("UPDATE account_balance_slots SET balance = balance - ?"));
+    }
+
+    @Test
+    void testDebit_InsufficientFundsAcrossSlotsLeavesTotalUnchanged() {
+        givenBalances(100, 100, 100, 100, 0);
+
+        assertFalse(hotAccountService.debit(ACCOUNT_ID, 500));
+
+        // Các slot đã được gộp về dòng chính, tổng số dư không đổi và không âm
+        assertEquals(400, main);
+        assertEquals(400, total());
+        assertArrayEquals(new long[SLOTS], slots);
+    }
+
+    @Test
+    void testMerge_IsIdempotent() {
+        givenBalances(100, 30, 0, 20, 0);
+
+        assertEquals(50, hotAccountService.merge(ACCOUNT_ID));
+        assertEquals(0, hotAccountService.merge(ACCOUNT_ID));
+
+        assertEquals(150, main);
+        assertEquals(150, total());
+        // Lần gộp thứ hai không còn gì để chuyển nên không ghi gì
+        assertEquals(1, count("UPDATE accounts SET balance = balance + ?"));
+        assertEquals(1, count("UPDATE account_balance_slots SET balance = 0"));
+    }
+
+    private void givenBalances(long mainBalance, long... slotBalances) {
+        main = mainBalance;
+        System.arraycopy(slotBalances, 0, slots, 0, slotBalances.length);
+    }
+
+    private long total() {
+        return main + LongStream.of(slots).sum();
+    }
+
+    private long count(String prefix) {
+        return statements.stream().filter(sql -> sql.startsWith(prefix)).count();
+    }
+
+    // JdbcTemplate giả lập: các câu lệnh UPDATE có điều kiện và SELECT ... FOR UPDATE chạy trên số dư trong bộ nhớ
+    private Object execute(InvocationOnMock invocation) {
+        String method = invocation.getMethod().getName();
+        if (!method.equals("update") && !method.equals("queryForList")) {
+            throw new IllegalStateException("Lời gọi không mong đợi: " + method);
+        }
+        String sql = invocation.getArgument(0);
+        statements.add(sql);
+        if (method.equals("queryForList")) {
+            return sql.contains("account_balance_slots") ? LongStream.of(slots).boxed().toList() : List.of(ACCOUNT_ID);
+        }
+        if (sql.startsWith("INSERT INTO account_balance_slots")) {
+            int slot = invocation.getArgument(2);
+            creditedSlots.add(slot);
+            slots[slot] += (Long) invocation.getArgument(3);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE accounts SET balance = balance - ?")) {
+            long amount = invocation.getArgument(1);
+            if (main < amount) {
+                return 0;
+            }
+            main -= amount;
+            return 1;
+        }
+        if (sql.startsWith("UPDATE account_balance_slots SET balance = balance - ?")) {
+            long amount = invocation.getArgument(1);
+            int slot = invocation.getArgument(3);
+            if (slots[slot] < amount) {
+                return 0;
+            }
+            slots[slot] -= amount;
+            return 1;
+        }
+        if (sql.startsWith("UPDATE accounts SET balance = balance + ?")) {
+            main += (Long) invocation.getArgument(1);
+            return 1;
+        }
+        if (sql.startsWith("UPDATE account_balance_slots SET balance = 0")) {
+            Arrays.fill(slots, 0);
+            return SLOTS;
+        }
+        throw new IllegalStateException("Câu lệnh không mong đợi: " + sql);
+    }
+}
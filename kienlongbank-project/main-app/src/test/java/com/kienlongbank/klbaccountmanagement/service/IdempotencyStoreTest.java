@@ -0,0 +1,246 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.exception.IdempotencyConflictException;
+import com.kienlongbank.klbaccountmanagement.model.IdempotencyRecord;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.IdempotencyRecordRepository;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+/**
+ * Unit Test cho IdempotencyStore
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IdempotencyStoreTest {
+
+    private static final String FINGERPRINT = "transfer:1:2:100";
+
+    @Mock
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    private IdempotencyStore idempotencyStore;
+
+    private Transaction transaction;
+
+    @BeforeEach
+    void setUp() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+        idempotencyStore = new IdempotencyStore(idempotencyRecordRepository, transactionRepository,
+            transactionTemplate, 60, 100, 30);
+
+        transaction = Transaction.builder()
+                .id(10L)
+                .fromAccountId(1L)
+                .toAccountId(2L)
+                .amount(100L)
+                .status("COMPLETED")
+                .build();
+
+        when(idempotencyRecordRepository.claim(anyString(), anyString(), any(), any(), any())).thenReturn(1);
+    }
+
+    @Test
+    void testExecute_DuplicateKeyReturnsOriginalTransaction() {
+        AtomicInteger executions = new AtomicInteger();
+
+        Transaction first = idempotencyStore.execute("key-1", FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            return transaction;
+        });
+        Transaction second = idempotencyStore.execute("key-1", FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            return transaction;
+        });
+
+        assertSame(first, second);
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository, times(1)).claim(eq("key-1"), eq(FINGERPRINT), any(), any(), any());
+        verify(idempotencyRecordRepository, times(1)).complete("key-1", 10L);
+    }
+
+    @Test
+    void testExecute_ConcurrentDuplicatesCoalesce() throws Exception {
+        AtomicInteger executions = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            Future<Transaction> leader = executor.submit(() -> idempotencyStore.execute("key-2", FINGERPRINT, () -> {
+                executions.incrementAndGet();
+                started.countDown();
+                awaitQuietly(release);
+                return transaction;
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            Future<?>[] duplicates = new Future<?>[7];
+            for (int i = 0; i < duplicates.length; i++) {
+                duplicates[i] = executor.submit(() -> idempotencyStore.execute("key-2", FINGERPRINT, () -> {
+                    executions.incrementAndGet();
+                    return transaction;
+                }));
+            }
+            release.countDown();
+
+            assertSame(transaction, leader.get(5, TimeUnit.SECONDS));
+            for (Future<?> duplicate : duplicates) {
+                assertSame(transaction, duplicate.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, executions.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testExecute_KeyReusedForDifferentRequest() {
+        idempotencyStore.execute("key-3", FINGERPRINT, () -> transaction);
+
+        IdempotencyConflictException exception = assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyStore.execute("key-3", "transfer:1:2:200", () -> transaction));
+        assertEquals("Idempotency-Key đã được sử dụng cho một yêu cầu khác", exception.getMessage());
+    }
+
+    @Test
+    void testExecute_FailedExecutionReleasesKey() {
+        assertThrows(RuntimeException.class, () -> idempotencyStore.execute("key-4", FINGERPRINT, () -> {
+            throw new RuntimeException("Số dư không đủ để thực hiện giao dịch!");
+        }));
+        verify(idempotencyRecordRepository).deleteById("key-4");
+
+        // Thử lại với cùng key sẽ được thực thi lại
+        Transaction result = idempotencyStore.execute("key-4", FINGERPRINT, () -> transaction);
+        assertSame(transaction, result);
+    }
+
+    @Test
+    void testExecute_ReplaysCompletedKeyFromDatabase() {
+        when(idempotencyRecordRepository.claim(eq("key-5"), anyString(), any(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById("key-5")).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .idempotencyKey("key-5")
+                .requestFingerprint(FINGERPRINT)
+                .status("COMPLETED")
+                .transactionId(10L)
+                .build()));
+        when(transactionRepository.findById(10L)).thenReturn(Optional.of(transaction));
+
+        Transaction result = idempotencyStore.execute("key-5", FINGERPRINT, () -> {
+            throw new AssertionError("Không được thực thi lại giao dịch");
+        });
+
+        assertSame(transaction, result);
+    }
+
+    @Test
+    void testExecute_KeyProcessingOnAnotherInstance() {
+        givenProcessingElsewhere("key-6", LocalDateTime.now().plusSeconds(30));
+
+        assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyStore.execute("key-6", FINGERPRINT, () -> transaction));
+        // Còn trong lease: không đọc giao dịch, không chiếm lại key
+        verify(transactionRepository, never()).findFirstByIdempotencyKeyOrderByIdDesc(anyString());
+        verify(idempotencyRecordRepository, never()).reclaim(anyString(), any(), any());
+    }
+
+    @Test
+    void testExecute_ExpiredLeaseResolvedFromCompletedTransaction() {
+        givenProcessingElsewhere("key-7", LocalDateTime.now().minusSeconds(1));
+        when(transactionRepository.findFirstByIdempotencyKeyOrderByIdDesc("key-7")).thenReturn(Optional.of(transaction));
+
+        Transaction result = idempotencyStore.execute("key-7", FINGERPRINT, () -> {
+            throw new AssertionError("Không được thực thi lại giao dịch");
+        });
+
+        assertSame(transaction, result);
+        verify(idempotencyRecordRepository).complete("key-7", 10L);
+        verify(idempotencyRecordRepository, never()).reclaim(anyString(), any(), any());
+    }
+
+    @Test
+    void testExecute_ExpiredLeaseWithoutTransactionExecutesAgain() {
+        givenProcessingElsewhere("key-8", LocalDateTime.now().minusSeconds(1));
+        when(transactionRepository.findFirstByIdempotencyKeyOrderByIdDesc("key-8")).thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.reclaim(eq("key-8"), any(), any())).thenReturn(1);
+        AtomicInteger executions = new AtomicInteger();
+
+        Transaction result = idempotencyStore.execute("key-8", FINGERPRINT, () -> {
+            executions.incrementAndGet();
+            return transaction;
+        });
+
+        assertSame(transaction, result);
+        assertEquals(1, executions.get());
+        verify(idempotencyRecordRepository).complete("key-8", 10L);
+    }
+
+    @Test
+    void testExecute_ExpiredLeaseWithPendingTransactionStillConflicts() {
+        givenProcessingElsewhere("key-9", LocalDateTime.now().minusSeconds(1));
+        Transaction pending = Transaction.builder().id(11L).status("PENDING").build();
+        when(transactionRepository.findFirstByIdempotencyKeyOrderByIdDesc("key-9")).thenReturn(Optional.of(pending));
+
+        assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyStore.execute("key-9", FINGERPRINT, () -> transaction));
+        verify(idempotencyRecordRepository, never()).reclaim(anyString(), any(), any());
+        verify(idempotencyRecordRepository, never()).complete(anyString(), anyLong());
+    }
+
+    @Test
+    void testExecute_ExpiredLeaseReclaimedByAnotherInstance() {
+        // Dòng trước db/migration/V13: không có lease, coi như đã hết
+        givenProcessingElsewhere("key-10", null);
+        when(transactionRepository.findFirstByIdempotencyKeyOrderByIdDesc("key-10")).thenReturn(Optional.empty());
+        when(idempotencyRecordRepository.reclaim(eq("key-10"), any(), any())).thenReturn(0);
+
+        assertThrows(IdempotencyConflictException.class,
+            () -> idempotencyStore.execute("key-10", FINGERPRINT, () -> {
+                throw new AssertionError("Instance khác đã chiếm lại key");
+            }));
+    }
+
+    private void givenProcessingElsewhere(String key, LocalDateTime processingExpiresAt) {
+        when(idempotencyRecordRepository.claim(eq(key), anyString(), any(), any(), any())).thenReturn(0);
+        when(idempotencyRecordRepository.findById(key)).thenReturn(Optional.of(IdempotencyRecord.builder()
+                .idempotencyKey(key)
+                .requestFingerprint(FINGERPRINT)
+                .status("PROCESSING")
+                .expiresAt(LocalDateTime.now().plusMinutes(60))
+                .processingExpiresAt(processingExpiresAt)
+                .build()));
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
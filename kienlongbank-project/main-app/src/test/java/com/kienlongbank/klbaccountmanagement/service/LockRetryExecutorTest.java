@@ -0,0 +1,106 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Unit Test cho LockRetryExecutor
+ */
+class LockRetryExecutorTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private LockRetryExecutor lockRetryExecutor;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        lockRetryExecutor = new LockRetryExecutor(
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), jdbcTemplate, 1500, 3, 1);
+    }
+
+    @Test
+    void testExecute_SetsLockTimeoutForEachTransaction() {
+        String result = lockRetryExecutor.execute(status -> "OK");
+
+        assertEquals("OK", result);
+        verify(jdbcTemplate).execute("SET LOCAL lock_timeout = '1500ms'");
+    }
+
+    @Test
+    void testExecute_RetriesOnLockTimeout() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = lockRetryExecutor.execute(status -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new CannotAcquireLockException("could not obtain lock on row in relation \"accounts\"");
+            }
+            return "OK";
+        });
+
+        assertEquals("OK", result);
+        assertEquals(3, attempts.get());
+        verify(jdbcTemplate, times(3)).execute(anyString());
+    }
+
+    @Test
+    void testExecute_RetriesOnDeadlockSqlState() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        lockRetryExecutor.executeWithoutResult(status -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new UncategorizedSQLException("transfer", "UPDATE accounts",
+                    new SQLException("deadlock detected", "40P01"));
+            }
+        });
+
+        assertEquals(2, attempts.get());
+    }
+
+    @Test
+    void testExecute_GivesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> lockRetryExecutor.execute(status -> {
+            attempts.incrementAndGet();
+            throw new CannotAcquireLockException("lock timeout");
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals("Tài khoản đang được xử lý bởi giao dịch khác, vui lòng thử lại sau.", exception.getMessage());
+        assertTrue(exception.getCause() instanceof CannotAcquireLockException);
+    }
+
+    @Test
+    void testExecute_DoesNotRetryBusinessErrors() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        RuntimeException exception = assertThrows(RuntimeException.class, () -> lockRetryExecutor.execute(status -> {
+            attempts.incrementAndGet();
+            throw new RuntimeException("Số dư không đủ để thực hiện giao dịch!");
+        }));
+
+        assertEquals(1, attempts.get());
+        assertEquals("Số dư không đủ để thực hiện giao dịch!", exception.getMessage());
+    }
+
+    @Test
+    void testIsRetryable() {
+        assertTrue(LockRetryExecutor.isRetryable(new CannotAcquireLockException("lock")));
+        assertTrue(LockRetryExecutor.isRetryable(new RuntimeException(new SQLException("serialize", "40001"))));
+        assertFalse(LockRetryExecutor.isRetryable(new DataIntegrityViolationException("duplicate key")));
+        assertFalse(LockRetryExecutor.isRetryable(new RuntimeException(new SQLException("syntax", "42601"))));
+    }
+}
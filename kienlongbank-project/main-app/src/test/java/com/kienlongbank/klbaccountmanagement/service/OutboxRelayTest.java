@@ -0,0 +1,135 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpTimeoutException;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.model.OutboxEvent;
+import com.kienlongbank.klbaccountmanagement.repository.OutboxEventRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Unit Test cho OutboxRelay: gửi theo lô với publisher confirm, chỉ đánh dấu đã gửi sau khi broker xác nhận,
+ * và các metric độ trễ / số tin đã gửi
+ */
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations operations;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxEventRepository, rabbitTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), meterRegistry);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 2);
+        ReflectionTestUtils.setField(outboxRelay, "maxBatchesPerRun", 20);
+        ReflectionTestUtils.setField(outboxRelay, "confirmTimeoutMs", 5000L);
+    }
+
+    // invoke chạy callback trên channel giả lập
+    @SuppressWarnings("unchecked")
+    private void givenChannel() {
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+            ((RabbitOperations.OperationsCallback<?>) invocation.getArgument(0)).doInRabbit(operations));
+    }
+
+    @Test
+    void testRelay_PublishesBatchThenMarksPublishedAfterConfirm() {
+        givenChannel();
+        when(outboxEventRepository.lockNextBatch(2))
+            .thenReturn(List.of(event(1L, "notificationQueue"), event(2L, "notificationQueue")))
+            .thenReturn(List.of(event(3L, "auditQueue")));
+        when(outboxEventRepository.countByPublishedAtIsNull()).thenReturn(0L);
+        when(outboxEventRepository.findFirstByPublishedAtIsNullOrderByIdAsc()).thenReturn(Optional.empty());
+
+        outboxRelay.relay();
+
+        InOrder inOrder = inOrder(outboxEventRepository, operations);
+        inOrder.verify(outboxEventRepository).lockNextBatch(2);
+        inOrder.verify(operations).convertAndSend("notificationQueue", "payload-1");
+        inOrder.verify(operations).convertAndSend("notificationQueue", "payload-2");
+        inOrder.verify(operations).waitForConfirmsOrDie(5000L);
+        inOrder.verify(outboxEventRepository).markPublished(eq(List.of(1L, 2L)), any(LocalDateTime.class));
+        // Lô đầy nên relay lấy tiếp lô sau trong cùng lần chạy
+        inOrder.verify(outboxEventRepository).lockNextBatch(2);
+        inOrder.verify(operations).convertAndSend("auditQueue", "payload-3");
+        inOrder.verify(operations).waitForConfirmsOrDie(5000L);
+        inOrder.verify(outboxEventRepository).markPublished(eq(List.of(3L)), any(LocalDateTime.class));
+        verify(outboxEventRepository, times(2)).lockNextBatch(2);
+
+        assertEquals(3.0, meterRegistry.get("outbox.published.events").counter().count());
+        assertEquals(0.0, meterRegistry.get("outbox.lag.seconds").gauge().value());
+    }
+
+    @Test
+    void testRelay_ConfirmFailureLeavesEventsPending() {
+        givenChannel();
+        when(outboxEventRepository.lockNextBatch(2)).thenReturn(List.of(event(1L, "notificationQueue")));
+        doThrow(new AmqpTimeoutException("Timed out waiting for confirms"))
+            .when(operations).waitForConfirmsOrDie(5000L);
+        when(outboxEventRepository.countByPublishedAtIsNull()).thenReturn(1L);
+        when(outboxEventRepository.findFirstByPublishedAtIsNullOrderByIdAsc())
+            .thenReturn(Optional.of(event(1L, "notificationQueue")));
+
+        assertDoesNotThrow(() -> outboxRelay.relay());
+
+        verify(operations).convertAndSend("notificationQueue", "payload-1");
+        // Không đánh dấu đã gửi: lần chạy sau gửi lại (at-least-once)
+        verify(outboxEventRepository, never()).markPublished(anyCollection(), any());
+        assertEquals(0.0, meterRegistry.get("outbox.published.events").counter().count());
+        assertEquals(1.0, meterRegistry.get("outbox.pending.events").gauge().value());
+    }
+
+    @Test
+    void testRelay_ReportsAgeOfOldestPendingEvent() {
+        when(outboxEventRepository.lockNextBatch(2)).thenReturn(List.of());
+        OutboxEvent oldest = event(7L, "notificationQueue");
+        oldest.setCreatedAt(LocalDateTime.now().minusSeconds(30));
+        when(outboxEventRepository.countByPublishedAtIsNull()).thenReturn(5L);
+        when(outboxEventRepository.findFirstByPublishedAtIsNullOrderByIdAsc()).thenReturn(Optional.of(oldest));
+
+        outboxRelay.relay();
+
+        verifyNoInteractions(rabbitTemplate);
+        assertEquals(5.0, meterRegistry.get("outbox.pending.events").gauge().value());
+        double lagSeconds = meterRegistry.get("outbox.lag.seconds").gauge().value();
+        assertTrue(lagSeconds >= 30 && lagSeconds < 35, "lag = " + lagSeconds);
+    }
+
+    private static OutboxEvent event(Long id, String destination) {
+        return OutboxEvent.builder()
+            .id(id)
+            .destination(destination)
+            .payload("payload-" + id)
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+}
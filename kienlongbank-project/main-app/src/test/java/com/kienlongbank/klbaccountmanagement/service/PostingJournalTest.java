@@ -0,0 +1,84 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.kienlongbank.klbaccountmanagement.model.AccountPosting;
+import com.kienlongbank.klbaccountmanagement.model.BalanceSnapshot;
+import com.kienlongbank.klbaccountmanagement.repository.AccountPostingRepository;
+import com.kienlongbank.klbaccountmanagement.repository.BalanceSnapshotRepository;
+
+/**
+ * Unit Test cho PostingJournal: số dư = snapshot + phần đuôi của sổ bút toán, ghi bút toán cập nhật bảng tổng hợp theo ngày
+ */
+@ExtendWith(MockitoExtension.class)
+class PostingJournalTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private AccountPostingRepository accountPostingRepository;
+
+    @Mock
+    private BalanceSnapshotRepository balanceSnapshotRepository;
+
+    @Mock
+    private DailyBalanceRollup dailyBalanceRollup;
+
+    @InjectMocks
+    private PostingJournal postingJournal;
+
+    @Test
+    void testBalanceAt_SnapshotPlusTail() {
+        LocalDateTime asOf = LocalDateTime.of(2025, 8, 1, 0, 0);
+        LocalDateTime at = LocalDateTime.of(2025, 8, 1, 12, 0);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(1L, at))
+            .thenReturn(Optional.of(BalanceSnapshot.builder().accountId(1L).balance(1_000L).asOf(asOf).build()));
+        when(accountPostingRepository.sumBetween(1L, asOf, at)).thenReturn(-250L);
+
+        assertEquals(750L, postingJournal.balanceAt(1L, at));
+        verify(accountPostingRepository, never()).sumUpTo(any(), any());
+    }
+
+    @Test
+    void testBalanceAt_NoSnapshotSumsWholeJournal() {
+        LocalDateTime at = LocalDateTime.of(2025, 8, 1, 12, 0);
+        when(balanceSnapshotRepository.findFirstByAccountIdAndAsOfLessThanEqualOrderByAsOfDesc(2L, at))
+            .thenReturn(Optional.empty());
+        when(accountPostingRepository.sumUpTo(2L, at)).thenReturn(500L);
+
+        assertEquals(500L, postingJournal.balanceAt(2L, at));
+    }
+
+    @Test
+    void testPostAll_UpdatesDailyRollup() {
+        List<AccountPosting> postings = List.of(
+            PostingJournal.posting(1L, 10L, -500L),
+            PostingJournal.posting(2L, 10L, 500L));
+
+        postingJournal.postAll(postings);
+
+        verify(jdbcTemplate).batchUpdate(anyString(), eq(postings), eq(2), any());
+        verify(dailyBalanceRollup).apply(postings);
+    }
+
+    @Test
+    void testPostAll_EmptyIsNoop() {
+        postingJournal.postAll(List.of());
+
+        verifyNoInteractions(jdbcTemplate, dailyBalanceRollup);
+    }
+}
@@ -0,0 +1,114 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionAmountConfig;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionAmountPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionView;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Unit Test cho TransactionAmountService: giới hạn số dòng phía server và top N bằng heap có kích thước cố định
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionAmountServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 10, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2026, 10, 31, 23, 59, 59);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private TransactionAmountService transactionAmountService;
+
+    @BeforeEach
+    void setUp() {
+        TransactionAmountConfig config = new TransactionAmountConfig();
+        config.setDefaultLimit(2);
+        config.setMaxLimit(3);
+        transactionAmountService = new TransactionAmountService(transactionRepository, config, entityManager);
+    }
+
+    @Test
+    void testGreaterThan_FetchesOneExtraRowForHasMore() {
+        when(transactionRepository.findViewsByAmountGreaterThan(100L, PageRequest.of(0, 3)))
+            .thenReturn(List.of(view(3L, 900L), view(2L, 800L), view(1L, 700L)));
+
+        TransactionAmountPage page = transactionAmountService.getTransactionsByAmountGreaterThan(100L, null);
+
+        assertEquals(List.of(3L, 2L), page.getTransactions().stream().map(TransactionView::id).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(2, page.getLimit());
+    }
+
+    @Test
+    void testRange_LimitIsCappedAndValidated() {
+        when(transactionRepository.findViewsByAmountRange(10L, 20L, PageRequest.of(0, 4)))
+            .thenReturn(List.of(view(1L, 15L)));
+
+        TransactionAmountPage page = transactionAmountService.getTransactionsByAmountRange(10L, 20L, 100_000);
+
+        assertFalse(page.isHasMore());
+        assertEquals(3, page.getLimit());
+        assertThrows(IllegalArgumentException.class,
+            () -> transactionAmountService.getTransactionsByAmountRange(20L, 10L, null));
+        assertThrows(IllegalArgumentException.class,
+            () -> transactionAmountService.getTransactionsByAmountGreaterThan(0L, 0));
+    }
+
+    @Test
+    void testTopForAccount_KeepsLargestAndDetachesEveryRow() {
+        List<Transaction> rows = new ArrayList<>();
+        LongStream.of(50L, 10L, 90L, 30L, 90L, 70L).forEach(amount ->
+            rows.add(transaction(rows.size() + 1L, amount)));
+        when(transactionRepository.streamByAccountIdAndDateRange(1L, START, END)).thenReturn(rows.stream());
+
+        List<TransactionView> top = transactionAmountService.getTopByAmountForAccount(1L, START, END, 3);
+
+        // Cùng số tiền 90: id lớn hơn trước
+        assertEquals(List.of(5L, 3L, 6L), top.stream().map(TransactionView::id).toList());
+        verify(entityManager, times(rows.size())).detach(any(Transaction.class));
+    }
+
+    @Test
+    void testTopN_FewerRowsThanN() {
+        List<TransactionView> top = TransactionAmountService.topN(
+            List.of(transaction(1L, 5L), transaction(2L, 7L)).iterator(), 10, transaction -> { });
+
+        assertEquals(List.of(2L, 1L), top.stream().map(TransactionView::id).toList());
+    }
+
+    @Test
+    void testTop_InvalidDateRange() {
+        assertThrows(IllegalArgumentException.class, () -> transactionAmountService.getTopByAmount(END, START, 10));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private static TransactionView view(Long id, long amount) {
+        return TransactionView.of(transaction(id, amount));
+    }
+
+    private static Transaction transaction(Long id, long amount) {
+        return Transaction.builder().id(id).fromAccountId(1L).toAccountId(2L).amount(amount)
+            .transactionDate(START.plusHours(id)).status("COMPLETED").build();
+    }
+}
@@ -0,0 +1,122 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Unit Test cho TransactionExportService
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionExportServiceTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 10, 1, 0, 0);
+    private static final LocalDateTime END = LocalDateTime.of(2026, 10, 31, 23, 59, 59);
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private TransactionExportService transactionExportService;
+
+    private Transaction first;
+    private Transaction second;
+
+    @BeforeEach
+    void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        transactionExportService = new TransactionExportService(transactionRepository, objectMapper, entityManager);
+
+        first = Transaction.builder()
+                .id(1L).fromAccountId(1L).toAccountId(2L).amount(100L)
+                .transactionDate(LocalDateTime.of(2026, 10, 2, 8, 0))
+                .status("COMPLETED").description("Chuyển khoản nội bộ")
+                .build();
+        second = Transaction.builder()
+                .id(2L).fromAccountId(2L).toAccountId(1L).amount(2_500_000L)
+                .transactionDate(LocalDateTime.of(2026, 10, 3, 9, 30))
+                .status("COMPLETED").description("=HYPERLINK(\"x\"), lương tháng 10")
+                .build();
+    }
+
+    @Test
+    void testExport_NdjsonOneTransactionPerLine() throws IOException {
+        when(transactionRepository.streamByDateRange(START, END)).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        long rows = transactionExportService.exportByDateRange(START, END, TransactionExportService.Format.NDJSON, out);
+
+        assertEquals(2, rows);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        assertTrue(lines[0].contains("\"amount\":100.0"));
+        assertTrue(lines[1].contains("\"transactionDate\":\"2026-10-03T09:30:00\""));
+        // Mỗi entity được detach sau khi ghi
+        verify(entityManager).detach(first);
+        verify(entityManager).detach(second);
+    }
+
+    @Test
+    void testExport_CsvEscapesFields() throws IOException {
+        when(transactionRepository.streamByAccountIdAndDateRange(1L, START, END)).thenReturn(Stream.of(first, second));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        transactionExportService.exportByAccountIdAndDateRange(1L, START, END, TransactionExportService.Format.CSV, out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,fromAccountId,toAccountId,amount,transactionDate,status,description", lines[0]);
+        assertEquals("1,1,2,100,2026-10-02T08:00,COMPLETED,Chuyển khoản nội bộ", lines[1]);
+        assertEquals("2,2,1,2500000,2026-10-03T09:30,COMPLETED,\"'=HYPERLINK(\"\"x\"\"), lương tháng 10\"", lines[2]);
+    }
+
+    @Test
+    void testExport_ClientDisconnectClosesStream() {
+        AtomicBoolean closed = new AtomicBoolean();
+        when(transactionRepository.streamByDateRange(START, END))
+            .thenReturn(Stream.generate(() -> first).onClose(() -> closed.set(true)));
+        OutputStream disconnected = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        assertThrows(IOException.class, () -> transactionExportService.exportByDateRange(
+            START, END, TransactionExportService.Format.NDJSON, disconnected));
+        assertTrue(closed.get());
+    }
+
+    @Test
+    void testCsvField() {
+        assertEquals("", TransactionExportService.csvField(null));
+        assertEquals("abc", TransactionExportService.csvField("abc"));
+        assertEquals("\"a,b\"", TransactionExportService.csvField("a,b"));
+        assertEquals("'-100", TransactionExportService.csvField("-100"));
+        verifyNoInteractions(transactionRepository, entityManager);
+    }
+}
@@ -0,0 +1,114 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.YearMonth;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionPartitionConfig;
+
+/**
+ * Unit Test cho TransactionPartitionManager: tên/khoảng của partition và thứ tự các lệnh DDL/bảo trì, advisory lock giữa các node
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionPartitionManagerTest {
+
+    private static final String EXISTS_SQL = "SELECT to_regclass(?) IS NOT NULL";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionPartitionConfig config;
+    private TransactionPartitionManager manager;
+
+    @BeforeEach
+    void setUp() {
+        config = new TransactionPartitionConfig();
+        config.setPremakeMonths(2);
+        manager = new TransactionPartitionManager(jdbcTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)), config);
+    }
+
+    @Test
+    void testPartitionNamesAndBounds() {
+        assertEquals("transactions_p2026_01", TransactionPartitionManager.partitionName(YearMonth.of(2026, 1)));
+        assertEquals(YearMonth.of(2025, 12), TransactionPartitionManager.monthOf("transactions_p2025_12"));
+        assertEquals("FOR VALUES FROM ('2025-12-01') TO ('2026-01-01')",
+            TransactionPartitionManager.bounds(YearMonth.of(2025, 12)));
+        assertEquals(List.of(YearMonth.of(2025, 11), YearMonth.of(2025, 12), YearMonth.of(2026, 1)),
+            TransactionPartitionManager.monthsToCreate(YearMonth.of(2025, 11), 2));
+    }
+
+    @Test
+    void testEnsurePartitions_CreatesOnlyMissingMonths() {
+        when(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, "transactions_p2026_10")).thenReturn(true);
+        when(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, "transactions_p2026_11")).thenReturn(true);
+        when(jdbcTemplate.queryForObject(EXISTS_SQL, Boolean.class, "transactions_p2026_12")).thenReturn(false);
+
+        manager.ensurePartitions(YearMonth.of(2026, 10));
+
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("SET LOCAL lock_timeout = 2000");
+        inOrder.verify(jdbcTemplate).execute(
+            "CREATE TABLE transactions_p2026_12 (LIKE transactions INCLUDING DEFAULTS INCLUDING CONSTRAINTS)");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE transactions_p2026_12 ADD CONSTRAINT transactions_p2026_12_date_check " +
+            "CHECK (transaction_date >= '2026-12-01' AND transaction_date < '2027-01-01')");
+        inOrder.verify(jdbcTemplate).execute("ALTER TABLE transactions ATTACH PARTITION transactions_p2026_12 " +
+            "FOR VALUES FROM ('2026-12-01') TO ('2027-01-01')");
+        verify(jdbcTemplate, never()).execute(contains("transactions_p2026_10"));
+    }
+
+    @Test
+    void testArchiveBefore_FreezesOldestMonthsInPlace() {
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class), eq("transactions"), eq("archived")))
+            .thenReturn(List.of("transactions_p2025_01", "transactions_p2025_02", "transactions_p2025_03"));
+
+        int archived = manager.archiveBefore(YearMonth.of(2025, 3));
+
+        assertEquals(2, archived);
+        InOrder inOrder = inOrder(jdbcTemplate);
+        inOrder.verify(jdbcTemplate).execute("VACUUM (FREEZE, ANALYZE) transactions_p2025_01");
+        inOrder.verify(jdbcTemplate).execute("COMMENT ON TABLE transactions_p2025_01 IS 'archived'");
+        inOrder.verify(jdbcTemplate).execute("VACUUM (FREEZE, ANALYZE) transactions_p2025_02");
+        inOrder.verify(jdbcTemplate).execute("COMMENT ON TABLE transactions_p2025_02 IS 'archived'");
+        verify(jdbcTemplate, never()).execute(contains("transactions_p2025_03"));
+        verify(jdbcTemplate, never()).execute(contains("DETACH"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testMaintain_SkipsWhenAnotherNodeHoldsTheLock() throws Exception {
+        Connection connection = mock(Connection.class);
+        PreparedStatement statement = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement("SELECT pg_try_advisory_lock(?)")).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getBoolean(1)).thenReturn(false);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+            .thenAnswer(invocation -> ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(connection));
+
+        manager.maintain();
+
+        verify(statement).setLong(1, TransactionPartitionManager.LOCK_KEY);
+        verify(connection, never()).prepareStatement("SELECT pg_advisory_unlock(?)");
+        verify(jdbcTemplate, never()).queryForObject(anyString(), eq(Boolean.class), anyString());
+        verify(jdbcTemplate, never()).execute(anyString());
+    }
+}
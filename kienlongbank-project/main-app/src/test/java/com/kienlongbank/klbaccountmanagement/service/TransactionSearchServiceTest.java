@@ -0,0 +1,166 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.kienlongbank.klbaccountmanagement.config.TransactionSearchConfig;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionSearchPage;
+import com.kienlongbank.klbaccountmanagement.model.Transaction;
+import com.kienlongbank.klbaccountmanagement.repository.TransactionRepository;
+
+/**
+ * Unit Test cho TransactionSearchService
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionSearchServiceTest {
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionSearchConfig config;
+    private TransactionSearchService transactionSearchService;
+
+    @BeforeEach
+    void setUp() {
+        config = new TransactionSearchConfig();
+        config.setMode(TransactionSearchConfig.Mode.TRIGRAM);
+        config.setDefaultSize(2);
+        config.setMaxSize(3);
+        transactionSearchService = new TransactionSearchService(transactionRepository, config, jdbcTemplate);
+    }
+
+    @Test
+    void testSearch_TrigramFetchesOneExtraRowForHasMore() {
+        when(transactionRepository.searchByDescription("chuyen khoan", "chuyen khoan", 3, 0L))
+            .thenReturn(List.of(transaction(3L), transaction(2L), transaction(1L)));
+
+        TransactionSearchPage page = transactionSearchService.search("  chuyen khoan ", null, null);
+
+        assertEquals(List.of(3L, 2L), page.getTransactions().stream().map(Transaction::getId).toList());
+        assertTrue(page.isHasMore());
+        assertEquals(0, page.getPage());
+        assertEquals(2, page.getSize());
+    }
+
+    @Test
+    void testSearch_TrigramLastPageAndOffset() {
+        when(transactionRepository.searchByDescription("luong", "luong", 4, 6L))
+            .thenReturn(List.of(transaction(1L)));
+
+        // size vượt max-size bị cắt xuống 3
+        TransactionSearchPage page = transactionSearchService.search("luong", 2, 50);
+
+        assertEquals(1, page.getTransactions().size());
+        assertFalse(page.isHasMore());
+        assertEquals(3, page.getSize());
+    }
+
+    @Test
+    void testSearch_EscapesLikeWildcards() {
+        when(transactionRepository.searchByDescription(eq("100%_a\\b"), eq("100\\%\\_a\\\\b"), anyInt(), anyLong()))
+            .thenReturn(List.of());
+
+        TransactionSearchPage page = transactionSearchService.search("100%_a\\b", 0, 2);
+
+        assertTrue(page.getTransactions().isEmpty());
+        assertFalse(page.isHasMore());
+    }
+
+    @Test
+    void testSearch_LikeModeUsesSlice() {
+        config.setMode(TransactionSearchConfig.Mode.LIKE);
+        PageRequest pageRequest = PageRequest.of(1, 2);
+        when(transactionRepository.findByDescriptionContaining("lương", pageRequest))
+            .thenReturn(new SliceImpl<>(List.of(transaction(4L), transaction(3L)), pageRequest, true));
+
+        TransactionSearchPage page = transactionSearchService.search("lương", 1, null);
+
+        assertEquals(2, page.getTransactions().size());
+        assertTrue(page.isHasMore());
+        verify(transactionRepository, never()).searchByDescription(any(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void testCheckTrigramSupport_KeepsTrigramWhenMigrationApplied() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(true);
+
+        transactionSearchService.checkTrigramSupport();
+
+        assertEquals(TransactionSearchConfig.Mode.TRIGRAM, transactionSearchService.effectiveMode());
+    }
+
+    @Test
+    void testCheckTrigramSupport_FallsBackToLikeWithoutMigration() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+
+        transactionSearchService.checkTrigramSupport();
+
+        assertEquals(TransactionSearchConfig.Mode.LIKE, transactionSearchService.effectiveMode());
+        // Bean cấu hình dùng chung không bị sửa
+        assertEquals(TransactionSearchConfig.Mode.TRIGRAM, config.getMode());
+    }
+
+    @Test
+    void testCheckTrigramSupport_FallsBackToLikeWhenCheckFails() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class)))
+            .thenThrow(new CannotGetJdbcConnectionException("connection refused"));
+
+        transactionSearchService.checkTrigramSupport();
+
+        assertEquals(TransactionSearchConfig.Mode.LIKE, transactionSearchService.effectiveMode());
+        // Bean cấu hình dùng chung không bị sửa
+        assertEquals(TransactionSearchConfig.Mode.TRIGRAM, config.getMode());
+    }
+
+    @Test
+    void testSearch_UsesLikeAfterFallback() {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Boolean.class))).thenReturn(false);
+        PageRequest pageRequest = PageRequest.of(0, 2);
+        when(transactionRepository.findByDescriptionContaining("lương", pageRequest))
+            .thenReturn(new SliceImpl<>(List.of(transaction(1L)), pageRequest, false));
+
+        transactionSearchService.checkTrigramSupport();
+        TransactionSearchPage page = transactionSearchService.search("lương", null, null);
+
+        assertEquals(1, page.getTransactions().size());
+        verify(transactionRepository, never()).searchByDescription(any(), any(), anyInt(), anyLong());
+    }
+
+    @Test
+    void testDefaultModeIsTrigram() {
+        assertEquals(TransactionSearchConfig.Mode.TRIGRAM, new TransactionSearchConfig().getMode());
+    }
+
+    @Test
+    void testSearch_InvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> transactionSearchService.search(" ", null, null));
+        assertThrows(IllegalArgumentException.class, () -> transactionSearchService.search("luong", -1, null));
+        assertThrows(IllegalArgumentException.class, () -> transactionSearchService.search("luong", 0, 0));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    private static Transaction transaction(Long id) {
+        return Transaction.builder()
+                .id(id).fromAccountId(1L).toAccountId(2L).amount(100L)
+                .transactionDate(LocalDateTime.of(2026, 10, 1, 8, 0).plusMinutes(id))
+                .status("COMPLETED").description("Chuyển khoản lương")
+                .build();
+    }
+}
@@ -4,20 +4,37 @@ import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
-import org.springframework.test.util.ReflectionTestUtils;
-import org.springframework.web.client.RestTemplate;
-
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.kienlongbank.common.money.Money;
+import com.kienlongbank.klbaccountmanagement.config.TransactionHistoryConfig;
+import com.kienlongbank.klbaccountmanagement.dto.AccountView;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionCursor;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionPage;
+import com.kienlongbank.klbaccountmanagement.dto.TransactionView;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerEngine;
+import com.kienlongbank.klbaccountmanagement.ledger.LedgerHold;
 import com.kienlongbank.klbaccountmanagement.model.Account;
 import com.kienlongbank.klbaccountmanagement.model.Transaction;
 import com.kienlongbank.klbaccountmanagement.repository.AccountRepository;
@@ -37,10 +54,33 @@ class TransactionServiceTest {
     private TransactionRepository transactionRepository;
 
     @Mock
-    private RestTemplate restTemplate;
+    private CoreBankingClient coreBankingClient;
+
+    @Mock
+    private OutboxService outboxService;
+
+    @Mock
+    private LedgerEngine ledgerEngine;
+
+    @Mock
+    private PostingJournal postingJournal;
+
+    @Mock
+    private HotAccountService hotAccountService;
 
     @Mock
-    private RabbitTemplate rabbitTemplate;
+    private TransactionStatusCounters transactionStatusCounters;
+
+    @Mock
+    private AccountCache accountCache;
+
+    // LockRetryExecutor thật với transaction manager giả: callback được chạy trực tiếp
+    @Spy
+    private LockRetryExecutor lockRetryExecutor = new LockRetryExecutor(
+        new TransactionTemplate(mock(PlatformTransactionManager.class)), mock(JdbcTemplate.class), 2000, 3, 1);
+
+    @Spy
+    private TransactionHistoryConfig transactionHistoryConfig = new TransactionHistoryConfig();
 
     @InjectMocks
     private TransactionService transactionService;
@@ -56,7 +96,7 @@ class TransactionServiceTest {
                 .id(1L)
                 .accountNumber("ACC001")
                 .accountType("SAVINGS")
-                .balance(1000.0)
+                .balance(1_000L)
                 .customerId(1L)
                 .createdDate(LocalDateTime.now())
                 .build();
@@ -65,7 +105,7 @@ class TransactionServiceTest {
                 .id(2L)
                 .accountNumber("ACC002")
                 .accountType("CHECKING")
-                .balance(500.0)
+                .balance(500L)
                 .customerId(2L)
                 .createdDate(LocalDateTime.now())
                 .build();
@@ -74,14 +114,33 @@ class TransactionServiceTest {
                 .id(1L)
                 .fromAccountId(1L)
                 .toAccountId(2L)
-                .amount(100.0)
+                .amount(100L)
                 .transactionDate(LocalDateTime.now())
                 .status("COMPLETED")
                 .description("Chuyển khoản nội bộ")
                 .build();
+    }
+
+    // save trả về bản sao đã có id (như merge của JPA), giữ nguyên số tiền và tài khoản đích của giao dịch được lưu
+    private void stubTransactionSave() {
+        when(transactionRepository.save(any(Transaction.class))).thenAnswer(invocation -> {
+            Transaction transaction = invocation.getArgument(0);
+            return Transaction.builder()
+                    .id(transaction.getId() != null ? transaction.getId() : mockTransaction.getId())
+                    .fromAccountId(transaction.getFromAccountId())
+                    .toAccountId(transaction.getToAccountId())
+                    .amount(transaction.getAmount())
+                    .transactionDate(transaction.getTransactionDate())
+                    .status(transaction.getStatus())
+                    .description(transaction.getDescription())
+                    .idempotencyKey(transaction.getIdempotencyKey())
+                    .build();
+        });
+    }
 
-        // Thiết lập giá trị cho thuộc tính private coreBankingApiUrl
-        ReflectionTestUtils.setField(transactionService, "coreBankingApiUrl", "http://localhost:9999");
+    private static AccountView view(Account account) {
+        return new AccountView(account.getId(), account.getAccountNumber(), account.getAccountType(),
+            account.getBalance(), account.getCustomerId(), account.getCreatedDate(), false);
     }
 
     @Test
@@ -89,19 +148,18 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 100.0;
+        long amount = 100L;
 
         // Mock các repository calls
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(toAccountId)).thenReturn(Optional.of(toAccount));
         
-        // Mock Core Banking API response
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
         // Mock transaction save
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         Transaction result = transactionService.performTransfer(fromAccountId, amount, toAccountId);
@@ -110,18 +168,44 @@ class TransactionServiceTest {
         assertNotNull(result);
         assertEquals(1L, result.getId());
         assertEquals("COMPLETED", result.getStatus());
-        assertEquals(100.0, result.getAmount());
+        assertEquals(100L, result.getAmount());
 
         // Verify balance changes
-        assertEquals(900.0, fromAccount.getBalance()); // 1000 - 100
-        assertEquals(600.0, toAccount.getBalance());   // 500 + 100
+        assertEquals(900L, fromAccount.getBalance()); // 1000 - 100
+        assertEquals(600L, toAccount.getBalance());   // 500 + 100
 
         // Verify repository interactions
-        verify(accountRepository, times(1)).findById(fromAccountId);
-        verify(accountRepository, times(1)).findById(toAccountId);
+        verify(accountRepository, times(1)).findByIdForUpdate(fromAccountId); // Khóa khi giữ tiền
+        verify(accountRepository, times(1)).findViewById(toAccountId);
+        verify(accountRepository, times(1)).findByIdForUpdate(toAccountId); // Khóa khi ghi có
         verify(accountRepository, times(2)).save(any(Account.class));
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
-        verify(rabbitTemplate, times(1)).convertAndSend(eq("notificationQueue"), anyString());
+        verify(transactionRepository, times(2)).save(any(Transaction.class)); // PENDING rồi COMPLETED
+        verify(outboxService, times(1)).enqueueTransferCompleted(any(Transaction.class), eq("ACC001"), eq("ACC002"));
+
+        // Mỗi chân có một bút toán trong sổ
+        verify(postingJournal).post(1L, 1L, -100L);
+        verify(postingJournal).post(2L, 1L, 100L);
+
+        // Bộ đếm trạng thái: tạo PENDING rồi chuyển sang COMPLETED
+        verify(transactionStatusCounters).recordCreated("PENDING", 1L);
+        verify(transactionStatusCounters).recordTransition("PENDING", "COMPLETED", 1L);
+    }
+
+    @Test
+    void testPerformTransfer_RecordsIdempotencyKeyOnTransaction() {
+        // Given
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(2L)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(toAccount));
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
+        stubTransactionSave();
+
+        // When
+        Transaction result = transactionService.performTransfer(1L, 100L, 2L, "key-1");
+
+        // Then - key được ghi ngay từ dòng PENDING, để IdempotencyStore xác định lại key khi hết lease
+        assertEquals("key-1", result.getIdempotencyKey());
+        verify(transactionRepository, times(2)).save(argThat(transaction -> "key-1".equals(transaction.getIdempotencyKey())));
     }
 
     @Test
@@ -129,9 +213,9 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 999L;
         Long toAccountId = 2L;
-        Double amount = 100.0;
+        long amount = 100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.empty());
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -141,8 +225,8 @@ class TransactionServiceTest {
         assertEquals("Tài khoản nguồn không tồn tại!", exception.getMessage());
         
         // Verify no further interactions
-        verify(accountRepository, times(1)).findById(fromAccountId);
-        verify(accountRepository, never()).findById(toAccountId);
+        verify(accountRepository, times(1)).findByIdForUpdate(fromAccountId);
+        verify(accountRepository, never()).findViewById(toAccountId);
         verify(accountRepository, never()).save(any(Account.class));
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
@@ -152,10 +236,10 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 999L;
-        Double amount = 100.0;
+        long amount = 100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.empty());
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.empty());
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -165,8 +249,8 @@ class TransactionServiceTest {
         assertEquals("Tài khoản đích không tồn tại!", exception.getMessage());
         
         // Verify interactions
-        verify(accountRepository, times(1)).findById(fromAccountId);
-        verify(accountRepository, times(1)).findById(toAccountId);
+        verify(accountRepository, times(1)).findByIdForUpdate(fromAccountId);
+        verify(accountRepository, times(1)).findViewById(toAccountId);
         verify(accountRepository, never()).save(any(Account.class));
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
@@ -176,10 +260,10 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 1500.0; // Lớn hơn số dư (1000.0)
+        long amount = 1500L; // Lớn hơn số dư (1000)
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -189,8 +273,8 @@ class TransactionServiceTest {
         assertEquals("Số dư không đủ để thực hiện giao dịch!", exception.getMessage());
         
         // Verify interactions
-        verify(accountRepository, times(1)).findById(fromAccountId);
-        verify(accountRepository, times(1)).findById(toAccountId);
+        verify(accountRepository, times(1)).findByIdForUpdate(fromAccountId);
+        verify(accountRepository, times(1)).findViewById(toAccountId);
         verify(accountRepository, never()).save(any(Account.class));
         verify(transactionRepository, never()).save(any(Transaction.class));
     }
@@ -200,15 +284,14 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 100.0;
+        long amount = 100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
         
-        // Mock Core Banking API rejection
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("REJECTED", HttpStatus.BAD_REQUEST);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking từ chối
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(false);
+        stubTransactionSave();
 
         // When & Then
         RuntimeException exception = assertThrows(RuntimeException.class, () -> {
@@ -217,12 +300,18 @@ class TransactionServiceTest {
 
         assertEquals("Giao dịch bị Core Banking từ chối.", exception.getMessage());
         
-        // Verify interactions - accounts should not be updated
-        verify(accountRepository, times(1)).findById(fromAccountId);
-        verify(accountRepository, times(1)).findById(toAccountId);
-        verify(accountRepository, never()).save(any(Account.class));
-        verify(transactionRepository, never()).save(any(Transaction.class));
-        verify(rabbitTemplate, never()).convertAndSend(anyString(), anyString());
+        // Verify interactions - số tiền đã giữ được hoàn lại, giao dịch chuyển sang FAILED
+        assertEquals(1_000L, fromAccount.getBalance());
+        verify(accountRepository, times(2)).findByIdForUpdate(fromAccountId); // Giữ tiền + hoàn tiền
+        verify(accountRepository, times(1)).findViewById(toAccountId);
+        verify(accountRepository, times(2)).save(any(Account.class));
+        ArgumentCaptor<Transaction> savedTransaction = ArgumentCaptor.forClass(Transaction.class);
+        verify(transactionRepository, times(2)).save(savedTransaction.capture()); // PENDING rồi FAILED
+        assertEquals("FAILED", savedTransaction.getValue().getStatus());
+        verify(postingJournal).post(1L, 1L, -100L); // Giữ tiền
+        verify(postingJournal).post(1L, 1L, 100L);  // Hoàn tiền
+        verify(transactionStatusCounters).recordTransition("PENDING", "FAILED", 1L);
+        verify(outboxService, never()).enqueueTransferCompleted(any(), anyString(), anyString());
     }
 
     @Test
@@ -230,17 +319,16 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 0.0;
+        long amount = 0L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(toAccountId)).thenReturn(Optional.of(toAccount));
         
-        // Mock Core Banking API success
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         Transaction result = transactionService.performTransfer(fromAccountId, amount, toAccountId);
@@ -249,11 +337,11 @@ class TransactionServiceTest {
         assertNotNull(result);
         
         // Verify balances remain unchanged for zero amount
-        assertEquals(1000.0, fromAccount.getBalance()); // Unchanged
-        assertEquals(500.0, toAccount.getBalance());    // Unchanged
+        assertEquals(1_000L, fromAccount.getBalance()); // Unchanged
+        assertEquals(500L, toAccount.getBalance());    // Unchanged
         
         verify(accountRepository, times(2)).save(any(Account.class));
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
     }
 
     @Test
@@ -261,17 +349,16 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = -100.0;
+        long amount = -100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(toAccountId)).thenReturn(Optional.of(toAccount));
         
-        // Mock Core Banking API success
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         Transaction result = transactionService.performTransfer(fromAccountId, amount, toAccountId);
@@ -280,11 +367,11 @@ class TransactionServiceTest {
         assertNotNull(result);
         
         // Verify balances change according to negative amount
-        assertEquals(1100.0, fromAccount.getBalance()); // 1000 - (-100) = 1100
-        assertEquals(400.0, toAccount.getBalance());    // 500 + (-100) = 400
+        assertEquals(1_100L, fromAccount.getBalance()); // 1000 - (-100) = 1100
+        assertEquals(400L, toAccount.getBalance());    // 500 + (-100) = 400
         
         verify(accountRepository, times(2)).save(any(Account.class));
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
     }
 
     @Test
@@ -292,17 +379,16 @@ class TransactionServiceTest {
         // Given - Chuyển tiền cho chính tài khoản của mình
         Long fromAccountId = 1L;
         Long toAccountId = 1L; // Same account
-        Double amount = 100.0;
+        long amount = 100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(fromAccountId)).thenReturn(Optional.of(view(fromAccount)));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
         // toAccount sẽ là cùng instance với fromAccount
 
-        // Mock Core Banking API success
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         Transaction result = transactionService.performTransfer(fromAccountId, amount, toAccountId);
@@ -311,11 +397,12 @@ class TransactionServiceTest {
         assertNotNull(result);
         
         // Verify balance remains unchanged (transfer to same account)
-        assertEquals(1000.0, fromAccount.getBalance()); // Balance should remain same: 1000 - 100 + 100 = 1000
+        assertEquals(1_000L, fromAccount.getBalance()); // Balance should remain same: 1000 - 100 + 100 = 1000
         
-        verify(accountRepository, times(2)).findById(fromAccountId); // Called twice for from and to
+        verify(accountRepository, times(2)).findByIdForUpdate(fromAccountId); // Khóa khi giữ tiền và khi ghi có
+        verify(accountRepository, times(1)).findViewById(toAccountId);
         verify(accountRepository, times(2)).save(any(Account.class)); // Save called twice
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
     }
 
     @Test
@@ -323,17 +410,16 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 999.99; // Gần hết số dư
+        long amount = 999L; // Gần hết số dư
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(toAccountId)).thenReturn(Optional.of(toAccount));
         
-        // Mock Core Banking API success
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         Transaction result = transactionService.performTransfer(fromAccountId, amount, toAccountId);
@@ -342,12 +428,12 @@ class TransactionServiceTest {
         assertNotNull(result);
         
         // Verify balance changes
-        assertEquals(0.01, fromAccount.getBalance(), 0.001); // 1000 - 999.99 = 0.01
-        assertEquals(1499.99, toAccount.getBalance(), 0.001); // 500 + 999.99 = 1499.99
+        assertEquals(1L, fromAccount.getBalance()); // 1000 - 999 = 1
+        assertEquals(1_499L, toAccount.getBalance()); // 500 + 999 = 1499
         
         verify(accountRepository, times(2)).save(any(Account.class));
-        verify(transactionRepository, times(1)).save(any(Transaction.class));
-        verify(rabbitTemplate, times(1)).convertAndSend(eq("notificationQueue"), anyString());
+        verify(transactionRepository, times(2)).save(any(Transaction.class));
+        verify(outboxService, times(1)).enqueueTransferCompleted(any(Transaction.class), eq("ACC001"), eq("ACC002"));
     }
 
     @Test
@@ -355,17 +441,16 @@ class TransactionServiceTest {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 100.0;
+        long amount = 100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(toAccountId)).thenReturn(Optional.of(toAccount));
         
-        // Mock Core Banking API success
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         Transaction result = transactionService.performTransfer(fromAccountId, amount, toAccountId);
@@ -383,7 +468,7 @@ class TransactionServiceTest {
         verify(transactionRepository, times(1)).save(argThat(transaction -> 
             transaction.getFromAccountId().equals(fromAccountId) &&
             transaction.getToAccountId().equals(toAccountId) &&
-            transaction.getAmount().equals(amount) &&
+            transaction.getAmount() == amount &&
             transaction.getStatus().equals("COMPLETED") &&
             transaction.getDescription().equals("Chuyển khoản nội bộ") &&
             transaction.getTransactionDate() != null
@@ -391,35 +476,241 @@ class TransactionServiceTest {
     }
 
     @Test
-    void testPerformTransfer_VerifyRabbitMQMessage() {
+    void testPerformTransfer_VerifyOutboxMessage() {
         // Given
         Long fromAccountId = 1L;
         Long toAccountId = 2L;
-        Double amount = 100.0;
+        long amount = 100L;
 
-        when(accountRepository.findById(fromAccountId)).thenReturn(Optional.of(fromAccount));
-        when(accountRepository.findById(toAccountId)).thenReturn(Optional.of(toAccount));
+        when(accountRepository.findByIdForUpdate(fromAccountId)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(toAccountId)).thenReturn(Optional.of(view(toAccount)));
+        when(accountRepository.findByIdForUpdate(toAccountId)).thenReturn(Optional.of(toAccount));
         
-        // Mock Core Banking API success
-        ResponseEntity<String> coreResponse = new ResponseEntity<>("OK", HttpStatus.OK);
-        when(restTemplate.postForEntity(anyString(), any(), eq(String.class)))
-                .thenReturn(coreResponse);
+        // Mock Core Banking chấp thuận
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
         
-        when(transactionRepository.save(any(Transaction.class))).thenReturn(mockTransaction);
+        stubTransactionSave();
 
         // When
         transactionService.performTransfer(fromAccountId, amount, toAccountId);
 
-        // Then - Verify RabbitMQ message content
-        verify(rabbitTemplate, times(1)).convertAndSend(
-            eq("notificationQueue"), 
-            argThat((String message) -> {
-                String expectedMessage = "Giao dịch thành công với ID: " + mockTransaction.getId() + 
-                                       ", Số tiền: " + amount + 
-                                       ", Từ tài khoản: " + fromAccount.getAccountNumber() + 
-                                       " đến tài khoản: " + toAccount.getAccountNumber();
-                return message.equals(expectedMessage);
-            })
-        );
+        // Then - Thông báo được ghi vào outbox với đúng nội dung
+        verify(outboxService, times(1)).enqueueTransferCompleted(
+            argThat(transaction -> transaction.getId().equals(mockTransaction.getId()) && transaction.getAmount() == amount),
+            eq(fromAccount.getAccountNumber()), eq(toAccount.getAccountNumber()));
+
+        String expectedMessage = "Giao dịch thành công với ID: " + mockTransaction.getId() +
+                               ", Số tiền: " + Money.toDecimal(amount) +
+                               ", Từ tài khoản: " + fromAccount.getAccountNumber() +
+                               " đến tài khoản: " + toAccount.getAccountNumber();
+        assertEquals(expectedMessage, OutboxService.transferCompletedMessage(
+            mockTransaction, fromAccount.getAccountNumber(), toAccount.getAccountNumber()));
+    }
+
+    @Test
+    void testPerformTransfer_ConcurrentTransfersIntoSameAccountKeepBothCredits() throws Exception {
+        // Given - "database" giả: mỗi findByIdForUpdate khóa dòng và đọc lại số dư hiện tại (như một persistence
+        // context mới), khóa được nhả khi save (commit)
+        Map<Long, Long> balances = new ConcurrentHashMap<>(Map.of(1L, 1_000L, 2L, 1_000L, 3L, 500L));
+        Map<Long, ReentrantLock> rowLocks = new ConcurrentHashMap<>();
+        when(accountRepository.findByIdForUpdate(anyLong())).thenAnswer(invocation -> {
+            Long id = invocation.getArgument(0);
+            rowLocks.computeIfAbsent(id, key -> new ReentrantLock()).lock();
+            return Optional.of(Account.builder().id(id).accountNumber("ACC00" + id).balance(balances.get(id)).build());
+        });
+        when(accountRepository.save(any(Account.class))).thenAnswer(invocation -> {
+            Account account = invocation.getArgument(0);
+            balances.put(account.getId(), account.getBalance());
+            rowLocks.get(account.getId()).unlock();
+            return account;
+        });
+        when(accountRepository.findViewById(3L)).thenReturn(Optional.of(view(
+            Account.builder().id(3L).accountNumber("ACC003").balance(500L).build())));
+        stubTransactionSave();
+        // Cả hai giao dịch giữ tiền xong rồi mới cùng ghi có vào tài khoản 3
+        CyclicBarrier bothReserved = new CyclicBarrier(2);
+        when(coreBankingClient.authorize(anyString(), eq("ACC003"), anyLong())).thenAnswer(invocation -> {
+            bothReserved.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+
+        // When
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Transaction> first = executor.submit(() -> transactionService.performTransfer(1L, 100L, 3L));
+            Future<Transaction> second = executor.submit(() -> transactionService.performTransfer(2L, 100L, 3L));
+            assertEquals("COMPLETED", first.get(5, TimeUnit.SECONDS).getStatus());
+            assertEquals("COMPLETED", second.get(5, TimeUnit.SECONDS).getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // Then - không mất lần ghi có nào, tài khoản đích không được nạp thành entity trước bước ghi có
+        assertEquals(700L, balances.get(3L));
+        assertEquals(900L, balances.get(1L));
+        assertEquals(900L, balances.get(2L));
+        verify(accountRepository, never()).findById(3L);
+        verify(accountRepository, times(2)).findByIdForUpdate(3L);
+    }
+
+    @Test
+    void testPerformTransfer_HotAccountsUseSlots() {
+        // Given - cả hai tài khoản đều là tài khoản nóng
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(2L)).thenReturn(Optional.of(view(toAccount)));
+        when(hotAccountService.isHot(fromAccount)).thenReturn(true);
+        when(hotAccountService.isHot(2L)).thenReturn(true);
+        when(hotAccountService.debit(1L, 100L)).thenReturn(true);
+        when(coreBankingClient.authorize(anyString(), anyString(), anyLong())).thenReturn(true);
+        stubTransactionSave();
+
+        // When
+        transactionService.performTransfer(1L, 100L, 2L);
+
+        // Then - số dư đi qua các slot, dòng accounts của tài khoản đích không bị khóa hay ghi bằng entity
+        verify(hotAccountService).debit(1L, 100L);
+        verify(hotAccountService).credit(2L, 100L);
+        verify(accountRepository, never()).save(any(Account.class));
+        verify(accountRepository, never()).findByIdForUpdate(2L);
+        assertEquals(1_000L, fromAccount.getBalance());
+        assertEquals(500L, toAccount.getBalance());
+        verify(postingJournal).post(1L, 1L, -100L);
+        verify(postingJournal).post(2L, 1L, 100L);
+    }
+
+    @Test
+    void testPerformTransfer_HotAccountInsufficientBalance() {
+        // Given
+        when(accountRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(fromAccount));
+        when(accountRepository.findViewById(2L)).thenReturn(Optional.of(view(toAccount)));
+        when(hotAccountService.isHot(fromAccount)).thenReturn(true);
+        when(hotAccountService.debit(1L, 5_000L)).thenReturn(false);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> transactionService.performTransfer(1L, 5_000L, 2L));
+        assertEquals("Số dư không đủ để thực hiện giao dịch!", exception.getMessage());
+        verify(transactionRepository, never()).save(any(Transaction.class));
+        verify(coreBankingClient, never()).authorize(anyString(), anyString(), anyLong());
+    }
+
+    @Test
+    void testPerformTransfer_LedgerHoldsFundsBeforeAuthorizing() {
+        // Given - chế độ SHARDED
+        LedgerHold hold = new LedgerHold(mockTransaction, "ACC001");
+        when(ledgerEngine.isEnabled()).thenReturn(true);
+        when(accountRepository.findViewById(2L)).thenReturn(Optional.of(view(toAccount)));
+        when(ledgerEngine.hold(1L, 100L, 2L, "key-1")).thenReturn(hold);
+        when(coreBankingClient.authorize("ACC001", "ACC002", 100L)).thenReturn(true);
+        when(ledgerEngine.settle(hold)).thenReturn(mockTransaction);
+
+        // When
+        Transaction result = transactionService.performTransfer(1L, 100L, 2L, "key-1");
+
+        // Then - giữ tiền trên shard, xin phép Core Banking rồi mới ghi có; số dư JPA không được dùng
+        assertEquals(mockTransaction, result);
+        var order = inOrder(ledgerEngine, coreBankingClient);
+        order.verify(ledgerEngine).hold(1L, 100L, 2L, "key-1");
+        order.verify(coreBankingClient).authorize("ACC001", "ACC002", 100L);
+        order.verify(ledgerEngine).settle(hold);
+        verify(ledgerEngine, never()).release(any());
+        verify(accountRepository, never()).findById(anyLong());
+    }
+
+    @Test
+    void testPerformTransfer_LedgerReleasesHoldWhenCoreBankingRejects() {
+        // Given
+        LedgerHold hold = new LedgerHold(mockTransaction, "ACC001");
+        when(ledgerEngine.isEnabled()).thenReturn(true);
+        when(accountRepository.findViewById(2L)).thenReturn(Optional.of(view(toAccount)));
+        when(ledgerEngine.hold(1L, 100L, 2L, null)).thenReturn(hold);
+        when(coreBankingClient.authorize("ACC001", "ACC002", 100L)).thenReturn(false);
+
+        // When & Then
+        RuntimeException exception = assertThrows(RuntimeException.class,
+            () -> transactionService.performTransfer(1L, 100L, 2L));
+        assertEquals("Giao dịch bị Core Banking từ chối.", exception.getMessage());
+        verify(ledgerEngine).release(hold);
+        verify(ledgerEngine, never()).settle(any());
+    }
+
+    @Test
+    void testGetTransactionPage_FirstPageHasMore() {
+        // Given - có 3 giao dịch, mỗi trang 2
+        LocalDateTime now = LocalDateTime.now();
+        Transaction newest = Transaction.builder().id(30L).transactionDate(now).build();
+        Transaction middle = Transaction.builder().id(20L).transactionDate(now.minusMinutes(1)).build();
+        Transaction oldest = Transaction.builder().id(10L).transactionDate(now.minusMinutes(2)).build();
+        when(transactionRepository.findPageByAccountId(1L, 3))
+            .thenReturn(List.of(newest, middle, oldest));
+
+        // When
+        TransactionPage page = transactionService.getTransactionPage(1L, null, 2);
+
+        // Then - trả về 2 dòng, cursor trỏ tới dòng cuối của trang
+        assertEquals(List.of(newest, middle), page.getTransactions());
+        assertTrue(page.isHasMore());
+        TransactionCursor cursor = TransactionCursor.decode(page.getNextCursor());
+        assertEquals(middle.getTransactionDate(), cursor.transactionDate());
+        assertEquals(20L, cursor.id());
+    }
+
+    @Test
+    void testGetTransactionPage_NextPageSeeksAfterCursor() {
+        // Given
+        LocalDateTime date = LocalDateTime.of(2026, 10, 1, 9, 30, 15, 123_456_000);
+        String cursor = new TransactionCursor(date, 20L).encode();
+        Transaction oldest = Transaction.builder().id(10L).transactionDate(date.minusMinutes(1)).build();
+        when(transactionRepository.findPageByAccountIdAfter(1L, date, 20L, 3))
+            .thenReturn(List.of(oldest));
+
+        // When
+        TransactionPage page = transactionService.getTransactionPage(1L, cursor, 2);
+
+        // Then - trang cuối không có cursor
+        assertEquals(List.of(oldest), page.getTransactions());
+        assertFalse(page.isHasMore());
+        assertNull(page.getNextCursor());
+        verify(transactionRepository, never()).findPageByAccountId(anyLong(), anyInt());
+    }
+
+    @Test
+    void testGetTransactionPage_LimitIsCapped() {
+        when(transactionRepository.findPageByAccountId(eq(1L), anyInt())).thenReturn(List.of());
+
+        TransactionPage page = transactionService.getTransactionPage(1L, null, 100_000);
+
+        assertTrue(page.getTransactions().isEmpty());
+        verify(transactionRepository).findPageByAccountId(1L, transactionHistoryConfig.getMaxLimit() + 1);
+    }
+
+    @Test
+    void testGetTransactionPage_InvalidCursorOrLimit() {
+        assertThrows(IllegalArgumentException.class,
+            () -> transactionService.getTransactionPage(1L, "khong-phai-cursor", 10));
+        assertThrows(IllegalArgumentException.class,
+            () -> transactionService.getTransactionPage(1L, null, 0));
+        verifyNoInteractions(transactionRepository);
+    }
+
+    @Test
+    void testCountTransactionsByStatus_ReadsCounters() {
+        when(transactionStatusCounters.count("COMPLETED")).thenReturn(42L);
+
+        assertEquals(42L, transactionService.countTransactionsByStatus("COMPLETED"));
+        verify(transactionRepository, never()).countByStatus(anyString());
+    }
+
+    @Test
+    void testGetTransactionsByAccountIdAndDateRange_ReturnsViews() {
+        LocalDateTime start = LocalDateTime.of(2025, 8, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2025, 8, 31, 23, 59, 59);
+        Transaction row = Transaction.builder().id(7L).fromAccountId(1L).toAccountId(2L).amount(500L)
+            .transactionDate(start.plusDays(1)).status("COMPLETED").description("Chuyen tien").build();
+        when(transactionRepository.findByAccountIdAndDateRange(1L, start, end)).thenReturn(List.of(row));
+
+        List<TransactionView> views = transactionService.getTransactionsByAccountIdAndDateRange(1L, start, end);
+
+        assertEquals(List.of(new TransactionView(7L, 1L, 2L, 500L, start.plusDays(1), "COMPLETED", "Chuyen tien")), views);
     }
 }
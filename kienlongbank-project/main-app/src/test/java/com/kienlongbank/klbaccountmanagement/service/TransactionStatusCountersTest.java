@@ -0,0 +1,142 @@
+package com.kienlongbank.klbaccountmanagement.service;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Unit Test cho TransactionStatusCounters: đếm sau commit, flush phần chênh lệch và đối soát
+ */
+@ExtendWith(MockitoExtension.class)
+class TransactionStatusCountersTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private TransactionStatusCounters counters;
+
+    @BeforeEach
+    void setUp() {
+        counters = new TransactionStatusCounters(jdbcTemplate,
+            new TransactionTemplate(mock(PlatformTransactionManager.class)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void testRecord_CountsOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+        counters.recordCreated("PENDING", 1L);
+        counters.recordTransition("PENDING", "COMPLETED", 1L);
+
+        assertEquals(0, counters.count("COMPLETED"));
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+        assertEquals(1, counters.count("COMPLETED"));
+        assertEquals(0, counters.count("PENDING"));
+    }
+
+    @Test
+    void testFlush_WritesDeltasAndReadsSharedValues() throws SQLException {
+        counters.recordCreated("COMPLETED", 1L);
+        counters.recordCreated("COMPLETED", 2L);
+        counters.recordCreated("COMPLETED", 20_001L);
+        counters.recordCreated("FAILED", 3L);
+        givenStoredCounters(Map.of("COMPLETED", 103L, "FAILED", 11L));
+
+        counters.flush();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO transaction_status_counter_deltas"), rows.capture());
+        // Một dòng cho mỗi (trạng thái, khối id)
+        assertEquals(3, rows.getValue().size());
+        assertTrue(rows.getValue().stream().anyMatch(row ->
+            row[0].equals("COMPLETED") && row[1].equals(0L) && row[2].equals(2L)));
+        assertTrue(rows.getValue().stream().anyMatch(row ->
+            row[0].equals("COMPLETED") && row[1].equals(20_000L) && row[2].equals(1L)));
+        // Phần đã flush được trừ khỏi bộ đếm cục bộ, giá trị chung được đọc lại
+        assertEquals(103, counters.count("COMPLETED"));
+        assertEquals(11, counters.count("FAILED"));
+    }
+
+    @Test
+    void testFlush_NothingPendingOnlyRefreshes() throws SQLException {
+        givenStoredCounters(Map.of("COMPLETED", 7L));
+
+        counters.flush();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+        assertEquals(7, counters.count("COMPLETED"));
+    }
+
+    @Test
+    void testReconcile_CountsOnlyBelowSettledWatermark() throws SQLException {
+        // Phần chưa flush của instance này thuộc khối sau watermark, không bị trừ khỏi số đếm thật
+        counters.recordCreated("COMPLETED", 25_500L);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(MAX(id), 0) FROM transactions"), eq(Long.class),
+            eq(TransactionStatusCounters.SETTLE_SECONDS))).thenReturn(25_000L);
+        when(jdbcTemplate.queryForObject(startsWith("SELECT COALESCE(MIN(below_id), 0)"), eq(Long.class)))
+            .thenReturn(10_000L);
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn("COMPLETED");
+            when(rs.getLong(2)).thenReturn(19_000L);
+            handler.processRow(rs);
+            return null;
+        }).when(jdbcTemplate).query(contains("WHERE id < ?"), any(RowCallbackHandler.class), eq(20_000L));
+        when(jdbcTemplate.queryForList(anyString(), eq(String.class))).thenReturn(List.of("FAILED"));
+        givenStoredCounters(Map.of("COMPLETED", 19_500L));
+
+        counters.reconcile();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Object[]>> rows = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(startsWith("INSERT INTO transaction_status_counters"), rows.capture());
+        assertEquals(2, rows.getValue().size());
+        assertTrue(rows.getValue().stream().anyMatch(row ->
+            row[0].equals("COMPLETED") && row[1].equals(19_000L) && row[2].equals(20_000L)));
+        assertTrue(rows.getValue().stream().anyMatch(row ->
+            row[0].equals("FAILED") && row[1].equals(0L) && row[2].equals(20_000L)));
+        verify(jdbcTemplate).update("DELETE FROM transaction_status_counter_deltas WHERE block_start_id < ?", 20_000L);
+    }
+
+    private void givenStoredCounters(Map<String, Long> values) throws SQLException {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Map.Entry<String, Long> entry : values.entrySet()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(entry.getKey());
+                when(rs.getLong(2)).thenReturn(entry.getValue());
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT status, SUM(count)"), any(RowCallbackHandler.class));
+    }
+}